@@ -19,17 +19,19 @@
  */
 package org.sonar.xoo.scm;
 
-import com.google.common.annotations.VisibleForTesting;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.CheckForNull;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.scm.BlameCommand;
+import org.sonar.api.batch.scm.BlameExecutor;
 import org.sonar.api.batch.scm.BlameLine;
 import org.sonar.api.utils.DateUtils;
 
@@ -39,17 +41,15 @@ public class XooBlameCommand extends BlameCommand {
 
   @Override
   public void blame(BlameInput input, BlameOutput result) {
-    for (InputFile inputFile : input.filesToBlame()) {
-      processFile(inputFile, result);
-    }
+    new BlameExecutor(BlameExecutor.defaultThreads(), 1, TimeUnit.MINUTES).execute(input, result, XooBlameCommand::blameFile);
   }
 
-  @VisibleForTesting
-  protected void processFile(InputFile inputFile, BlameOutput result) {
+  @CheckForNull
+  private static List<BlameLine> blameFile(InputFile inputFile) {
     File ioFile = inputFile.file();
     File scmDataFile = new java.io.File(ioFile.getParentFile(), ioFile.getName() + SCM_EXTENSION);
     if (!scmDataFile.exists()) {
-      return;
+      return null;
     }
 
     try {
@@ -80,7 +80,7 @@ public class XooBlameCommand extends BlameCommand {
           blame.add(blameLine);
         }
       }
-      result.blameResult(inputFile, blame);
+      return blame;
     } catch (IOException e) {
       throw new IllegalStateException(e);
     }
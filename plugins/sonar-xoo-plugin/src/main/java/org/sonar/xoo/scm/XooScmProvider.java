@@ -19,11 +19,15 @@
  */
 package org.sonar.xoo.scm;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import javax.annotation.CheckForNull;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
 import org.sonar.api.batch.scm.BlameCommand;
 import org.sonar.api.batch.scm.ScmProvider;
 
-import java.io.File;
-
 public class XooScmProvider extends ScmProvider {
 
   private final XooBlameCommand blame;
@@ -47,4 +51,21 @@ public class XooScmProvider extends ScmProvider {
     return blame;
   }
 
+  /**
+   * The revision is the content of the file .xoo of the base directory, if not blank.
+   */
+  @CheckForNull
+  @Override
+  public String revisionId(File baseDir) {
+    File revisionFile = new File(baseDir, ".xoo");
+    if (!revisionFile.isFile()) {
+      return null;
+    }
+    try {
+      return StringUtils.trimToNull(FileUtils.readFileToString(revisionFile, StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read revision from " + revisionFile, e);
+    }
+  }
+
 }
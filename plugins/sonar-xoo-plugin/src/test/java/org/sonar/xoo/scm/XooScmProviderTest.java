@@ -0,0 +1,55 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.xoo.scm;
+
+import java.io.File;
+import java.io.IOException;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class XooScmProviderTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private XooScmProvider underTest = new XooScmProvider(new XooBlameCommand());
+
+  @Test
+  public void revision_is_content_of_xoo_file() throws IOException {
+    File baseDir = temp.newFolder();
+    FileUtils.write(new File(baseDir, ".xoo"), "abc123\n");
+
+    assertThat(underTest.supports(baseDir)).isTrue();
+    assertThat(underTest.revisionId(baseDir)).isEqualTo("abc123");
+  }
+
+  @Test
+  public void revision_is_unknown_if_xoo_file_is_empty_or_missing() throws IOException {
+    File baseDir = temp.newFolder();
+    assertThat(underTest.revisionId(baseDir)).isNull();
+
+    new File(baseDir, ".xoo").createNewFile();
+    assertThat(underTest.revisionId(baseDir)).isNull();
+  }
+}
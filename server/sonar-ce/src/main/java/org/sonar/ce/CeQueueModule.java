@@ -21,6 +21,7 @@ package org.sonar.ce;
 
 import org.sonar.core.platform.Module;
 import org.sonar.server.computation.monitoring.CEQueueStatusImpl;
+import org.sonar.server.computation.monitoring.CeTaskProfiles;
 import org.sonar.server.computation.monitoring.CeTasksMBeanImpl;
 import org.sonar.server.computation.queue.CeQueueCleaner;
 import org.sonar.server.computation.queue.CeQueueInitializer;
@@ -36,6 +37,7 @@ public class CeQueueModule extends Module {
       // queue monitoring
       CEQueueStatusImpl.class,
       CeTasksMBeanImpl.class,
+      CeTaskProfiles.class,
 
       // queue cleaning
       CeQueueCleaner.class,
@@ -111,6 +111,7 @@ import org.sonar.server.platform.TempFolderProvider;
 import org.sonar.server.platform.UrlSettings;
 import org.sonar.server.platform.cluster.ClusterImpl;
 import org.sonar.server.platform.cluster.ClusterProperties;
+import org.sonar.server.platform.monitoring.SqlStatisticsLogger;
 import org.sonar.server.plugins.InstalledPluginReferentialFactory;
 import org.sonar.server.plugins.ServerExtensionInstaller;
 import org.sonar.server.plugins.privileged.PrivilegedPluginsBootstraper;
@@ -220,6 +221,7 @@ public class ComputeEngineContainerImpl implements ComputeEngineContainer {
       org.sonar.core.persistence.MyBatis.class,
       DatabaseServerCompatibility.class,
       DatabaseVersion.class,
+      SqlStatisticsLogger.class,
       PurgeProfiler.class,
       ServerFileSystemImpl.class,
       // no TempFolderCleaner.class, responsibility of Web Server
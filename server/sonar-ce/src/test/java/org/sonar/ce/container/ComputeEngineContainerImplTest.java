@@ -91,8 +91,8 @@ public class ComputeEngineContainerImplTest {
           + 79 // level 4
           + 4 // content of CeConfigurationModule
           + 3 // content of CeHttpModule
-          + 5 // content of CeQueueModule
-          + 4 // content of ProjectAnalysisTaskModule
+          + 6 // content of CeQueueModule
+          + 5 // content of ProjectAnalysisTaskModule
           + 4 // content of CeTaskProcessorModule
     );
     assertThat(picoContainer.getParent().getComponentAdapters()).hasSize(
@@ -105,8 +105,8 @@ public class ComputeEngineContainerImplTest {
     );
     assertThat(picoContainer.getParent().getParent().getParent().getComponentAdapters()).hasSize(
       COMPONENTS_IN_LEVEL_1_AT_CONSTRUCTION
-        + 25 // level 1
-        + 48 // content of DaoModule
+        + 26 // level 1
+        + 49 // content of DaoModule
         + 2 // content of EsSearchModule
         + 54 // content of CorePropertyDefinitions
         + 1 // content of CePropertyDefinitions
@@ -32,6 +32,7 @@ import org.sonar.process.DefaultProcessCommands;
 import org.sonar.process.Lifecycle;
 import org.sonar.process.Lifecycle.State;
 import org.sonar.process.ProcessId;
+import org.sonar.process.ProcessMetrics;
 import org.sonar.process.ProcessUtils;
 import org.sonar.process.SystemExit;
 
@@ -400,6 +401,7 @@ public class Monitor {
         }
         if (!ref.isStopped()) {
           LOG.info("{} failed to stop in a timely fashion. Killing it.", ref);
+          logLatestMetrics(ref);
         }
         ref.stop();
         LOG.info("{} is stopped", ref);
@@ -411,6 +413,13 @@ public class Monitor {
     this.watcherThreads.clear();
   }
 
+  private static void logLatestMetrics(ProcessRef ref) {
+    List<ProcessMetrics> metrics = ref.getCommands().getMetrics();
+    if (!metrics.isEmpty()) {
+      LOG.info("Latest metrics of {}: {}", ref, metrics.get(0));
+    }
+  }
+
   public State getState() {
     return lifecycle.getState();
   }
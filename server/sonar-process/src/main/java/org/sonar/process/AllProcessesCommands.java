@@ -25,6 +25,9 @@ import java.io.RandomAccessFile;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.CheckForNull;
 import org.apache.commons.io.IOUtils;
 
 import static java.lang.String.format;
@@ -60,6 +63,9 @@ import static org.sonar.process.ProcessCommands.MAX_PROCESSES;
  *   <li>Fourth byte will always contain {@link #EMPTY} unless process declares that it is operational by writing {@link #OPERATIONAL}.
  *       This does not imply that is done starting.</li>
  *   <li>The next 8 bytes contains a long (value of {@link System#currentTimeMillis()}) which represents the date of the last ping</li>
+ *   <li>The next {@link #SYSTEM_INFO_URL_SIZE_IN_BYTES} bytes contains the URL of the System Info web service of the process</li>
+ *   <li>The next 8 bytes contains the sequence number of the last sample of {@link ProcessMetric}s published by the process,
+ *       followed by a ring of {@link #METRICS_RING_SIZE} samples. See {@link #publishMetrics(int, ProcessMetrics)}</li>
  * </ul>
  * </p>
  */
@@ -72,8 +78,18 @@ public class AllProcessesCommands implements AutoCloseable {
   private static final int SYSTEM_INFO_URL_BYTE_OFFSET = PING_BYTE_OFFSET + 8;
 
   private static final int SYSTEM_INFO_URL_SIZE_IN_BYTES = 500;
+  private static final int METRICS_BYTE_OFFSET = SYSTEM_INFO_URL_BYTE_OFFSET + SYSTEM_INFO_URL_SIZE_IN_BYTES;
 
-  private static final int BYTE_LENGTH_FOR_ONE_PROCESS = 1 + 1 + 1 + 1 + 8 + SYSTEM_INFO_URL_SIZE_IN_BYTES;
+  // a sample is made of its sequence number, its timestamp, its values and its sequence number again
+  private static final int METRICS_RING_SIZE = 4;
+  private static final int SAMPLE_BEGIN_BYTE_OFFSET = 0;
+  private static final int SAMPLE_TIMESTAMP_BYTE_OFFSET = 8;
+  private static final int SAMPLE_VALUES_BYTE_OFFSET = 16;
+  private static final int SAMPLE_END_BYTE_OFFSET = SAMPLE_VALUES_BYTE_OFFSET + 8 * ProcessMetric.MAX_METRICS;
+  private static final int SAMPLE_SIZE_IN_BYTES = SAMPLE_END_BYTE_OFFSET + 8;
+  private static final int METRICS_SIZE_IN_BYTES = 8 + METRICS_RING_SIZE * SAMPLE_SIZE_IN_BYTES;
+
+  private static final int BYTE_LENGTH_FOR_ONE_PROCESS = 1 + 1 + 1 + 1 + 8 + SYSTEM_INFO_URL_SIZE_IN_BYTES + METRICS_SIZE_IN_BYTES;
 
   // With this shared memory we can handle up to MAX_PROCESSES processes
   private static final int MAX_SHARED_MEMORY = BYTE_LENGTH_FOR_ONE_PROCESS * MAX_PROCESSES;
@@ -161,6 +177,67 @@ public class AllProcessesCommands implements AutoCloseable {
     writeBytes(processNumber, SYSTEM_INFO_URL_BYTE_OFFSET, urlBytes);
   }
 
+  /**
+   * To be executed by the process itself, from a single thread. No lock is involved: the sample is written in the next
+   * slot of the ring, surrounded by its sequence number, then the sequence number of the last sample is updated.
+   * Readers drop the samples which are being overwritten, see {@link #getMetrics(int)}.
+   */
+  void publishMetrics(int processNumber, ProcessMetrics metrics) {
+    long sequence = readLong(processNumber, METRICS_BYTE_OFFSET) + 1;
+    int sampleOffset = sampleOffset(sequence);
+    writeLong(processNumber, sampleOffset + SAMPLE_BEGIN_BYTE_OFFSET, sequence);
+    writeLong(processNumber, sampleOffset + SAMPLE_TIMESTAMP_BYTE_OFFSET, metrics.getTimestamp());
+    long[] values = metrics.getValues();
+    for (int i = 0; i < values.length; i++) {
+      writeLong(processNumber, sampleOffset + SAMPLE_VALUES_BYTE_OFFSET + 8 * i, values[i]);
+    }
+    writeLong(processNumber, sampleOffset + SAMPLE_END_BYTE_OFFSET, sequence);
+    writeLong(processNumber, METRICS_BYTE_OFFSET, sequence);
+  }
+
+  /**
+   * The samples of metrics available in the ring, from the most recent to the oldest one. Empty if the process
+   * did not publish metrics yet.
+   */
+  List<ProcessMetrics> getMetrics(int processNumber) {
+    long lastSequence = readLong(processNumber, METRICS_BYTE_OFFSET);
+    List<ProcessMetrics> samples = new ArrayList<>(METRICS_RING_SIZE);
+    for (long sequence = lastSequence; sequence > 0 && sequence > lastSequence - METRICS_RING_SIZE; sequence--) {
+      ProcessMetrics sample = readSample(processNumber, sequence);
+      if (sample == null) {
+        // overwritten by the process in the meantime, as are the older samples
+        break;
+      }
+      samples.add(sample);
+    }
+    return samples;
+  }
+
+  /**
+   * The sequence number is read after the end of the sample and then before its start, in the opposite order of
+   * {@link #publishMetrics(int, ProcessMetrics)}, so that a sample being overwritten is detected.
+   */
+  @CheckForNull
+  private ProcessMetrics readSample(int processNumber, long sequence) {
+    int sampleOffset = sampleOffset(sequence);
+    if (readLong(processNumber, sampleOffset + SAMPLE_END_BYTE_OFFSET) != sequence) {
+      return null;
+    }
+    long timestamp = readLong(processNumber, sampleOffset + SAMPLE_TIMESTAMP_BYTE_OFFSET);
+    long[] values = new long[ProcessMetric.MAX_METRICS];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = readLong(processNumber, sampleOffset + SAMPLE_VALUES_BYTE_OFFSET + 8 * i);
+    }
+    if (readLong(processNumber, sampleOffset + SAMPLE_BEGIN_BYTE_OFFSET) != sequence) {
+      return null;
+    }
+    return new ProcessMetrics(timestamp, values);
+  }
+
+  private static int sampleOffset(long sequence) {
+    return METRICS_BYTE_OFFSET + 8 + (int) (sequence % METRICS_RING_SIZE) * SAMPLE_SIZE_IN_BYTES;
+  }
+
   /**
    * To be executed by monitor process to ask for child process termination
    */
@@ -286,6 +363,16 @@ public class AllProcessesCommands implements AutoCloseable {
       return AllProcessesCommands.this.getSystemInfoUrl(processNumber);
     }
 
+    @Override
+    public void publishMetrics(ProcessMetrics metrics) {
+      AllProcessesCommands.this.publishMetrics(processNumber, metrics);
+    }
+
+    @Override
+    public List<ProcessMetrics> getMetrics() {
+      return AllProcessesCommands.this.getMetrics(processNumber);
+    }
+
     @Override
     public void askForStop() {
       AllProcessesCommands.this.askForStop(processNumber);
@@ -20,6 +20,7 @@
 package org.sonar.process;
 
 import java.io.File;
+import java.util.List;
 import org.slf4j.LoggerFactory;
 
 /**
@@ -101,6 +102,16 @@ public class DefaultProcessCommands implements ProcessCommands {
     return delegate.getHttpUrl();
   }
 
+  @Override
+  public void publishMetrics(ProcessMetrics metrics) {
+    delegate.publishMetrics(metrics);
+  }
+
+  @Override
+  public List<ProcessMetrics> getMetrics() {
+    return delegate.getMetrics();
+  }
+
   @Override
   public void askForStop() {
     delegate.askForStop();
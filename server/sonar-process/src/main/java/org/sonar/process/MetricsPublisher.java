@@ -0,0 +1,105 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.process;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Publishes the {@link ProcessMetric}s of the current process in the shared memory at a fixed interval, so that the
+ * other processes can read them without any HTTP or JMX call. The metrics of the JVM are always published, the
+ * other ones once their source is registered by the component which computes them.
+ */
+public class MetricsPublisher extends Thread {
+
+  private static final Map<ProcessMetric, LongSupplier> SOURCES = new ConcurrentHashMap<>();
+
+  private final ProcessCommands commands;
+  private final long delayMs;
+  private volatile boolean publishing = true;
+
+  public MetricsPublisher(ProcessCommands commands) {
+    this(commands, 5_000L);
+  }
+
+  MetricsPublisher(ProcessCommands commands, long delayMs) {
+    super("Metrics Publisher");
+    setDaemon(true);
+    this.commands = commands;
+    this.delayMs = delayMs;
+  }
+
+  public static void register(ProcessMetric metric, LongSupplier source) {
+    SOURCES.put(metric, source);
+  }
+
+  public static void unregister(ProcessMetric metric) {
+    SOURCES.remove(metric);
+  }
+
+  @Override
+  public void run() {
+    while (publishing) {
+      publish();
+      try {
+        Thread.sleep(delayMs);
+      } catch (InterruptedException ignored) {
+        publishing = false;
+      }
+    }
+  }
+
+  void publish() {
+    long[] values = new long[ProcessMetric.MAX_METRICS];
+    Arrays.fill(values, ProcessMetrics.UNKNOWN);
+    MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+    values[ProcessMetric.HEAP_USED_BYTES.ordinal()] = heap.getUsed();
+    values[ProcessMetric.HEAP_MAX_BYTES.ordinal()] = heap.getMax();
+    values[ProcessMetric.GC_TIME_MS.ordinal()] = gcTimeMs();
+    values[ProcessMetric.THREADS.ordinal()] = ManagementFactory.getThreadMXBean().getThreadCount();
+    for (Map.Entry<ProcessMetric, LongSupplier> source : SOURCES.entrySet()) {
+      try {
+        values[source.getKey().ordinal()] = source.getValue().getAsLong();
+      } catch (RuntimeException e) {
+        LoggerFactory.getLogger(getClass()).debug("Fail to compute metric " + source.getKey(), e);
+      }
+    }
+    commands.publishMetrics(new ProcessMetrics(System.currentTimeMillis(), values));
+  }
+
+  private static long gcTimeMs() {
+    long total = 0L;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      // -1 if the collection time is not available for this collector
+      total += Math.max(gc.getCollectionTime(), 0L);
+    }
+    return total;
+  }
+
+  public void stopPublishing() {
+    publishing = false;
+  }
+}
@@ -20,6 +20,7 @@
 package org.sonar.process;
 
 import java.io.File;
+import java.util.List;
 
 /**
  * Process inter-communication to :
@@ -59,6 +60,16 @@ public interface ProcessCommands extends AutoCloseable {
 
   String getHttpUrl();
 
+  /**
+   * To be executed by child process, from a single thread, see {@link MetricsPublisher}
+   */
+  void publishMetrics(ProcessMetrics metrics);
+
+  /**
+   * Latest samples of metrics published by the process, from the most recent to the oldest one
+   */
+  List<ProcessMetrics> getMetrics();
+
   /**
    * To be executed by monitor process to ask for child process termination
    */
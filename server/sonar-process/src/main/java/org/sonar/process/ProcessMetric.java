@@ -0,0 +1,47 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.process;
+
+/**
+ * Runtime counters published by each process in the shared memory, see {@link MetricsPublisher}.
+ * The ordinal of a metric is its position in the shared memory, so new metrics must be added at the end,
+ * within the limit of {@link #MAX_METRICS}.
+ */
+public enum ProcessMetric {
+  HEAP_USED_BYTES,
+  HEAP_MAX_BYTES,
+  /**
+   * Accumulated time of garbage collections since process startup
+   */
+  GC_TIME_MS,
+  THREADS,
+  CE_PENDING_TASKS,
+  CE_IN_PROGRESS_TASKS,
+  /**
+   * Number of web service requests since process startup. The rate is computed from two consecutive samples.
+   */
+  WS_REQUESTS,
+  /**
+   * Number of Elasticsearch bulk requests which are sent but not answered yet
+   */
+  ES_BULK_BACKLOG;
+
+  public static final int MAX_METRICS = 16;
+}
@@ -0,0 +1,76 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.process;
+
+import static java.lang.String.format;
+
+/**
+ * Values of the {@link ProcessMetric}s of a process at a given date
+ */
+public class ProcessMetrics {
+
+  /**
+   * Value of the metrics which are not published by the process
+   */
+  public static final long UNKNOWN = -1L;
+
+  private final long timestamp;
+  private final long[] values;
+
+  /**
+   * @param values indexed by {@link ProcessMetric#ordinal()}
+   */
+  public ProcessMetrics(long timestamp, long[] values) {
+    if (values.length != ProcessMetric.MAX_METRICS) {
+      throw new IllegalArgumentException(format("Expected %d values, got %d", ProcessMetric.MAX_METRICS, values.length));
+    }
+    this.timestamp = timestamp;
+    this.values = values.clone();
+  }
+
+  /**
+   * Value of {@link System#currentTimeMillis()} when the metrics were sampled
+   */
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  public long get(ProcessMetric metric) {
+    return values[metric.ordinal()];
+  }
+
+  long[] getValues() {
+    return values.clone();
+  }
+
+  /**
+   * The metrics which are not published are omitted
+   */
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("ProcessMetrics{timestamp=").append(timestamp);
+    for (ProcessMetric metric : ProcessMetric.values()) {
+      if (get(metric) != UNKNOWN) {
+        sb.append(", ").append(metric).append('=').append(get(metric));
+      }
+    }
+    return sb.append('}').toString();
+  }
+}
@@ -21,6 +21,10 @@ package org.sonar.process;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.commons.io.FileUtils;
 import org.junit.Rule;
 import org.junit.Test;
@@ -163,6 +167,89 @@ public class AllProcessesCommandsTest {
     assertThat(commands.askedForRestart(PROCESS_NUMBER)).isFalse();
   }
 
+  @Test
+  public void no_metrics_until_process_publishes_them() throws Exception {
+    AllProcessesCommands commands = new AllProcessesCommands(temp.newFolder());
+
+    assertThat(commands.getMetrics(PROCESS_NUMBER)).isEmpty();
+  }
+
+  @Test
+  public void read_latest_metrics_first() throws Exception {
+    AllProcessesCommands commands = new AllProcessesCommands(temp.newFolder());
+
+    for (long i = 1; i <= 6; i++) {
+      commands.publishMetrics(PROCESS_NUMBER, metrics(i));
+    }
+
+    // the ring keeps the 4 latest samples
+    assertThat(commands.getMetrics(PROCESS_NUMBER)).extracting("timestamp").containsExactly(6L, 5L, 4L, 3L);
+    assertThat(commands.getMetrics(PROCESS_NUMBER).get(0).get(ProcessMetric.THREADS)).isEqualTo(6L);
+    assertThat(commands.getMetrics(PROCESS_NUMBER + 1)).isEmpty();
+  }
+
+  @Test
+  public void clean_metrics() throws Exception {
+    File dir = temp.newFolder();
+    AllProcessesCommands commands = new AllProcessesCommands(dir);
+    commands.publishMetrics(PROCESS_NUMBER, metrics(1L));
+
+    commands.createAfterClean(PROCESS_NUMBER);
+
+    assertThat(commands.getMetrics(PROCESS_NUMBER)).isEmpty();
+  }
+
+  /**
+   * Each process publishes its own metrics while the others read them, through distinct mappings of the same file
+   */
+  @Test(timeout = 60_000L)
+  public void readers_never_get_partially_written_metrics() throws Exception {
+    File dir = temp.newFolder();
+    int writers = 3;
+    long samplesPerWriter = 50_000L;
+    List<AllProcessesCommands> mappings = new ArrayList<>();
+    List<Thread> threads = new ArrayList<>();
+    for (int processNumber = 0; processNumber < writers; processNumber++) {
+      AllProcessesCommands mapping = new AllProcessesCommands(dir);
+      mappings.add(mapping);
+      int writerProcess = processNumber;
+      threads.add(new Thread(() -> {
+        for (long i = 1; i <= samplesPerWriter; i++) {
+          mapping.publishMetrics(writerProcess, metrics(i));
+        }
+      }));
+    }
+    AtomicLong inconsistentSamples = new AtomicLong();
+    AllProcessesCommands readerMapping = new AllProcessesCommands(dir);
+    mappings.add(readerMapping);
+    Thread reader = new Thread(() -> {
+      while (threads.stream().anyMatch(Thread::isAlive)) {
+        for (int processNumber = 0; processNumber < writers; processNumber++) {
+          for (ProcessMetrics sample : readerMapping.getMetrics(processNumber)) {
+            for (ProcessMetric metric : ProcessMetric.values()) {
+              if (sample.get(metric) != sample.getTimestamp()) {
+                inconsistentSamples.incrementAndGet();
+              }
+            }
+          }
+        }
+      }
+    });
+
+    threads.forEach(Thread::start);
+    reader.start();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    reader.join();
+
+    assertThat(inconsistentSamples.get()).isZero();
+    for (int processNumber = 0; processNumber < writers; processNumber++) {
+      assertThat(readerMapping.getMetrics(processNumber).get(0).getTimestamp()).isEqualTo(samplesPerWriter);
+    }
+    mappings.forEach(AllProcessesCommands::close);
+  }
+
   @Test
   public void getProcessCommands_fails_if_processNumber_is_less_than_0() throws Exception {
     AllProcessesCommands allProcessesCommands = new AllProcessesCommands(temp.newFolder());
@@ -185,6 +272,15 @@ public class AllProcessesCommandsTest {
     allProcessesCommands.createAfterClean(processNumber);
   }
 
+  /**
+   * All the values are equal to the timestamp, so that a partially written sample is detected
+   */
+  private static ProcessMetrics metrics(long timestamp) {
+    long[] values = new long[ProcessMetric.MAX_METRICS];
+    Arrays.fill(values, timestamp);
+    return new ProcessMetrics(timestamp, values);
+  }
+
   private byte readByte(AllProcessesCommands commands, int offset) {
     return commands.mappedByteBuffer.get(commands.offset(PROCESS_NUMBER) + offset);
   }
@@ -0,0 +1,91 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.process;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+public class MetricsPublisherTest {
+
+  private ProcessCommands commands = mock(ProcessCommands.class);
+
+  @After
+  public void tearDown() {
+    MetricsPublisher.unregister(ProcessMetric.CE_PENDING_TASKS);
+    MetricsPublisher.unregister(ProcessMetric.WS_REQUESTS);
+  }
+
+  @Test
+  public void publish_jvm_metrics() {
+    new MetricsPublisher(commands).publish();
+
+    ProcessMetrics metrics = captureMetrics();
+    assertThat(metrics.get(ProcessMetric.HEAP_USED_BYTES)).isGreaterThan(0L);
+    assertThat(metrics.get(ProcessMetric.THREADS)).isGreaterThan(0L);
+    assertThat(metrics.get(ProcessMetric.GC_TIME_MS)).isGreaterThanOrEqualTo(0L);
+    assertThat(metrics.get(ProcessMetric.CE_PENDING_TASKS)).isEqualTo(ProcessMetrics.UNKNOWN);
+  }
+
+  @Test
+  public void publish_registered_metrics() {
+    MetricsPublisher.register(ProcessMetric.CE_PENDING_TASKS, () -> 12L);
+
+    new MetricsPublisher(commands).publish();
+
+    assertThat(captureMetrics().get(ProcessMetric.CE_PENDING_TASKS)).isEqualTo(12L);
+  }
+
+  @Test
+  public void ignore_metric_which_fails_to_be_computed() {
+    MetricsPublisher.register(ProcessMetric.CE_PENDING_TASKS, () -> {
+      throw new IllegalStateException("not started");
+    });
+    MetricsPublisher.register(ProcessMetric.WS_REQUESTS, () -> 3L);
+
+    new MetricsPublisher(commands).publish();
+
+    ProcessMetrics metrics = captureMetrics();
+    assertThat(metrics.get(ProcessMetric.CE_PENDING_TASKS)).isEqualTo(ProcessMetrics.UNKNOWN);
+    assertThat(metrics.get(ProcessMetric.WS_REQUESTS)).isEqualTo(3L);
+  }
+
+  @Test(timeout = 5000)
+  public void publish_at_fixed_interval_until_stopped() throws InterruptedException {
+    MetricsPublisher publisher = new MetricsPublisher(commands, 1L);
+    publisher.start();
+
+    verify(commands, timeout(5000).atLeast(3)).publishMetrics(any(ProcessMetrics.class));
+    publisher.stopPublishing();
+    publisher.join();
+  }
+
+  private ProcessMetrics captureMetrics() {
+    ArgumentCaptor<ProcessMetrics> captor = ArgumentCaptor.forClass(ProcessMetrics.class);
+    verify(commands).publishMetrics(captor.capture());
+    return captor.getValue();
+  }
+}
@@ -38,6 +38,7 @@ public class ProjectAction implements BatchWsAction {
   private static final String PARAM_KEY = "key";
   private static final String PARAM_PROFILE = "profile";
   private static final String PARAM_ISSUES_MODE = "issues_mode";
+  private static final String PARAM_SINCE_ANALYSIS = "since_analysis";
 
   private final ProjectDataLoader projectDataLoader;
 
@@ -70,6 +71,15 @@ public class ProjectAction implements BatchWsAction {
       .setDescription("Issues mode or not")
       .setDefaultValue(false)
       .setBooleanPossibleValues();
+
+    action
+      .createParam(PARAM_SINCE_ANALYSIS)
+      .setDescription("Uuid of an analysis of the project which file data is already known by the caller. " +
+        "If this analysis exists, only the files updated since then are returned, the field 'delta' of the response is true " +
+        "and the field 'fileKeysHash' is the hash of the module keys and paths of the full file data. " +
+        "Ignored on modules.")
+      .setSince("6.1")
+      .setExampleValue("AU-TpxcA-iU5OvuD2FLz");
   }
 
   @Override
@@ -77,7 +87,8 @@ public class ProjectAction implements BatchWsAction {
     ProjectRepositories data = projectDataLoader.load(ProjectDataQuery.create()
       .setModuleKey(wsRequest.mandatoryParam(PARAM_KEY))
       .setProfileName(wsRequest.param(PARAM_PROFILE))
-      .setIssuesMode(wsRequest.mandatoryParamAsBoolean(PARAM_ISSUES_MODE)));
+      .setIssuesMode(wsRequest.mandatoryParamAsBoolean(PARAM_ISSUES_MODE))
+      .setSinceAnalysisUuid(wsRequest.param(PARAM_SINCE_ANALYSIS)));
 
     WsProjectResponse projectResponse = buildResponse(data);
     writeProtobuf(projectResponse, wsRequest, wsResponse);
@@ -87,6 +98,13 @@ public class ProjectAction implements BatchWsAction {
     WsProjectResponse.Builder response = WsProjectResponse.newBuilder();
     setLastAnalysisDate(response, data);
     response.setTimestamp(data.timestamp());
+    if (data.analysisUuid() != null) {
+      response.setAnalysisUuid(data.analysisUuid());
+    }
+    response.setDelta(data.isDelta());
+    if (data.fileKeysHash() != null) {
+      response.setFileKeysHash(data.fileKeysHash());
+    }
     response.getMutableFileDataByModuleAndPath()
       .putAll(buildFileDataByModuleAndPath(data));
     response.getMutableSettingsByModule()
@@ -26,6 +26,9 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.resources.Scopes;
 import org.sonar.api.server.ServerSide;
@@ -34,6 +37,7 @@ import org.sonar.db.DbSession;
 import org.sonar.db.MyBatis;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.FilePathWithHashDto;
+import org.sonar.db.component.SnapshotDto;
 import org.sonar.db.property.PropertyDto;
 import org.sonar.scanner.protocol.input.FileData;
 import org.sonar.scanner.protocol.input.ProjectRepositories;
@@ -86,8 +90,13 @@ public class ProjectDataLoader {
       TreeModuleSettings treeModuleSettings = new TreeModuleSettings(moduleUuidsByKey, moduleIdsByKey, modulesTree, modulesTreeSettings);
 
       addSettingsToChildrenModules(data, query.getModuleKey(), Maps.<String, String>newHashMap(), treeModuleSettings, hasScanPerm);
-      List<FilePathWithHashDto> files = searchFilesWithHashAndRevision(session, module);
-      addFileData(data, modulesTree, files);
+      Optional<SnapshotDto> lastAnalysis = dbClient.snapshotDao().selectLastAnalysisByRootComponentUuid(session, project.uuid());
+      if (lastAnalysis.isPresent()) {
+        data.setAnalysisUuid(lastAnalysis.get().getUuid());
+      }
+      Map<String, String> moduleKeysByUuid = moduleKeysByUuid(modulesTree);
+      List<FilePathWithHashDto> files = searchFilesWithHashAndRevision(session, module, query.getSinceAnalysisUuid(), moduleKeysByUuid, data);
+      addFileData(data, moduleKeysByUuid, files);
 
       // FIXME need real value but actually only used to know if there is a previous analysis in local issue tracking mode so any value is
       // ok
@@ -106,9 +115,52 @@ public class ProjectDataLoader {
     return Qualifiers.PROJECT.equals(module.qualifier()) || Qualifiers.MODULE.equals(module.qualifier());
   }
 
-  private List<FilePathWithHashDto> searchFilesWithHashAndRevision(DbSession session, ComponentDto module) {
-    return module.isRootProject() ? dbClient.componentDao().selectEnabledFilesFromProject(session, module.uuid())
-      : dbClient.componentDao().selectEnabledDescendantFiles(session, module.uuid());
+  private List<FilePathWithHashDto> searchFilesWithHashAndRevision(DbSession session, ComponentDto module, @Nullable String sinceAnalysisUuid,
+    Map<String, String> moduleKeysByUuid, ProjectRepositories data) {
+    if (!module.isRootProject()) {
+      return dbClient.componentDao().selectEnabledDescendantFiles(session, module.uuid());
+    }
+    List<FilePathWithHashDto> allFiles = dbClient.componentDao().selectEnabledFilesFromProject(session, module.uuid());
+    Long sinceDate = getSinceDate(session, module, sinceAnalysisUuid);
+    if (sinceDate == null) {
+      return allFiles;
+    }
+    // sources of moved or renamed files are not updated, so the caller needs the keys of all the files to validate its merged file data
+    data.setDelta(true);
+    data.setFileKeysHash(hashFileKeys(moduleKeysByUuid, allFiles));
+    return dbClient.componentDao().selectEnabledFilesFromProjectUpdatedAfter(session, module.uuid(), sinceDate);
+  }
+
+  private static String hashFileKeys(Map<String, String> moduleKeysByUuid, List<FilePathWithHashDto> files) {
+    Multimap<String, String> pathsByModuleKey = ArrayListMultimap.create();
+    for (FilePathWithHashDto file : files) {
+      // same files as the ones kept by ProjectRepositories#addFileData
+      if (file.getPath() != null && (file.getSrcHash() != null || file.getRevision() != null)) {
+        pathsByModuleKey.put(moduleKeysByUuid.get(file.getModuleUuid()), file.getPath());
+      }
+    }
+    return ProjectRepositories.hashFileKeys(pathsByModuleKey.asMap());
+  }
+
+  /**
+   * Date after which file sources must have been updated to be returned, when the caller already knows the files of the
+   * specified analysis. File sources are written by the Compute Engine before the build date of the next analysis, so
+   * the build date of the specified analysis is a safe lower bound.
+   *
+   * @return {@code null} if the specified analysis is unknown, in which case all files must be returned
+   */
+  @CheckForNull
+  private Long getSinceDate(DbSession session, ComponentDto project, @Nullable String sinceAnalysisUuid) {
+    if (sinceAnalysisUuid == null) {
+      return null;
+    }
+    Optional<SnapshotDto> sinceAnalysis = dbClient.snapshotDao().selectByUuid(session, sinceAnalysisUuid);
+    if (!sinceAnalysis.isPresent()
+      || !project.uuid().equals(sinceAnalysis.get().getComponentUuid())
+      || !SnapshotDto.STATUS_PROCESSED.equals(sinceAnalysis.get().getStatus())) {
+      return null;
+    }
+    return sinceAnalysis.get().getBuildDate();
   }
 
   private ComponentDto getProject(ComponentDto module, DbSession session) {
@@ -177,12 +229,15 @@ public class ProjectDataLoader {
     return !key.contains(".secured") || hasScanPerm;
   }
 
-  private static void addFileData(ProjectRepositories data, List<ComponentDto> moduleChildren, List<FilePathWithHashDto> files) {
+  private static Map<String, String> moduleKeysByUuid(List<ComponentDto> moduleChildren) {
     Map<String, String> moduleKeysByUuid = newHashMap();
     for (ComponentDto module : moduleChildren) {
       moduleKeysByUuid.put(module.uuid(), module.key());
     }
+    return moduleKeysByUuid;
+  }
 
+  private static void addFileData(ProjectRepositories data, Map<String, String> moduleKeysByUuid, List<FilePathWithHashDto> files) {
     for (FilePathWithHashDto file : files) {
       FileData fileData = new FileData(file.getSrcHash(), file.getRevision());
       data.addFileData(moduleKeysByUuid.get(file.getModuleUuid()), file.getPath(), fileData);
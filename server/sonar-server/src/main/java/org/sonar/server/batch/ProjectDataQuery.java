@@ -27,6 +27,7 @@ public class ProjectDataQuery {
   private String projectOrModuleKey;
   private String profileName;
   private boolean issuesMode;
+  private String sinceAnalysisUuid;
 
   private ProjectDataQuery() {
     // No direct call
@@ -60,6 +61,16 @@ public class ProjectDataQuery {
     return this;
   }
 
+  @CheckForNull
+  public String getSinceAnalysisUuid() {
+    return sinceAnalysisUuid;
+  }
+
+  public ProjectDataQuery setSinceAnalysisUuid(@Nullable String sinceAnalysisUuid) {
+    this.sinceAnalysisUuid = sinceAnalysisUuid;
+    return this;
+  }
+
   public static ProjectDataQuery create() {
     return new ProjectDataQuery();
   }
@@ -37,6 +37,7 @@ import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.ce.CeActivityDto;
 import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.ce.CeTaskProfile;
 import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.user.UserSession;
 import org.sonarqube.ws.WsCe;
@@ -68,7 +69,8 @@ public class TaskAction implements CeWsAction {
     WebService.NewAction action = controller.createAction(ACTION)
       .setDescription("Give Compute Engine task details such as type, status, duration and associated component.<br />" +
         "Requires 'Administer System' or 'Execute Analysis' permission.<br/>" +
-        "Since 6.1, field \"logs\" is deprecated and its value is always false.")
+        "Since 6.1, field \"logs\" is deprecated and its value is always false.<br/>" +
+        "Since 6.1, the resources consumed by each step of the task are returned when additional field \"profile\" is requested.")
       .setResponseExample(getClass().getResource("task-example.json"))
       .setSince("5.2")
       .setHandler(this);
@@ -101,8 +103,8 @@ public class TaskAction implements CeWsAction {
           checkPermission(ceActivityDto.getComponentUuid());
           Set<AdditionalField> additionalFields = AdditionalField.getFromRequest(wsRequest);
           maskErrorStacktrace(ceActivityDto, additionalFields);
-          wsTaskResponse.setTask(
-            wsTaskFormatter.formatActivity(dbSession, ceActivityDto, extractScannerContext(dbSession, ceActivityDto, additionalFields)));
+          WsCe.Task task = wsTaskFormatter.formatActivity(dbSession, ceActivityDto, extractScannerContext(dbSession, ceActivityDto, additionalFields));
+          wsTaskResponse.setTask(addProfile(dbSession, task, additionalFields));
         } else {
           throw new NotFoundException();
         }
@@ -136,9 +138,46 @@ public class TaskAction implements CeWsAction {
     return null;
   }
 
+  private WsCe.Task addProfile(DbSession dbSession, WsCe.Task task, Set<AdditionalField> additionalFields) {
+    if (!additionalFields.contains(AdditionalField.PROFILE)) {
+      return task;
+    }
+    return dbClient.ceTaskProfileDao().selectByTaskUuid(dbSession, task.getId())
+      .map(profile -> task.toBuilder().setProfile(formatProfile(profile)).build())
+      .orElse(task);
+  }
+
+  private static WsCe.Profile formatProfile(CeTaskProfile profile) {
+    WsCe.Profile.Builder builder = WsCe.Profile.newBuilder();
+    for (CeTaskProfile.Step step : profile.getSteps()) {
+      builder.addSteps(formatStep(step));
+    }
+    return builder.build();
+  }
+
+  private static WsCe.StepProfile formatStep(CeTaskProfile.Step step) {
+    WsCe.StepProfile.Builder builder = WsCe.StepProfile.newBuilder()
+      .setDescription(step.getDescription())
+      .setDurationMs(step.getDurationMs())
+      .setSqlStatements(step.getSqlStatements())
+      .setSqlFetchedRows(step.getSqlFetchedRows())
+      .setSqlTimeMs(step.getSqlTimeMs())
+      .setEsBulkRequests(step.getEsBulkRequests())
+      .setEsDocuments(step.getEsDocuments())
+      .setEsTimeMs(step.getEsTimeMs());
+    if (step.getCpuTimeMs() != CeTaskProfile.UNKNOWN) {
+      builder.setCpuTimeMs(step.getCpuTimeMs());
+    }
+    if (step.getAllocatedBytes() != CeTaskProfile.UNKNOWN) {
+      builder.setAllocatedBytes(step.getAllocatedBytes());
+    }
+    return builder.build();
+  }
+
   private enum AdditionalField {
     STACKTRACE("stacktrace"),
-    SCANNER_CONTEXT("scannerContext");
+    SCANNER_CONTEXT("scannerContext"),
+    PROFILE("profile");
 
     private final String label;
 
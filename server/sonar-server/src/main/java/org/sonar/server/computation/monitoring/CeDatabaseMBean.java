@@ -40,4 +40,12 @@ public interface CeDatabaseMBean {
   boolean getPoolRemoveAbandoned();
 
   int getPoolRemoveAbandonedTimeoutSeconds();
+
+  long getSqlExecutions();
+
+  long getSqlTotalTimeMillis();
+
+  long getSqlFetchedRows();
+
+  String[] getTopSqlStatements();
 }
@@ -22,11 +22,15 @@ package org.sonar.server.computation.monitoring;
 import org.apache.commons.dbcp.BasicDataSource;
 import org.picocontainer.Startable;
 import org.sonar.db.DbClient;
+import org.sonar.db.profiling.SqlStatistics;
+import org.sonar.db.profiling.StatementStatistics;
 import org.sonar.process.Jmx;
 import org.sonar.process.systeminfo.SystemInfoSection;
 import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
 
 public class CeDatabaseMBeanImpl implements CeDatabaseMBean, Startable, SystemInfoSection {
+  private static final int TOP_SQL_STATEMENTS = 10;
+
   private final DbClient dbClient;
 
   public CeDatabaseMBeanImpl(DbClient dbClient) {
@@ -91,6 +95,32 @@ public class CeDatabaseMBeanImpl implements CeDatabaseMBean, Startable, SystemIn
     return commonsDbcp().getRemoveAbandonedTimeout();
   }
 
+  @Override
+  public long getSqlExecutions() {
+    return sqlStatistics().getExecutions();
+  }
+
+  @Override
+  public long getSqlTotalTimeMillis() {
+    return sqlStatistics().getTotalTimeMs();
+  }
+
+  @Override
+  public long getSqlFetchedRows() {
+    return sqlStatistics().getFetchedRows();
+  }
+
+  @Override
+  public String[] getTopSqlStatements() {
+    return sqlStatistics().getTopByTotalTime(TOP_SQL_STATEMENTS).stream()
+      .map(StatementStatistics::toString)
+      .toArray(String[]::new);
+  }
+
+  private SqlStatistics sqlStatistics() {
+    return dbClient.getDatabase().getSqlStatistics();
+  }
+
   private BasicDataSource commonsDbcp() {
     return (BasicDataSource) dbClient.getDatabase().getDataSource();
   }
@@ -108,6 +138,9 @@ public class CeDatabaseMBeanImpl implements CeDatabaseMBean, Startable, SystemIn
     builder.addAttributesBuilder().setKey("Pool Max Wait (ms)").setLongValue(getPoolMaxWaitMillis()).build();
     builder.addAttributesBuilder().setKey("Pool Remove Abandoned").setBooleanValue(getPoolRemoveAbandoned()).build();
     builder.addAttributesBuilder().setKey("Pool Remove Abandoned Timeout (sec)").setLongValue(getPoolRemoveAbandonedTimeoutSeconds()).build();
+    builder.addAttributesBuilder().setKey("SQL Executions").setLongValue(getSqlExecutions()).build();
+    builder.addAttributesBuilder().setKey("SQL Total Time (ms)").setLongValue(getSqlTotalTimeMillis()).build();
+    builder.addAttributesBuilder().setKey("SQL Fetched Rows").setLongValue(getSqlFetchedRows()).build();
     return builder.build();
   }
 }
@@ -0,0 +1,116 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.monitoring;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.ce.CeTaskProfile;
+
+import static java.lang.String.format;
+
+/**
+ * Profiles of the steps executed by Compute Engine tasks. Each profile is persisted with its task, so
+ * that it's returned by the web service api/ce/task. The profiles of the latest tasks are also kept in memory
+ * to compute per-step percentiles, exported by {@link CeTasksMBean}.
+ */
+public class CeTaskProfiles {
+
+  static final int MAX_RECENT_PROFILES = 100;
+
+  private static final Logger LOGGER = Loggers.get(CeTaskProfiles.class);
+
+  private final DbClient dbClient;
+  private final Deque<CeTaskProfile> recentProfiles = new ArrayDeque<>(MAX_RECENT_PROFILES);
+
+  public CeTaskProfiles(DbClient dbClient) {
+    this.dbClient = dbClient;
+  }
+
+  public void record(String taskUuid, CeTaskProfile profile) {
+    synchronized (recentProfiles) {
+      if (recentProfiles.size() == MAX_RECENT_PROFILES) {
+        recentProfiles.removeFirst();
+      }
+      recentProfiles.addLast(profile);
+    }
+    DbSession dbSession = dbClient.openSession(false);
+    try {
+      dbClient.ceTaskProfileDao().insert(dbSession, taskUuid, profile);
+    } catch (RuntimeException e) {
+      // the profile is only a diagnostic, it must not fail the task
+      LOGGER.warn(format("Fail to persist profile of task %s", taskUuid), e);
+    } finally {
+      dbClient.closeSession(dbSession);
+    }
+  }
+
+  /**
+   * Percentiles of the steps executed by the latest tasks, one line per step, for example
+   * "Persist issues tasks=42 p50=120ms p90=300ms p99=450ms max=500ms cpu.p50=80ms alloc.p50=12MB sql.p50=340 es.docs.p50=1000"
+   */
+  public List<String> getStepStatistics() {
+    Map<String, List<CeTaskProfile.Step>> stepsByDescription = new LinkedHashMap<>();
+    synchronized (recentProfiles) {
+      for (CeTaskProfile profile : recentProfiles) {
+        for (CeTaskProfile.Step step : profile.getSteps()) {
+          stepsByDescription.computeIfAbsent(step.getDescription(), description -> new ArrayList<>()).add(step);
+        }
+      }
+    }
+    List<String> lines = new ArrayList<>(stepsByDescription.size());
+    for (Map.Entry<String, List<CeTaskProfile.Step>> entry : stepsByDescription.entrySet()) {
+      List<CeTaskProfile.Step> steps = entry.getValue();
+      long[] durations = sortedValues(steps, CeTaskProfile.Step::getDurationMs);
+      lines.add(format("%s tasks=%d p50=%dms p90=%dms p99=%dms max=%dms cpu.p50=%s alloc.p50=%s sql.p50=%d es.docs.p50=%d",
+        entry.getKey(), steps.size(),
+        percentile(durations, 50), percentile(durations, 90), percentile(durations, 99), durations[durations.length - 1],
+        formatUnknown(percentile(sortedValues(steps, CeTaskProfile.Step::getCpuTimeMs), 50), 1L, "ms"),
+        formatUnknown(percentile(sortedValues(steps, CeTaskProfile.Step::getAllocatedBytes), 50), 1_000_000L, "MB"),
+        percentile(sortedValues(steps, CeTaskProfile.Step::getSqlStatements), 50),
+        percentile(sortedValues(steps, CeTaskProfile.Step::getEsDocuments), 50)));
+    }
+    return lines;
+  }
+
+  private static long[] sortedValues(List<CeTaskProfile.Step> steps, ToLongFunction<CeTaskProfile.Step> counter) {
+    return steps.stream().mapToLong(counter).sorted().toArray();
+  }
+
+  /**
+   * Nearest-rank percentile
+   */
+  static long percentile(long[] sortedValues, int percentile) {
+    int rank = (int) Math.ceil(percentile / 100.0 * sortedValues.length);
+    return sortedValues[Math.max(rank, 1) - 1];
+  }
+
+  private static String formatUnknown(long value, long divisor, String unit) {
+    return value == CeTaskProfile.UNKNOWN ? "?" : ((value / divisor) + unit);
+  }
+}
@@ -52,4 +52,20 @@ public interface CeTasksMBean {
    * Configured number of Workers.
    */
   int getWorkerCount();
+
+  /**
+   * Percentiles of the steps executed by the latest tasks, one line per step, for example
+   * "Persist issues tasks=42 p50=120ms p90=300ms p99=450ms max=500ms cpu.p50=80ms alloc.p50=12MB sql.p50=340 es.docs.p50=1000"
+   */
+  String[] getStepStatistics();
+
+  /**
+   * Count of tasks which reused the rules already loaded by previous tasks, since startup.
+   */
+  long getRuleCacheHitCount();
+
+  /**
+   * Count of tasks which loaded rules created or updated since the previous tasks, since startup.
+   */
+  long getRuleCacheRefreshCount();
 }
@@ -22,22 +22,31 @@ package org.sonar.server.computation.monitoring;
 import org.picocontainer.Startable;
 import org.sonar.ce.monitoring.CEQueueStatus;
 import org.sonar.process.Jmx;
+import org.sonar.process.MetricsPublisher;
+import org.sonar.process.ProcessMetric;
 import org.sonar.process.systeminfo.SystemInfoSection;
 import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
 import org.sonar.server.computation.configuration.CeConfiguration;
+import org.sonar.server.computation.task.projectanalysis.issue.RuleSnapshotCache;
 
 public class CeTasksMBeanImpl implements CeTasksMBean, Startable, SystemInfoSection {
   private final CEQueueStatus queueStatus;
   private final CeConfiguration ceConfiguration;
+  private final CeTaskProfiles taskProfiles;
+  private final RuleSnapshotCache ruleSnapshotCache;
 
-  public CeTasksMBeanImpl(CEQueueStatus queueStatus, CeConfiguration ceConfiguration) {
+  public CeTasksMBeanImpl(CEQueueStatus queueStatus, CeConfiguration ceConfiguration, CeTaskProfiles taskProfiles, RuleSnapshotCache ruleSnapshotCache) {
     this.queueStatus = queueStatus;
     this.ceConfiguration = ceConfiguration;
+    this.taskProfiles = taskProfiles;
+    this.ruleSnapshotCache = ruleSnapshotCache;
   }
 
   @Override
   public void start() {
     Jmx.register(OBJECT_NAME, this);
+    MetricsPublisher.register(ProcessMetric.CE_PENDING_TASKS, queueStatus::getPendingCount);
+    MetricsPublisher.register(ProcessMetric.CE_IN_PROGRESS_TASKS, queueStatus::getInProgressCount);
   }
 
   /**
@@ -46,6 +55,8 @@ public class CeTasksMBeanImpl implements CeTasksMBean, Startable, SystemInfoSect
   @Override
   public void stop() {
     Jmx.unregister(OBJECT_NAME);
+    MetricsPublisher.unregister(ProcessMetric.CE_PENDING_TASKS);
+    MetricsPublisher.unregister(ProcessMetric.CE_IN_PROGRESS_TASKS);
   }
 
   @Override
@@ -78,6 +89,21 @@ public class CeTasksMBeanImpl implements CeTasksMBean, Startable, SystemInfoSect
     return ceConfiguration.getWorkerCount();
   }
 
+  @Override
+  public String[] getStepStatistics() {
+    return taskProfiles.getStepStatistics().toArray(new String[0]);
+  }
+
+  @Override
+  public long getRuleCacheHitCount() {
+    return ruleSnapshotCache.getHitCount();
+  }
+
+  @Override
+  public long getRuleCacheRefreshCount() {
+    return ruleSnapshotCache.getRefreshCount();
+  }
+
   @Override
   public ProtobufSystemInfo.Section toProtobuf() {
     ProtobufSystemInfo.Section.Builder builder = ProtobufSystemInfo.Section.newBuilder();
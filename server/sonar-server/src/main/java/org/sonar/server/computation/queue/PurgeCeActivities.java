@@ -59,6 +59,7 @@ public class PurgeCeActivities implements ServerStartHandler {
         .collect(Collectors.toSet());
       dbClient.ceActivityDao().deleteByUuids(dbSession, ceActivityUuids);
       dbClient.ceScannerContextDao().deleteByUuids(dbSession, ceActivityUuids);
+      dbClient.ceTaskProfileDao().deleteByUuids(dbSession, ceActivityUuids);
       dbSession.commit();
     }
   }
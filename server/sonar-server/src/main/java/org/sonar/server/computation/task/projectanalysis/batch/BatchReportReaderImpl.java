@@ -40,9 +40,10 @@ import org.sonar.scanner.protocol.output.ScannerReport;
 public class BatchReportReaderImpl implements BatchReportReader {
 
   private final BatchReportDirectoryHolder batchReportDirectoryHolder;
-  private org.sonar.scanner.protocol.output.ScannerReportReader delegate;
+  // steps may read the report concurrently, see ComputationStepExecutor
+  private volatile org.sonar.scanner.protocol.output.ScannerReportReader delegate;
   // caching of metadata which are read often
-  private ScannerReport.Metadata metadata;
+  private volatile ScannerReport.Metadata metadata;
 
   public BatchReportReaderImpl(BatchReportDirectoryHolder batchReportDirectoryHolder) {
     this.batchReportDirectoryHolder = batchReportDirectoryHolder;
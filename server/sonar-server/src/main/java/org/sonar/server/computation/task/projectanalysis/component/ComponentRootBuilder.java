@@ -23,6 +23,8 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Optional;
 import com.google.common.base.Supplier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Function;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
@@ -39,6 +41,14 @@ import static org.sonar.core.util.stream.Collectors.toList;
 
 public class ComponentRootBuilder {
   private static final String DEFAULT_PROJECT_VERSION = "not provided";
+  /**
+   * {@link FileAttributes} are immutable and only depend on the test flag and the language, so a single instance per
+   * combination is shared by all the files of all the analysis.
+   */
+  private static final FileAttributes MAIN_FILE_WITHOUT_LANGUAGE = new FileAttributes(false, null);
+  private static final FileAttributes TEST_FILE_WITHOUT_LANGUAGE = new FileAttributes(true, null);
+  private static final ConcurrentMap<String, FileAttributes> MAIN_FILE_ATTRIBUTES_BY_LANGUAGE = new ConcurrentHashMap<>();
+  private static final ConcurrentMap<String, FileAttributes> TEST_FILE_ATTRIBUTES_BY_LANGUAGE = new ConcurrentHashMap<>();
 
   /**
    * Will supply the UUID for any component in the tree, given it's key.
@@ -189,9 +199,13 @@ public class ComponentRootBuilder {
       return null;
     }
 
-    return new FileAttributes(
-      component.getIsTest(),
-      trimToNull(component.getLanguage()));
+    boolean unitTest = component.getIsTest();
+    String languageKey = trimToNull(component.getLanguage());
+    if (languageKey == null) {
+      return unitTest ? TEST_FILE_WITHOUT_LANGUAGE : MAIN_FILE_WITHOUT_LANGUAGE;
+    }
+    ConcurrentMap<String, FileAttributes> byLanguage = unitTest ? TEST_FILE_ATTRIBUTES_BY_LANGUAGE : MAIN_FILE_ATTRIBUTES_BY_LANGUAGE;
+    return byLanguage.computeIfAbsent(languageKey, key -> new FileAttributes(unitTest, key));
   }
 
   @VisibleForTesting
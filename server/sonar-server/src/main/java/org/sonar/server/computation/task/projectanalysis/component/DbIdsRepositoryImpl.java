@@ -19,32 +19,68 @@
  */
 package org.sonar.server.computation.task.projectanalysis.component;
 
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.lang.String.format;
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentFunctions.toReportRef;
 
 /**
  * Cache of persisted component (component id and snapshot id) that can be used in the persistence steps
+ * <p>
+ * Refs of the report are a sequence starting at 1, so component ids are stored in a {@code long[]} indexed by ref
+ * rather than in a map of boxed keys and values.
+ * </p>
  */
 public class DbIdsRepositoryImpl implements MutableDbIdsRepository {
+  private static final long NO_ID = Long.MIN_VALUE;
 
-  private final MapBasedDbIdsRepository<Integer> delegate = new MapBasedDbIdsRepository<>(toReportRef());
+  private long[] componentIdsByRef = newIds(16);
+  private final MapBasedDbIdsRepository<Integer> developersDelegate = new MapBasedDbIdsRepository<>(toReportRef());
 
   @Override
   public DbIdsRepository setComponentId(Component component, long componentId) {
-    return delegate.setComponentId(component, componentId);
+    int ref = component.getReportAttributes().getRef();
+    checkArgument(ref >= 0, "Ref of component '%s' can't be negative: %s", component.getKey(), ref);
+    ensureCapacity(ref);
+    long existingComponentId = componentIdsByRef[ref];
+    checkState(existingComponentId == NO_ID,
+      format("Component id '%s' is already registered in repository for Component '%s', can not set new id '%s'", existingComponentId, component.getKey(), componentId));
+    componentIdsByRef[ref] = componentId;
+    return this;
   }
 
   @Override
   public long getComponentId(Component component) {
-    return delegate.getComponentId(component);
+    int ref = component.getReportAttributes().getRef();
+    long componentId = ref >= 0 && ref < componentIdsByRef.length ? componentIdsByRef[ref] : NO_ID;
+    checkState(componentId != NO_ID, format("No component id registered in repository for Component '%s'", component.getKey()));
+    return componentId;
   }
 
   @Override
   public DbIdsRepository setDeveloperId(Developer developer, long developerId) {
-    return delegate.setDeveloperId(developer, developerId);
+    return developersDelegate.setDeveloperId(developer, developerId);
   }
 
   @Override
   public long getDeveloperId(Developer developer) {
-    return delegate.getDeveloperId(developer);
+    return developersDelegate.getDeveloperId(developer);
+  }
+
+  private void ensureCapacity(int ref) {
+    if (ref < componentIdsByRef.length) {
+      return;
+    }
+    int oldLength = componentIdsByRef.length;
+    componentIdsByRef = Arrays.copyOf(componentIdsByRef, Math.max(ref + 1, oldLength * 2));
+    Arrays.fill(componentIdsByRef, oldLength, componentIdsByRef.length, NO_ID);
+  }
+
+  private static long[] newIds(int length) {
+    long[] res = new long[length];
+    Arrays.fill(res, NO_ID);
+    return res;
   }
 }
@@ -20,6 +20,7 @@
 package org.sonar.server.computation.task.projectanalysis.component;
 
 import com.google.common.collect.ImmutableMap;
+import java.util.Arrays;
 import java.util.Map;
 import javax.annotation.CheckForNull;
 
@@ -32,8 +33,12 @@ import static org.sonar.server.computation.task.projectanalysis.component.Compon
  * Holds the reference to the root of the {@link Component} tree for the current CE run.
  */
 public class TreeRootHolderImpl implements MutableTreeRootHolder {
+  /**
+   * Refs of the report are a sequence starting at 1, so components are indexed by ref in an array rather than
+   * stored in a map with boxed keys.
+   */
   @CheckForNull
-  private Map<Integer, Component> componentsByRef;
+  private Component[] componentsByRef;
   @CheckForNull
   private Map<String, Component> componentsByKey;
 
@@ -56,7 +61,7 @@ public class TreeRootHolderImpl implements MutableTreeRootHolder {
   public Component getComponentByRef(int ref) {
     checkInitialized();
     ensureComponentByRefIsPopulated();
-    Component component = componentsByRef.get(ref);
+    Component component = ref >= 0 && ref < componentsByRef.length ? componentsByRef[ref] : null;
     checkArgument(component != null, "Component with ref '%s' can't be found", ref);
     return component;
   }
@@ -66,15 +71,9 @@ public class TreeRootHolderImpl implements MutableTreeRootHolder {
       return;
     }
 
-    final ImmutableMap.Builder<Integer, Component> builder = ImmutableMap.builder();
-    new DepthTraversalTypeAwareCrawler(
-      new TypeAwareVisitorAdapter(CrawlerDepthLimit.FILE, POST_ORDER) {
-        @Override
-        public void visitAny(Component component) {
-          builder.put(component.getReportAttributes().getRef(), component);
-        }
-      }).visit(this.root);
-    this.componentsByRef = builder.build();
+    ComponentsByRefCollector collector = new ComponentsByRefCollector();
+    new DepthTraversalTypeAwareCrawler(collector).visit(this.root);
+    this.componentsByRef = collector.componentsByRef;
   }
 
   @Override
@@ -119,4 +118,24 @@ public class TreeRootHolderImpl implements MutableTreeRootHolder {
       }).visit(this.root);
     this.componentsByKey = builder.build();
   }
+
+  private static final class ComponentsByRefCollector extends TypeAwareVisitorAdapter {
+    private Component[] componentsByRef = new Component[16];
+
+    private ComponentsByRefCollector() {
+      super(CrawlerDepthLimit.FILE, POST_ORDER);
+    }
+
+    @Override
+    public void visitAny(Component component) {
+      int ref = component.getReportAttributes().getRef();
+      checkArgument(ref >= 0, "Ref of component '%s' can't be negative: %s", component.getKey(), ref);
+      if (ref >= componentsByRef.length) {
+        componentsByRef = Arrays.copyOf(componentsByRef, Math.max(ref + 1, componentsByRef.length * 2));
+      }
+      Component sameRef = componentsByRef[ref];
+      checkArgument(sameRef == null, "Ref %s is used by components '%s' and '%s'", ref, sameRef == null ? null : sameRef.getKey(), component.getKey());
+      componentsByRef[ref] = component;
+    }
+  }
 }
@@ -21,9 +21,7 @@ package org.sonar.server.computation.task.projectanalysis.formula;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import javax.annotation.CheckForNull;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor;
@@ -38,39 +36,33 @@ import org.sonar.server.computation.task.projectanalysis.period.PeriodsHolder;
 
 import static java.util.Objects.requireNonNull;
 
+/**
+ * Evaluates formulas in a single crawl of the component tree. The counters of a component are stored in an array
+ * indexed by the position of the formula, and the metrics of the formulas are resolved once.
+ */
 public class FormulaExecutorComponentVisitor extends PathAwareVisitorAdapter<FormulaExecutorComponentVisitor.Counters> {
-  private static final SimpleStackElementFactory<Counters> COUNTERS_FACTORY = new SimpleStackElementFactory<Counters>() {
-
-    @Override
-    public Counters createForAny(Component component) {
-      return new Counters();
-    }
-
-    @Override
-    public Counters createForFile(Component component) {
-      // No need to create a counter on leaf levels
-      return null;
-    }
-
-    @Override
-    public Counters createForProjectView(Component projectView) {
-      // No need to create a counter on leaf levels
-      return null;
-    }
-  };
 
   @CheckForNull
   private final PeriodsHolder periodsHolder;
   private final MetricRepository metricRepository;
   private final MeasureRepository measureRepository;
-  private final List<Formula> formulas;
+  private final Formula[] formulas;
+  /**
+   * Output metrics of each formula, in the same order as {@link #formulas}. Resolved lazily, as the
+   * metric repository may not be populated when the visitor is built.
+   */
+  private Metric[][] outputMetrics;
 
   private FormulaExecutorComponentVisitor(Builder builder, Iterable<Formula> formulas) {
-    super(CrawlerDepthLimit.LEAVES, ComponentVisitor.Order.POST_ORDER, COUNTERS_FACTORY);
+    this(builder, ImmutableList.copyOf(formulas).toArray(new Formula[0]));
+  }
+
+  private FormulaExecutorComponentVisitor(Builder builder, Formula[] formulas) {
+    super(CrawlerDepthLimit.LEAVES, ComponentVisitor.Order.POST_ORDER, new CountersFactory(formulas.length));
     this.periodsHolder = builder.periodsHolder;
     this.measureRepository = builder.measureRepository;
     this.metricRepository = builder.metricRepository;
-    this.formulas = ImmutableList.copyOf(formulas);
+    this.formulas = formulas;
   }
 
   public static Builder newBuilder(MetricRepository metricRepository, MeasureRepository measureRepository) {
@@ -146,45 +138,59 @@ public class FormulaExecutorComponentVisitor extends PathAwareVisitorAdapter<For
   }
 
   private void processNotLeaf(Component component, Path<FormulaExecutorComponentVisitor.Counters> path) {
-    for (Formula formula : formulas) {
-      Counter counter = path.current().getCounter(formula);
+    Metric[][] metrics = getOutputMetrics();
+    for (int i = 0; i < formulas.length; i++) {
+      Counter counter = path.current().getCounter(i);
       // If there were no file under this node, the counter won't be initialized
       if (counter != null) {
-        for (String metricKey : formula.getOutputMetricKeys()) {
-          addNewMeasure(component, metricKey, formula, counter);
-        }
-        aggregateToParent(path, formula, counter);
+        addNewMeasures(component, formulas[i], metrics[i], counter);
+        aggregateToParent(path, i, counter);
       }
     }
   }
 
   private void processLeaf(Component file, Path<FormulaExecutorComponentVisitor.Counters> path) {
+    Metric[][] metrics = getOutputMetrics();
     CounterInitializationContext counterContext = new CounterInitializationContextImpl(file);
-    for (Formula formula : formulas) {
-      Counter counter = formula.createNewCounter();
+    for (int i = 0; i < formulas.length; i++) {
+      Counter counter = formulas[i].createNewCounter();
       counter.initialize(counterContext);
-      for (String metricKey : formula.getOutputMetricKeys()) {
-        addNewMeasure(file, metricKey, formula, counter);
+      addNewMeasures(file, formulas[i], metrics[i], counter);
+      aggregateToParent(path, i, counter);
+    }
+  }
+
+  private Metric[][] getOutputMetrics() {
+    if (outputMetrics == null) {
+      Metric[][] metrics = new Metric[formulas.length][];
+      for (int i = 0; i < formulas.length; i++) {
+        String[] metricKeys = formulas[i].getOutputMetricKeys();
+        metrics[i] = new Metric[metricKeys.length];
+        for (int j = 0; j < metricKeys.length; j++) {
+          metrics[i][j] = metricRepository.getByKey(metricKeys[j]);
+        }
       }
-      aggregateToParent(path, formula, counter);
+      outputMetrics = metrics;
     }
+    return outputMetrics;
   }
 
-  private void addNewMeasure(Component component, String metricKey, Formula formula, Counter counter) {
+  private void addNewMeasures(Component component, Formula formula, Metric[] metrics, Counter counter) {
     // no new measure can be created by formulas for PROJECT_VIEW components, their measures are the copy
     if (component.getType() == Component.Type.PROJECT_VIEW) {
       return;
     }
-    Metric metric = metricRepository.getByKey(metricKey);
-    Optional<Measure> measure = formula.createMeasure(counter, new CreateMeasureContextImpl(component, metric));
-    if (measure.isPresent()) {
-      measureRepository.add(component, metric, measure.get());
+    for (Metric metric : metrics) {
+      Optional<Measure> measure = formula.createMeasure(counter, new CreateMeasureContextImpl(component, metric));
+      if (measure.isPresent()) {
+        measureRepository.add(component, metric, measure.get());
+      }
     }
   }
 
-  private static void aggregateToParent(Path<FormulaExecutorComponentVisitor.Counters> path, Formula formula, Counter currentCounter) {
+  private static void aggregateToParent(Path<FormulaExecutorComponentVisitor.Counters> path, int formulaIndex, Counter currentCounter) {
     if (!path.isRoot()) {
-      path.parent().aggregate(formula, currentCounter);
+      path.parent().aggregate(formulaIndex, currentCounter);
     }
   }
 
@@ -211,13 +217,20 @@ public class FormulaExecutorComponentVisitor extends PathAwareVisitorAdapter<For
     }
   }
 
+  /**
+   * Counters of a component, indexed by the position of their formula
+   */
   public static class Counters {
-    Map<Formula, Counter> countersByFormula = new HashMap<>();
+    private final Counter[] counters;
+
+    Counters(int size) {
+      this.counters = new Counter[size];
+    }
 
-    public void aggregate(Formula formula, Counter childCounter) {
-      Counter counter = countersByFormula.get(formula);
+    public void aggregate(int formulaIndex, Counter childCounter) {
+      Counter counter = counters[formulaIndex];
       if (counter == null) {
-        countersByFormula.put(formula, childCounter);
+        counters[formulaIndex] = childCounter;
       } else {
         counter.aggregate(childCounter);
       }
@@ -227,8 +240,33 @@ public class FormulaExecutorComponentVisitor extends PathAwareVisitorAdapter<For
      * Counter can be null on a level when it has not been fed by children levels
      */
     @CheckForNull
-    public Counter getCounter(Formula formula) {
-      return countersByFormula.get(formula);
+    public Counter getCounter(int formulaIndex) {
+      return counters[formulaIndex];
+    }
+  }
+
+  private static class CountersFactory extends SimpleStackElementFactory<Counters> {
+    private final int size;
+
+    private CountersFactory(int size) {
+      this.size = size;
+    }
+
+    @Override
+    public Counters createForAny(Component component) {
+      return new Counters(size);
+    }
+
+    @Override
+    public Counters createForFile(Component component) {
+      // No need to create a counter on leaf levels
+      return null;
+    }
+
+    @Override
+    public Counters createForProjectView(Component projectView) {
+      // No need to create a counter on leaf levels
+      return null;
     }
   }
 
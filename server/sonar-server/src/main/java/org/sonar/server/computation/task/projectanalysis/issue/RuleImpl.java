@@ -20,6 +20,7 @@
 package org.sonar.server.computation.task.projectanalysis.issue;
 
 import com.google.common.base.MoreObjects;
+import com.google.common.collect.Interner;
 import java.util.Set;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
@@ -32,6 +33,7 @@ import org.sonar.api.server.debt.internal.DefaultDebtRemediationFunction;
 import org.sonar.db.rule.RuleDto;
 
 import static com.google.common.collect.Sets.union;
+import static org.sonar.core.util.stream.Collectors.toSet;
 
 @Immutable
 public class RuleImpl implements Rule {
@@ -54,6 +56,20 @@ public class RuleImpl implements Rule {
     this.type = RuleType.valueOf(dto.getType());
   }
 
+  /**
+   * Same as {@link #RuleImpl(RuleDto)} but repository keys and tags, which are shared by many rules, are interned
+   * so that long-lived copies of all the rules don't hold duplicated strings.
+   */
+  RuleImpl(RuleDto dto, Interner<String> interner) {
+    this.id = dto.getId();
+    this.key = RuleKey.of(interner.intern(dto.getRepositoryKey()), dto.getRuleKey());
+    this.name = dto.getName();
+    this.status = dto.getStatus();
+    this.tags = union(dto.getSystemTags(), dto.getTags()).stream().map(interner::intern).collect(toSet());
+    this.remediationFunction = effectiveRemediationFunction(dto);
+    this.type = RuleType.valueOf(dto.getType());
+  }
+
   @Override
   public int getId() {
     return id;
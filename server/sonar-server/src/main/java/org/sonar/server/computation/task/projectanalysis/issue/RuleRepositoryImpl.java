@@ -20,28 +20,25 @@
 package org.sonar.server.computation.task.projectanalysis.issue;
 
 import com.google.common.base.Optional;
-import com.google.common.collect.ImmutableMap;
-import java.util.Map;
 import javax.annotation.CheckForNull;
 import org.sonar.api.rule.RuleKey;
-import org.sonar.db.DbClient;
-import org.sonar.db.DbSession;
-import org.sonar.db.rule.RuleDto;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Objects.requireNonNull;
 
+/**
+ * Rules of the current task, as of the {@link RuleSnapshotCache.Snapshot} returned by {@link RuleSnapshotCache} when
+ * a rule is requested for the first time.
+ */
 public class RuleRepositoryImpl implements RuleRepository {
 
   @CheckForNull
-  private Map<RuleKey, Rule> rulesByKey;
-  @CheckForNull
-  private Map<Integer, Rule> rulesById;
+  private RuleSnapshotCache.Snapshot rules;
 
-  private final DbClient dbClient;
+  private final RuleSnapshotCache ruleSnapshotCache;
 
-  public RuleRepositoryImpl(DbClient dbClient) {
-    this.dbClient = dbClient;
+  public RuleRepositoryImpl(RuleSnapshotCache ruleSnapshotCache) {
+    this.ruleSnapshotCache = ruleSnapshotCache;
   }
 
   @Override
@@ -50,7 +47,7 @@ public class RuleRepositoryImpl implements RuleRepository {
 
     ensureInitialized();
 
-    Rule rule = rulesByKey.get(key);
+    Rule rule = rules.getByKey(key);
     checkArgument(rule != null, "Can not find rule for key %s. This rule does not exist in DB", key);
     return rule;
   }
@@ -61,14 +58,14 @@ public class RuleRepositoryImpl implements RuleRepository {
 
     ensureInitialized();
 
-    return Optional.fromNullable(rulesByKey.get(key));
+    return Optional.fromNullable(rules.getByKey(key));
   }
 
   @Override
   public Rule getById(int id) {
     ensureInitialized();
 
-    Rule rule = rulesById.get(id);
+    Rule rule = rules.getById(id);
     checkArgument(rule != null, "Can not find rule for id %s. This rule does not exist in DB", id);
     return rule;
   }
@@ -77,7 +74,7 @@ public class RuleRepositoryImpl implements RuleRepository {
   public Optional<Rule> findById(int id) {
     ensureInitialized();
 
-    return Optional.fromNullable(rulesById.get(id));
+    return Optional.fromNullable(rules.getById(id));
   }
 
   private static void verifyKeyArgument(RuleKey key) {
@@ -85,26 +82,9 @@ public class RuleRepositoryImpl implements RuleRepository {
   }
 
   private void ensureInitialized() {
-    if (rulesByKey == null) {
-      DbSession dbSession = dbClient.openSession(false);
-      try {
-        loadRulesFromDb(dbSession);
-      } finally {
-        dbClient.closeSession(dbSession);
-      }
-    }
-  }
-
-  private void loadRulesFromDb(DbSession dbSession) {
-    ImmutableMap.Builder<RuleKey, Rule> rulesByKeyBuilder = ImmutableMap.builder();
-    ImmutableMap.Builder<Integer, Rule> rulesByIdBuilder = ImmutableMap.builder();
-    for (RuleDto ruleDto : dbClient.ruleDao().selectAll(dbSession)) {
-      Rule rule = new RuleImpl(ruleDto);
-      rulesByKeyBuilder.put(ruleDto.getKey(), rule);
-      rulesByIdBuilder.put(ruleDto.getId(), rule);
+    if (rules == null) {
+      rules = ruleSnapshotCache.get();
     }
-    this.rulesByKey = rulesByKeyBuilder.build();
-    this.rulesById = rulesByIdBuilder.build();
   }
 
 }
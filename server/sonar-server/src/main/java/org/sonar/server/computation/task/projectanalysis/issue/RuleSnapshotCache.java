@@ -0,0 +1,242 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.rule.RuleDao;
+import org.sonar.db.rule.RuleDto;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * Copy of all the rules of the instance, shared by the {@link RuleRepositoryImpl} of all the tasks and workers of the
+ * Compute Engine.
+ * <p>
+ * All the rules are loaded from DB once. Then each call to {@link #get()} loads only the rules updated since the
+ * latest snapshot (see column RULES.UPDATED_AT) and returns a new {@link Snapshot} if any, the current one otherwise.
+ * Snapshots are immutable, so a task keeps a consistent view of the rules even if a refresh occurs in the meantime.
+ * </p>
+ * <p>
+ * RULES.UPDATED_AT is set by the web server before commit, so it does not grow in commit order: a long transaction
+ * (for example the restore of the debt model) can commit rules with a date older than rules already loaded. Hence:
+ * <ul>
+ *   <li>rules updated during {@link #OVERLAP_MS} before the latest date of the snapshot are read again</li>
+ *   <li>all the rules are reloaded when their number in DB differs from the snapshot</li>
+ *   <li>all the rules are reloaded at least every {@link #FULL_RELOAD_PERIOD_MS}</li>
+ * </ul>
+ * </p>
+ */
+public class RuleSnapshotCache {
+
+  static final long OVERLAP_MS = TimeUnit.MINUTES.toMillis(10);
+  static final long FULL_RELOAD_PERIOD_MS = TimeUnit.HOURS.toMillis(1);
+
+  private final DbClient dbClient;
+  private final System2 system2;
+  private final Interner<String> interner = Interners.newWeakInterner();
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong refreshCount = new AtomicLong();
+  /**
+   * Read without lock. Replaced under the lock of this instance, which is held only to swap it or to reload all the rules.
+   */
+  @CheckForNull
+  private volatile Snapshot snapshot;
+
+  public RuleSnapshotCache(DbClient dbClient, System2 system2) {
+    this.dbClient = dbClient;
+    this.system2 = system2;
+  }
+
+  public Snapshot get() {
+    Snapshot current = snapshot;
+    long now = system2.now();
+    if (current == null || now - current.fullLoadDate >= FULL_RELOAD_PERIOD_MS) {
+      return reload(current, now);
+    }
+    List<RuleDto> updatedRules;
+    int count;
+    DbSession dbSession = dbClient.openSession(false);
+    try {
+      RuleDao ruleDao = dbClient.ruleDao();
+      updatedRules = ruleDao.selectUpdatedSince(dbSession, current.maxUpdatedAt - OVERLAP_MS);
+      count = ruleDao.countAll(dbSession);
+    } finally {
+      dbClient.closeSession(dbSession);
+    }
+    Snapshot refreshed = current.refresh(updatedRules, interner);
+    if (refreshed.size() != count) {
+      // some rules have been committed with a date older than the overlap
+      return reload(current, now);
+    }
+    if (refreshed == current) {
+      hitCount.incrementAndGet();
+      return current;
+    }
+    return swap(current, refreshed);
+  }
+
+  /**
+   * Replaces the snapshot unless another caller already did it since {@code base} was read, in which case
+   * the snapshot of this other caller is kept.
+   */
+  private synchronized Snapshot swap(Snapshot base, Snapshot refreshed) {
+    if (snapshot == base) {
+      snapshot = refreshed;
+      refreshCount.incrementAndGet();
+    }
+    return snapshot;
+  }
+
+  /**
+   * All the rules are loaded under lock, so that concurrent callers (for example all the workers at startup)
+   * do not load them several times.
+   */
+  private synchronized Snapshot reload(@Nullable Snapshot base, long now) {
+    Snapshot current = snapshot;
+    if (current != null && (base == null || current.fullLoadDate > base.fullLoadDate)) {
+      // reloaded by another caller in the meantime
+      return current;
+    }
+    DbSession dbSession = dbClient.openSession(false);
+    try {
+      long version = current == null ? 0 : current.version;
+      snapshot = Snapshot.empty(version, now).refresh(dbClient.ruleDao().selectAll(dbSession), interner);
+    } finally {
+      dbClient.closeSession(dbSession);
+    }
+    refreshCount.incrementAndGet();
+    return snapshot;
+  }
+
+  /**
+   * Number of calls to {@link #get()} which returned the current snapshot without any change since startup.
+   */
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  /**
+   * Number of calls to {@link #get()} which loaded rules and created a new snapshot since startup.
+   */
+  public long getRefreshCount() {
+    return refreshCount.get();
+  }
+
+  @Immutable
+  public static final class Snapshot {
+    private final long version;
+    /**
+     * Date of the latest load of all the rules
+     */
+    private final long fullLoadDate;
+    /**
+     * Greatest update date of the rules of the snapshot, used as marker to load only rules updated since the snapshot.
+     */
+    private final long maxUpdatedAt;
+    /**
+     * Update date of each rule, so that rules read again because of the overlap are not loaded again if unchanged.
+     */
+    private final Map<Integer, Long> updatedAtById;
+    private final Map<Integer, Rule> rulesById;
+    private final Map<RuleKey, Rule> rulesByKey;
+
+    private Snapshot(long version, long fullLoadDate, long maxUpdatedAt, Map<Integer, Long> updatedAtById, Map<Integer, Rule> rulesById,
+      Map<RuleKey, Rule> rulesByKey) {
+      this.version = version;
+      this.fullLoadDate = fullLoadDate;
+      this.maxUpdatedAt = maxUpdatedAt;
+      this.updatedAtById = updatedAtById;
+      this.rulesById = rulesById;
+      this.rulesByKey = rulesByKey;
+    }
+
+    private static Snapshot empty(long version, long fullLoadDate) {
+      return new Snapshot(version, fullLoadDate, 0L, emptyMap(), emptyMap(), emptyMap());
+    }
+
+    public long getVersion() {
+      return version;
+    }
+
+    int size() {
+      return rulesById.size();
+    }
+
+    @CheckForNull
+    Rule getByKey(RuleKey key) {
+      return rulesByKey.get(key);
+    }
+
+    @CheckForNull
+    Rule getById(int id) {
+      return rulesById.get(id);
+    }
+
+    /**
+     * Returns this snapshot if none of the given rules changed since it was loaded. Maps are copied only otherwise.
+     */
+    private Snapshot refresh(List<RuleDto> ruleDtos, Interner<String> interner) {
+      Map<Integer, Rule> updatedRulesById = null;
+      Map<RuleKey, Rule> updatedRulesByKey = null;
+      Map<Integer, Long> updatedUpdatedAtById = null;
+      long newMaxUpdatedAt = maxUpdatedAt;
+      for (RuleDto ruleDto : ruleDtos) {
+        long updatedAt = ruleDto.getUpdatedAt();
+        Long loadedUpdatedAt = updatedAtById.get(ruleDto.getId());
+        if (loadedUpdatedAt != null && loadedUpdatedAt == updatedAt) {
+          // already loaded by a previous refresh
+          continue;
+        }
+        if (updatedRulesById == null) {
+          updatedRulesById = new HashMap<>(rulesById);
+          updatedRulesByKey = new HashMap<>(rulesByKey);
+          updatedUpdatedAtById = new HashMap<>(updatedAtById);
+        }
+        Rule rule = new RuleImpl(ruleDto, interner);
+        Rule previous = updatedRulesById.put(ruleDto.getId(), rule);
+        if (previous != null) {
+          updatedRulesByKey.remove(previous.getKey());
+        }
+        updatedRulesByKey.put(rule.getKey(), rule);
+        updatedUpdatedAtById.put(ruleDto.getId(), updatedAt);
+        newMaxUpdatedAt = Math.max(newMaxUpdatedAt, updatedAt);
+      }
+      if (updatedRulesById == null) {
+        return this;
+      }
+      return new Snapshot(version + 1, fullLoadDate, newMaxUpdatedAt, unmodifiableMap(updatedUpdatedAtById), unmodifiableMap(updatedRulesById),
+        unmodifiableMap(updatedRulesByKey));
+    }
+  }
+}
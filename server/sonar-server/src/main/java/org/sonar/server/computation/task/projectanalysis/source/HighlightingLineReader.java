@@ -27,15 +27,15 @@ import javax.annotation.CheckForNull;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.db.protobuf.DbFileSources;
+import org.sonar.db.source.LineRanges;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.scanner.protocol.output.ScannerReport.SyntaxHighlightingRule.HighlightingType;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.source.RangeOffsetConverter.OffsetRange;
 import org.sonar.server.computation.task.projectanalysis.source.RangeOffsetConverter.RangeOffsetConverterException;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static java.lang.String.format;
-import static org.sonar.server.computation.task.projectanalysis.source.RangeOffsetConverter.OFFSET_SEPARATOR;
-import static org.sonar.server.computation.task.projectanalysis.source.RangeOffsetConverter.SYMBOLS_SEPARATOR;
 
 public class HighlightingLineReader implements LineReader {
 
@@ -43,16 +43,16 @@ public class HighlightingLineReader implements LineReader {
 
   private boolean isHighlightingValid = true;
 
-  private static final Map<HighlightingType, String> cssClassByType = ImmutableMap.<HighlightingType, String>builder()
-    .put(HighlightingType.ANNOTATION, "a")
-    .put(HighlightingType.CONSTANT, "c")
-    .put(HighlightingType.COMMENT, "cd")
-    .put(HighlightingType.CPP_DOC, "cppd")
-    .put(HighlightingType.STRUCTURED_COMMENT, "j")
-    .put(HighlightingType.KEYWORD, "k")
-    .put(HighlightingType.KEYWORD_LIGHT, "h")
-    .put(HighlightingType.HIGHLIGHTING_STRING, "s")
-    .put(HighlightingType.PREPROCESS_DIRECTIVE, "p")
+  private static final Map<HighlightingType, Integer> cssClassIndexByType = ImmutableMap.<HighlightingType, Integer>builder()
+    .put(HighlightingType.ANNOTATION, LineRanges.cssClassIndex("a"))
+    .put(HighlightingType.CONSTANT, LineRanges.cssClassIndex("c"))
+    .put(HighlightingType.COMMENT, LineRanges.cssClassIndex("cd"))
+    .put(HighlightingType.CPP_DOC, LineRanges.cssClassIndex("cppd"))
+    .put(HighlightingType.STRUCTURED_COMMENT, LineRanges.cssClassIndex("j"))
+    .put(HighlightingType.KEYWORD, LineRanges.cssClassIndex("k"))
+    .put(HighlightingType.KEYWORD_LIGHT, LineRanges.cssClassIndex("h"))
+    .put(HighlightingType.HIGHLIGHTING_STRING, LineRanges.cssClassIndex("s"))
+    .put(HighlightingType.PREPROCESS_DIRECTIVE, LineRanges.cssClassIndex("p"))
     .build();
 
   private final Component file;
@@ -78,41 +78,35 @@ public class HighlightingLineReader implements LineReader {
       processHighlightings(lineBuilder);
     } catch (RangeOffsetConverterException e) {
       isHighlightingValid = false;
+      // ranges of the line added before the failure are not kept
+      lineBuilder.clearHighlightingRanges();
       LOG.warn(format("Inconsistency detected in Highlighting data. Highlighting will be ignored for file '%s'", file.getKey()), e);
     }
   }
 
   private void processHighlightings(DbFileSources.Line.Builder lineBuilder) {
     int line = lineBuilder.getLine();
-    StringBuilder highlighting = new StringBuilder();
+    LineRanges.Encoder highlighting = LineRanges.highlightingEncoder(lineBuilder);
 
     incrementHighlightingListMatchingLine(line);
     for (Iterator<ScannerReport.SyntaxHighlightingRule> syntaxHighlightingIterator = highlightingList.iterator(); syntaxHighlightingIterator.hasNext();) {
       processHighlighting(syntaxHighlightingIterator, highlighting, lineBuilder);
     }
-    if (highlighting.length() > 0) {
-      lineBuilder.setHighlighting(highlighting.toString());
-    }
   }
 
-  private void processHighlighting(Iterator<ScannerReport.SyntaxHighlightingRule> syntaxHighlightingIterator, StringBuilder highlighting,
+  private void processHighlighting(Iterator<ScannerReport.SyntaxHighlightingRule> syntaxHighlightingIterator, LineRanges.Encoder highlighting,
     DbFileSources.Line.Builder lineBuilder) {
     ScannerReport.SyntaxHighlightingRule syntaxHighlighting = syntaxHighlightingIterator.next();
     int line = lineBuilder.getLine();
     ScannerReport.TextRange range = syntaxHighlighting.getRange();
     if (range.getStartLine() <= line) {
-      String offsets = rangeOffsetConverter.offsetToString(syntaxHighlighting.getRange(), line, lineBuilder.getSource().length());
-      if (offsets.isEmpty()) {
+      OffsetRange offsets = rangeOffsetConverter.toOffsetRange(syntaxHighlighting.getRange(), line, lineBuilder.getSource().length());
+      if (offsets == null) {
         if (range.getEndLine() == line) {
           syntaxHighlightingIterator.remove();
         }
       } else {
-        if (highlighting.length() > 0) {
-          highlighting.append(SYMBOLS_SEPARATOR);
-        }
-        highlighting.append(offsets)
-          .append(OFFSET_SEPARATOR)
-          .append(getCssClass(syntaxHighlighting.getType()));
+        highlighting.add(offsets.getStartOffset(), offsets.getEndOffset(), getCssClassIndex(syntaxHighlighting.getType()));
         if (range.getEndLine() == line) {
           syntaxHighlightingIterator.remove();
         }
@@ -120,8 +114,8 @@ public class HighlightingLineReader implements LineReader {
     }
   }
 
-  private static String getCssClass(HighlightingType type) {
-    String cssClass = cssClassByType.get(type);
+  private static int getCssClassIndex(HighlightingType type) {
+    Integer cssClass = cssClassIndexByType.get(type);
     if (cssClass != null) {
       return cssClass;
     } else {
@@ -19,16 +19,18 @@
  */
 package org.sonar.server.computation.task.projectanalysis.source;
 
+import javax.annotation.CheckForNull;
 import org.sonar.scanner.protocol.output.ScannerReport;
 
 import static java.lang.String.format;
 
 public class RangeOffsetConverter {
 
-  static final String OFFSET_SEPARATOR = ",";
-  static final String SYMBOLS_SEPARATOR = ";";
-
-  public String offsetToString(ScannerReport.TextRange range, int lineIndex, int lineLength) {
+  /**
+   * @return the offsets of the range on the given line, or null if the range is empty on this line
+   */
+  @CheckForNull
+  public OffsetRange toOffsetRange(ScannerReport.TextRange range, int lineIndex, int lineLength) {
     validateOffsetOrder(range, lineIndex);
     validateStartOffsetNotGreaterThanLineLength(range, lineLength, lineIndex);
     validateEndOffsetNotGreaterThanLineLength(range, lineLength, lineIndex);
@@ -36,13 +38,10 @@ public class RangeOffsetConverter {
     int startOffset = range.getStartLine() == lineIndex ? range.getStartOffset() : 0;
     int endOffset = range.getEndLine() == lineIndex ? range.getEndOffset() : lineLength;
 
-    StringBuilder element = new StringBuilder();
     if (startOffset < endOffset) {
-      element.append(startOffset).append(OFFSET_SEPARATOR);
-      element.append(endOffset);
+      return new OffsetRange(startOffset, endOffset);
     }
-
-    return element.toString();
+    return null;
   }
 
   private static void validateOffsetOrder(ScannerReport.TextRange range, int line) {
@@ -66,6 +65,29 @@ public class RangeOffsetConverter {
     }
   }
 
+  public static final class OffsetRange {
+    private final int startOffset;
+    private final int endOffset;
+
+    public OffsetRange(int startOffset, int endOffset) {
+      this.startOffset = startOffset;
+      this.endOffset = endOffset;
+    }
+
+    public int getStartOffset() {
+      return startOffset;
+    }
+
+    public int getEndOffset() {
+      return endOffset;
+    }
+
+    @Override
+    public String toString() {
+      return startOffset + "," + endOffset;
+    }
+  }
+
   public static class RangeOffsetConverterException extends RuntimeException {
     public RangeOffsetConverterException(String message) {
       super(message);
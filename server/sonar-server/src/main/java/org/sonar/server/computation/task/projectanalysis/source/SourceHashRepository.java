@@ -19,6 +19,7 @@
  */
 package org.sonar.server.computation.task.projectanalysis.source;
 
+import java.util.List;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 
 public interface SourceHashRepository {
@@ -36,4 +37,18 @@ public interface SourceHashRepository {
    */
   String getRawSourceHash(Component file);
 
+  /**
+   * The hashes of the lines of the specified FILE component in the analysis report, as computed by
+   * {@link org.sonar.core.hash.SourceLinesHashesComputer}. Line 1 is at index 0.
+   * <p>
+   * Line hashes are computed along with the source hash, with a single read of the source of the file. They are
+   * cached within a memory limit: once the limit is reached, the least recently used line hashes are dropped and
+   * will be computed again if requested. The returned list is the cached one, hence unmodifiable.
+   * </p>
+   *
+   * @throws NullPointerException if specified component is {@code null}
+   * @throws IllegalArgumentException if specified component if not a {@link Component.Type#FILE}
+   */
+  List<String> getLineHashes(Component file);
+
 }
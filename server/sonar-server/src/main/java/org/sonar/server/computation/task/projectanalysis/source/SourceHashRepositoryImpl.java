@@ -19,25 +19,45 @@
  */
 package org.sonar.server.computation.task.projectanalysis.source;
 
+import com.google.common.annotations.VisibleForTesting;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import javax.annotation.Nullable;
 import org.sonar.core.hash.SourceHashComputer;
+import org.sonar.core.hash.SourceLinesHashesComputer;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
+import static java.util.Collections.unmodifiableList;
 import static java.util.Objects.requireNonNull;
 
 public class SourceHashRepositoryImpl implements SourceHashRepository {
   private static final String SOURCE_OR_HASH_FAILURE_ERROR_MSG = "Failed to read source and compute hashes for component %s";
+  /**
+   * Line hashes are kept as the hexadecimal Strings returned to callers, ie. about 100 bytes per line. Two hundred
+   * thousand lines is therefore about 20Mb of heap.
+   */
+  private static final int DEFAULT_MAX_CACHED_LINES = 200_000;
 
   private final SourceLinesRepository sourceLinesRepository;
+  private final int maxCachedLines;
   private final Map<String, String> rawSourceHashesByKey = new HashMap<>();
+  private final LinkedHashMap<String, List<String>> lineHashesByKey = new LinkedHashMap<>(16, 0.75f, true);
+  private int cachedLines = 0;
 
   public SourceHashRepositoryImpl(SourceLinesRepository sourceLinesRepository) {
+    this(sourceLinesRepository, DEFAULT_MAX_CACHED_LINES);
+  }
+
+  @VisibleForTesting
+  SourceHashRepositoryImpl(SourceLinesRepository sourceLinesRepository, int maxCachedLines) {
     this.sourceLinesRepository = sourceLinesRepository;
+    this.maxCachedLines = maxCachedLines;
   }
 
   @Override
@@ -46,28 +66,62 @@ public class SourceHashRepositoryImpl implements SourceHashRepository {
     if (rawSourceHashesByKey.containsKey(file.getKey())) {
       return checkSourceHash(file.getKey(), rawSourceHashesByKey.get(file.getKey()));
     } else {
-      String newSourceHash = computeRawSourceHash(file);
-      rawSourceHashesByKey.put(file.getKey(), newSourceHash);
+      String newSourceHash = computeHashes(file);
       return checkSourceHash(file.getKey(), newSourceHash);
     }
   }
 
+  @Override
+  public List<String> getLineHashes(Component file) {
+    checkComponentArgument(file);
+    List<String> lineHashes = lineHashesByKey.get(file.getKey());
+    if (lineHashes == null) {
+      computeHashes(file);
+      lineHashes = lineHashesByKey.get(file.getKey());
+    }
+    return lineHashes;
+  }
+
   private static void checkComponentArgument(Component file) {
     requireNonNull(file, "Specified component can not be null");
     checkArgument(file.getType() == Component.Type.FILE, "File source information can only be retrieved from FILE components (got %s)", file.getType());
   }
 
-  private String computeRawSourceHash(Component file) {
+  /**
+   * Reads the source of the specified file once to compute both its source hash and its line hashes, and caches them.
+   */
+  private String computeHashes(Component file) {
     SourceHashComputer sourceHashComputer = new SourceHashComputer();
+    SourceLinesHashesComputer linesHashesComputer = new SourceLinesHashesComputer();
     CloseableIterator<String> linesIterator = sourceLinesRepository.readLines(file);
     try {
       while (linesIterator.hasNext()) {
-        sourceHashComputer.addLine(linesIterator.next(), linesIterator.hasNext());
+        String line = linesIterator.next();
+        linesHashesComputer.addLine(line);
+        sourceHashComputer.addLine(line, linesIterator.hasNext());
       }
-      return sourceHashComputer.getHash();
     } finally {
       linesIterator.close();
     }
+    String sourceHash = sourceHashComputer.getHash();
+    rawSourceHashesByKey.put(file.getKey(), sourceHash);
+    cacheLineHashes(file.getKey(), unmodifiableList(linesHashesComputer.getLineHashes()));
+    return sourceHash;
+  }
+
+  private void cacheLineHashes(String fileKey, List<String> lineHashes) {
+    List<String> previous = lineHashesByKey.put(fileKey, lineHashes);
+    if (previous != null) {
+      cachedLines -= previous.size();
+    }
+    cachedLines += lineHashes.size();
+    // drop least recently used line hashes, but always keep the ones which have just been computed
+    Iterator<Map.Entry<String, List<String>>> it = lineHashesByKey.entrySet().iterator();
+    while (cachedLines > maxCachedLines && lineHashesByKey.size() > 1) {
+      Map.Entry<String, List<String>> eldest = it.next();
+      cachedLines -= eldest.getValue().size();
+      it.remove();
+    }
   }
 
   private static String checkSourceHash(String fileKey, @Nullable String newSourceHash) {
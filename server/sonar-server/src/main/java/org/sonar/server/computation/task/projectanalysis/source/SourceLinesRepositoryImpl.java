@@ -20,21 +20,45 @@
 package org.sonar.server.computation.task.projectanalysis.source;
 
 import com.google.common.base.Optional;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+import org.sonar.api.utils.TempFolder;
 import org.sonar.core.util.CloseableIterator;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.protobuf.DbFileSources;
+import org.sonar.db.source.FileSourceDto;
+import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReader;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
 import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.FILE;
 
 public class SourceLinesRepositoryImpl implements SourceLinesRepository {
 
   private final BatchReportReader reportReader;
-
-  public SourceLinesRepositoryImpl(BatchReportReader reportReader) {
+  private final DbClient dbClient;
+  private final TempFolder tempFolder;
+  /**
+   * Sources of unchanged files, loaded from database by the first reader and then read from disk
+   */
+  private final Map<String, File> unchangedSourcesByUuid = new ConcurrentHashMap<>();
+
+  public SourceLinesRepositoryImpl(BatchReportReader reportReader, DbClient dbClient, TempFolder tempFolder) {
     this.reportReader = reportReader;
+    this.dbClient = dbClient;
+    this.tempFolder = tempFolder;
   }
 
   @Override
@@ -42,15 +66,52 @@ public class SourceLinesRepositoryImpl implements SourceLinesRepository {
     requireNonNull(file, "Component should not be bull");
     checkArgument(file.getType() == FILE, "Component '%s' is not a file", file);
 
-    Optional<CloseableIterator<String>> linesIteratorOptional = reportReader.readFileSource(file.getReportAttributes().getRef());
-
-    checkState(linesIteratorOptional.isPresent(), String.format("File '%s' has no source code", file));
-    int numberOfLines = reportReader.readComponent(file.getReportAttributes().getRef()).getLines();
-    CloseableIterator<String> lineIterator = linesIteratorOptional.get();
+    int ref = file.getReportAttributes().getRef();
+    Optional<CloseableIterator<String>> linesIteratorOptional = reportReader.readFileSource(ref);
+    ScannerReport.Component reportComponent = reportReader.readComponent(ref);
+    CloseableIterator<String> lineIterator = linesIteratorOptional.isPresent() ? linesIteratorOptional.get() : readUnchangedLines(file, reportComponent);
+    int numberOfLines = reportComponent.getLines();
 
     return new ComponentLinesCloseableIterator(file, lineIterator, numberOfLines);
   }
 
+  /**
+   * The scanner does not send the source of a file which did not change since the previous analysis, see
+   * {@link ScannerReport.Component#getUnchangedSourceHash()}. It is the one persisted by the previous analysis.
+   * It is loaded from database once per task, as it is read by several steps.
+   * <p>
+   * The scanner can be wrong: another analysis of the project may have been processed in the meantime, or its file data
+   * may be outdated. The task fails in this case, as the source of the file is not known.
+   * </p>
+   */
+  private CloseableIterator<String> readUnchangedLines(Component file, @Nullable ScannerReport.Component reportComponent) {
+    checkState(reportComponent != null && !reportComponent.getUnchangedSourceHash().isEmpty(), String.format("File '%s' has no source code", file));
+    File source = unchangedSourcesByUuid.computeIfAbsent(file.getUuid(), uuid -> loadUnchangedSource(file, reportComponent.getUnchangedSourceHash()));
+    try {
+      BufferedReader reader = Files.newBufferedReader(source.toPath(), UTF_8);
+      return CloseableIterator.wrap(CloseableIterator.from(reader.lines().iterator()), reader);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read source of file " + file.getKey(), e);
+    }
+  }
+
+  private File loadUnchangedSource(Component file, String expectedSrcHash) {
+    List<String> lines;
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      FileSourceDto dto = dbClient.fileSourceDao().selectSourceByFileUuid(dbSession, file.getUuid());
+      checkState(dto != null && expectedSrcHash.equals(dto.getSrcHash()),
+        "Source of file '%s' is not in the report and differs from the source of the previous analysis. Please analyze the project again.", file.getKey());
+      lines = dto.getSourceData().getLinesList().stream().map(DbFileSources.Line::getSource).collect(toList());
+    }
+    File source = tempFolder.newFile("source", ".txt");
+    try {
+      Files.write(source.toPath(), lines, UTF_8);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to write source of file " + file.getKey(), e);
+    }
+    return source;
+  }
+
   private static class ComponentLinesCloseableIterator extends CloseableIterator<String> {
     private static final String EXTRA_END_LINE = "";
 
@@ -32,12 +32,11 @@ import java.util.Map;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.db.protobuf.DbFileSources;
+import org.sonar.db.source.LineRanges;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 
 import static java.lang.String.format;
-import static org.sonar.server.computation.task.projectanalysis.source.RangeOffsetConverter.OFFSET_SEPARATOR;
-import static org.sonar.server.computation.task.projectanalysis.source.RangeOffsetConverter.SYMBOLS_SEPARATOR;
 
 public class SymbolsLineReader implements LineReader {
 
@@ -70,6 +69,8 @@ public class SymbolsLineReader implements LineReader {
       processSymbols(lineBuilder);
     } catch (RangeOffsetConverter.RangeOffsetConverterException e) {
       areSymbolsValid = false;
+      // ranges of the line added before the failure are not kept
+      lineBuilder.clearSymbolRanges();
       LOG.warn(format("Inconsistency detected in Symbols data. Symbols will be ignored for file '%s'", file.getKey()), e);
     }
   }
@@ -82,30 +83,22 @@ public class SymbolsLineReader implements LineReader {
     // data
     Collections.sort(lineSymbols, SymbolsComparator.INSTANCE);
 
-    StringBuilder symbolString = new StringBuilder();
+    LineRanges.Encoder symbolRanges = LineRanges.symbolsEncoder(lineBuilder);
     for (ScannerReport.Symbol lineSymbol : lineSymbols) {
       int symbolId = idsBySymbol.get(lineSymbol);
 
-      appendSymbol(symbolString, lineSymbol.getDeclaration(), line, symbolId, lineBuilder.getSource());
+      appendSymbol(symbolRanges, lineSymbol.getDeclaration(), line, symbolId, lineBuilder.getSource());
       for (ScannerReport.TextRange range : lineSymbol.getReferenceList()) {
-        appendSymbol(symbolString, range, line, symbolId, lineBuilder.getSource());
+        appendSymbol(symbolRanges, range, line, symbolId, lineBuilder.getSource());
       }
     }
-    if (symbolString.length() > 0) {
-      lineBuilder.setSymbols(symbolString.toString());
-    }
   }
 
-  private void appendSymbol(StringBuilder lineSymbol, ScannerReport.TextRange range, int line, int symbolId, String sourceLine) {
+  private void appendSymbol(LineRanges.Encoder symbolRanges, ScannerReport.TextRange range, int line, int symbolId, String sourceLine) {
     if (matchLine(range, line)) {
-      String offsets = rangeOffsetConverter.offsetToString(range, line, sourceLine.length());
-      if (!offsets.isEmpty()) {
-        if (lineSymbol.length() > 0) {
-          lineSymbol.append(SYMBOLS_SEPARATOR);
-        }
-        lineSymbol.append(offsets)
-          .append(OFFSET_SEPARATOR)
-          .append(symbolId);
+      RangeOffsetConverter.OffsetRange offsets = rangeOffsetConverter.toOffsetRange(range, line, sourceLine.length());
+      if (offsets != null) {
+        symbolRanges.add(offsets.getStartOffset(), offsets.getEndOffset(), symbolId);
       }
     }
   }
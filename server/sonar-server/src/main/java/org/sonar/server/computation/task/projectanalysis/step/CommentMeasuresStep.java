@@ -21,6 +21,7 @@ package org.sonar.server.computation.task.projectanalysis.step;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
+import java.util.List;
 import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthLimit;
 import org.sonar.server.computation.task.projectanalysis.component.PathAwareCrawler;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
@@ -49,7 +50,7 @@ import static org.sonar.server.computation.task.projectanalysis.formula.SumFormu
 /**
  * Computes comments measures on files and then aggregates them on higher components.
  */
-public class CommentMeasuresStep implements ComputationStep {
+public class CommentMeasuresStep implements ComputationStep, FormulaStep {
 
   private final TreeRootHolder treeRootHolder;
   private final MetricRepository metricRepository;
@@ -66,10 +67,15 @@ public class CommentMeasuresStep implements ComputationStep {
       new CommentDensityFormula());
   }
 
+  @Override
+  public List<Formula> getFormulas() {
+    return formulas;
+  }
+
   @Override
   public void execute() {
     new PathAwareCrawler<>(
-      FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository).buildFor(formulas))
+      FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository).buildFor(getFormulas()))
         .visit(treeRootHolder.getRoot());
   }
 
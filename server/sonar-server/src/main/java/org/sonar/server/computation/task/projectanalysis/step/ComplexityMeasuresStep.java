@@ -20,6 +20,7 @@
 package org.sonar.server.computation.task.projectanalysis.step;
 
 import com.google.common.collect.ImmutableList;
+import java.util.List;
 import org.sonar.server.computation.task.projectanalysis.component.PathAwareCrawler;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.formula.AverageFormula;
@@ -47,7 +48,7 @@ import static org.sonar.server.computation.task.projectanalysis.formula.SumFormu
 /**
  * Computes complexity measures on files and then aggregates them on higher components.
  */
-public class ComplexityMeasuresStep implements ComputationStep {
+public class ComplexityMeasuresStep implements ComputationStep, FormulaStep {
 
   private static final ImmutableList<Formula> FORMULAS = ImmutableList.<Formula>of(
     createIntSumFormula(COMPLEXITY_KEY),
@@ -79,10 +80,15 @@ public class ComplexityMeasuresStep implements ComputationStep {
     this.measureRepository = measureRepository;
   }
 
+  @Override
+  public List<Formula> getFormulas() {
+    return FORMULAS;
+  }
+
   @Override
   public void execute() {
     new PathAwareCrawler<>(
-      FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository).buildFor(FORMULAS))
+      FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository).buildFor(getFormulas()))
       .visit(treeRootHolder.getRoot());
   }
 
@@ -19,17 +19,18 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
-import com.google.common.base.Function;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
-import java.util.Collection;
+import com.google.common.collect.Lists;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
-import javax.annotation.Nullable;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.measure.PastMeasureDto;
@@ -39,7 +40,6 @@ import org.sonar.server.computation.task.projectanalysis.component.DepthTraversa
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
 import org.sonar.server.computation.task.projectanalysis.measure.Measure;
-import org.sonar.server.computation.task.projectanalysis.measure.MeasureKey;
 import org.sonar.server.computation.task.projectanalysis.measure.MeasureRepository;
 import org.sonar.server.computation.task.projectanalysis.measure.MeasureVariations;
 import org.sonar.server.computation.task.projectanalysis.metric.Metric;
@@ -48,185 +48,188 @@ import org.sonar.server.computation.task.projectanalysis.period.Period;
 import org.sonar.server.computation.task.projectanalysis.period.PeriodsHolder;
 import org.sonar.server.computation.task.step.ComputationStep;
 
-import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.collect.FluentIterable.from;
 import static java.lang.String.format;
 import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.DIRECTORY;
 import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.SUBVIEW;
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
+import static org.sonar.server.computation.task.projectanalysis.measure.MeasureVariations.newMeasureVariationsBuilder;
 
 /**
  * Set variations on all numeric measures found in the repository.
  * This step MUST be executed after all steps that create some measures
  * <p/>
+ * Past measures are loaded with a single query per period for the whole tree. When the tree is too big
+ * to hold all its past values in memory, they are loaded by chunks of components.
+ * <p/>
  * Note that measures on developer are not handle yet.
  */
 public class ComputeMeasureVariationsStep implements ComputationStep {
 
+  private static final Logger LOGGER = Loggers.get(ComputeMeasureVariationsStep.class);
+
+  /**
+   * Maximum number of past values (8 bytes each) kept in memory at the same time
+   */
+  private static final int DEFAULT_MAX_PAST_VALUES = 5_000_000;
+
   private final DbClient dbClient;
   private final TreeRootHolder treeRootHolder;
   private final PeriodsHolder periodsHolder;
   private final MetricRepository metricRepository;
   private final MeasureRepository measureRepository;
-
-  private final Function<PastMeasureDto, MeasureKey> pastMeasureToMeasureKey = new Function<PastMeasureDto, MeasureKey>() {
-    @Nullable
-    @Override
-    public MeasureKey apply(@Nonnull PastMeasureDto input) {
-      Metric metric = metricRepository.getById((long)input.getMetricId());
-      return new MeasureKey(metric.getKey(), null);
-    }
-  };
+  private final int maxPastValues;
 
   public ComputeMeasureVariationsStep(DbClient dbClient, TreeRootHolder treeRootHolder, PeriodsHolder periodsHolder, MetricRepository metricRepository,
     MeasureRepository measureRepository) {
+    this(dbClient, treeRootHolder, periodsHolder, metricRepository, measureRepository, DEFAULT_MAX_PAST_VALUES);
+  }
+
+  @VisibleForTesting
+  ComputeMeasureVariationsStep(DbClient dbClient, TreeRootHolder treeRootHolder, PeriodsHolder periodsHolder, MetricRepository metricRepository,
+    MeasureRepository measureRepository, int maxPastValues) {
     this.dbClient = dbClient;
     this.treeRootHolder = treeRootHolder;
     this.periodsHolder = periodsHolder;
     this.metricRepository = metricRepository;
     this.measureRepository = measureRepository;
+    this.maxPastValues = maxPastValues;
   }
 
   @Override
   public void execute() {
+    List<Period> periods = periodsHolder.getPeriods();
+    List<Metric> metrics = from(metricRepository.getAll()).filter(NumericMetric.INSTANCE).toList();
+    if (periods.isEmpty() || metrics.isEmpty()) {
+      return;
+    }
+    List<Component> components = collectComponents();
+    int componentsPerChunk = Math.max(1, maxPastValues / (periods.size() * metrics.size()));
+    List<List<Component>> chunks = Lists.partition(components, componentsPerChunk);
+
     DbSession dbSession = dbClient.openSession(false);
     try {
-      List<Metric> metrics = from(metricRepository.getAll()).filter(NumericMetric.INSTANCE).toList();
-      new DepthTraversalTypeAwareCrawler(new VariationMeasuresVisitor(dbSession, metrics))
-        .visit(treeRootHolder.getRoot());
+      for (List<Component> chunk : chunks) {
+        PastMeasures pastMeasures = loadPastMeasures(dbSession, chunk, chunks.size() == 1, periods, metrics);
+        for (int componentIndex = 0; componentIndex < chunk.size(); componentIndex++) {
+          setVariations(chunk.get(componentIndex), componentIndex, pastMeasures, periods, metrics);
+        }
+      }
     } finally {
       dbClient.closeSession(dbSession);
     }
+    LOGGER.debug("Past measures of {} components loaded for {} periods in {} chunks", components.size(), periods.size(), chunks.size());
   }
 
-  private class VariationMeasuresVisitor extends TypeAwareVisitorAdapter {
-
-    private final DbSession session;
-    private final Set<Integer> metricIds;
-    private final List<Metric> metrics;
-
-    VariationMeasuresVisitor(DbSession session, List<Metric> metrics) {
-      // measures on files are currently purged, so past measures are not available on files
-      super(CrawlerDepthLimit.reportMaxDepth(DIRECTORY).withViewsMaxDepth(SUBVIEW), PRE_ORDER);
-      this.session = session;
-      this.metricIds = from(metrics).transform(MetricDtoToMetricId.INSTANCE).toSet();
-      this.metrics = metrics;
-    }
-
-    @Override
-    public void visitAny(Component component) {
-      MeasuresWithVariationRepository measuresWithVariationRepository = computeMeasuresWithVariations(component);
-      processMeasuresWithVariation(component, measuresWithVariationRepository);
-    }
-
-    private MeasuresWithVariationRepository computeMeasuresWithVariations(Component component) {
-      MeasuresWithVariationRepository measuresWithVariationRepository = new MeasuresWithVariationRepository();
-      for (Period period : periodsHolder.getPeriods()) {
-        List<PastMeasureDto> pastMeasures = dbClient.measureDao()
-          .selectPastMeasures(session, component.getUuid(), period.getAnalysisUuid(), metricIds);
-        setVariationMeasures(component, pastMeasures, period.getIndex(), measuresWithVariationRepository);
-      }
-      return measuresWithVariationRepository;
-    }
-
-    private void setVariationMeasures(Component component, List<PastMeasureDto> pastMeasures, int period, MeasuresWithVariationRepository measuresWithVariationRepository) {
-      Map<MeasureKey, PastMeasureDto> pastMeasuresByMeasureKey = from(pastMeasures).uniqueIndex(pastMeasureToMeasureKey);
-      for (Metric metric : metrics) {
-        Optional<Measure> measure = measureRepository.getRawMeasure(component, metric);
-        if (measure.isPresent() && !measure.get().hasVariations()) {
-          PastMeasureDto pastMeasure = pastMeasuresByMeasureKey.get(new MeasureKey(metric.getKey(), null));
-          double pastValue = (pastMeasure != null && pastMeasure.hasValue()) ? pastMeasure.getValue() : 0d;
-          measuresWithVariationRepository.add(metric, measure.get(), period, computeVariation(measure.get(), pastValue));
+  private List<Component> collectComponents() {
+    List<Component> components = new ArrayList<>();
+    // measures on files are currently purged, so past measures are not available on files
+    new DepthTraversalTypeAwareCrawler(
+      new TypeAwareVisitorAdapter(CrawlerDepthLimit.reportMaxDepth(DIRECTORY).withViewsMaxDepth(SUBVIEW), PRE_ORDER) {
+        @Override
+        public void visitAny(Component component) {
+          components.add(component);
         }
-      }
-    }
-
-    private double computeVariation(Measure measure, double pastValue) {
-      switch (measure.getValueType()) {
-        case INT:
-          return measure.getIntValue() - pastValue;
-        case LONG:
-          return measure.getLongValue() - pastValue;
-        case DOUBLE:
-          return measure.getDoubleValue() - pastValue;
-        case BOOLEAN:
-          return (measure.getBooleanValue() ? 1d : 0d) - pastValue;
-        default:
-          throw new IllegalArgumentException(format("Unsupported Measure.ValueType on measure '%s'", measure));
-      }
-    }
+      }).visit(treeRootHolder.getRoot());
+    return components;
+  }
 
-    private void processMeasuresWithVariation(Component component, MeasuresWithVariationRepository measuresWithVariationRepository) {
-      for (MeasureWithVariations measureWithVariations : measuresWithVariationRepository.measures()) {
-        Metric metric = measureWithVariations.getMetric();
-        Measure measure = Measure.updatedMeasureBuilder(measureWithVariations.getMeasure())
-          .setVariations(new MeasureVariations(
-            measureWithVariations.getVariation(1),
-            measureWithVariations.getVariation(2),
-            measureWithVariations.getVariation(3),
-            measureWithVariations.getVariation(4),
-            measureWithVariations.getVariation(5)))
-          .create();
-        measureRepository.update(component, metric, measure);
+  private PastMeasures loadPastMeasures(DbSession dbSession, List<Component> components, boolean wholeTree, List<Period> periods, List<Metric> metrics) {
+    PastMeasures pastMeasures = new PastMeasures(components, periods.size(), metrics);
+    List<String> componentUuids = wholeTree ? null : from(components).transform(Component::getUuid).toList();
+    for (int periodIndex = 0; periodIndex < periods.size(); periodIndex++) {
+      String analysisUuid = periods.get(periodIndex).getAnalysisUuid();
+      int currentPeriodIndex = periodIndex;
+      if (componentUuids == null) {
+        dbClient.measureDao().selectPastMeasuresOfAnalysis(dbSession, analysisUuid,
+          context -> pastMeasures.add(currentPeriodIndex, (PastMeasureDto) context.getResultObject()));
+      } else {
+        dbClient.measureDao().selectPastMeasuresOfAnalysis(dbSession, analysisUuid, componentUuids,
+          context -> pastMeasures.add(currentPeriodIndex, (PastMeasureDto) context.getResultObject()));
       }
     }
+    return pastMeasures;
   }
 
-  private static final class MeasuresWithVariationRepository {
-
-    private final Map<MeasureKey, MeasureWithVariations> measuresWithVariations = new HashMap<>();
-
-    public void add(Metric metric, final Measure measure, int variationIndex, double variationValue) {
-      checkArgument(measure.getDeveloper() == null, "%s does not support computing variations of Measures for Developer", getClass().getSimpleName());
-      MeasureKey measureKey = new MeasureKey(metric.getKey(), null);
-      MeasureWithVariations measureWithVariations = measuresWithVariations.get(measureKey);
-      if (measureWithVariations == null) {
-        measureWithVariations = new MeasureWithVariations(metric, measure);
-        measuresWithVariations.put(measureKey, measureWithVariations);
+  private void setVariations(Component component, int componentIndex, PastMeasures pastMeasures, List<Period> periods, List<Metric> metrics) {
+    for (int metricIndex = 0; metricIndex < metrics.size(); metricIndex++) {
+      Metric metric = metrics.get(metricIndex);
+      Optional<Measure> measure = measureRepository.getRawMeasure(component, metric);
+      if (measure.isPresent() && !measure.get().hasVariations()) {
+        MeasureVariations.Builder variations = newMeasureVariationsBuilder();
+        for (int periodIndex = 0; periodIndex < periods.size(); periodIndex++) {
+          double pastValue = pastMeasures.get(componentIndex, periodIndex, metricIndex);
+          variations.setVariation(periods.get(periodIndex), computeVariation(measure.get(), pastValue));
+        }
+        measureRepository.update(component, metric, Measure.updatedMeasureBuilder(measure.get()).setVariations(variations.build()).create());
       }
-      measureWithVariations.setVariation(variationIndex, variationValue);
-    }
-
-    public Collection<MeasureWithVariations> measures() {
-      return measuresWithVariations.values();
     }
   }
 
-  private static final class MeasureWithVariations {
-    private final Metric metric;
-    private final Measure measure;
-    private final Double[] variations = new Double[5];
-
-    MeasureWithVariations(Metric metric, Measure measure) {
-      this.metric = metric;
-      this.measure = measure;
-    }
-
-    public Measure getMeasure() {
-      return measure;
+  private static double computeVariation(Measure measure, double pastValue) {
+    switch (measure.getValueType()) {
+      case INT:
+        return measure.getIntValue() - pastValue;
+      case LONG:
+        return measure.getLongValue() - pastValue;
+      case DOUBLE:
+        return measure.getDoubleValue() - pastValue;
+      case BOOLEAN:
+        return (measure.getBooleanValue() ? 1d : 0d) - pastValue;
+      default:
+        throw new IllegalArgumentException(format("Unsupported Measure.ValueType on measure '%s'", measure));
     }
+  }
 
-    public Metric getMetric() {
-      return metric;
+  /**
+   * Values of past measures of some components for all periods, stored in a single array indexed by
+   * component, period and metric. Missing measures are stored as {@link Double#NaN}.
+   */
+  private static final class PastMeasures {
+    private final Map<String, Integer> componentIndexByUuid = new HashMap<>();
+    private final int[] metricIndexById;
+    private final int periodCount;
+    private final int metricCount;
+    private final double[] values;
+
+    PastMeasures(List<Component> components, int periodCount, List<Metric> metrics) {
+      for (int i = 0; i < components.size(); i++) {
+        componentIndexByUuid.put(components.get(i).getUuid(), i);
+      }
+      int maxMetricId = 0;
+      for (Metric metric : metrics) {
+        maxMetricId = Math.max(maxMetricId, metric.getId());
+      }
+      this.metricIndexById = new int[maxMetricId + 1];
+      Arrays.fill(metricIndexById, -1);
+      for (int i = 0; i < metrics.size(); i++) {
+        metricIndexById[metrics.get(i).getId()] = i;
+      }
+      this.periodCount = periodCount;
+      this.metricCount = metrics.size();
+      this.values = new double[components.size() * periodCount * metricCount];
+      Arrays.fill(values, Double.NaN);
     }
 
-    public void setVariation(int index, @Nullable Double value) {
-      variations[index - 1] = value;
+    void add(int periodIndex, PastMeasureDto dto) {
+      Integer componentIndex = componentIndexByUuid.get(dto.getComponentUuid());
+      int metricId = dto.getMetricId();
+      if (componentIndex == null || metricId < 0 || metricId >= metricIndexById.length || metricIndexById[metricId] < 0 || !dto.hasValue()) {
+        return;
+      }
+      values[offset(componentIndex, periodIndex, metricIndexById[metricId])] = dto.getValue();
     }
 
-    @CheckForNull
-    public Double getVariation(int index) {
-      return variations[index - 1];
+    /**
+     * @return the past value, or 0 if there is no past measure
+     */
+    double get(int componentIndex, int periodIndex, int metricIndex) {
+      double value = values[offset(componentIndex, periodIndex, metricIndex)];
+      return Double.isNaN(value) ? 0d : value;
     }
-  }
 
-  private enum MetricDtoToMetricId implements Function<Metric, Integer> {
-    INSTANCE;
-
-    @Nullable
-    @Override
-    public Integer apply(@Nonnull Metric metric) {
-      return metric.getId();
+    private int offset(int componentIndex, int periodIndex, int metricIndex) {
+      return (componentIndex * periodCount + periodIndex) * metricCount + metricIndex;
     }
   }
 
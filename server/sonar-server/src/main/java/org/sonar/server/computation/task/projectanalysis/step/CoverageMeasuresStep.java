@@ -20,6 +20,7 @@
 package org.sonar.server.computation.task.projectanalysis.step;
 
 import com.google.common.collect.ImmutableList;
+import java.util.List;
 import org.sonar.server.computation.task.projectanalysis.component.PathAwareCrawler;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.formula.Formula;
@@ -58,7 +59,7 @@ import static org.sonar.server.computation.task.projectanalysis.formula.SumFormu
 /**
  * Computes coverage measures on files and then aggregates them on higher components.
  */
-public class CoverageMeasuresStep implements ComputationStep {
+public class CoverageMeasuresStep implements ComputationStep, FormulaStep {
   private static final ImmutableList<Formula> COVERAGE_FORMULAS = ImmutableList.<Formula>of(
     // unit test
     createIntSumFormula(LINES_TO_COVER_KEY),
@@ -95,10 +96,15 @@ public class CoverageMeasuresStep implements ComputationStep {
     this.measureRepository = measureRepository;
   }
 
+  @Override
+  public List<Formula> getFormulas() {
+    return COVERAGE_FORMULAS;
+  }
+
   @Override
   public void execute() {
     new PathAwareCrawler<>(
-      FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository).buildFor(COVERAGE_FORMULAS))
+      FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository).buildFor(getFormulas()))
         .visit(treeRootHolder.getRoot());
   }
 
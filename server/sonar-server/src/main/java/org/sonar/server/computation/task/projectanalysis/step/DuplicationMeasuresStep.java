@@ -22,6 +22,7 @@ package org.sonar.server.computation.task.projectanalysis.step;
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
@@ -60,7 +61,7 @@ import static org.sonar.api.measures.CoreMetrics.NCLOC_KEY;
  * 
  * This step must be executed after {@link CommentMeasuresStep} as it depends on {@link CoreMetrics#COMMENT_LINES}
  */
-public class DuplicationMeasuresStep implements ComputationStep {
+public class DuplicationMeasuresStep implements ComputationStep, FormulaStep {
 
   private final ImmutableList<Formula> formulas;
 
@@ -88,10 +89,15 @@ public class DuplicationMeasuresStep implements ComputationStep {
     return "Compute duplication measures";
   }
 
+  @Override
+  public List<Formula> getFormulas() {
+    return formulas;
+  }
+
   @Override
   public void execute() {
     new PathAwareCrawler<>(
-      FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository).buildFor(formulas))
+      FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository).buildFor(getFormulas()))
       .visit(treeRootHolder.getRoot());
   }
 
@@ -0,0 +1,91 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.step;
+
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
+import org.sonar.server.computation.task.projectanalysis.component.VisitorsCrawler;
+import org.sonar.server.computation.task.projectanalysis.duplication.DuplicationRepository;
+import org.sonar.server.computation.task.projectanalysis.formula.Formula;
+import org.sonar.server.computation.task.projectanalysis.formula.FormulaExecutorComponentVisitor;
+import org.sonar.server.computation.task.projectanalysis.measure.MeasureRepository;
+import org.sonar.server.computation.task.projectanalysis.metric.MetricRepository;
+import org.sonar.server.computation.task.projectanalysis.period.PeriodsHolder;
+import org.sonar.server.computation.task.projectanalysis.scm.ScmInfoRepository;
+import org.sonar.server.computation.task.step.ComputationStep;
+
+/**
+ * Computes the measures of all the {@link FormulaStep}s in a single crawl of the component tree, instead of one
+ * crawl per step.
+ * <p>
+ * Formulas only read the measures of the component being visited, so evaluating them component per component, in
+ * the order of the steps, creates the same measures as executing the steps one after the other.
+ * </p>
+ */
+public class FormulaMeasuresStep implements ComputationStep {
+
+  private final TreeRootHolder treeRootHolder;
+  private final PeriodsHolder periodsHolder;
+  private final MetricRepository metricRepository;
+  private final MeasureRepository measureRepository;
+  private final SizeMeasuresStep sizeMeasuresStep;
+  private final List<FormulaStep> formulaSteps;
+
+  public FormulaMeasuresStep(TreeRootHolder treeRootHolder, PeriodsHolder periodsHolder, MetricRepository metricRepository,
+    MeasureRepository measureRepository, ScmInfoRepository scmInfoRepository, DuplicationRepository duplicationRepository) {
+    this.treeRootHolder = treeRootHolder;
+    this.periodsHolder = periodsHolder;
+    this.metricRepository = metricRepository;
+    this.measureRepository = measureRepository;
+    this.sizeMeasuresStep = new SizeMeasuresStep(treeRootHolder, metricRepository, measureRepository);
+    // order matters: some formulas read the measures computed by the formulas of previous steps
+    this.formulaSteps = ImmutableList.of(
+      sizeMeasuresStep,
+      new NewCoverageMeasuresStep(treeRootHolder, periodsHolder, measureRepository, metricRepository, scmInfoRepository),
+      new CoverageMeasuresStep(treeRootHolder, metricRepository, measureRepository),
+      new CommentMeasuresStep(treeRootHolder, metricRepository, measureRepository),
+      new DuplicationMeasuresStep(treeRootHolder, metricRepository, measureRepository, duplicationRepository),
+      new NewSizeMeasuresStep(treeRootHolder, periodsHolder, metricRepository, measureRepository, scmInfoRepository, duplicationRepository),
+      new LanguageDistributionMeasuresStep(treeRootHolder, metricRepository, measureRepository),
+      new UnitTestMeasuresStep(treeRootHolder, metricRepository, measureRepository),
+      new ComplexityMeasuresStep(treeRootHolder, metricRepository, measureRepository));
+  }
+
+  @Override
+  public void execute() {
+    ImmutableList.Builder<Formula> formulas = ImmutableList.builder();
+    for (FormulaStep formulaStep : formulaSteps) {
+      formulas.addAll(formulaStep.getFormulas());
+    }
+    List<ComponentVisitor> visitors = ImmutableList.of(
+      sizeMeasuresStep.createFileAndDirectoryMeasureVisitor(),
+      FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository)
+        .withVariationSupport(periodsHolder)
+        .buildFor(formulas.build()));
+    new VisitorsCrawler(visitors).visit(treeRootHolder.getRoot());
+  }
+
+  @Override
+  public String getDescription() {
+    return "Compute measures with formulas";
+  }
+}
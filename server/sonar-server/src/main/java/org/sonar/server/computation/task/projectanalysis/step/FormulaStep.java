@@ -0,0 +1,36 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.step;
+
+import java.util.List;
+import org.sonar.server.computation.task.projectanalysis.formula.Formula;
+
+/**
+ * Step which computes its measures with {@link Formula}s only. The formulas of these steps are evaluated together,
+ * in a single crawl of the component tree, by {@link FormulaMeasuresStep}.
+ */
+interface FormulaStep {
+
+  /**
+   * The formulas of the step, in the order they must be evaluated on each component.
+   */
+  List<Formula> getFormulas();
+
+}
@@ -24,6 +24,7 @@ import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Multiset;
 import com.google.common.collect.TreeMultiset;
+import java.util.List;
 import java.util.Map;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -49,7 +50,7 @@ import static org.sonar.api.utils.KeyValueFormat.newIntegerConverter;
 import static org.sonar.api.utils.KeyValueFormat.newStringConverter;
 import static org.sonar.server.computation.task.projectanalysis.measure.Measure.newMeasureBuilder;
 
-public class LanguageDistributionMeasuresStep implements ComputationStep {
+public class LanguageDistributionMeasuresStep implements ComputationStep, FormulaStep {
 
   private static final String UNKNOWN_LANGUAGE_KEY = "<null>";
 
@@ -67,9 +68,14 @@ public class LanguageDistributionMeasuresStep implements ComputationStep {
     this.measureRepository = measureRepository;
   }
 
+  @Override
+  public List<Formula> getFormulas() {
+    return FORMULAS;
+  }
+
   @Override
   public void execute() {
-    new PathAwareCrawler<>(FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository).buildFor(FORMULAS))
+    new PathAwareCrawler<>(FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository).buildFor(getFormulas()))
       .visit(treeRootHolder.getRoot());
   }
 
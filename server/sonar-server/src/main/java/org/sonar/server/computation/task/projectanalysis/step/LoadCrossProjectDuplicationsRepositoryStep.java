@@ -20,8 +20,15 @@
 package org.sonar.server.computation.task.projectanalysis.step;
 
 import com.google.common.base.Function;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import javax.annotation.Nonnull;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
@@ -58,6 +65,12 @@ public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationSt
 
   private static final Logger LOGGER = Loggers.get(LoadCrossProjectDuplicationsRepositoryStep.class);
 
+  /**
+   * Maximum number of distinct hashes of the files sharing a single candidates query. Larger groups are still
+   * partitioned by {@link org.sonar.db.DatabaseUtils#executeLargeInputs}.
+   */
+  static final int MAX_HASHES_PER_QUERY = 1000;
+
   private final TreeRootHolder treeRootHolder;
   private final BatchReportReader reportReader;
   private final AnalysisMetadataHolder analysisMetadataHolder;
@@ -79,7 +92,15 @@ public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationSt
   @Override
   public void execute() {
     if (crossProjectDuplicationStatusHolder.isEnabled()) {
-      new DepthTraversalTypeAwareCrawler(new CrossProjectDuplicationVisitor()).visit(treeRootHolder.getRoot());
+      DbSession dbSession = dbClient.openSession(false);
+      try {
+        CrossProjectDuplicationVisitor visitor = new CrossProjectDuplicationVisitor(dbSession);
+        new DepthTraversalTypeAwareCrawler(visitor).visit(treeRootHolder.getRoot());
+        visitor.flushAll();
+        LOGGER.debug("{} queries executed to load cross project duplication candidates of {} files", visitor.queryCount, visitor.fileCount);
+      } finally {
+        dbClient.closeSession(dbSession);
+      }
     }
   }
 
@@ -88,10 +109,21 @@ public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationSt
     return "Compute cross project duplications";
   }
 
+  /**
+   * Files are not queried one by one: they are grouped by language until the number of their distinct hashes reaches
+   * {@link #MAX_HASHES_PER_QUERY}, then candidates of the whole group are loaded with a single query and dispatched
+   * back to each file by hash.
+   */
   private class CrossProjectDuplicationVisitor extends TypeAwareVisitorAdapter {
 
-    private CrossProjectDuplicationVisitor() {
+    private final DbSession dbSession;
+    private final Map<String, PendingFiles> pendingFilesByLanguage = new LinkedHashMap<>();
+    private int queryCount = 0;
+    private int fileCount = 0;
+
+    private CrossProjectDuplicationVisitor(DbSession dbSession) {
       super(CrawlerDepthLimit.FILE, PRE_ORDER);
+      this.dbSession = dbSession;
     }
 
     @Override
@@ -101,9 +133,48 @@ public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationSt
       if (cpdTextBlocks.isEmpty()) {
         return;
       }
+      fileCount++;
+
+      String language = file.getFileAttributes().getLanguageKey();
+      PendingFiles pendingFiles = pendingFilesByLanguage.get(language);
+      if (pendingFiles == null) {
+        pendingFiles = new PendingFiles(language);
+        pendingFilesByLanguage.put(language, pendingFiles);
+      }
+      pendingFiles.add(file, cpdTextBlocks);
+      if (pendingFiles.hashes.size() >= MAX_HASHES_PER_QUERY) {
+        flush(pendingFiles);
+      }
+    }
+
+    private void flushAll() {
+      for (PendingFiles pendingFiles : pendingFilesByLanguage.values()) {
+        flush(pendingFiles);
+      }
+      pendingFilesByLanguage.clear();
+    }
+
+    private void flush(PendingFiles pendingFiles) {
+      if (pendingFiles.files.isEmpty()) {
+        return;
+      }
+      Multimap<String, DuplicationUnitDto> dtosByHash = ArrayListMultimap.create();
+      for (DuplicationUnitDto dto : selectDuplicates(pendingFiles.language, pendingFiles.hashes)) {
+        dtosByHash.put(dto.getHash(), dto);
+      }
+      if (!dtosByHash.isEmpty()) {
+        for (Map.Entry<Component, List<CpdTextBlock>> entry : pendingFiles.files.entrySet()) {
+          computeCpd(entry.getKey(), entry.getValue(), dtosByHash);
+        }
+      }
+      pendingFiles.clear();
+    }
 
-      Collection<String> hashes = from(cpdTextBlocks).transform(CpdTextBlockToHash.INSTANCE).toList();
-      List<DuplicationUnitDto> dtos = selectDuplicates(file, hashes);
+    private void computeCpd(Component file, List<CpdTextBlock> cpdTextBlocks, Multimap<String, DuplicationUnitDto> dtosByHash) {
+      List<DuplicationUnitDto> dtos = new ArrayList<>();
+      for (String hash : from(cpdTextBlocks).transform(CpdTextBlockToHash.INSTANCE).toSet()) {
+        dtos.addAll(dtosByHash.get(hash));
+      }
       if (dtos.isEmpty()) {
         return;
       }
@@ -115,15 +186,31 @@ public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationSt
       integrateCrossProjectDuplications.computeCpd(file, originBlocks, duplicatedBlocks);
     }
 
-    private List<DuplicationUnitDto> selectDuplicates(Component file, Collection<String> hashes) {
-      DbSession dbSession = dbClient.openSession(false);
-      try {
-        Analysis projectAnalysis = analysisMetadataHolder.getBaseAnalysis();
-        String analysisUuid = projectAnalysis == null ? null : projectAnalysis.getUuid();
-        return dbClient.duplicationDao().selectCandidates(dbSession, analysisUuid, file.getFileAttributes().getLanguageKey(), hashes);
-      } finally {
-        dbClient.closeSession(dbSession);
-      }
+    private List<DuplicationUnitDto> selectDuplicates(String language, Collection<String> hashes) {
+      Analysis projectAnalysis = analysisMetadataHolder.getBaseAnalysis();
+      String analysisUuid = projectAnalysis == null ? null : projectAnalysis.getUuid();
+      queryCount++;
+      return dbClient.duplicationDao().selectCandidates(dbSession, analysisUuid, language, hashes);
+    }
+  }
+
+  private static class PendingFiles {
+    private final String language;
+    private final Map<Component, List<CpdTextBlock>> files = new LinkedHashMap<>();
+    private final Set<String> hashes = new HashSet<>();
+
+    private PendingFiles(String language) {
+      this.language = language;
+    }
+
+    private void add(Component file, List<CpdTextBlock> cpdTextBlocks) {
+      files.put(file, cpdTextBlocks);
+      hashes.addAll(from(cpdTextBlocks).transform(CpdTextBlockToHash.INSTANCE).toList());
+    }
+
+    private void clear() {
+      files.clear();
+      hashes.clear();
     }
   }
 
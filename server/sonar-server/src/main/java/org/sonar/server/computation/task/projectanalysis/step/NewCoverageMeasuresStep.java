@@ -62,7 +62,7 @@ import static org.sonar.server.computation.task.projectanalysis.period.PeriodPre
 /**
  * Computes measures related to the New Coverage. These measures do not have values, only variations.
  */
-public class NewCoverageMeasuresStep implements ComputationStep {
+public class NewCoverageMeasuresStep implements ComputationStep, FormulaStep {
 
   private static final List<Formula> FORMULAS = ImmutableList.<Formula>of(
     // UT coverage
@@ -109,17 +109,21 @@ public class NewCoverageMeasuresStep implements ComputationStep {
     this.scmInfoRepository = null;
   }
 
+  @Override
+  public List<Formula> getFormulas() {
+    return ImmutableList.copyOf(Iterables.<Formula>concat(
+      NewLinesAndConditionsCoverageFormula.from(scmInfoRepository),
+      NewItLinesAndConditionsCoverageFormula.from(scmInfoRepository),
+      NewOverallLinesAndConditionsCoverageFormula.from(scmInfoRepository),
+      FORMULAS));
+  }
+
   @Override
   public void execute() {
     new PathAwareCrawler<>(
       FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository)
         .withVariationSupport(periodsHolder)
-        .buildFor(
-          Iterables.concat(
-            NewLinesAndConditionsCoverageFormula.from(scmInfoRepository),
-            NewItLinesAndConditionsCoverageFormula.from(scmInfoRepository),
-            NewOverallLinesAndConditionsCoverageFormula.from(scmInfoRepository),
-            FORMULAS)))
+        .buildFor(getFormulas()))
       .visit(treeRootHolder.getRoot());
   }
 
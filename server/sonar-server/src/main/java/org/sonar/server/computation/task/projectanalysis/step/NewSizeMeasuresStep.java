@@ -69,7 +69,7 @@ import static org.sonar.api.measures.CoreMetrics.NEW_LINES_KEY;
 /**
  * Computes measures on new code related to the size
  */
-public class NewSizeMeasuresStep implements ComputationStep {
+public class NewSizeMeasuresStep implements ComputationStep, FormulaStep {
 
   private final TreeRootHolder treeRootHolder;
   private final PeriodsHolder periodsHolder;
@@ -91,12 +91,17 @@ public class NewSizeMeasuresStep implements ComputationStep {
     return "Compute size measures on new code";
   }
 
+  @Override
+  public List<Formula> getFormulas() {
+    return ImmutableList.<Formula>of(duplicationFormula);
+  }
+
   @Override
   public void execute() {
     new PathAwareCrawler<>(
       FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository)
         .withVariationSupport(periodsHolder)
-        .buildFor(ImmutableList.of(duplicationFormula)))
+        .buildFor(getFormulas()))
           .visit(treeRootHolder.getRoot());
   }
 
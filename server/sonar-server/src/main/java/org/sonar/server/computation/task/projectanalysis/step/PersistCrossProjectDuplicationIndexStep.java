@@ -33,12 +33,16 @@ import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolde
 import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
 import org.sonar.server.computation.task.projectanalysis.duplication.CrossProjectDuplicationStatusHolder;
 import org.sonar.server.computation.task.step.ComputationStep;
+import org.sonar.server.computation.task.step.ConcurrentStep;
 
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
 
 /**
  * Persist cross project duplications text blocks into DUPLICATIONS_INDEX table
  */
+@ConcurrentStep(
+  reads = {CrossProjectDuplicationStatusHolder.class, TreeRootHolder.class, AnalysisMetadataHolder.class, BatchReportReader.class},
+  tables = "duplications_index")
 public class PersistCrossProjectDuplicationIndexStep implements ComputationStep {
 
   private final DbClient dbClient;
@@ -35,9 +35,11 @@ import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisi
 import org.sonar.server.computation.task.projectanalysis.event.Event;
 import org.sonar.server.computation.task.projectanalysis.event.EventRepository;
 import org.sonar.server.computation.task.step.ComputationStep;
+import org.sonar.server.computation.task.step.ConcurrentStep;
 
 import static com.google.common.collect.Iterables.transform;
 
+@ConcurrentStep(reads = {TreeRootHolder.class, AnalysisMetadataHolder.class, EventRepository.class}, tables = "events")
 public class PersistEventsStep implements ComputationStep {
 
   private final DbClient dbClient;
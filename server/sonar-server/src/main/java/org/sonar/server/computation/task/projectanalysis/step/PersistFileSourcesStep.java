@@ -60,9 +60,13 @@ import org.sonar.server.computation.task.projectanalysis.source.ScmLineReader;
 import org.sonar.server.computation.task.projectanalysis.source.SourceLinesRepository;
 import org.sonar.server.computation.task.projectanalysis.source.SymbolsLineReader;
 import org.sonar.server.computation.task.step.ComputationStep;
+import org.sonar.server.computation.task.step.ConcurrentStep;
 
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
 
+@ConcurrentStep(
+  reads = {TreeRootHolder.class, BatchReportReader.class, SourceLinesRepository.class, ScmInfoRepository.class, DuplicationRepository.class},
+  tables = "file_sources")
 public class PersistFileSourcesStep implements ComputationStep {
 
   private final DbClient dbClient;
@@ -19,26 +19,38 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.ibatis.executor.BatchResult;
 import org.sonar.api.issue.IssueComment;
 import org.sonar.api.utils.System2;
 import org.sonar.core.issue.DefaultIssue;
 import org.sonar.core.issue.DefaultIssueComment;
 import org.sonar.core.issue.FieldDiffs;
 import org.sonar.db.issue.IssueChangeDto;
-import org.sonar.db.issue.IssueChangeMapper;
 import org.sonar.db.issue.IssueDto;
 import org.sonar.db.issue.IssueMapper;
 import org.sonar.server.computation.task.projectanalysis.issue.UpdateConflictResolver;
+import org.sonar.db.BulkInsert;
 import org.sonar.db.DbSession;
 import org.sonar.db.MyBatis;
 import org.sonar.server.computation.task.projectanalysis.issue.IssueCache;
 import org.sonar.server.computation.task.projectanalysis.issue.RuleRepository;
 import org.sonar.db.DbClient;
+import org.sonar.db.dialect.Dialect;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.server.computation.task.step.ComputationStep;
+import org.sonar.server.computation.task.step.ConcurrentStep;
 
+@ConcurrentStep(reads = {IssueCache.class, RuleRepository.class}, tables = {"issues", "issue_changes"})
 public class PersistIssuesStep implements ComputationStep {
 
+  /**
+   * Number of batched updates after which statements are flushed, in order to detect conflicts
+   */
+  private static final int UPDATE_FLUSH_SIZE = 250;
+
   private final DbClient dbClient;
   private final System2 system2;
   private final UpdateConflictResolver conflictResolver;
@@ -58,52 +70,74 @@ public class PersistIssuesStep implements ComputationStep {
   public void execute() {
     DbSession session = dbClient.openSession(true);
     IssueMapper mapper = session.getMapper(IssueMapper.class);
-    IssueChangeMapper changeMapper = session.getMapper(IssueChangeMapper.class);
+    Dialect dialect = dbClient.getDatabase().getDialect();
+    Map<String, DefaultIssue> updatedIssuesByKey = new HashMap<>();
 
-    CloseableIterator<DefaultIssue> issues = issueCache.traverse();
-    try {
+    try (CloseableIterator<DefaultIssue> issues = issueCache.traverse();
+      BulkInsert<IssueDto> issueInserts = dbClient.issueDao().newBulkInsert(session, dialect);
+      BulkInsert<IssueChangeDto> changeInserts = dbClient.issueChangeDao().newBulkInsert(session, dialect)) {
       while (issues.hasNext()) {
         DefaultIssue issue = issues.next();
         boolean saved = false;
         if (issue.isNew()) {
           Integer ruleId = ruleRepository.getByKey(issue.ruleKey()).getId();
-          IssueDto dto = IssueDto.toDtoForComputationInsert(issue, ruleId, system2.now());
-          mapper.insert(dto);
+          issueInserts.add(IssueDto.toDtoForComputationInsert(issue, ruleId, system2.now()));
           saved = true;
         } else if (issue.isChanged()) {
-          IssueDto dto = IssueDto.toDtoForUpdate(issue, system2.now());
-          int updateCount = mapper.updateIfBeforeSelectedDate(dto);
-          if (updateCount == 0) {
-            // End-user and scan changed the issue at the same time.
-            // See https://jira.sonarsource.com/browse/SONAR-4309
-            conflictResolver.resolve(issue, mapper);
+          mapper.updateIfBeforeSelectedDate(IssueDto.toDtoForUpdate(issue, system2.now()));
+          updatedIssuesByKey.put(issue.key(), issue);
+          if (updatedIssuesByKey.size() >= UPDATE_FLUSH_SIZE) {
+            flushUpdates(session, mapper, updatedIssuesByKey);
           }
           saved = true;
         }
         if (saved) {
-          insertChanges(changeMapper, issue);
+          insertChanges(changeInserts, issue);
         }
       }
-      session.flushStatements();
-      session.commit();
+      flushUpdates(session, mapper, updatedIssuesByKey);
+      issueInserts.flush();
+      changeInserts.flush();
+      session.commit(true);
     } finally {
       MyBatis.closeQuietly(session);
-      issues.close();
     }
   }
 
-  private static void insertChanges(IssueChangeMapper mapper, DefaultIssue issue) {
+  /**
+   * Batched updates return their number of updated rows only once flushed. No row is updated when the issue
+   * has been changed since its selection.
+   */
+  private void flushUpdates(DbSession session, IssueMapper mapper, Map<String, DefaultIssue> updatedIssuesByKey) {
+    if (updatedIssuesByKey.isEmpty()) {
+      return;
+    }
+    List<BatchResult> results = session.flushStatements();
+    for (BatchResult result : results) {
+      int[] updateCounts = result.getUpdateCounts();
+      List<Object> parameters = result.getParameterObjects();
+      for (int i = 0; i < updateCounts.length; i++) {
+        DefaultIssue issue = parameters.get(i) instanceof IssueDto ? updatedIssuesByKey.get(((IssueDto) parameters.get(i)).getKee()) : null;
+        if (issue != null && updateCounts[i] == 0) {
+          // End-user and scan changed the issue at the same time.
+          // See https://jira.sonarsource.com/browse/SONAR-4309
+          conflictResolver.resolve(issue, mapper);
+        }
+      }
+    }
+    updatedIssuesByKey.clear();
+  }
+
+  private static void insertChanges(BulkInsert<IssueChangeDto> changeInserts, DefaultIssue issue) {
     for (IssueComment comment : issue.comments()) {
       DefaultIssueComment c = (DefaultIssueComment) comment;
       if (c.isNew()) {
-        IssueChangeDto changeDto = IssueChangeDto.of(c);
-        mapper.insert(changeDto);
+        changeInserts.add(IssueChangeDto.of(c));
       }
     }
     FieldDiffs diffs = issue.currentChange();
     if (!issue.isNew() && diffs != null) {
-      IssueChangeDto changeDto = IssueChangeDto.of(issue.key(), diffs);
-      mapper.insert(changeDto);
+      changeInserts.add(IssueChangeDto.of(issue.key(), diffs));
     }
   }
 
@@ -27,9 +27,9 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import javax.annotation.Nonnull;
+import org.sonar.db.BulkInsert;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
-import org.sonar.db.measure.MeasureDao;
 import org.sonar.db.measure.MeasureDto;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthLimit;
@@ -43,6 +43,7 @@ import org.sonar.server.computation.task.projectanalysis.measure.MeasureToMeasur
 import org.sonar.server.computation.task.projectanalysis.metric.Metric;
 import org.sonar.server.computation.task.projectanalysis.metric.MetricRepository;
 import org.sonar.server.computation.task.step.ComputationStep;
+import org.sonar.server.computation.task.step.ConcurrentStep;
 
 import static com.google.common.collect.FluentIterable.from;
 import static org.sonar.api.measures.CoreMetrics.CLASS_COMPLEXITY_DISTRIBUTION_KEY;
@@ -50,6 +51,7 @@ import static org.sonar.api.measures.CoreMetrics.FILE_COMPLEXITY_DISTRIBUTION_KE
 import static org.sonar.api.measures.CoreMetrics.FUNCTION_COMPLEXITY_DISTRIBUTION_KEY;
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
 
+@ConcurrentStep(reads = {TreeRootHolder.class, MetricRepository.class, MeasureRepository.class}, tables = "project_measures")
 public class PersistMeasuresStep implements ComputationStep {
 
   /**
@@ -82,21 +84,22 @@ public class PersistMeasuresStep implements ComputationStep {
 
   @Override
   public void execute() {
-    DbSession dbSession = dbClient.openSession(true);
-    try {
-      new DepthTraversalTypeAwareCrawler(new MeasureVisitor(dbSession)).visit(treeRootHolder.getRoot());
-      dbSession.commit();
+    DbSession dbSession = dbClient.openSession(false);
+    try (BulkInsert<MeasureDto> inserts = dbClient.measureDao().newBulkInsert(dbSession, dbClient.getDatabase().getDialect())) {
+      new DepthTraversalTypeAwareCrawler(new MeasureVisitor(inserts)).visit(treeRootHolder.getRoot());
+      inserts.flush();
+      dbSession.commit(true);
     } finally {
       dbSession.close();
     }
   }
 
   private class MeasureVisitor extends TypeAwareVisitorAdapter {
-    private final DbSession session;
+    private final BulkInsert<MeasureDto> inserts;
 
-    private MeasureVisitor(DbSession session) {
+    private MeasureVisitor(BulkInsert<MeasureDto> inserts) {
       super(CrawlerDepthLimit.LEAVES, PRE_ORDER);
-      this.session = session;
+      this.inserts = inserts;
     }
 
     @Override
@@ -114,10 +117,8 @@ public class PersistMeasuresStep implements ComputationStep {
 
         Metric metric = metricRepository.getByKey(metricKey);
         Predicate<Measure> notBestValueOptimized = Predicates.not(BestValueOptimization.from(metric, component));
-        MeasureDao measureDao = dbClient.measureDao();
         for (Measure measure : from(measures.getValue()).filter(NonEmptyMeasure.INSTANCE).filter(notBestValueOptimized)) {
-          MeasureDto measureDto = measureToMeasureDto.toMeasureDto(measure, metric, component);
-          measureDao.insert(session, measureDto);
+          inserts.add(measureToMeasureDto.toMeasureDto(measure, metric, component));
         }
       }
     }
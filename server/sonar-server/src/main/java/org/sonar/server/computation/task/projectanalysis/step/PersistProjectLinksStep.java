@@ -41,6 +41,7 @@ import org.sonar.server.computation.task.projectanalysis.component.DepthTraversa
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
 import org.sonar.server.computation.task.step.ComputationStep;
+import org.sonar.server.computation.task.step.ConcurrentStep;
 
 import static com.google.common.collect.Sets.newHashSet;
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
@@ -48,6 +49,7 @@ import static org.sonar.server.computation.task.projectanalysis.component.Compon
 /**
  * Persist project and module links
  */
+@ConcurrentStep(reads = {TreeRootHolder.class, BatchReportReader.class}, tables = "project_links")
 public class PersistProjectLinksStep implements ComputationStep {
 
   private final DbClient dbClient;
@@ -55,7 +55,9 @@ import org.sonar.server.computation.task.projectanalysis.component.DepthTraversa
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
 import org.sonar.server.computation.task.step.ComputationStep;
+import org.sonar.server.computation.task.step.ConcurrentStep;
 
+@ConcurrentStep(reads = {TreeRootHolder.class, BatchReportReader.class}, tables = "file_sources")
 public class PersistTestsStep implements ComputationStep {
 
   private static final Logger LOG = Loggers.get(PersistTestsStep.class);
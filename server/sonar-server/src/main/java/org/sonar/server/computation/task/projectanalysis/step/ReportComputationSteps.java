@@ -58,17 +58,9 @@ public class ReportComputationSteps extends AbstractComputationSteps {
     LoadCrossProjectDuplicationsRepositoryStep.class,
 
     // data computation
-    SizeMeasuresStep.class,
-    NewCoverageMeasuresStep.class,
-    CoverageMeasuresStep.class,
-    CommentMeasuresStep.class,
     CustomMeasuresCopyStep.class,
-    DuplicationMeasuresStep.class,
+    FormulaMeasuresStep.class,
     DuplicationDataMeasuresStep.class,
-    NewSizeMeasuresStep.class,
-    LanguageDistributionMeasuresStep.class,
-    UnitTestMeasuresStep.class,
-    ComplexityMeasuresStep.class,
 
     LoadMeasureComputersStep.class,
     ExecuteVisitorsStep.class,
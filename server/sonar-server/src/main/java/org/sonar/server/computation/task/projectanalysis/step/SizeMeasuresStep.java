@@ -26,6 +26,7 @@ import org.sonar.api.measures.CoreMetrics;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthLimit;
 import org.sonar.server.computation.task.projectanalysis.component.PathAwareCrawler;
+import org.sonar.server.computation.task.projectanalysis.component.PathAwareVisitor;
 import org.sonar.server.computation.task.projectanalysis.component.PathAwareVisitorAdapter;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.formula.Formula;
@@ -51,7 +52,7 @@ import static org.sonar.server.computation.task.projectanalysis.measure.Measure.
 /**
  * Compute size measures
  */
-public class SizeMeasuresStep implements ComputationStep {
+public class SizeMeasuresStep implements ComputationStep, FormulaStep {
   private static final CounterStackElementFactory COUNTER_STACK_ELEMENT_FACTORY = new CounterStackElementFactory();
   private static final List<Formula> AGGREGATED_SIZE_MEASURE_FORMULAS = ImmutableList.<Formula>of(
     createIntSumFormula(LINES_KEY),
@@ -74,14 +75,25 @@ public class SizeMeasuresStep implements ComputationStep {
   }
 
   @Override
-  public void execute() {
+  public List<Formula> getFormulas() {
+    return AGGREGATED_SIZE_MEASURE_FORMULAS;
+  }
+
+  /**
+   * Visitor computing the measures "files" and "directories", which are not computed by formulas
+   */
+  PathAwareVisitor<?> createFileAndDirectoryMeasureVisitor() {
     Metric fileMetric = metricRepository.getByKey(CoreMetrics.FILES_KEY);
     Metric directoryMetric = metricRepository.getByKey(CoreMetrics.DIRECTORIES_KEY);
+    return new FileAndDirectoryMeasureVisitor(directoryMetric, fileMetric);
+  }
 
-    new PathAwareCrawler<>(new FileAndDirectoryMeasureVisitor(directoryMetric, fileMetric))
+  @Override
+  public void execute() {
+    new PathAwareCrawler<>(createFileAndDirectoryMeasureVisitor())
       .visit(treeRootHolder.getRoot());
     new PathAwareCrawler<>(FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository)
-      .buildFor(AGGREGATED_SIZE_MEASURE_FORMULAS))
+      .buildFor(getFormulas()))
         .visit(treeRootHolder.getRoot());
   }
 
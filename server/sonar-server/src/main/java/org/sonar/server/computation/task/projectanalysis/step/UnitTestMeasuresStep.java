@@ -21,6 +21,7 @@ package org.sonar.server.computation.task.projectanalysis.step;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
+import java.util.List;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthLimit;
 import org.sonar.server.computation.task.projectanalysis.component.PathAwareCrawler;
@@ -48,7 +49,7 @@ import static org.sonar.server.computation.task.projectanalysis.formula.SumFormu
 /**
  * Computes unit test measures on files and then aggregates them on higher components.
  */
-public class UnitTestMeasuresStep implements ComputationStep {
+public class UnitTestMeasuresStep implements ComputationStep, FormulaStep {
 
   private static final String[] METRICS = new String[] {TESTS_KEY, TEST_ERRORS_KEY, TEST_FAILURES_KEY, TEST_SUCCESS_DENSITY_KEY};
 
@@ -67,10 +68,15 @@ public class UnitTestMeasuresStep implements ComputationStep {
     this.measureRepository = measureRepository;
   }
 
+  @Override
+  public List<Formula> getFormulas() {
+    return FORMULAS;
+  }
+
   @Override
   public void execute() {
     new PathAwareCrawler<>(
-      FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository).buildFor(FORMULAS))
+      FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository).buildFor(getFormulas()))
         .visit(treeRootHolder.getRoot());
   }
 
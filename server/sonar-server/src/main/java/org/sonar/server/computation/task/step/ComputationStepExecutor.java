@@ -19,18 +19,55 @@
  */
 package org.sonar.server.computation.task.step;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
+import org.slf4j.MDC;
+import org.sonar.api.config.Settings;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.ce.queue.CeTask;
 import org.sonar.core.util.logs.Profiler;
+import org.sonar.db.DbClient;
+import org.sonar.db.ce.CeTaskProfile;
+import org.sonar.db.dialect.H2;
+import org.sonar.server.computation.monitoring.CeTaskProfiles;
 
+/**
+ * Executes the steps of a task. Steps annotated with {@link ConcurrentStep} are executed concurrently
+ * when they do not access the same data, the other ones are executed in order of declaration.
+ * <p>
+ * The resources consumed by each step (time, CPU, heap allocations, SQL and Elasticsearch requests) are
+ * recorded in the profile of the task, see {@link CeTaskProfiles}.
+ * </p>
+ */
 public final class ComputationStepExecutor {
   private static final Logger LOGGER = Loggers.get(ComputationStepExecutor.class);
 
+  /**
+   * Maximum number of steps executed concurrently for a task. Value 1 executes all steps sequentially,
+   * in order of declaration.
+   */
+  public static final String PROPERTY_THREADS = "sonar.ce.steps.threads";
+  private static final int DEFAULT_THREADS = 4;
+
   private final ComputationSteps steps;
   @CheckForNull
   private final Listener listener;
+  private final int threads;
+  @CheckForNull
+  private final CeTask task;
+  @CheckForNull
+  private final CeTaskProfiles taskProfiles;
 
   /**
    * Used when no {@link ComputationStepExecutor.Listener} is available in pico
@@ -41,28 +78,209 @@ public final class ComputationStepExecutor {
   }
 
   public ComputationStepExecutor(ComputationSteps steps, @Nullable Listener listener) {
+    this(steps, listener, 1);
+  }
+
+  public ComputationStepExecutor(ComputationSteps steps, @Nullable Listener listener, Settings settings, DbClient dbClient) {
+    this(steps, listener, threads(settings, dbClient));
+  }
+
+  public ComputationStepExecutor(ComputationSteps steps, @Nullable Listener listener, Settings settings, DbClient dbClient,
+    CeTask task, CeTaskProfiles taskProfiles) {
+    this(steps, listener, threads(settings, dbClient), task, taskProfiles);
+  }
+
+  ComputationStepExecutor(ComputationSteps steps, @Nullable Listener listener, int threads) {
+    this(steps, listener, threads, null, null);
+  }
+
+  ComputationStepExecutor(ComputationSteps steps, @Nullable Listener listener, int threads, @Nullable CeTask task, @Nullable CeTaskProfiles taskProfiles) {
     this.steps = steps;
     this.listener = listener;
+    this.threads = threads;
+    this.task = task;
+    this.taskProfiles = taskProfiles;
   }
 
   public void execute() {
-    Profiler stepProfiler = Profiler.create(LOGGER);
+    List<StepNode> nodes = Collections.emptyList();
     boolean allStepsExecuted = false;
     try {
-      executeSteps(stepProfiler);
+      nodes = buildGraph(steps.instances());
+      executeSteps(nodes);
       allStepsExecuted = true;
     } finally {
+      recordProfile(nodes);
       if (listener != null) {
         listener.finished(allStepsExecuted);
       }
     }
   }
 
-  private void executeSteps(Profiler stepProfiler) {
-    for (ComputationStep step : steps.instances()) {
-      stepProfiler.start();
-      step.execute();
-      stepProfiler.stopDebug(step.getDescription());
+  private void executeSteps(List<StepNode> nodes) {
+    long start = System.currentTimeMillis();
+    if (threads > 1) {
+      executeConcurrently(nodes);
+    } else {
+      nodes.forEach(StepNode::execute);
+    }
+    logReport(nodes, System.currentTimeMillis() - start);
+  }
+
+  /**
+   * A step depends on the latest non-annotated step and on the previous annotated steps which access the same data
+   */
+  private static List<StepNode> buildGraph(Iterable<ComputationStep> steps) {
+    List<StepNode> nodes = new ArrayList<>();
+    StepNode barrier = null;
+    List<StepNode> sinceBarrier = new ArrayList<>();
+    for (ComputationStep step : steps) {
+      ConcurrentStep declaration = step.getClass().getAnnotation(ConcurrentStep.class);
+      List<StepNode> dependencies = new ArrayList<>();
+      if (declaration == null) {
+        if (sinceBarrier.isEmpty() && barrier != null) {
+          dependencies.add(barrier);
+        }
+        dependencies.addAll(sinceBarrier);
+      } else {
+        if (barrier != null) {
+          dependencies.add(barrier);
+        }
+        sinceBarrier.stream().filter(previous -> conflict(previous.declaration, declaration)).forEach(dependencies::add);
+      }
+      StepNode node = new StepNode(step, declaration, dependencies);
+      if (declaration == null) {
+        barrier = node;
+        sinceBarrier = new ArrayList<>();
+      } else {
+        sinceBarrier.add(node);
+      }
+      nodes.add(node);
+    }
+    return nodes;
+  }
+
+  private static boolean conflict(ConcurrentStep first, ConcurrentStep second) {
+    return intersect(first.writes(), second.reads()) || intersect(first.writes(), second.writes()) || intersect(first.reads(), second.writes())
+      || intersect(first.tables(), second.tables());
+  }
+
+  private static boolean intersect(Object[] first, Object[] second) {
+    return !Collections.disjoint(Arrays.asList(first), Arrays.asList(second));
+  }
+
+  private void executeConcurrently(List<StepNode> nodes) {
+    // steps are executed by a pool dedicated to the task, with the logging context of the task
+    Map<String, String> loggingContext = MDC.getCopyOfContextMap();
+    ExecutorService executor = Executors.newFixedThreadPool(threads,
+      new ThreadFactoryBuilder().setNameFormat(Thread.currentThread().getName() + "-step-%d").setDaemon(true).build());
+    try {
+      for (StepNode node : nodes) {
+        CompletableFuture<?>[] dependencies = node.dependencies.stream().map(dependency -> dependency.future).toArray(CompletableFuture[]::new);
+        node.future = CompletableFuture.allOf(dependencies).thenRunAsync(() -> node.execute(loggingContext), executor);
+      }
+      CompletableFuture.allOf(nodes.stream().map(node -> node.future).toArray(CompletableFuture[]::new)).join();
+    } catch (CompletionException e) {
+      throw propagate(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static RuntimeException propagate(Throwable t) {
+    if (t instanceof RuntimeException) {
+      return (RuntimeException) t;
+    }
+    if (t instanceof Error) {
+      throw (Error) t;
+    }
+    return new IllegalStateException(t);
+  }
+
+  /**
+   * The critical path is the longest chain of dependent steps. It is the minimal duration of the task
+   * if steps were executed with an unlimited number of threads.
+   */
+  private void logReport(List<StepNode> nodes, long durationMs) {
+    long totalStepsMs = 0L;
+    long criticalPathMs = 0L;
+    for (StepNode node : nodes) {
+      long dependenciesMs = node.dependencies.stream().mapToLong(dependency -> dependency.criticalPathMs).max().orElse(0L);
+      node.criticalPathMs = dependenciesMs + node.durationMs;
+      criticalPathMs = Math.max(criticalPathMs, node.criticalPathMs);
+      totalStepsMs += node.durationMs;
+    }
+    LOGGER.info("Steps executed in {} ms with {} threads (total time of steps: {} ms, critical path: {} ms)", durationMs, threads, totalStepsMs, criticalPathMs);
+  }
+
+  /**
+   * Steps are recorded in order of declaration. The steps which have not been executed because of the failure
+   * of a previous step are ignored.
+   */
+  private void recordProfile(List<StepNode> nodes) {
+    if (task == null || taskProfiles == null) {
+      return;
+    }
+    List<CeTaskProfile.Step> executedSteps = new ArrayList<>(nodes.size());
+    for (StepNode node : nodes) {
+      if (node.profile != null) {
+        executedSteps.add(node.profile);
+      }
+    }
+    if (!executedSteps.isEmpty()) {
+      taskProfiles.record(task.getUuid(), new CeTaskProfile(executedSteps));
+    }
+  }
+
+  private static int threads(Settings settings, DbClient dbClient) {
+    // H2 locks whole tables, so concurrent steps would wait for each other
+    if (H2.ID.equals(dbClient.getDatabase().getDialect().getId())) {
+      return 1;
+    }
+    int threads = settings.getInt(PROPERTY_THREADS);
+    return threads > 0 ? threads : DEFAULT_THREADS;
+  }
+
+  private static class StepNode {
+    private final ComputationStep step;
+    @CheckForNull
+    private final ConcurrentStep declaration;
+    private final List<StepNode> dependencies;
+    private CompletableFuture<Void> future;
+    private volatile long durationMs = 0L;
+    @CheckForNull
+    private volatile CeTaskProfile.Step profile;
+    private long criticalPathMs = 0L;
+
+    StepNode(ComputationStep step, @Nullable ConcurrentStep declaration, List<StepNode> dependencies) {
+      this.step = step;
+      this.declaration = declaration;
+      this.dependencies = dependencies;
+    }
+
+    void execute() {
+      ThreadUsage before = ThreadUsage.current();
+      Profiler stepProfiler = Profiler.create(LOGGER).start();
+      try {
+        step.execute();
+      } finally {
+        String description = step.getDescription();
+        durationMs = stepProfiler.stopDebug(description);
+        profile = ThreadUsage.current().since(before).setDescription(description).setDurationMs(durationMs);
+      }
+    }
+
+    void execute(@Nullable Map<String, String> loggingContext) {
+      if (loggingContext == null) {
+        MDC.clear();
+      } else {
+        MDC.setContextMap(loggingContext);
+      }
+      try {
+        execute();
+      } finally {
+        MDC.clear();
+      }
     }
   }
 
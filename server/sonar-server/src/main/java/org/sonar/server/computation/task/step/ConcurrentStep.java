@@ -0,0 +1,53 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.step;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares the data accessed by a {@link ComputationStep}, so that {@link ComputationStepExecutor} can execute it
+ * concurrently with the neighbour steps which do not access the same data.
+ * <p/>
+ * A step which is not annotated is executed alone: it starts once all the previous steps are done, and the next
+ * steps start once it is done. As a consequence, annotated steps are executed concurrently only with the other
+ * annotated steps declared between the same non-annotated steps.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface ConcurrentStep {
+
+  /**
+   * Holders and repositories read by the step
+   */
+  Class<?>[] reads() default {};
+
+  /**
+   * Holders and repositories written by the step
+   */
+  Class<?>[] writes() default {};
+
+  /**
+   * Database tables written by the step
+   */
+  String[] tables() default {};
+}
@@ -0,0 +1,97 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.step;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+import org.sonar.core.util.ThreadCounter;
+import org.sonar.core.util.ThreadElapsedTime;
+import org.sonar.db.ce.CeTaskProfile;
+
+import static org.sonar.db.ce.CeTaskProfile.UNKNOWN;
+
+/**
+ * Resources consumed so far by the current thread. The difference between two snapshots taken by the same
+ * thread is the profile of the code executed in-between.
+ */
+final class ThreadUsage {
+
+  private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+  private final long cpuTimeNanos;
+  private final long allocatedBytes;
+  private final long sqlStatements;
+  private final long sqlFetchedRows;
+  private final long sqlTimeNanos;
+  private final long esBulkRequests;
+  private final long esDocuments;
+  private final long esTimeNanos;
+
+  private ThreadUsage() {
+    this.cpuTimeNanos = currentCpuTime();
+    this.allocatedBytes = currentAllocatedBytes();
+    this.sqlStatements = ThreadCounter.SQL_STATEMENTS.get();
+    this.sqlFetchedRows = ThreadCounter.SQL_FETCHED_ROWS.get();
+    this.sqlTimeNanos = ThreadElapsedTime.SQL.get();
+    this.esBulkRequests = ThreadCounter.ES_BULK_REQUESTS.get();
+    this.esDocuments = ThreadCounter.ES_DOCUMENTS.get();
+    this.esTimeNanos = ThreadElapsedTime.ELASTICSEARCH.get();
+  }
+
+  static ThreadUsage current() {
+    return new ThreadUsage();
+  }
+
+  /**
+   * Resources consumed since {@code before}, which must have been taken by the same thread
+   */
+  CeTaskProfile.Step since(ThreadUsage before) {
+    return new CeTaskProfile.Step()
+      .setCpuTimeMs(cpuTimeNanos == UNKNOWN || before.cpuTimeNanos == UNKNOWN ? UNKNOWN : TimeUnit.NANOSECONDS.toMillis(cpuTimeNanos - before.cpuTimeNanos))
+      .setAllocatedBytes(allocatedBytes == UNKNOWN || before.allocatedBytes == UNKNOWN ? UNKNOWN : (allocatedBytes - before.allocatedBytes))
+      .setSqlStatements(sqlStatements - before.sqlStatements)
+      .setSqlFetchedRows(sqlFetchedRows - before.sqlFetchedRows)
+      .setSqlTimeMs(TimeUnit.NANOSECONDS.toMillis(sqlTimeNanos - before.sqlTimeNanos))
+      .setEsBulkRequests(esBulkRequests - before.esBulkRequests)
+      .setEsDocuments(esDocuments - before.esDocuments)
+      .setEsTimeMs(TimeUnit.NANOSECONDS.toMillis(esTimeNanos - before.esTimeNanos));
+  }
+
+  private static long currentCpuTime() {
+    if (THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled()) {
+      return THREADS.getCurrentThreadCpuTime();
+    }
+    return UNKNOWN;
+  }
+
+  /**
+   * Allocated bytes are provided by the HotSpot extension of {@link ThreadMXBean}
+   */
+  private static long currentAllocatedBytes() {
+    if (THREADS instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean hotSpotThreads = (com.sun.management.ThreadMXBean) THREADS;
+      if (hotSpotThreads.isThreadAllocatedMemorySupported() && hotSpotThreads.isThreadAllocatedMemoryEnabled()) {
+        return hotSpotThreads.getThreadAllocatedBytes(Thread.currentThread().getId());
+      }
+    }
+    return UNKNOWN;
+  }
+}
@@ -202,11 +202,12 @@ public class DebtModelBackup {
     ValidationMessages validationMessages, Date updateDate, DbSession session) {
     for (RuleDto rule : rules) {
       RuleDebt ruleDebt = ruleDebt(rule.getRepositoryKey(), rule.getRuleKey(), ruleDebts);
+      // set before the update so that it's persisted along with the new debt
+      rule.setUpdatedAt(updateDate.getTime());
       ruleOperations.updateRule(rule,
         ruleDebt != null ? ruleDebt.function() : null,
         ruleDebt != null ? ruleDebt.coefficient() : null,
         ruleDebt != null ? ruleDebt.offset() : null, session);
-      rule.setUpdatedAt(updateDate.getTime());
       ruleDebts.remove(ruleDebt);
     }
 
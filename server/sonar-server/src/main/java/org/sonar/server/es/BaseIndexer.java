@@ -27,7 +27,12 @@ import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import org.picocontainer.Startable;
+import org.sonar.core.util.ThreadCounterSnapshot;
 
+/**
+ * Indexations are executed by a single thread per indexer. The operations it executes, for example Elasticsearch
+ * requests, are added to the {@link org.sonar.core.util.ThreadCounter}s of the thread which requested the indexation.
+ */
 public abstract class BaseIndexer implements Startable {
 
   private final ThreadPoolExecutor executor;
@@ -46,7 +51,15 @@ public abstract class BaseIndexer implements Startable {
    * Indices are populated and refreshed when all startup components have been executed. See
    * {@link IndexerStartupTask}
    */
-  private boolean enabled = false;
+  private volatile boolean enabled = false;
+
+  /**
+   * The incremental indexation which is queued but not started yet. It will index all the changes
+   * committed before it starts, so concurrent calls to {@link #index()} share it instead of
+   * queueing one indexation each.
+   */
+  private final Object pendingLock = new Object();
+  private PendingIndexation pending = null;
 
   protected BaseIndexer(EsClient client, long threadKeepAliveSeconds, String indexName, String typeName,
     String dateFieldName) {
@@ -61,26 +74,68 @@ public abstract class BaseIndexer implements Startable {
   public void index(final IndexerTask task) {
     if (enabled) {
       final long requestedAt = System.currentTimeMillis();
-      Future submit = executor.submit(() -> {
-        if (lastUpdatedAt == -1L) {
-          lastUpdatedAt = esClient.getMaxFieldValue(indexName, typeName, dateFieldName);
-        }
-        if (requestedAt > lastUpdatedAt) {
-          long l = task.index(lastUpdatedAt);
-          // l can be 0 if no documents were indexed
-          lastUpdatedAt = Math.max(l, lastUpdatedAt);
+      await(submit(() -> execute(task, requestedAt))).addToCurrentThread();
+    }
+  }
+
+  public void index() {
+    if (enabled) {
+      Future<ThreadCounterSnapshot> future;
+      boolean requester = false;
+      synchronized (pendingLock) {
+        if (pending == null || pending.started) {
+          pending = new PendingIndexation();
+          pending.future = submit(pending);
+          requester = true;
         }
-      });
-      try {
-        Uninterruptibles.getUninterruptibly(submit);
-      } catch (ExecutionException e) {
-        Throwables.propagate(e);
+        future = pending.future;
+      }
+      ThreadCounterSnapshot usage = await(future);
+      if (requester) {
+        // an indexation shared by concurrent callers is counted once
+        usage.addToCurrentThread();
       }
     }
   }
 
-  public void index() {
-    index(this::doIndex);
+  /**
+   * Indexes all the documents, whatever the date of the latest indexed document. Used when
+   * the index may be incomplete, for example when its initial indexation was interrupted.
+   * Executed even if the indexer is disabled, as indexers are enabled only once their index is populated.
+   */
+  public void indexFromScratch() {
+    final long requestedAt = System.currentTimeMillis();
+    await(submit(() -> {
+      lastUpdatedAt = 0L;
+      execute(this::doIndex, requestedAt);
+    })).addToCurrentThread();
+  }
+
+  private void execute(IndexerTask task, long requestedAt) {
+    if (lastUpdatedAt == -1L) {
+      lastUpdatedAt = esClient.getMaxFieldValue(indexName, typeName, dateFieldName);
+    }
+    if (requestedAt > lastUpdatedAt) {
+      long l = task.index(lastUpdatedAt);
+      // l can be 0 if no documents were indexed
+      lastUpdatedAt = Math.max(l, lastUpdatedAt);
+    }
+  }
+
+  private Future<ThreadCounterSnapshot> submit(Runnable task) {
+    return executor.submit(() -> {
+      ThreadCounterSnapshot before = ThreadCounterSnapshot.current();
+      task.run();
+      return before.elapsed();
+    });
+  }
+
+  private static ThreadCounterSnapshot await(Future<ThreadCounterSnapshot> future) {
+    try {
+      return Uninterruptibles.getUninterruptibly(future);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e);
+    }
   }
 
   protected abstract long doIndex(long lastUpdatedAt);
@@ -105,4 +160,16 @@ public abstract class BaseIndexer implements Startable {
     long index(long lastUpdatedAt);
   }
 
+  private class PendingIndexation implements Runnable {
+    private boolean started = false;
+    private Future<ThreadCounterSnapshot> future;
+
+    @Override
+    public void run() {
+      synchronized (pendingLock) {
+        started = true;
+      }
+      execute(BaseIndexer.this::doIndex, System.currentTimeMillis());
+    }
+  }
 }
@@ -46,6 +46,9 @@ import org.picocontainer.Startable;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.ProgressLogger;
+import org.sonar.core.util.ThreadCounter;
+import org.sonar.process.MetricsPublisher;
+import org.sonar.process.ProcessMetric;
 
 import static java.lang.String.format;
 
@@ -64,6 +67,15 @@ public class BulkIndexer implements Startable {
   private static final String REFRESH_INTERVAL_SETTING = "index.refresh_interval";
   private static final String ALREADY_STARTED_MESSAGE = "Bulk indexing is already started";
 
+  /**
+   * Number of bulk requests sent by all the indexers of the process and not acknowledged yet
+   */
+  private static final AtomicLong PENDING_REQUESTS = new AtomicLong(0L);
+
+  static {
+    MetricsPublisher.register(ProcessMetric.ES_BULK_BACKLOG, PENDING_REQUESTS::get);
+  }
+
   private final EsClient client;
   private final String indexName;
   private boolean large = false;
@@ -225,10 +237,17 @@ public class BulkIndexer implements Startable {
     req.get();
   }
 
+  static long getPendingRequests() {
+    return PENDING_REQUESTS.get();
+  }
+
   private void executeBulk() {
     final BulkRequestBuilder req = this.bulkRequest;
     this.bulkRequest = client.prepareBulk().setRefresh(false);
+    ThreadCounter.ES_BULK_REQUESTS.increment();
+    ThreadCounter.ES_DOCUMENTS.add(req.request().numberOfActions());
     semaphore.acquireUninterruptibly();
+    PENDING_REQUESTS.incrementAndGet();
     req.execute(new BulkResponseActionListener(req));
   }
 
@@ -241,6 +260,7 @@ public class BulkIndexer implements Startable {
 
     @Override
     public void onResponse(BulkResponse response) {
+      PENDING_REQUESTS.decrementAndGet();
       semaphore.release();
       counter.addAndGet(response.getItems().length);
 
@@ -253,6 +273,7 @@ public class BulkIndexer implements Startable {
 
     @Override
     public void onFailure(Throwable e) {
+      PENDING_REQUESTS.decrementAndGet();
       semaphore.release();
       LOGGER.error("Fail to execute bulk index request: " + req, e);
     }
@@ -19,6 +19,8 @@
  */
 package org.sonar.server.es;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import org.apache.commons.lang.StringUtils;
 import org.elasticsearch.action.admin.indices.create.CreateIndexResponse;
@@ -29,6 +31,8 @@ import org.picocontainer.Startable;
 import org.sonar.api.server.ServerSide;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.server.es.metadata.MetadataIndex;
+import org.sonar.server.es.metadata.MetadataIndexDefinition;
 
 /**
  * Creates/deletes all indices in Elasticsearch during server startup.
@@ -46,16 +50,21 @@ public class IndexCreator implements Startable {
 
   private final EsClient client;
   private final IndexDefinitions definitions;
+  private final MetadataIndex metadataIndex;
 
-  public IndexCreator(EsClient client, IndexDefinitions definitions) {
+  public IndexCreator(EsClient client, IndexDefinitions definitions, MetadataIndex metadataIndex) {
     this.client = client;
     this.definitions = definitions;
+    this.metadataIndex = metadataIndex;
   }
 
   @Override
   public void start() {
+    boolean hasMetadataIndex = definitions.getIndices().containsKey(MetadataIndexDefinition.INDEX);
+    boolean metadataIndexCreated = false;
     // create indices that do not exist or that have a new definition (different mapping, cluster enabled, ...)
-    for (IndexDefinitions.Index index : definitions.getIndices().values()) {
+    for (IndexDefinitions.Index index : metadataIndexFirst()) {
+      boolean isMetadataIndex = MetadataIndexDefinition.INDEX.equals(index.getName());
       boolean exists = client.prepareIndicesExist(index.getName()).get().isExists();
       if (exists && needsToDeleteIndex(index)) {
         LOGGER.info(String.format("Delete index %s (settings changed)", index.getName()));
@@ -64,8 +73,32 @@ public class IndexCreator implements Startable {
       }
       if (!exists) {
         createIndex(index);
+        if (isMetadataIndex) {
+          metadataIndexCreated = true;
+        } else if (hasMetadataIndex) {
+          // index is empty, it must be populated from scratch
+          metadataIndex.setInitialized(index.getName(), false);
+        }
+      } else if (metadataIndexCreated && !isMetadataIndex) {
+        // index was populated by a version which did not record the state of indices, for example before upgrade
+        metadataIndex.setInitialized(index.getName(), true);
+      }
+    }
+  }
+
+  /**
+   * The index "metadatas" stores the state of the other indices, so it must be created before them
+   */
+  private List<IndexDefinitions.Index> metadataIndexFirst() {
+    List<IndexDefinitions.Index> indices = new ArrayList<>();
+    for (IndexDefinitions.Index index : definitions.getIndices().values()) {
+      if (MetadataIndexDefinition.INDEX.equals(index.getName())) {
+        indices.add(0, index);
+      } else {
+        indices.add(index);
       }
     }
+    return indices;
   }
 
   @Override
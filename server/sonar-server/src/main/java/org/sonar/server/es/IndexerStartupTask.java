@@ -22,13 +22,24 @@ package org.sonar.server.es;
 import org.sonar.api.config.Settings;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.server.activity.index.ActivityIndexDefinition;
 import org.sonar.server.activity.index.ActivityIndexer;
+import org.sonar.server.es.metadata.MetadataIndex;
 import org.sonar.server.issue.index.IssueAuthorizationIndexer;
+import org.sonar.server.issue.index.IssueIndexDefinition;
 import org.sonar.server.issue.index.IssueIndexer;
+import org.sonar.server.test.index.TestIndexDefinition;
 import org.sonar.server.test.index.TestIndexer;
+import org.sonar.server.user.index.UserIndexDefinition;
 import org.sonar.server.user.index.UserIndexer;
+import org.sonar.server.view.index.ViewIndexDefinition;
 import org.sonar.server.view.index.ViewIndexer;
 
+/**
+ * Indexes the changes done since the latest startup. Indices which are not initialized, for example because
+ * their definition changed, are populated from scratch. An index is flagged as initialized only once
+ * completely populated, so an indexation interrupted by a server stop is started again at next startup.
+ */
 public class IndexerStartupTask {
 
   private static final Logger LOG = Loggers.get(IndexerStartupTask.class);
@@ -39,6 +50,7 @@ public class IndexerStartupTask {
   private final UserIndexer userIndexer;
   private final ViewIndexer viewIndexer;
   private final ActivityIndexer activityIndexer;
+  private final MetadataIndex metadataIndex;
   private final Settings settings;
 
   /**
@@ -48,34 +60,63 @@ public class IndexerStartupTask {
    */
   public IndexerStartupTask(TestIndexer testIndexer, IssueAuthorizationIndexer issueAuthorizationIndexer, IssueIndexer issueIndexer,
     UserIndexer userIndexer, ViewIndexer viewIndexer, ActivityIndexer activityIndexer,
-    Settings settings) {
+    MetadataIndex metadataIndex, Settings settings) {
     this.testIndexer = testIndexer;
     this.issueAuthorizationIndexer = issueAuthorizationIndexer;
     this.issueIndexer = issueIndexer;
     this.userIndexer = userIndexer;
     this.viewIndexer = viewIndexer;
     this.activityIndexer = activityIndexer;
+    this.metadataIndex = metadataIndex;
     this.settings = settings;
   }
 
   public void execute() {
-    if (!settings.getBoolean("sonar.internal.es.disableIndexes")) {
-      LOG.info("Index activities");
-      activityIndexer.setEnabled(true).index();
-
-      LOG.info("Index issues");
-      issueAuthorizationIndexer.setEnabled(true).index();
-      issueIndexer.setEnabled(true).index();
+    indexActivities();
+    indexIssuesTestsUsersAndViews();
+  }
 
-      LOG.info("Index tests");
-      testIndexer.setEnabled(true).index();
+  /**
+   * Activities are created by the registration of quality profiles, so they are indexed separately
+   * once profiles are registered.
+   */
+  public void indexActivities() {
+    if (!isDisabled()) {
+      index(ActivityIndexDefinition.INDEX, activityIndexer);
+    }
+  }
 
-      LOG.info("Index users");
-      userIndexer.setEnabled(true).index();
+  public void indexIssuesTestsUsersAndViews() {
+    if (!isDisabled()) {
+      index(IssueIndexDefinition.INDEX, issueAuthorizationIndexer, issueIndexer);
+      index(TestIndexDefinition.INDEX, testIndexer);
+      index(UserIndexDefinition.INDEX, userIndexer);
+      index(ViewIndexDefinition.INDEX, viewIndexer);
+    }
+  }
 
-      LOG.info("Index views");
-      viewIndexer.setEnabled(true).index();
+  private void index(String indexName, BaseIndexer... indexers) {
+    if (metadataIndex.isInitialized(indexName)) {
+      LOG.info("Index {}", indexName);
+      for (BaseIndexer indexer : indexers) {
+        indexer.setEnabled(true).index();
+      }
+    } else {
+      LOG.info("Populate index {}", indexName);
+      long start = System.currentTimeMillis();
+      for (BaseIndexer indexer : indexers) {
+        indexer.indexFromScratch();
+      }
+      metadataIndex.setInitialized(indexName, true);
+      for (BaseIndexer indexer : indexers) {
+        indexer.setEnabled(true);
+      }
+      LOG.info("Index {} populated in {} ms", indexName, System.currentTimeMillis() - start);
     }
   }
 
+  private boolean isDisabled() {
+    return settings.getBoolean("sonar.internal.es.disableIndexes");
+  }
+
 }
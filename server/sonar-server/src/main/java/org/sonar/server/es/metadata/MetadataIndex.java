@@ -0,0 +1,60 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es.metadata;
+
+import org.elasticsearch.action.get.GetResponse;
+import org.sonar.api.server.ServerSide;
+import org.sonar.server.es.EsClient;
+
+import static org.sonar.server.es.metadata.MetadataIndexDefinition.FIELD_VALUE;
+import static org.sonar.server.es.metadata.MetadataIndexDefinition.INDEX;
+import static org.sonar.server.es.metadata.MetadataIndexDefinition.TYPE_METADATA;
+
+/**
+ * Reads and writes the state of indices in the index "metadatas". An index is initialized once it
+ * has been completely populated since its creation. As long as it is not, its documents may be
+ * partial, for example because server was stopped during indexation.
+ */
+@ServerSide
+public class MetadataIndex {
+
+  private final EsClient esClient;
+
+  public MetadataIndex(EsClient esClient) {
+    this.esClient = esClient;
+  }
+
+  public boolean isInitialized(String indexName) {
+    GetResponse response = esClient.prepareGet(INDEX, TYPE_METADATA, initializedId(indexName)).get();
+    return response.isExists() && Boolean.parseBoolean((String) response.getSource().get(FIELD_VALUE));
+  }
+
+  public void setInitialized(String indexName, boolean initialized) {
+    esClient.prepareIndex(INDEX, TYPE_METADATA)
+      .setId(initializedId(indexName))
+      .setSource(FIELD_VALUE, String.valueOf(initialized))
+      .setRefresh(true)
+      .get();
+  }
+
+  private static String initializedId(String indexName) {
+    return indexName + ".initialized";
+  }
+}
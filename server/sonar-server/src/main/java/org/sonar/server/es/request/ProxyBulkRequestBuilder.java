@@ -33,6 +33,7 @@ import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.common.unit.TimeValue;
 import org.sonar.api.utils.log.Profiler;
+import org.sonar.core.util.ThreadElapsedTime;
 import org.sonar.server.es.EsClient;
 
 public class ProxyBulkRequestBuilder extends BulkRequestBuilder {
@@ -44,11 +45,13 @@ public class ProxyBulkRequestBuilder extends BulkRequestBuilder {
   @Override
   public BulkResponse get() {
     Profiler profiler = Profiler.createIfTrace(EsClient.LOGGER).start();
+    long start = System.nanoTime();
     try {
       return super.execute().actionGet();
     } catch (Exception e) {
       throw new IllegalStateException(String.format("Fail to execute %s", toString()), e);
     } finally {
+      ThreadElapsedTime.ELASTICSEARCH.add(System.nanoTime() - start);
       if (profiler.isTraceEnabled()) {
         profiler.stopTrace(toString());
       }
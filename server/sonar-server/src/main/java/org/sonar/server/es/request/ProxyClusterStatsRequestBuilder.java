@@ -27,6 +27,7 @@ import org.elasticsearch.action.admin.cluster.stats.ClusterStatsResponse;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.common.unit.TimeValue;
 import org.sonar.api.utils.log.Profiler;
+import org.sonar.core.util.ThreadElapsedTime;
 import org.sonar.server.es.EsClient;
 
 public class ProxyClusterStatsRequestBuilder extends ClusterStatsRequestBuilder {
@@ -38,11 +39,13 @@ public class ProxyClusterStatsRequestBuilder extends ClusterStatsRequestBuilder
   @Override
   public ClusterStatsResponse get() {
     Profiler profiler = Profiler.createIfTrace(EsClient.LOGGER).start();
+    long start = System.nanoTime();
     try {
       return super.execute().actionGet();
     } catch (Exception e) {
       throw new IllegalStateException(String.format("Fail to execute %s", toString()), e);
     } finally {
+      ThreadElapsedTime.ELASTICSEARCH.add(System.nanoTime() - start);
       if (profiler.isTraceEnabled()) {
         profiler.stopTrace(toString());
       }
@@ -22,6 +22,7 @@ package org.sonar.server.platform.monitoring;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import org.apache.commons.dbcp.BasicDataSource;
@@ -29,6 +30,8 @@ import org.apache.commons.dbutils.DbUtils;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.MyBatis;
+import org.sonar.db.profiling.SqlStatistics;
+import org.sonar.db.profiling.StatementStatistics;
 import org.sonar.db.version.DatabaseVersion;
 
 /**
@@ -36,6 +39,8 @@ import org.sonar.db.version.DatabaseVersion;
  */
 public class DatabaseMonitor extends BaseMonitorMBean implements DatabaseMonitorMBean {
 
+  private static final int TOP_SQL_STATEMENTS = 10;
+
   private final DatabaseVersion dbVersion;
   private final DbClient dbClient;
 
@@ -99,11 +104,38 @@ public class DatabaseMonitor extends BaseMonitorMBean implements DatabaseMonitor
     return commonsDbcp().getRemoveAbandonedTimeout();
   }
 
+  @Override
+  public long getSqlExecutions() {
+    return sqlStatistics().getExecutions();
+  }
+
+  @Override
+  public long getSqlTotalTimeMillis() {
+    return sqlStatistics().getTotalTimeMs();
+  }
+
+  @Override
+  public long getSqlFetchedRows() {
+    return sqlStatistics().getFetchedRows();
+  }
+
+  @Override
+  public String[] getTopSqlStatements() {
+    return sqlStatistics().getTopByTotalTime(TOP_SQL_STATEMENTS).stream()
+      .map(StatementStatistics::toString)
+      .toArray(String[]::new);
+  }
+
+  private SqlStatistics sqlStatistics() {
+    return dbClient.getDatabase().getSqlStatistics();
+  }
+
   @Override
   public Map<String, Object> attributes() {
     Map<String, Object> attributes = new LinkedHashMap<>();
     completeDbAttributes(attributes);
     completePoolAttributes(attributes);
+    completeSqlAttributes(attributes);
     return attributes;
   }
 
@@ -119,6 +151,13 @@ public class DatabaseMonitor extends BaseMonitorMBean implements DatabaseMonitor
     attributes.put("Pool Remove Abandoned Timeout (seconds)", getPoolRemoveAbandonedTimeoutSeconds());
   }
 
+  private void completeSqlAttributes(Map<String, Object> attributes) {
+    attributes.put("SQL Executions", getSqlExecutions());
+    attributes.put("SQL Total Time (ms)", getSqlTotalTimeMillis());
+    attributes.put("SQL Fetched Rows", getSqlFetchedRows());
+    attributes.put("Top SQL Statements", Arrays.asList(getTopSqlStatements()));
+  }
+
   private BasicDataSource commonsDbcp() {
     return (BasicDataSource) dbClient.getDatabase().getDataSource();
   }
@@ -68,4 +68,19 @@ public interface DatabaseMonitorMBean {
    * Timeout in seconds before an abandoned connection can be removed.
    */
   int getPoolRemoveAbandonedTimeoutSeconds();
+
+  /**
+   * Number of SQL statements executed since startup
+   */
+  long getSqlExecutions();
+
+  long getSqlTotalTimeMillis();
+
+  long getSqlFetchedRows();
+
+  /**
+   * The SQL statements which took the most time since startup, one line per statement, for example
+   * "executions=120 errors=0 time=2300ms max=80ms rows=1200 batches=0 sql=select * from issues where kee in (?...)"
+   */
+  String[] getTopSqlStatements();
 }
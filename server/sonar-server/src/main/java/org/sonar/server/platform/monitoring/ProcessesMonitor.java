@@ -0,0 +1,112 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.System2;
+import org.sonar.process.DefaultProcessCommands;
+import org.sonar.process.ProcessId;
+import org.sonar.process.ProcessMetric;
+import org.sonar.process.ProcessMetrics;
+
+import static org.sonar.process.ProcessEntryPoint.PROPERTY_SHARED_PATH;
+
+/**
+ * Latest metrics published in the shared memory by the Elasticsearch, Web Server and Compute Engine processes
+ */
+public class ProcessesMonitor implements Monitor {
+
+  private static final long MB = 1024L * 1024L;
+  private static final ProcessId[] PROCESSES = {ProcessId.ELASTICSEARCH, ProcessId.WEB_SERVER, ProcessId.COMPUTE_ENGINE};
+
+  private final Settings settings;
+  private final System2 system2;
+
+  public ProcessesMonitor(Settings settings, System2 system2) {
+    this.settings = settings;
+    this.system2 = system2;
+  }
+
+  @Override
+  public String name() {
+    return "Processes";
+  }
+
+  @Override
+  public Map<String, Object> attributes() {
+    Map<String, Object> attributes = new LinkedHashMap<>();
+    String sharedPath = settings.getString(PROPERTY_SHARED_PATH);
+    if (sharedPath == null) {
+      // server is not started by the process monitor (tests, development mode)
+      return attributes;
+    }
+    File sharedDir = new File(sharedPath);
+    for (ProcessId processId : PROCESSES) {
+      try (DefaultProcessCommands commands = DefaultProcessCommands.secondary(sharedDir, processId.getIpcIndex())) {
+        List<ProcessMetrics> metrics = commands.getMetrics();
+        if (!metrics.isEmpty()) {
+          attributes.put(processId.getKey(), toAttributes(metrics));
+        }
+      }
+    }
+    return attributes;
+  }
+
+  /**
+   * @param metrics the samples of the process, newest first
+   */
+  private Map<String, Object> toAttributes(List<ProcessMetrics> metrics) {
+    ProcessMetrics latest = metrics.get(0);
+    Map<String, Object> attributes = new LinkedHashMap<>();
+    attributes.put("Sample Age (ms)", system2.now() - latest.getTimestamp());
+    putIfKnown(attributes, "Heap Used (MB)", latest, ProcessMetric.HEAP_USED_BYTES, MB);
+    putIfKnown(attributes, "Heap Max (MB)", latest, ProcessMetric.HEAP_MAX_BYTES, MB);
+    putIfKnown(attributes, "GC Time (ms)", latest, ProcessMetric.GC_TIME_MS, 1L);
+    putIfKnown(attributes, "Threads", latest, ProcessMetric.THREADS, 1L);
+    putIfKnown(attributes, "Pending CE Tasks", latest, ProcessMetric.CE_PENDING_TASKS, 1L);
+    putIfKnown(attributes, "In Progress CE Tasks", latest, ProcessMetric.CE_IN_PROGRESS_TASKS, 1L);
+    putIfKnown(attributes, "Web Service Requests", latest, ProcessMetric.WS_REQUESTS, 1L);
+    if (metrics.size() > 1) {
+      putRate(attributes, "Web Service Requests per Second", latest, metrics.get(1), ProcessMetric.WS_REQUESTS);
+    }
+    putIfKnown(attributes, "Pending Elasticsearch Bulk Requests", latest, ProcessMetric.ES_BULK_BACKLOG, 1L);
+    return attributes;
+  }
+
+  private static void putIfKnown(Map<String, Object> attributes, String key, ProcessMetrics metrics, ProcessMetric metric, long unit) {
+    long value = metrics.get(metric);
+    if (value != ProcessMetrics.UNKNOWN) {
+      attributes.put(key, value / unit);
+    }
+  }
+
+  private static void putRate(Map<String, Object> attributes, String key, ProcessMetrics latest, ProcessMetrics previous, ProcessMetric metric) {
+    long value = latest.get(metric);
+    long previousValue = previous.get(metric);
+    long elapsedMs = latest.getTimestamp() - previous.getTimestamp();
+    if (value != ProcessMetrics.UNKNOWN && previousValue != ProcessMetrics.UNKNOWN && elapsedMs > 0L) {
+      attributes.put(key, (value - previousValue) * 1_000.0 / elapsedMs);
+    }
+  }
+}
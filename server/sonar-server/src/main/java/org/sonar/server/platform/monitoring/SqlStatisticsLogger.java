@@ -0,0 +1,100 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.picocontainer.Startable;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.config.Settings;
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.db.Database;
+import org.sonar.db.profiling.SqlStatistics;
+import org.sonar.db.profiling.StatementStatistics;
+
+/**
+ * Periodically logs the SQL statements which took the most time since startup.
+ * The period, in minutes, is defined by the property {@link #PROPERTY_PERIOD}. Zero disables logging.
+ */
+@ServerSide
+@ComputeEngineSide
+public class SqlStatisticsLogger implements Startable {
+
+  public static final String PROPERTY_PERIOD = "sonar.jdbc.statistics.logPeriodInMinutes";
+  static final long DEFAULT_PERIOD_IN_MINUTES = 60L;
+  static final int TOP_STATEMENTS = 10;
+
+  private static final Logger LOG = Loggers.get("sql");
+
+  private final Database database;
+  private final long periodInMinutes;
+  private ScheduledExecutorService executorService;
+
+  public SqlStatisticsLogger(Settings settings, Database database) {
+    this.database = database;
+    this.periodInMinutes = settings.hasKey(PROPERTY_PERIOD) ? settings.getLong(PROPERTY_PERIOD) : DEFAULT_PERIOD_IN_MINUTES;
+  }
+
+  @Override
+  public void start() {
+    if (periodInMinutes > 0L) {
+      executorService = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder()
+          .setNameFormat("SQL-statistics-%d")
+          .setPriority(Thread.MIN_PRIORITY)
+          .setDaemon(true)
+          .build());
+      executorService.scheduleWithFixedDelay(() -> {
+        try {
+          logTopStatements();
+        } catch (Exception e) {
+          LOG.warn("Fail to log SQL statistics", e);
+        }
+      }, periodInMinutes, periodInMinutes, TimeUnit.MINUTES);
+    }
+  }
+
+  @Override
+  public void stop() {
+    if (executorService != null) {
+      executorService.shutdownNow();
+    }
+  }
+
+  void logTopStatements() {
+    SqlStatistics statistics = database.getSqlStatistics();
+    List<StatementStatistics> top = statistics.getTopByTotalTime(TOP_STATEMENTS);
+    if (top.isEmpty()) {
+      return;
+    }
+    StringBuilder sb = new StringBuilder();
+    sb.append(String.format("SQL statistics: %d executions of %d distinct statements in %d ms. Top %d statements by total time:",
+      statistics.getExecutions(), statistics.getDistinctStatements(), statistics.getTotalTimeMs(), top.size()));
+    for (StatementStatistics statement : top) {
+      sb.append("\n  ").append(statement);
+    }
+    LOG.info(sb.toString());
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.sonar.server.startup.StartupTaskGraph;
+
+/**
+ * Durations of the tasks executed at server startup
+ */
+public class StartupMonitor implements Monitor {
+
+  private volatile List<StartupTaskGraph.Timing> timings = Collections.emptyList();
+  private volatile long durationMs = 0L;
+  private volatile int threads = 0;
+
+  public void setTimings(List<StartupTaskGraph.Timing> timings, long durationMs, int threads) {
+    this.timings = Collections.unmodifiableList(timings);
+    this.durationMs = durationMs;
+    this.threads = threads;
+  }
+
+  @Override
+  public String name() {
+    return "Startup";
+  }
+
+  @Override
+  public Map<String, Object> attributes() {
+    Map<String, Object> attributes = new LinkedHashMap<>();
+    attributes.put("Startup Tasks Duration (ms)", durationMs);
+    attributes.put("Startup Tasks Threads", threads);
+    Map<String, Object> tasks = new LinkedHashMap<>();
+    for (StartupTaskGraph.Timing timing : timings) {
+      Map<String, Object> taskAttributes = new LinkedHashMap<>();
+      taskAttributes.put("Duration (ms)", timing.getDurationMs());
+      taskAttributes.put("Start Offset (ms)", timing.getStartOffsetMs());
+      taskAttributes.put("Thread", timing.getThreadName());
+      tasks.put(timing.getName(), taskAttributes);
+    }
+    attributes.put("Startup Tasks", tasks);
+    return attributes;
+  }
+}
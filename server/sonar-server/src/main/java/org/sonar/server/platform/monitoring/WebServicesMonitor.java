@@ -0,0 +1,142 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.sonar.process.MetricsPublisher;
+import org.sonar.process.ProcessMetric;
+import org.sonar.server.ws.ActionMetrics;
+import org.sonar.server.ws.WebServiceMetrics;
+import org.sonar.server.ws.WebServiceMetrics.SlowRequest;
+
+import static java.lang.String.format;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Statistics of web service calls since server startup
+ */
+public class WebServicesMonitor extends BaseMonitorMBean implements WebServicesMonitorMBean {
+
+  private final WebServiceMetrics metrics;
+
+  public WebServicesMonitor(WebServiceMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public void start() {
+    super.start();
+    MetricsPublisher.register(ProcessMetric.WS_REQUESTS, this::getRequests);
+  }
+
+  @Override
+  public void stop() {
+    MetricsPublisher.unregister(ProcessMetric.WS_REQUESTS);
+    super.stop();
+  }
+
+  @Override
+  public String name() {
+    return "Web Services";
+  }
+
+  @Override
+  public long getRequests() {
+    return metrics.getActionMetrics().stream().mapToLong(ActionMetrics::getRequests).sum();
+  }
+
+  @Override
+  public long getAbortedRequests() {
+    return metrics.getActionMetrics().stream().mapToLong(ActionMetrics::getAbortedRequests).sum();
+  }
+
+  @Override
+  public long getClientErrors() {
+    return metrics.getActionMetrics().stream().mapToLong(ActionMetrics::getClientErrors).sum();
+  }
+
+  @Override
+  public long getServerErrors() {
+    return metrics.getActionMetrics().stream().mapToLong(ActionMetrics::getServerErrors).sum();
+  }
+
+  @Override
+  public String[] getActionStatistics() {
+    return metrics.getActionMetrics().stream()
+      .map(a -> format("%s requests=%d errors=%d p50=%dms p99=%dms max=%dms db=%dms es=%dms bytes=%d", a.getPath(), a.getRequests(),
+        a.getClientErrors() + a.getServerErrors(), a.getPercentileMs(50), a.getPercentileMs(99), a.getMaxTimeMs(), a.getDbTimeMs(),
+        a.getEsTimeMs(), a.getResponseBytes()))
+      .toArray(String[]::new);
+  }
+
+  @Override
+  public String[] getSlowestRequests() {
+    return metrics.getSlowestRequests().stream().map(SlowRequest::toString).toArray(String[]::new);
+  }
+
+  @Override
+  public Map<String, Object> attributes() {
+    Map<String, Object> attributes = new LinkedHashMap<>();
+    List<ActionMetrics> actions = metrics.getActionMetrics();
+    attributes.put("Requests", actions.stream().mapToLong(ActionMetrics::getRequests).sum());
+    attributes.put("Aborted Requests", actions.stream().mapToLong(ActionMetrics::getAbortedRequests).sum());
+    attributes.put("Client Errors", actions.stream().mapToLong(ActionMetrics::getClientErrors).sum());
+    attributes.put("Server Errors", actions.stream().mapToLong(ActionMetrics::getServerErrors).sum());
+    Map<String, Object> actionAttributes = new LinkedHashMap<>();
+    for (ActionMetrics action : actions) {
+      actionAttributes.put(action.getPath(), toAttributes(action));
+    }
+    attributes.put("Actions", actionAttributes);
+    attributes.put("Slowest Requests", metrics.getSlowestRequests().stream().map(WebServicesMonitor::toAttributes).collect(toList()));
+    return attributes;
+  }
+
+  private static Map<String, Object> toAttributes(ActionMetrics action) {
+    Map<String, Object> attributes = new LinkedHashMap<>();
+    attributes.put("Requests", action.getRequests());
+    attributes.put("Aborted Requests", action.getAbortedRequests());
+    attributes.put("Client Errors", action.getClientErrors());
+    attributes.put("Server Errors", action.getServerErrors());
+    attributes.put("Median Time (ms)", action.getPercentileMs(50));
+    attributes.put("90th Percentile Time (ms)", action.getPercentileMs(90));
+    attributes.put("99th Percentile Time (ms)", action.getPercentileMs(99));
+    attributes.put("Max Time (ms)", action.getMaxTimeMs());
+    attributes.put("Total Time (ms)", action.getTotalTimeMs());
+    attributes.put("DB Time (ms)", action.getDbTimeMs());
+    attributes.put("Elasticsearch Time (ms)", action.getEsTimeMs());
+    attributes.put("Response Bytes", action.getResponseBytes());
+    return attributes;
+  }
+
+  private static Map<String, Object> toAttributes(SlowRequest request) {
+    Map<String, Object> attributes = new LinkedHashMap<>();
+    attributes.put("Path", request.getPath());
+    attributes.put("Params", request.getParams());
+    attributes.put("Status", request.getHttpStatus());
+    attributes.put("Time (ms)", request.getDurationMs());
+    attributes.put("DB Time (ms)", request.getDbTimeMs());
+    attributes.put("Elasticsearch Time (ms)", request.getEsTimeMs());
+    attributes.put("Date", new Date(request.getDate()));
+    return attributes;
+  }
+}
@@ -0,0 +1,41 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+/**
+ * The public attributes of {@link WebServicesMonitor}
+ * to be exported in JMX bean.
+ */
+public interface WebServicesMonitorMBean {
+  long getRequests();
+
+  long getAbortedRequests();
+
+  long getClientErrors();
+
+  long getServerErrors();
+
+  /**
+   * One line per action, for example "api/issues/search requests=12 errors=0 p50=23ms p99=150ms max=180ms db=120ms es=80ms bytes=2034"
+   */
+  String[] getActionStatistics();
+
+  String[] getSlowestRequests();
+}
@@ -50,6 +50,7 @@ import org.sonar.server.platform.UrlSettings;
 import org.sonar.server.platform.cluster.ClusterImpl;
 import org.sonar.server.platform.cluster.ClusterProperties;
 import org.sonar.server.platform.db.EmbeddedDatabaseFactory;
+import org.sonar.server.platform.monitoring.SqlStatisticsLogger;
 import org.sonar.server.qualityprofile.index.ActiveRuleIndex;
 import org.sonar.server.ruby.PlatformRackBridge;
 import org.sonar.server.rule.index.RuleIndex;
@@ -91,6 +92,7 @@ public class PlatformLevel1 extends PlatformLevel {
       org.sonar.core.persistence.MyBatis.class,
       DatabaseServerCompatibility.class,
       DatabaseVersion.class,
+      SqlStatisticsLogger.class,
       PurgeProfiler.class,
       ServerFileSystemImpl.class,
       SemaphoresImpl.class,
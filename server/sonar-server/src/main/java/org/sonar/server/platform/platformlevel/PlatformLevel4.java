@@ -86,6 +86,8 @@ import org.sonar.server.duplication.ws.DuplicationsParser;
 import org.sonar.server.duplication.ws.DuplicationsWs;
 import org.sonar.server.es.IndexCreator;
 import org.sonar.server.es.IndexDefinitions;
+import org.sonar.server.es.metadata.MetadataIndex;
+import org.sonar.server.es.metadata.MetadataIndexDefinition;
 import org.sonar.server.event.NewAlerts;
 import org.sonar.server.issue.ActionService;
 import org.sonar.server.issue.AddTagsAction;
@@ -146,9 +148,12 @@ import org.sonar.server.platform.monitoring.DatabaseMonitor;
 import org.sonar.server.platform.monitoring.EsMonitor;
 import org.sonar.server.platform.monitoring.JvmPropsMonitor;
 import org.sonar.server.platform.monitoring.PluginsMonitor;
+import org.sonar.server.platform.monitoring.ProcessesMonitor;
 import org.sonar.server.platform.monitoring.SettingsMonitor;
 import org.sonar.server.platform.monitoring.SonarQubeMonitor;
+import org.sonar.server.platform.monitoring.StartupMonitor;
 import org.sonar.server.platform.monitoring.SystemMonitor;
+import org.sonar.server.platform.monitoring.WebServicesMonitor;
 import org.sonar.server.platform.ws.ChangeLogLevelAction;
 import org.sonar.server.platform.ws.DbMigrationStatusAction;
 import org.sonar.server.platform.ws.InfoAction;
@@ -278,6 +283,7 @@ import org.sonar.server.view.index.ViewIndexDefinition;
 import org.sonar.server.view.index.ViewIndexer;
 import org.sonar.server.ws.WebServiceEngine;
 import org.sonar.server.ws.WebServiceFilter;
+import org.sonar.server.ws.WebServiceMetrics;
 import org.sonar.server.ws.WebServicesWs;
 import org.sonar.server.ws.WsResponseCommonFormat;
 
@@ -305,6 +311,8 @@ public class PlatformLevel4 extends PlatformLevel {
       ServerWs.class,
       BackendCleanup.class,
       IndexDefinitions.class,
+      MetadataIndexDefinition.class,
+      MetadataIndex.class,
 
       // Activity
       ActivityService.class,
@@ -446,6 +454,7 @@ public class PlatformLevel4 extends PlatformLevel {
       QualityGateModule.class,
 
       // web services
+      WebServiceMetrics.class,
       WebServiceEngine.class,
       WebServicesWs.class,
       WebServiceFilter.class,
@@ -603,10 +612,13 @@ public class PlatformLevel4 extends PlatformLevel {
       SystemMonitor.class,
       SettingsMonitor.class,
       SonarQubeMonitor.class,
+      StartupMonitor.class,
       EsMonitor.class,
       PluginsMonitor.class,
       JvmPropsMonitor.class,
       DatabaseMonitor.class,
+      WebServicesMonitor.class,
+      ProcessesMonitor.class,
       MigrateDbAction.class,
       LogsAction.class,
       ChangeLogLevelAction.class,
@@ -25,6 +25,7 @@ import org.sonar.server.platform.ws.StatusAction;
 import org.sonar.server.platform.ws.SystemWs;
 import org.sonar.server.ws.WebServiceEngine;
 import org.sonar.server.ws.WebServiceFilter;
+import org.sonar.server.ws.WebServiceMetrics;
 import org.sonar.server.ws.WebServicesWs;
 
 public class PlatformLevelSafeMode extends PlatformLevel {
@@ -45,6 +46,7 @@ public class PlatformLevelSafeMode extends PlatformLevel {
       WebServicesWs.class,
 
       // WS engine
+      WebServiceMetrics.class,
       WebServiceEngine.class,
       WebServiceFilter.class);
   }
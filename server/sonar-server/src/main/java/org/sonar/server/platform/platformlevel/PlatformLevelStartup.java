@@ -19,12 +19,25 @@
  */
 package org.sonar.server.platform.platformlevel;
 
+import java.util.List;
+import java.util.function.Consumer;
+import org.picocontainer.DefaultPicoContainer;
+import org.picocontainer.MutablePicoContainer;
+import org.picocontainer.behaviors.OptInCaching;
+import org.picocontainer.lifecycle.NullLifecycleStrategy;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.db.DbClient;
+import org.sonar.db.dialect.H2;
 import org.sonar.server.app.ProcessCommandWrapper;
 import org.sonar.server.es.BaseIndexer;
 import org.sonar.server.es.IndexerStartupTask;
 import org.sonar.server.issue.filter.RegisterIssueFilters;
 import org.sonar.server.platform.ServerLifecycleNotifier;
+import org.sonar.server.platform.cluster.Cluster;
 import org.sonar.server.platform.db.CheckDatabaseCollationDuringMigration;
+import org.sonar.server.platform.monitoring.StartupMonitor;
 import org.sonar.server.platform.web.RegisterServletFilters;
 import org.sonar.server.qualitygate.RegisterQualityGates;
 import org.sonar.server.qualityprofile.RegisterQualityProfiles;
@@ -39,10 +52,20 @@ import org.sonar.server.startup.RegisterNewMeasureFilters;
 import org.sonar.server.startup.RegisterPermissionTemplates;
 import org.sonar.server.startup.RenameDeprecatedPropertyKeys;
 import org.sonar.server.startup.RenameIssueWidgets;
+import org.sonar.server.startup.StartupTaskGraph;
 import org.sonar.server.user.DoPrivileged;
 import org.sonar.server.user.ThreadLocalUserSession;
 
 public class PlatformLevelStartup extends PlatformLevel {
+
+  /**
+   * Maximum number of startup tasks executed concurrently
+   */
+  public static final String PROPERTY_THREADS = "sonar.web.startupTasks.threads";
+  private static final int DEFAULT_THREADS = 4;
+
+  private static final Logger LOG = Loggers.get(PlatformLevelStartup.class);
+
   public PlatformLevelStartup(PlatformLevel parent) {
     super("startup tasks", parent);
   }
@@ -52,23 +75,6 @@ public class PlatformLevelStartup extends PlatformLevel {
     add(GeneratePluginIndex.class,
       RegisterServletFilters.class,
       ServerLifecycleNotifier.class);
-
-    addIfStartupLeader(
-      CheckDatabaseCollationDuringMigration.class,
-      IndexerStartupTask.class,
-      RegisterMetrics.class,
-      RegisterQualityGates.class,
-      RegisterRules.class,
-      RegisterQualityProfiles.class,
-      RegisterNewMeasureFilters.class,
-      RegisterDashboards.class,
-      RegisterPermissionTemplates.class,
-      RenameDeprecatedPropertyKeys.class,
-      RegisterIssueFilters.class,
-      RenameIssueWidgets.class,
-      DisplayLogOnDeprecatedProjects.class,
-      ClearRulesOverloadedDebt.class,
-      DeleteOldAnalysisReportsFromFs.class);
   }
 
   @Override
@@ -77,7 +83,14 @@ public class PlatformLevelStartup extends PlatformLevel {
       @Override
       protected void doPrivileged() {
         PlatformLevelStartup.super.start();
-        getOptional(IndexerStartupTask.class).ifPresent(IndexerStartupTask::execute);
+      }
+    });
+    if (get(Cluster.class).isStartupLeader()) {
+      executeStartupTasks();
+    }
+    DoPrivileged.execute(new DoPrivileged.Task(get(ThreadLocalUserSession.class)) {
+      @Override
+      protected void doPrivileged() {
         get(ServerLifecycleNotifier.class).notifyStart();
         get(ProcessCommandWrapper.class).notifyOperational();
         getAll(BaseIndexer.class).forEach(i -> i.setEnabled(true));
@@ -86,4 +99,79 @@ public class PlatformLevelStartup extends PlatformLevel {
 
     return this;
   }
+
+  /**
+   * The tasks executed by the startup leader. Tasks writing the same tables are chained, for example the registration
+   * of quality profiles requires the rules to be registered, whereas Elasticsearch indices are populated concurrently.
+   */
+  private void executeStartupTasks() {
+    // tasks are instantiated by a container which is not referenced by the level, so that they are not started by picocontainer
+    MutablePicoContainer taskContainer = new DefaultPicoContainer(new OptInCaching(), new NullLifecycleStrategy(), getContainer().getPicoContainer());
+    StartupTaskGraph graph = new StartupTaskGraph();
+    addTask(graph, taskContainer, CheckDatabaseCollationDuringMigration.class, CheckDatabaseCollationDuringMigration::start);
+    addTask(graph, taskContainer, DeleteOldAnalysisReportsFromFs.class, DeleteOldAnalysisReportsFromFs::start, "CheckDatabaseCollationDuringMigration");
+
+    // Elasticsearch indices
+    addTask(graph, taskContainer, "IndexIssuesTestsUsersAndViews", IndexerStartupTask.class, IndexerStartupTask::indexIssuesTestsUsersAndViews,
+      "CheckDatabaseCollationDuringMigration");
+
+    // rules and quality profiles
+    addTask(graph, taskContainer, RegisterRules.class, RegisterRules::start, "CheckDatabaseCollationDuringMigration");
+    addTask(graph, taskContainer, RegisterQualityProfiles.class, RegisterQualityProfiles::start, "RegisterRules");
+    addTask(graph, taskContainer, ClearRulesOverloadedDebt.class, ClearRulesOverloadedDebt::start, "RegisterQualityProfiles");
+    addTask(graph, taskContainer, "IndexActivities", IndexerStartupTask.class, IndexerStartupTask::indexActivities, "ClearRulesOverloadedDebt");
+
+    // metrics, quality gates, filters, dashboards and permissions
+    addTask(graph, taskContainer, RegisterMetrics.class, RegisterMetrics::start, "CheckDatabaseCollationDuringMigration");
+    addTask(graph, taskContainer, RegisterQualityGates.class, RegisterQualityGates::start, "RegisterMetrics");
+    addTask(graph, taskContainer, RegisterNewMeasureFilters.class, RegisterNewMeasureFilters::start, "RegisterQualityGates");
+    addTask(graph, taskContainer, RegisterDashboards.class, RegisterDashboards::start, "RegisterNewMeasureFilters");
+    addTask(graph, taskContainer, RegisterPermissionTemplates.class, RegisterPermissionTemplates::start, "RegisterDashboards");
+    addTask(graph, taskContainer, RenameDeprecatedPropertyKeys.class, RenameDeprecatedPropertyKeys::start, "RegisterPermissionTemplates");
+    addTask(graph, taskContainer, RegisterIssueFilters.class, RegisterIssueFilters::start, "RenameDeprecatedPropertyKeys");
+    addTask(graph, taskContainer, RenameIssueWidgets.class, RenameIssueWidgets::start, "RegisterIssueFilters");
+    addTask(graph, taskContainer, DisplayLogOnDeprecatedProjects.class, DisplayLogOnDeprecatedProjects::start, "RenameIssueWidgets");
+
+    int threads = threads();
+    long start = System.currentTimeMillis();
+    List<StartupTaskGraph.Timing> timings = graph.execute(threads);
+    long duration = System.currentTimeMillis() - start;
+    get(StartupMonitor.class).setTimings(timings, duration, threads);
+
+    StringBuilder report = new StringBuilder();
+    report.append(String.format("Startup tasks executed in %d ms with %d threads", duration, threads));
+    timings.forEach(timing -> report.append("\n  ").append(timing));
+    LOG.info(report.toString());
+  }
+
+  private <T> void addTask(StartupTaskGraph graph, MutablePicoContainer taskContainer, Class<T> taskClass, Consumer<T> execution, String... dependencies) {
+    addTask(graph, taskContainer, taskClass.getSimpleName(), taskClass, execution, dependencies);
+  }
+
+  private <T> void addTask(StartupTaskGraph graph, MutablePicoContainer taskContainer, String name, Class<T> taskClass, Consumer<T> execution,
+    String... dependencies) {
+    if (taskContainer.getComponent(taskClass) == null) {
+      taskContainer.addComponent(taskClass);
+    }
+    // tasks are instantiated by the main thread, as picocontainer is not thread-safe
+    T task = taskContainer.getComponent(taskClass);
+    ThreadLocalUserSession userSession = get(ThreadLocalUserSession.class);
+    graph.add(name, () -> DoPrivileged.execute(new DoPrivileged.Task(userSession) {
+      @Override
+      protected void doPrivileged() {
+        execution.accept(task);
+      }
+    }), dependencies);
+  }
+
+  /**
+   * The embedded H2 database locks whole tables, so tasks are executed sequentially.
+   */
+  private int threads() {
+    if (H2.ID.equals(get(DbClient.class).getDatabase().getDialect().getId())) {
+      return 1;
+    }
+    Settings settings = get(Settings.class);
+    return settings.hasKey(PROPERTY_THREADS) ? Math.max(1, settings.getInt(PROPERTY_THREADS)) : DEFAULT_THREADS;
+  }
 }
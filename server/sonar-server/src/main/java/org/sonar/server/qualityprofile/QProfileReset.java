@@ -36,6 +36,7 @@ import org.sonar.api.rules.ActiveRule;
 import org.sonar.api.rules.ActiveRuleParam;
 import org.sonar.api.server.ServerSide;
 import org.sonar.api.utils.ValidationMessages;
+import org.sonar.core.util.stream.Collectors;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.qualityprofile.ActiveRuleDto;
@@ -136,10 +137,12 @@ public class QProfileReset {
         ruleToBeDeactivated.add(activeRuleDto.getKey().ruleKey());
       }
     }
+    RuleActivatorSnapshot snapshot = activator.loadSnapshot(dbSession, profile.getKey(),
+      activations.stream().map(RuleActivation::getRuleKey).collect(Collectors.toList(activations.size())));
 
     for (RuleActivation activation : activations) {
       try {
-        List<ActiveRuleChange> changes = activator.activate(dbSession, activation, profile.getKey());
+        List<ActiveRuleChange> changes = activator.activate(dbSession, activation, profile.getKey(), snapshot);
         ruleToBeDeactivated.remove(activation.getRuleKey());
         result.incrementSucceeded();
         result.addChanges(changes);
@@ -153,7 +156,7 @@ public class QProfileReset {
     changes.addAll(result.getChanges());
     for (RuleKey ruleKey : ruleToBeDeactivated) {
       try {
-        changes.addAll(activator.deactivate(dbSession, ActiveRuleKey.of(profile.getKee(), ruleKey)));
+        changes.addAll(activator.deactivate(dbSession, ActiveRuleKey.of(profile.getKee(), ruleKey), snapshot));
       } catch (BadRequestException e) {
         // ignore, probably a rule inherited from parent that can't be deactivated
       }
@@ -22,6 +22,7 @@ package org.sonar.server.qualityprofile;
 import com.google.common.base.Splitter;
 import com.google.common.collect.Lists;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -32,6 +33,7 @@ import org.sonar.api.rule.RuleKey;
 import org.sonar.api.server.ServerSide;
 import org.sonar.api.server.rule.RuleParamType;
 import org.sonar.api.utils.System2;
+import org.sonar.core.util.stream.Collectors;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.qualityprofile.ActiveRuleDao;
@@ -81,20 +83,36 @@ public class RuleActivator {
 
   public List<ActiveRuleChange> activate(DbSession dbSession, RuleActivation activation, String profileKey) {
     RuleActivatorContext context = contextFactory.create(profileKey, activation.getRuleKey(), dbSession);
-    return doActivate(dbSession, activation, context);
+    return doActivate(dbSession, activation, context, null);
   }
 
   public List<ActiveRuleChange> activate(DbSession dbSession, RuleActivation activation, QProfileName profileName) {
     RuleActivatorContext context = contextFactory.create(profileName, activation.getRuleKey(), dbSession);
-    return doActivate(dbSession, activation, context);
+    return doActivate(dbSession, activation, context, null);
   }
 
   List<ActiveRuleChange> activate(DbSession dbSession, RuleActivation activation, QualityProfileDto profileDto) {
     RuleActivatorContext context = contextFactory.create(profileDto, activation.getRuleKey(), dbSession);
-    return doActivate(dbSession, activation, context);
+    return doActivate(dbSession, activation, context, null);
   }
 
-  private List<ActiveRuleChange> doActivate(DbSession dbSession, RuleActivation activation, RuleActivatorContext context) {
+  /**
+   * Same as {@link #activate(DbSession, RuleActivation, String)}, but reads rules, profiles and active rules
+   * from the given snapshot instead of loading them from database, see {@link #loadSnapshot(DbSession, String, Collection)}.
+   */
+  List<ActiveRuleChange> activate(DbSession dbSession, RuleActivation activation, String profileKey, RuleActivatorSnapshot snapshot) {
+    RuleActivatorContext context = contextFactory.create(profileKey, activation.getRuleKey(), snapshot);
+    return doActivate(dbSession, activation, context, snapshot);
+  }
+
+  /**
+   * Loads what is needed to activate or deactivate the given rules on a profile and on its descendants
+   */
+  RuleActivatorSnapshot loadSnapshot(DbSession dbSession, String profileKey, Collection<RuleKey> ruleKeys) {
+    return RuleActivatorSnapshot.load(db, dbSession, profileKey, ruleKeys);
+  }
+
+  private List<ActiveRuleChange> doActivate(DbSession dbSession, RuleActivation activation, RuleActivatorContext context, @Nullable RuleActivatorSnapshot snapshot) {
     context.verifyForActivation();
     List<ActiveRuleChange> changes = Lists.newArrayList();
     ActiveRuleChange change;
@@ -139,11 +157,11 @@ public class RuleActivator {
 
     if (change != null) {
       changes.add(change);
-      persist(change, context, dbSession);
+      persist(change, context, dbSession, snapshot);
     }
 
     if (!stopPropagation) {
-      changes.addAll(cascadeActivation(dbSession, activation, context.profile().getKey()));
+      changes.addAll(cascadeActivation(dbSession, activation, context.profile().getKey(), snapshot));
     }
 
     if (!changes.isEmpty()) {
@@ -224,35 +242,42 @@ public class RuleActivator {
     return null;
   }
 
-  private List<ActiveRuleChange> cascadeActivation(DbSession session, RuleActivation activation, String profileKey) {
+  private List<ActiveRuleChange> cascadeActivation(DbSession session, RuleActivation activation, String profileKey, @Nullable RuleActivatorSnapshot snapshot) {
     List<ActiveRuleChange> changes = Lists.newArrayList();
 
     // get all inherited profiles
-    List<QualityProfileDto> children = db.qualityProfileDao().selectChildren(session, profileKey);
+    List<QualityProfileDto> children = snapshot == null ? db.qualityProfileDao().selectChildren(session, profileKey) : snapshot.children(profileKey);
     for (QualityProfileDto child : children) {
       RuleActivation childActivation = new RuleActivation(activation).setCascade(true);
-      changes.addAll(activate(session, childActivation, child.getKey()));
+      if (snapshot == null) {
+        changes.addAll(activate(session, childActivation, child.getKey()));
+      } else {
+        changes.addAll(activate(session, childActivation, child.getKey(), snapshot));
+      }
     }
     return changes;
   }
 
-  private ActiveRuleDto persist(ActiveRuleChange change, RuleActivatorContext context, DbSession dbSession) {
+  private ActiveRuleDto persist(ActiveRuleChange change, RuleActivatorContext context, DbSession dbSession, @Nullable RuleActivatorSnapshot snapshot) {
     ActiveRuleDto activeRule = null;
     if (change.getType() == ActiveRuleChange.Type.ACTIVATED) {
-      activeRule = doInsert(change, context, dbSession);
+      activeRule = doInsert(change, context, dbSession, snapshot);
     } else if (change.getType() == ActiveRuleChange.Type.DEACTIVATED) {
       ActiveRuleDao dao = db.activeRuleDao();
       dao.delete(dbSession, change.getKey());
+      if (snapshot != null) {
+        snapshot.removeActiveRule(change.getKey());
+      }
 
     } else if (change.getType() == ActiveRuleChange.Type.UPDATED) {
-      activeRule = doUpdate(change, context, dbSession);
+      activeRule = doUpdate(change, context, dbSession, snapshot);
     }
 
     activityService.save(change.toActivity());
     return activeRule;
   }
 
-  private ActiveRuleDto doInsert(ActiveRuleChange change, RuleActivatorContext context, DbSession dbSession) {
+  private ActiveRuleDto doInsert(ActiveRuleChange change, RuleActivatorContext context, DbSession dbSession, @Nullable RuleActivatorSnapshot snapshot) {
     ActiveRuleDto activeRule;
     ActiveRuleDao dao = db.activeRuleDao();
     activeRule = ActiveRuleDto.createFor(context.profile(), context.rule());
@@ -267,17 +292,23 @@ public class RuleActivator {
     activeRule.setUpdatedAt(system2.now());
     activeRule.setCreatedAt(system2.now());
     dao.insert(dbSession, activeRule);
+    if (snapshot != null) {
+      snapshot.addActiveRule(activeRule);
+    }
     for (Map.Entry<String, String> param : change.getParameters().entrySet()) {
       if (param.getValue() != null) {
         ActiveRuleParamDto paramDto = ActiveRuleParamDto.createFor(context.ruleParamsByKeys().get(param.getKey()));
         paramDto.setValue(param.getValue());
         dao.insertParam(dbSession, activeRule, paramDto);
+        if (snapshot != null) {
+          snapshot.addActiveRuleParam(paramDto);
+        }
       }
     }
     return activeRule;
   }
 
-  private ActiveRuleDto doUpdate(ActiveRuleChange change, RuleActivatorContext context, DbSession dbSession) {
+  private ActiveRuleDto doUpdate(ActiveRuleChange change, RuleActivatorContext context, DbSession dbSession, @Nullable RuleActivatorSnapshot snapshot) {
     ActiveRuleDao dao = db.activeRuleDao();
     ActiveRuleDto activeRule = context.activeRule();
     if (activeRule != null) {
@@ -300,6 +331,9 @@ public class RuleActivator {
             activeRuleParamDto = ActiveRuleParamDto.createFor(context.ruleParamsByKeys().get(param.getKey()));
             activeRuleParamDto.setValue(param.getValue());
             dao.insertParam(dbSession, activeRule, activeRuleParamDto);
+            if (snapshot != null) {
+              snapshot.addActiveRuleParam(activeRuleParamDto);
+            }
           }
         } else {
           if (param.getValue() != null) {
@@ -307,6 +341,9 @@ public class RuleActivator {
             dao.updateParam(dbSession, activeRule, activeRuleParamDto);
           } else {
             dao.deleteParam(dbSession, activeRule, activeRuleParamDto);
+            if (snapshot != null) {
+              snapshot.removeActiveRuleParam(activeRuleParamDto);
+            }
           }
         }
       }
@@ -349,16 +386,42 @@ public class RuleActivator {
     return changes;
   }
 
+  /**
+   * Deactivate rules on all Quality profiles WITHOUT committing db session, WITHOUT checking permissions, and forcing removal
+   * of inherited rules. Active rules are loaded by a single request, rather than one per rule.
+   */
+  public List<ActiveRuleChange> deactivate(DbSession dbSession, List<RuleDto> ruleDtos) {
+    List<ActiveRuleChange> changes = Lists.newArrayList();
+    if (ruleDtos.isEmpty()) {
+      return changes;
+    }
+    List<Integer> ruleIds = ruleDtos.stream().map(RuleDto::getId).collect(Collectors.toList(ruleDtos.size()));
+    List<ActiveRuleDto> activeRules = db.activeRuleDao().selectByRuleIds(dbSession, ruleIds);
+    for (ActiveRuleDto activeRule : activeRules) {
+      changes.addAll(deactivate(dbSession, activeRule.getKey(), true));
+    }
+    return changes;
+  }
+
   /**
    * @param force if true then inherited rules are deactivated
    */
   public List<ActiveRuleChange> deactivate(DbSession dbSession, ActiveRuleKey key, boolean force) {
-    return cascadeDeactivation(key, dbSession, false, force);
+    return cascadeDeactivation(key, dbSession, false, force, null);
+  }
+
+  /**
+   * Same as {@link #deactivate(DbSession, ActiveRuleKey)}, but reads rules, profiles and active rules
+   * from the given snapshot instead of loading them from database.
+   */
+  List<ActiveRuleChange> deactivate(DbSession dbSession, ActiveRuleKey key, RuleActivatorSnapshot snapshot) {
+    return cascadeDeactivation(key, dbSession, false, false, snapshot);
   }
 
-  private List<ActiveRuleChange> cascadeDeactivation(ActiveRuleKey key, DbSession dbSession, boolean isCascade, boolean force) {
+  private List<ActiveRuleChange> cascadeDeactivation(ActiveRuleKey key, DbSession dbSession, boolean isCascade, boolean force, @Nullable RuleActivatorSnapshot snapshot) {
     List<ActiveRuleChange> changes = Lists.newArrayList();
-    RuleActivatorContext context = contextFactory.create(key.qProfile(), key.ruleKey(), dbSession);
+    RuleActivatorContext context = snapshot == null ? contextFactory.create(key.qProfile(), key.ruleKey(), dbSession)
+      : contextFactory.create(key.qProfile(), key.ruleKey(), snapshot);
     ActiveRuleChange change;
     ActiveRuleDto activeRuleDto = context.activeRule();
     if (activeRuleDto == null) {
@@ -369,14 +432,14 @@ public class RuleActivator {
     }
     change = ActiveRuleChange.createFor(ActiveRuleChange.Type.DEACTIVATED, key);
     changes.add(change);
-    persist(change, context, dbSession);
+    persist(change, context, dbSession, snapshot);
 
     // get all inherited profiles
-    List<QualityProfileDto> profiles = db.qualityProfileDao().selectChildren(dbSession, key.qProfile());
+    List<QualityProfileDto> profiles = snapshot == null ? db.qualityProfileDao().selectChildren(dbSession, key.qProfile()) : snapshot.children(key.qProfile());
 
     for (QualityProfileDto profile : profiles) {
       ActiveRuleKey activeRuleKey = ActiveRuleKey.of(profile.getKey(), key.ruleKey());
-      changes.addAll(cascadeDeactivation(activeRuleKey, dbSession, true, force));
+      changes.addAll(cascadeDeactivation(activeRuleKey, dbSession, true, force, snapshot));
     }
 
     if (!changes.isEmpty()) {
@@ -487,10 +550,13 @@ public class RuleActivator {
       // set new parent
       profile.setParentKee(parentKey);
       db.qualityProfileDao().update(dbSession, profile);
-      for (ActiveRuleDto parentActiveRule : db.activeRuleDao().selectByProfileKey(dbSession, parentKey)) {
+      List<ActiveRuleDto> parentActiveRules = db.activeRuleDao().selectByProfileKey(dbSession, parentKey);
+      RuleActivatorSnapshot snapshot = loadSnapshot(dbSession, profileKey,
+        parentActiveRules.stream().map(activeRule -> activeRule.getKey().ruleKey()).collect(Collectors.toList(parentActiveRules.size())));
+      for (ActiveRuleDto parentActiveRule : parentActiveRules) {
         try {
           RuleActivation activation = new RuleActivation(parentActiveRule.getKey().ruleKey());
-          changes.addAll(activate(dbSession, activation, profileKey));
+          changes.addAll(activate(dbSession, activation, profileKey, snapshot));
         } catch (BadRequestException e) {
           // for example because rule status is REMOVED
           // TODO return errors
@@ -65,6 +65,34 @@ public class RuleActivatorContextFactory {
     return create(ruleKey, session, new RuleActivatorContext().setProfile(profile));
   }
 
+  /**
+   * Same as {@link #create(String, RuleKey, DbSession)}, but without any request to database
+   */
+  RuleActivatorContext create(String profileKey, RuleKey ruleKey, RuleActivatorSnapshot snapshot) {
+    QualityProfileDto profile = snapshot.profile(profileKey);
+    if (profile == null) {
+      throw new BadRequestException("Quality profile not found: " + profileKey);
+    }
+    RuleDto rule = snapshot.rule(ruleKey);
+    if (rule == null) {
+      throw new BadRequestException("Rule not found: " + ruleKey);
+    }
+    RuleActivatorContext context = new RuleActivatorContext()
+      .setProfile(profile)
+      .setRule(rule)
+      .setRuleParams(snapshot.ruleParams(rule));
+    ActiveRuleDto activeRule = snapshot.activeRule(ActiveRuleKey.of(profileKey, ruleKey));
+    context.setActiveRule(activeRule);
+    context.setActiveRuleParams(activeRule == null ? null : snapshot.activeRuleParams(activeRule));
+    String parentKee = profile.getParentKee();
+    if (parentKee != null) {
+      ActiveRuleDto parentActiveRule = snapshot.activeRule(ActiveRuleKey.of(parentKee, ruleKey));
+      context.setParentActiveRule(parentActiveRule);
+      context.setParentActiveRuleParams(parentActiveRule == null ? null : snapshot.activeRuleParams(parentActiveRule));
+    }
+    return context;
+  }
+
   private RuleActivatorContext create(RuleKey ruleKey, DbSession session, RuleActivatorContext context) {
     initRule(ruleKey, context, session);
     initActiveRules(context.profile().getKey(), ruleKey, context, session, false);
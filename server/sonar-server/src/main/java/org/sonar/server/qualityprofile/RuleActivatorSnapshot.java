@@ -0,0 +1,161 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.qualityprofile;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.qualityprofile.ActiveRuleDto;
+import org.sonar.db.qualityprofile.ActiveRuleKey;
+import org.sonar.db.qualityprofile.ActiveRuleParamDto;
+import org.sonar.db.qualityprofile.QualityProfileDto;
+import org.sonar.db.rule.RuleDto;
+import org.sonar.db.rule.RuleParamDto;
+
+/**
+ * Rules, profiles and active rules required to activate or deactivate many rules on a profile and
+ * on its descendants, loaded by a few requests instead of several requests per rule. Active rules
+ * are kept in sync with the changes persisted by {@link RuleActivator}, so that cascading to descendants
+ * reads the activations done on their parent.
+ * <p/>
+ * Not thread-safe, it must be used by a single operation.
+ */
+class RuleActivatorSnapshot {
+
+  private final Map<String, QualityProfileDto> profilesByKey = new HashMap<>();
+  private final ListMultimap<String, QualityProfileDto> childrenByParentKey = ArrayListMultimap.create();
+  private final Map<RuleKey, RuleDto> rulesByKey = new HashMap<>();
+  private final ListMultimap<Integer, RuleParamDto> ruleParamsByRuleId = ArrayListMultimap.create();
+  private final Map<ActiveRuleKey, ActiveRuleDto> activeRulesByKey = new HashMap<>();
+  private final ListMultimap<Integer, ActiveRuleParamDto> activeRuleParamsByActiveRuleId = ArrayListMultimap.create();
+
+  private RuleActivatorSnapshot() {
+    // use load()
+  }
+
+  /**
+   * Loads the profile, its parent and its descendants, their active rules, and the given rules
+   * in addition to the ones which are active on these profiles.
+   */
+  static RuleActivatorSnapshot load(DbClient db, DbSession dbSession, String profileKey, Collection<RuleKey> ruleKeys) {
+    RuleActivatorSnapshot snapshot = new RuleActivatorSnapshot();
+    for (QualityProfileDto profile : db.qualityProfileDao().selectAll(dbSession)) {
+      snapshot.profilesByKey.put(profile.getKey(), profile);
+      if (profile.getParentKee() != null) {
+        snapshot.childrenByParentKey.put(profile.getParentKee(), profile);
+      }
+    }
+
+    Set<RuleKey> loadedRuleKeys = new HashSet<>(ruleKeys);
+    List<Integer> activeRuleIds = new ArrayList<>();
+    for (String key : snapshot.profileKeysInScope(profileKey)) {
+      for (ActiveRuleDto activeRule : db.activeRuleDao().selectByProfileKey(dbSession, key)) {
+        snapshot.activeRulesByKey.put(activeRule.getKey(), activeRule);
+        activeRuleIds.add(activeRule.getId());
+        loadedRuleKeys.add(activeRule.getKey().ruleKey());
+      }
+    }
+    for (ActiveRuleParamDto param : db.activeRuleDao().selectParamsByActiveRuleIds(dbSession, activeRuleIds)) {
+      snapshot.activeRuleParamsByActiveRuleId.put(param.getActiveRuleId(), param);
+    }
+
+    List<RuleKey> keys = new ArrayList<>(loadedRuleKeys);
+    for (RuleDto rule : db.ruleDao().selectByKeys(dbSession, keys)) {
+      snapshot.rulesByKey.put(rule.getKey(), rule);
+    }
+    for (RuleParamDto param : db.ruleDao().selectRuleParamsByRuleKeys(dbSession, keys)) {
+      snapshot.ruleParamsByRuleId.put(param.getRuleId(), param);
+    }
+    return snapshot;
+  }
+
+  private List<String> profileKeysInScope(String profileKey) {
+    List<String> keys = new ArrayList<>();
+    QualityProfileDto profile = profilesByKey.get(profileKey);
+    if (profile != null && profile.getParentKee() != null) {
+      keys.add(profile.getParentKee());
+    }
+    addWithDescendants(profileKey, keys);
+    return keys;
+  }
+
+  private void addWithDescendants(String profileKey, List<String> keys) {
+    keys.add(profileKey);
+    for (QualityProfileDto child : childrenByParentKey.get(profileKey)) {
+      addWithDescendants(child.getKey(), keys);
+    }
+  }
+
+  @CheckForNull
+  QualityProfileDto profile(String profileKey) {
+    return profilesByKey.get(profileKey);
+  }
+
+  List<QualityProfileDto> children(String profileKey) {
+    return childrenByParentKey.get(profileKey);
+  }
+
+  @CheckForNull
+  RuleDto rule(RuleKey ruleKey) {
+    return rulesByKey.get(ruleKey);
+  }
+
+  List<RuleParamDto> ruleParams(RuleDto rule) {
+    return ruleParamsByRuleId.get(rule.getId());
+  }
+
+  @CheckForNull
+  ActiveRuleDto activeRule(ActiveRuleKey key) {
+    return activeRulesByKey.get(key);
+  }
+
+  List<ActiveRuleParamDto> activeRuleParams(ActiveRuleDto activeRule) {
+    return activeRuleParamsByActiveRuleId.get(activeRule.getId());
+  }
+
+  void addActiveRule(ActiveRuleDto activeRule) {
+    activeRulesByKey.put(activeRule.getKey(), activeRule);
+  }
+
+  void removeActiveRule(ActiveRuleKey key) {
+    ActiveRuleDto activeRule = activeRulesByKey.remove(key);
+    if (activeRule != null) {
+      activeRuleParamsByActiveRuleId.removeAll(activeRule.getId());
+    }
+  }
+
+  void addActiveRuleParam(ActiveRuleParamDto param) {
+    activeRuleParamsByActiveRuleId.put(param.getActiveRuleId(), param);
+  }
+
+  void removeActiveRuleParam(ActiveRuleParamDto param) {
+    activeRuleParamsByActiveRuleId.remove(param.getActiveRuleId(), param);
+  }
+}
@@ -25,6 +25,7 @@ import com.google.common.collect.FluentIterable;
 import java.util.Iterator;
 import java.util.List;
 import javax.annotation.Nonnull;
+import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
@@ -37,7 +38,6 @@ import org.sonar.server.es.EsClient;
 import org.sonar.server.qualityprofile.ActiveRuleChange;
 
 import static org.elasticsearch.index.query.QueryBuilders.termsQuery;
-import static org.sonar.server.rule.index.RuleIndexDefinition.FIELD_ACTIVE_RULE_KEY;
 import static org.sonar.server.rule.index.RuleIndexDefinition.FIELD_ACTIVE_RULE_PROFILE_KEY;
 import static org.sonar.server.rule.index.RuleIndexDefinition.FIELD_ACTIVE_RULE_UPDATED_AT;
 import static org.sonar.server.rule.index.RuleIndexDefinition.INDEX;
@@ -89,10 +89,13 @@ public class ActiveRuleIndexer extends BaseIndexer {
   }
 
   public void index(List<ActiveRuleChange> changes) {
-    deleteKeys(FluentIterable.from(changes)
+    List<ActiveRuleKey> deactivatedKeys = FluentIterable.from(changes)
       .filter(MatchDeactivatedRule.INSTANCE)
       .transform(ActiveRuleChangeToKey.INSTANCE)
-      .toList());
+      .toList();
+    if (!deactivatedKeys.isEmpty()) {
+      deleteKeys(deactivatedKeys);
+    }
     index();
   }
 
@@ -107,12 +110,12 @@ public class ActiveRuleIndexer extends BaseIndexer {
   }
 
   private void deleteKeys(List<ActiveRuleKey> keys) {
+    // ids are known, so documents are deleted in a single bulk request instead of searching for them
     BulkIndexer bulk = new BulkIndexer(esClient, INDEX);
     bulk.start();
-    SearchRequestBuilder search = esClient.prepareSearch(INDEX)
-      .setTypes(TYPE_ACTIVE_RULE)
-      .setQuery(QueryBuilders.boolQuery().must(termsQuery(FIELD_ACTIVE_RULE_KEY, keys)));
-    bulk.addDeletion(search);
+    for (ActiveRuleKey key : keys) {
+      bulk.add(new DeleteRequest(INDEX, TYPE_ACTIVE_RULE, key.toString()).parent(key.ruleKey().toString()));
+    }
     bulk.stop();
   }
 
@@ -20,9 +20,10 @@
 package org.sonar.server.rule;
 
 import com.google.common.base.Function;
-import com.google.common.base.Optional;
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Maps;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -90,29 +91,23 @@ public class RegisterRules implements Startable {
   @Override
   public void start() {
     Profiler profiler = Profiler.create(LOG).startInfo("Register rules");
-    DbSession session = dbClient.openSession(false);
-    try {
-      Map<RuleKey, RuleDto> allRules = loadRules(session);
-
-      RulesDefinition.Context context = defLoader.load();
-      for (RulesDefinition.ExtendedRepository repoDef : getRepositories(context)) {
-        if (languages.get(repoDef.language()) != null) {
-          for (RulesDefinition.Rule ruleDef : repoDef.rules()) {
-            registerRule(ruleDef, allRules, session);
-          }
-          session.commit();
+    Registration registration = loadRegistration();
+
+    RulesDefinition.Context context = defLoader.load();
+    for (RulesDefinition.ExtendedRepository repoDef : getRepositories(context)) {
+      if (languages.get(repoDef.language()) != null) {
+        for (RulesDefinition.Rule ruleDef : repoDef.rules()) {
+          registerRule(ruleDef, registration);
         }
       }
-      List<RuleDto> activeRules = processRemainingDbRules(allRules.values(), session);
-      List<ActiveRuleChange> changes = removeActiveRulesOnStillExistingRepositories(session, activeRules, context);
-      session.commit();
-      ruleIndexer.setEnabled(true).index();
-      activeRuleIndexer.setEnabled(true);
-      activeRuleIndexer.index(changes);
-      profiler.stopDebug();
-    } finally {
-      session.close();
     }
+    List<RuleDto> removedRules = processRemainingDbRules(registration);
+    persist(registration);
+    List<ActiveRuleChange> changes = removeActiveRulesOnStillExistingRepositories(removedRules, context);
+    ruleIndexer.setEnabled(true).index();
+    activeRuleIndexer.setEnabled(true);
+    activeRuleIndexer.index(changes);
+    profiler.stopDebug();
   }
 
   @Override
@@ -120,10 +115,14 @@ public class RegisterRules implements Startable {
     // nothing
   }
 
-  private void registerRule(RulesDefinition.Rule ruleDef, Map<RuleKey, RuleDto> allRules, DbSession session) {
+  private void registerRule(RulesDefinition.Rule ruleDef, Registration registration) {
     RuleKey ruleKey = RuleKey.of(ruleDef.repository().key(), ruleDef.key());
 
-    RuleDto rule = allRules.containsKey(ruleKey) ? allRules.remove(ruleKey) : createRuleDto(ruleDef, session);
+    RuleDto rule = registration.dbRulesByKey.remove(ruleKey);
+    boolean newRule = rule == null;
+    if (newRule) {
+      rule = createRuleDto(ruleDef);
+    }
 
     boolean executeUpdate = false;
     if (mergeRule(ruleDef, rule)) {
@@ -138,19 +137,86 @@ public class RegisterRules implements Startable {
       executeUpdate = true;
     }
 
-    if (executeUpdate) {
-      update(session, rule);
+    if (newRule) {
+      registration.rulesToInsert.add(rule);
+    } else if (executeUpdate) {
+      registration.rulesToUpdate.add(rule);
     }
 
-    mergeParams(ruleDef, rule, session);
+    mergeParams(ruleDef, rule, newRule ? Collections.<RuleParamDto>emptyList() : registration.dbParamsByRuleId.get(rule.getId()), registration);
   }
 
-  private Map<RuleKey, RuleDto> loadRules(DbSession session) {
-    Map<RuleKey, RuleDto> rules = new HashMap<>();
-    for (RuleDto rule : dbClient.ruleDao().selectAll(session)) {
-      rules.put(rule.getKey(), rule);
+  /**
+   * Loads all the rules and rule parameters at once, so that definitions can be compared without
+   * requesting database for each rule.
+   */
+  private Registration loadRegistration() {
+    DbSession session = dbClient.openSession(false);
+    try {
+      Registration registration = new Registration();
+      for (RuleDto rule : dbClient.ruleDao().selectAll(session)) {
+        registration.dbRulesByKey.put(rule.getKey(), rule);
+        registration.dbRulesById.put(rule.getId(), rule);
+      }
+      for (RuleParamDto param : dbClient.ruleDao().selectAllRuleParams(session)) {
+        registration.dbParamsByRuleId.put(param.getRuleId(), param);
+      }
+      return registration;
+    } finally {
+      session.close();
+    }
+  }
+
+  /**
+   * Inserts require generated ids, so they are executed first in a standard session. Updates
+   * are then sent by batches.
+   */
+  private void persist(Registration registration) {
+    DbSession session = dbClient.openSession(false);
+    try {
+      for (RuleDto rule : registration.rulesToInsert) {
+        dbClient.ruleDao().insert(session, rule);
+      }
+      for (RuleParamChange paramToDelete : registration.paramsToDelete) {
+        dbClient.activeRuleDao().deleteParamsByRuleParam(session, paramToDelete.rule.getId(), paramToDelete.param.getName());
+        dbClient.ruleDao().deleteRuleParam(session, paramToDelete.param.getId());
+      }
+      for (RuleParamChange paramToInsert : registration.paramsToInsert) {
+        insertParam(session, paramToInsert);
+      }
+      session.commit();
+    } finally {
+      session.close();
+    }
+
+    DbSession batchSession = dbClient.openSession(true);
+    try {
+      for (RuleDto rule : registration.rulesToUpdate) {
+        update(batchSession, rule);
+      }
+      for (RuleParamChange paramToUpdate : registration.paramsToUpdate) {
+        dbClient.ruleDao().updateRuleParam(batchSession, paramToUpdate.rule, paramToUpdate.param);
+      }
+      batchSession.commit();
+    } finally {
+      batchSession.close();
+    }
+    LOG.debug("Rules: {} inserted, {} updated, {} parameters inserted, {} parameters updated, {} parameters deleted",
+      registration.rulesToInsert.size(), registration.rulesToUpdate.size(), registration.paramsToInsert.size(),
+      registration.paramsToUpdate.size(), registration.paramsToDelete.size());
+  }
+
+  private void insertParam(DbSession session, RuleParamChange paramToInsert) {
+    RuleParamDto paramDto = paramToInsert.param;
+    dbClient.ruleDao().insertRuleParam(session, paramToInsert.rule, paramDto);
+    if (!paramToInsert.propagateDefaultValue || StringUtils.isEmpty(paramDto.getDefaultValue())) {
+      return;
+    }
+    // Propagate the default value to existing active rule parameters
+    for (ActiveRuleDto activeRule : dbClient.activeRuleDao().selectByRuleId(session, paramToInsert.rule.getId())) {
+      ActiveRuleParamDto activeParam = ActiveRuleParamDto.createFor(paramDto).setValue(paramDto.getDefaultValue());
+      dbClient.activeRuleDao().insertParam(session, activeRule, activeParam);
     }
-    return rules;
   }
 
   private List<RulesDefinition.ExtendedRepository> getRepositories(RulesDefinition.Context context) {
@@ -168,7 +234,7 @@ public class RegisterRules implements Startable {
     return repositories;
   }
 
-  private RuleDto createRuleDto(RulesDefinition.Rule ruleDef, DbSession session) {
+  private RuleDto createRuleDto(RulesDefinition.Rule ruleDef) {
     RuleDto ruleDto = RuleDto.createFor(RuleKey.of(ruleDef.repository().key(), ruleDef.key()))
       .setIsTemplate(ruleDef.template())
       .setConfigKey(ruleDef.internalKey())
@@ -188,8 +254,6 @@ public class RegisterRules implements Startable {
       ruleDto.setDescription(ruleDef.markdownDescription());
       ruleDto.setDescriptionFormat(Format.MARKDOWN);
     }
-
-    dbClient.ruleDao().insert(session, ruleDto);
     return ruleDto;
   }
 
@@ -283,47 +347,37 @@ public class RegisterRules implements Startable {
     return changed;
   }
 
-  private void mergeParams(RulesDefinition.Rule ruleDef, RuleDto rule, DbSession session) {
-    List<RuleParamDto> paramDtos = dbClient.ruleDao().selectRuleParamsByRuleKey(session, rule.getKey());
+  private static void mergeParams(RulesDefinition.Rule ruleDef, RuleDto rule, List<RuleParamDto> paramDtos, Registration registration) {
     Map<String, RuleParamDto> existingParamsByName = Maps.newHashMap();
 
     for (RuleParamDto paramDto : paramDtos) {
       RulesDefinition.Param paramDef = ruleDef.param(paramDto.getName());
       if (paramDef == null) {
-        dbClient.activeRuleDao().deleteParamsByRuleParam(session, rule.getId(), paramDto.getName());
-        dbClient.ruleDao().deleteRuleParam(session, paramDto.getId());
+        registration.paramsToDelete.add(new RuleParamChange(rule, paramDto, false));
       } else {
         if (mergeParam(paramDto, paramDef)) {
-          dbClient.ruleDao().updateRuleParam(session, rule, paramDto);
+          registration.paramsToUpdate.add(new RuleParamChange(rule, paramDto, false));
         }
         existingParamsByName.put(paramDto.getName(), paramDto);
       }
     }
 
     // Create newly parameters
+    boolean existingRule = rule.getId() != null;
     for (RulesDefinition.Param param : ruleDef.params()) {
-      RuleParamDto paramDto = existingParamsByName.get(param.key());
-      if (paramDto != null) {
+      if (existingParamsByName.containsKey(param.key())) {
         continue;
       }
-      paramDto = RuleParamDto.createFor(rule)
+      RuleParamDto paramDto = RuleParamDto.createFor(rule)
         .setName(param.key())
         .setDescription(param.description())
         .setDefaultValue(param.defaultValue())
         .setType(param.type().toString());
-      dbClient.ruleDao().insertRuleParam(session, rule, paramDto);
-      if (StringUtils.isEmpty(param.defaultValue())) {
-        continue;
-      }
-      // Propagate the default value to existing active rule parameters
-      for (ActiveRuleDto activeRule : dbClient.activeRuleDao().selectByRuleId(session, rule.getId())) {
-        ActiveRuleParamDto activeParam = ActiveRuleParamDto.createFor(paramDto).setValue(param.defaultValue());
-        dbClient.activeRuleDao().insertParam(session, activeRule, activeParam);
-      }
+      registration.paramsToInsert.add(new RuleParamChange(rule, paramDto, existingRule));
     }
   }
 
-  private boolean mergeParam(RuleParamDto paramDto, RulesDefinition.Param paramDef) {
+  private static boolean mergeParam(RuleParamDto paramDto, RulesDefinition.Param paramDef) {
     boolean changed = false;
     if (!StringUtils.equals(paramDto.getType(), paramDef.type().toString())) {
       paramDto.setType(paramDef.type().toString());
@@ -357,46 +411,41 @@ public class RegisterRules implements Startable {
     return changed;
   }
 
-  private List<RuleDto> processRemainingDbRules(Collection<RuleDto> existingRules, DbSession session) {
+  private List<RuleDto> processRemainingDbRules(Registration registration) {
     // custom rules check status of template, so they must be processed at the end
     List<RuleDto> customRules = newArrayList();
     List<RuleDto> removedRules = newArrayList();
 
-    for (RuleDto rule : existingRules) {
+    for (RuleDto rule : registration.dbRulesByKey.values()) {
       if (rule.getTemplateId() != null) {
         customRules.add(rule);
       } else if (rule.getStatus() != RuleStatus.REMOVED) {
-        removeRule(session, removedRules, rule);
+        removeRule(registration, removedRules, rule);
       }
     }
 
     for (RuleDto customRule : customRules) {
       Integer templateId = customRule.getTemplateId();
       checkNotNull(templateId, "Template id of the custom rule '%s' is null", customRule);
-      Optional<RuleDto> template = dbClient.ruleDao().selectById(templateId, session);
-      if (template.isPresent() && template.get().getStatus() != RuleStatus.REMOVED) {
-        if (updateCustomRuleFromTemplateRule(customRule, template.get())) {
-          update(session, customRule);
+      RuleDto template = registration.dbRulesById.get(templateId);
+      if (template != null && template.getStatus() != RuleStatus.REMOVED) {
+        if (updateCustomRuleFromTemplateRule(customRule, template)) {
+          registration.rulesToUpdate.add(customRule);
         }
       } else {
-        removeRule(session, removedRules, customRule);
+        removeRule(registration, removedRules, customRule);
       }
     }
-
-    session.commit();
     return removedRules;
   }
 
-  private void removeRule(DbSession session, List<RuleDto> removedRules, RuleDto rule) {
+  private static void removeRule(Registration registration, List<RuleDto> removedRules, RuleDto rule) {
     LOG.info(String.format("Disable rule %s", rule.getKey()));
     rule.setStatus(RuleStatus.REMOVED);
     rule.setSystemTags(Collections.<String>emptySet());
     rule.setTags(Collections.<String>emptySet());
-    update(session, rule);
+    registration.rulesToUpdate.add(rule);
     removedRules.add(rule);
-    if (removedRules.size() % 100 == 0) {
-      session.commit();
-    }
   }
 
   private static boolean updateCustomRuleFromTemplateRule(RuleDto customRule, RuleDto templateRule) {
@@ -447,7 +496,7 @@ public class RegisterRules implements Startable {
    * The side effect of this approach is that extended repositories will not be managed the same way.
    * If an extended repository do not exists anymore, then related active rules will be removed.
    */
-  private List<ActiveRuleChange> removeActiveRulesOnStillExistingRepositories(DbSession session, Collection<RuleDto> removedRules, RulesDefinition.Context context) {
+  private List<ActiveRuleChange> removeActiveRulesOnStillExistingRepositories(Collection<RuleDto> removedRules, RulesDefinition.Context context) {
     List<String> repositoryKeys = newArrayList(Iterables.transform(context.repositories(), new Function<RulesDefinition.Repository, String>() {
       @Override
       public String apply(@Nonnull RulesDefinition.Repository input) {
@@ -455,13 +504,21 @@ public class RegisterRules implements Startable {
       }
     }));
 
-    List<ActiveRuleChange> changes = new ArrayList<>();
+    List<RuleDto> rulesToDeactivate = new ArrayList<>();
     for (RuleDto rule : removedRules) {
       // SONAR-4642 Remove active rules only when repository still exists
       if (repositoryKeys.contains(rule.getRepositoryKey())) {
-        changes.addAll(ruleActivator.deactivate(session, rule));
+        rulesToDeactivate.add(rule);
       }
     }
+    List<ActiveRuleChange> changes;
+    DbSession session = dbClient.openSession(false);
+    try {
+      changes = ruleActivator.deactivate(session, rulesToDeactivate);
+      session.commit();
+    } finally {
+      session.close();
+    }
     return changes;
   }
 
@@ -469,4 +526,27 @@ public class RegisterRules implements Startable {
     rule.setUpdatedAt(system2.now());
     dbClient.ruleDao().update(session, rule);
   }
+
+  private static class Registration {
+    private final Map<RuleKey, RuleDto> dbRulesByKey = new HashMap<>();
+    private final Map<Integer, RuleDto> dbRulesById = new HashMap<>();
+    private final ListMultimap<Integer, RuleParamDto> dbParamsByRuleId = ArrayListMultimap.create();
+    private final List<RuleDto> rulesToInsert = new ArrayList<>();
+    private final List<RuleDto> rulesToUpdate = new ArrayList<>();
+    private final List<RuleParamChange> paramsToInsert = new ArrayList<>();
+    private final List<RuleParamChange> paramsToUpdate = new ArrayList<>();
+    private final List<RuleParamChange> paramsToDelete = new ArrayList<>();
+  }
+
+  private static class RuleParamChange {
+    private final RuleDto rule;
+    private final RuleParamDto param;
+    private final boolean propagateDefaultValue;
+
+    RuleParamChange(RuleDto rule, RuleParamDto param, boolean propagateDefaultValue) {
+      this.rule = rule;
+      this.param = param;
+      this.propagateDefaultValue = propagateDefaultValue;
+    }
+  }
 }
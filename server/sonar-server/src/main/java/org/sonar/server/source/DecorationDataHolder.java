@@ -60,12 +60,16 @@ class DecorationDataHolder {
       String[] symbolFields = symbol.split(FIELD_SEPARATOR);
       int startOffset = Integer.parseInt(symbolFields[0]);
       int endOffset = Integer.parseInt(symbolFields[1]);
-      int symbolLength = endOffset - startOffset;
       int symbolId = Integer.parseInt(symbolFields[2]);
-      loadSymbolOccurrences(symbolId, symbolLength, new String[] { Integer.toString(startOffset) });
+      addLineSymbolReference(startOffset, endOffset, symbolId);
     }
   }
 
+  void addLineSymbolReference(int startOffset, int endOffset, int symbolId) {
+    insertAndPreserveOrder(new OpeningHtmlTag(startOffset, SYMBOL_PREFIX + symbolId + " " + HIGHLIGHTABLE), openingTagsEntries);
+    insertAndPreserveOrder(endOffset, closingTagsOffsets);
+  }
+
 
   void loadSyntaxHighlightingData(String syntaxHighlightingRules) {
     String[] rules = syntaxHighlightingRules.split(ENTITY_SEPARATOR);
@@ -73,10 +77,14 @@ class DecorationDataHolder {
       String[] ruleFields = rule.split(FIELD_SEPARATOR);
       int startOffset = Integer.parseInt(ruleFields[0]);
       int endOffset = Integer.parseInt(ruleFields[1]);
-      if (startOffset < endOffset) {
-        insertAndPreserveOrder(new OpeningHtmlTag(startOffset, ruleFields[2]), openingTagsEntries);
-        insertAndPreserveOrder(endOffset, closingTagsOffsets);
-      }
+      addSyntaxHighlighting(startOffset, endOffset, ruleFields[2]);
+    }
+  }
+
+  void addSyntaxHighlighting(int startOffset, int endOffset, String cssClass) {
+    if (startOffset < endOffset) {
+      insertAndPreserveOrder(new OpeningHtmlTag(startOffset, cssClass), openingTagsEntries);
+      insertAndPreserveOrder(endOffset, closingTagsOffsets);
     }
   }
 
@@ -23,6 +23,8 @@ import java.util.List;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.apache.commons.lang.StringUtils;
+import org.sonar.db.protobuf.DbFileSources;
+import org.sonar.db.source.LineRanges;
 
 public class HtmlSourceDecorator {
 
@@ -38,6 +40,22 @@ public class HtmlSourceDecorator {
     if (StringUtils.isNotBlank(symbols)) {
       decorationDataHolder.loadLineSymbolReferences(symbols);
     }
+    return decorate(sourceLine, decorationDataHolder);
+  }
+
+  /**
+   * Decorates the line with its highlighting and symbols, whatever the version of their encoding
+   */
+  @CheckForNull
+  public String getDecoratedSourceAsHtml(DbFileSources.Line line) {
+    DecorationDataHolder decorationDataHolder = new DecorationDataHolder();
+    LineRanges.readHighlighting(line, decorationDataHolder::addSyntaxHighlighting);
+    LineRanges.readSymbols(line, decorationDataHolder::addLineSymbolReference);
+    return decorate(line.getSource(), decorationDataHolder);
+  }
+
+  @CheckForNull
+  private static String decorate(String sourceLine, DecorationDataHolder decorationDataHolder) {
     HtmlTextDecorator textDecorator = new HtmlTextDecorator();
     List<String> decoratedSource = textDecorator.decorateTextWithHtml(sourceLine, decorationDataHolder, 1, 1);
     if (decoratedSource == null) {
@@ -81,7 +81,7 @@ public class SourceService {
   }
 
   private Function<DbFileSources.Line, String> lineToHtml() {
-    return line -> htmlDecorator.getDecoratedSourceAsHtml(line.getSource(), line.getHighlighting(), line.getSymbols());
+    return line -> htmlDecorator.getDecoratedSourceAsHtml(line);
   }
 
   private enum LineToRaw implements Function<DbFileSources.Line, String> {
@@ -139,7 +139,7 @@ public class LinesAction implements SourcesWsAction {
     for (DbFileSources.Line line : lines) {
       json.beginObject()
         .prop("line", line.getLine())
-        .prop("code", htmlSourceDecorator.getDecoratedSourceAsHtml(line.getSource(), line.getHighlighting(), line.getSymbols()))
+        .prop("code", htmlSourceDecorator.getDecoratedSourceAsHtml(line))
         .prop("scmAuthor", line.getScmAuthor())
         .prop("scmRevision", line.getScmRevision());
       if (line.hasScmDate()) {
@@ -0,0 +1,148 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.startup;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Tasks executed at server startup, with their dependencies. A task starts as soon as all the tasks
+ * it depends on are done, so independent tasks are executed concurrently.
+ * <p/>
+ * Dependencies must be declared before the tasks which depend on them, which prevents cycles.
+ */
+public class StartupTaskGraph {
+
+  private final Map<String, Node> nodesByName = new LinkedHashMap<>();
+
+  public StartupTaskGraph add(String name, Runnable task, String... dependencies) {
+    checkArgument(!nodesByName.containsKey(name), "Startup task '%s' is already declared", name);
+    for (String dependency : dependencies) {
+      checkArgument(nodesByName.containsKey(dependency), "Startup task '%s' depends on undeclared task '%s'", name, dependency);
+    }
+    nodesByName.put(name, new Node(name, task, Arrays.asList(dependencies)));
+    return this;
+  }
+
+  /**
+   * Executes all the tasks and waits for their completion. If a task fails, then the tasks
+   * which depend on it are not executed and its exception is thrown once all the other tasks are done.
+   *
+   * @return the timings of tasks, in order of declaration
+   */
+  public List<Timing> execute(int threads) {
+    checkArgument(threads > 0, "Number of threads must be positive");
+    ExecutorService executor = Executors.newFixedThreadPool(threads,
+      new ThreadFactoryBuilder().setNameFormat("sq-startup-%d").setDaemon(true).build());
+    long startedAt = System.currentTimeMillis();
+    Map<String, CompletableFuture<Timing>> futures = new LinkedHashMap<>();
+    try {
+      for (Node node : nodesByName.values()) {
+        CompletableFuture<?>[] dependencies = node.dependencies.stream().map(futures::get).toArray(CompletableFuture[]::new);
+        futures.put(node.name, CompletableFuture.allOf(dependencies).thenApplyAsync(v -> node.run(startedAt), executor));
+      }
+      CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[futures.size()])).join();
+    } catch (CompletionException e) {
+      throw propagate(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+
+    List<Timing> timings = new ArrayList<>();
+    futures.values().forEach(future -> timings.add(future.join()));
+    return timings;
+  }
+
+  private static RuntimeException propagate(Throwable t) {
+    if (t instanceof RuntimeException) {
+      return (RuntimeException) t;
+    }
+    if (t instanceof Error) {
+      throw (Error) t;
+    }
+    return new IllegalStateException(t);
+  }
+
+  private static class Node {
+    private final String name;
+    private final Runnable task;
+    private final List<String> dependencies;
+
+    Node(String name, Runnable task, List<String> dependencies) {
+      this.name = name;
+      this.task = task;
+      this.dependencies = dependencies;
+    }
+
+    Timing run(long graphStartedAt) {
+      long start = System.currentTimeMillis();
+      task.run();
+      return new Timing(name, Thread.currentThread().getName(), start - graphStartedAt, System.currentTimeMillis() - start);
+    }
+  }
+
+  public static final class Timing {
+    private final String name;
+    private final String threadName;
+    private final long startOffsetMs;
+    private final long durationMs;
+
+    Timing(String name, String threadName, long startOffsetMs, long durationMs) {
+      this.name = name;
+      this.threadName = threadName;
+      this.startOffsetMs = startOffsetMs;
+      this.durationMs = durationMs;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public String getThreadName() {
+      return threadName;
+    }
+
+    /**
+     * Delay between the beginning of startup tasks and the beginning of this task
+     */
+    public long getStartOffsetMs() {
+      return startOffsetMs;
+    }
+
+    public long getDurationMs() {
+      return durationMs;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s: %d ms (started at +%d ms on %s)", name, durationMs, startOffsetMs, threadName);
+    }
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ws;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of the calls to a web service action since server startup
+ *
+ * @since 6.1
+ */
+public class ActionMetrics {
+
+  private final String path;
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder abortedRequests = new LongAdder();
+  private final LongAdder clientErrors = new LongAdder();
+  private final LongAdder serverErrors = new LongAdder();
+  private final LongAdder responseBytes = new LongAdder();
+  private final LongAdder totalMicros = new LongAdder();
+  private final LongAdder dbMicros = new LongAdder();
+  private final LongAdder esMicros = new LongAdder();
+  private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0L);
+  private final LatencyHistogram latencies = new LatencyHistogram();
+
+  ActionMetrics(String path) {
+    this.path = path;
+  }
+
+  void record(int httpStatus, long durationInNanos, long dbTimeInNanos, long esTimeInNanos, long bytes) {
+    long micros = TimeUnit.NANOSECONDS.toMicros(durationInNanos);
+    requests.increment();
+    if (httpStatus == WebServiceMetrics.CLIENT_ABORTED_STATUS) {
+      abortedRequests.increment();
+    } else if (httpStatus >= 500) {
+      serverErrors.increment();
+    } else if (httpStatus >= 400) {
+      clientErrors.increment();
+    }
+    responseBytes.add(bytes);
+    totalMicros.add(micros);
+    dbMicros.add(TimeUnit.NANOSECONDS.toMicros(dbTimeInNanos));
+    esMicros.add(TimeUnit.NANOSECONDS.toMicros(esTimeInNanos));
+    maxMicros.accumulate(micros);
+    latencies.record(micros);
+  }
+
+  /**
+   * Path of the action, for example "api/issues/search"
+   */
+  public String getPath() {
+    return path;
+  }
+
+  public long getRequests() {
+    return requests.sum();
+  }
+
+  /**
+   * Number of requests aborted by clients before the response is sent. They are not counted as errors.
+   */
+  public long getAbortedRequests() {
+    return abortedRequests.sum();
+  }
+
+  /**
+   * Number of requests that failed with HTTP status 4xx
+   */
+  public long getClientErrors() {
+    return clientErrors.sum();
+  }
+
+  /**
+   * Number of requests that failed with HTTP status 5xx
+   */
+  public long getServerErrors() {
+    return serverErrors.sum();
+  }
+
+  /**
+   * Size of the responses sent over HTTP. Internal calls between web services are not counted.
+   */
+  public long getResponseBytes() {
+    return responseBytes.sum();
+  }
+
+  public long getTotalTimeMs() {
+    return TimeUnit.MICROSECONDS.toMillis(totalMicros.sum());
+  }
+
+  /**
+   * Time spent in SQL requests
+   */
+  public long getDbTimeMs() {
+    return TimeUnit.MICROSECONDS.toMillis(dbMicros.sum());
+  }
+
+  /**
+   * Time spent in Elasticsearch requests
+   */
+  public long getEsTimeMs() {
+    return TimeUnit.MICROSECONDS.toMillis(esMicros.sum());
+  }
+
+  public long getMaxTimeMs() {
+    return TimeUnit.MICROSECONDS.toMillis(maxMicros.get());
+  }
+
+  /**
+   * Approximation, with a relative error lower than 12.5%, of the duration under which the given percentage
+   * of requests completed. For example {@code getPercentileMs(99)} returns the 99th percentile.
+   */
+  public long getPercentileMs(double percentile) {
+    return TimeUnit.MICROSECONDS.toMillis(latencies.percentile(percentile));
+  }
+}
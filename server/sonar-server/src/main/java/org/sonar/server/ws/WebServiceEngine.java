@@ -37,6 +37,7 @@ import org.sonar.api.server.ws.internal.ValidatingRequest;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.api.utils.text.JsonWriter;
+import org.sonar.core.util.ThreadElapsedTime;
 import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.exceptions.Errors;
 import org.sonar.server.exceptions.Message;
@@ -47,6 +48,9 @@ import org.sonarqube.ws.MediaTypes;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Strings.isNullOrEmpty;
 import static java.lang.String.format;
+import static java.net.HttpURLConnection.HTTP_BAD_REQUEST;
+import static java.net.HttpURLConnection.HTTP_INTERNAL_ERROR;
+import static java.net.HttpURLConnection.HTTP_OK;
 import static org.apache.commons.lang.StringUtils.substring;
 import static org.apache.commons.lang.StringUtils.substringAfterLast;
 import static org.apache.commons.lang.StringUtils.substringBeforeLast;
@@ -64,9 +68,11 @@ public class WebServiceEngine implements LocalConnector, Startable {
   private final WebService.Context context;
   private final I18n i18n;
   private final UserSession userSession;
+  private final WebServiceMetrics metrics;
 
-  public WebServiceEngine(WebService[] webServices, I18n i18n, UserSession userSession) {
+  public WebServiceEngine(WebService[] webServices, I18n i18n, UserSession userSession, WebServiceMetrics metrics) {
     this.userSession = userSession;
+    this.metrics = metrics;
     context = new WebService.Context();
     for (WebService webService : webServices) {
       webService.define(context);
@@ -97,9 +103,14 @@ public class WebServiceEngine implements LocalConnector, Startable {
   }
 
   public void execute(Request request, Response response) {
+    long start = System.nanoTime();
+    long dbTimeBefore = ThreadElapsedTime.SQL.get();
+    long esTimeBefore = ThreadElapsedTime.ELASTICSEARCH.get();
+    WebService.Action action = null;
+    int status = HTTP_OK;
     try {
       ActionExtractor actionExtractor = new ActionExtractor(request.getPath());
-      WebService.Action action = getAction(actionExtractor.getController(), actionExtractor.getAction());
+      action = getAction(actionExtractor.getController(), actionExtractor.getAction());
       if (request instanceof ValidatingRequest) {
         ((ValidatingRequest) request).setAction(action);
         ((ValidatingRequest) request).setLocalConnector(this);
@@ -108,21 +119,38 @@ public class WebServiceEngine implements LocalConnector, Startable {
       verifyRequest(action, request);
       action.handler().handle(request, response);
     } catch (IllegalArgumentException e) {
-      sendErrors(response, 400, new Errors().add(Message.of(e.getMessage())));
+      status = HTTP_BAD_REQUEST;
+      sendErrors(response, status, new Errors().add(Message.of(e.getMessage())));
     } catch (BadRequestException e) {
-      sendErrors(response, 400, e.errors());
+      status = HTTP_BAD_REQUEST;
+      sendErrors(response, status, e.errors());
     } catch (ServerException e) {
-      sendErrors(response, e.httpCode(), new Errors().add(Message.of(e.getMessage())));
+      status = e.httpCode();
+      sendErrors(response, status, new Errors().add(Message.of(e.getMessage())));
     } catch (Exception e) {
       Throwable cause = e.getCause();
       if (cause != null && cause instanceof ClientAbortException) {
         // Request has been aborted by the client, nothing can been done as Tomcat has committed the response
         LOGGER.warn("Request {} has been aborted by client, error is '{}'", request, e.getMessage());
+        status = WebServiceMetrics.CLIENT_ABORTED_STATUS;
         return;
       }
       LOGGER.error("Fail to process request " + request, e);
-      sendErrors(response, 500, new Errors().add(Message.of(e.getMessage())));
+      status = HTTP_INTERNAL_ERROR;
+      sendErrors(response, status, new Errors().add(Message.of(e.getMessage())));
+    } finally {
+      if (action != null) {
+        metrics.record(action, request, status, System.nanoTime() - start, ThreadElapsedTime.SQL.get() - dbTimeBefore,
+          ThreadElapsedTime.ELASTICSEARCH.get() - esTimeBefore, writtenBytes(response));
+      }
+    }
+  }
+
+  private static long writtenBytes(Response response) {
+    if (response instanceof ServletResponse) {
+      return ((ServletResponse) response).stream().writtenBytes();
     }
+    return 0L;
   }
 
   private WebService.Action getAction(String controllerPath, String actionKey) {
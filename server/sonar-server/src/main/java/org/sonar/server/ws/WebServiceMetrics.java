@@ -0,0 +1,198 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ws;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.server.ws.Request;
+import org.sonar.api.server.ws.WebService;
+
+import static java.util.Comparator.comparing;
+import static java.util.stream.Collectors.toList;
+import static org.apache.commons.lang.StringUtils.abbreviate;
+
+/**
+ * Statistics of web service calls, per action, since server startup, and sample of the slowest requests.
+ * Recording is lock-free, except for the few requests that are slower than the slowest requests sampled so far.
+ *
+ * @since 6.1
+ */
+@ServerSide
+public class WebServiceMetrics {
+
+  /**
+   * Non-standard status, as used by nginx, of the requests aborted by clients before the response is sent
+   */
+  public static final int CLIENT_ABORTED_STATUS = 499;
+
+  private static final int DEFAULT_SLOW_REQUESTS = 20;
+  private static final int MAX_PARAM_VALUE_LENGTH = 100;
+  private static final String MASKED_VALUE = "******";
+
+  private final ConcurrentMap<String, ActionMetrics> metricsByAction = new ConcurrentHashMap<>();
+  private final int maxSlowRequests;
+  private final PriorityQueue<SlowRequest> slowRequests = new PriorityQueue<>(comparing(SlowRequest::getDurationMs));
+  // duration of the fastest of the sampled slow requests, read without lock
+  private volatile long slowRequestThresholdMs = -1L;
+
+  public WebServiceMetrics() {
+    this(DEFAULT_SLOW_REQUESTS);
+  }
+
+  @VisibleForTesting
+  WebServiceMetrics(int maxSlowRequests) {
+    this.maxSlowRequests = maxSlowRequests;
+  }
+
+  /**
+   * Only known actions are recorded, so that the number of statistics does not depend on the requested URLs.
+   */
+  void record(WebService.Action action, Request request, int httpStatus, long durationInNanos, long dbTimeInNanos, long esTimeInNanos, long responseBytes) {
+    metricsByAction.computeIfAbsent(action.path(), ActionMetrics::new)
+      .record(httpStatus, durationInNanos, dbTimeInNanos, esTimeInNanos, responseBytes);
+
+    long durationMs = TimeUnit.NANOSECONDS.toMillis(durationInNanos);
+    if (durationMs > slowRequestThresholdMs) {
+      sampleSlowRequest(new SlowRequest(action.path(), params(action, request), httpStatus, durationMs,
+        TimeUnit.NANOSECONDS.toMillis(dbTimeInNanos), TimeUnit.NANOSECONDS.toMillis(esTimeInNanos), System.currentTimeMillis()));
+    }
+  }
+
+  private synchronized void sampleSlowRequest(SlowRequest request) {
+    if (request.getDurationMs() <= slowRequestThresholdMs) {
+      // threshold has been raised by a concurrent request
+      return;
+    }
+    slowRequests.add(request);
+    if (slowRequests.size() > maxSlowRequests) {
+      slowRequests.poll();
+    }
+    if (slowRequests.size() == maxSlowRequests) {
+      slowRequestThresholdMs = slowRequests.peek().getDurationMs();
+    }
+  }
+
+  /**
+   * Statistics of the actions called at least once, sorted by path
+   */
+  public List<ActionMetrics> getActionMetrics() {
+    return metricsByAction.values().stream()
+      .sorted(comparing(ActionMetrics::getPath))
+      .collect(toList());
+  }
+
+  /**
+   * Slowest requests since server startup, the slowest first
+   */
+  public synchronized List<SlowRequest> getSlowestRequests() {
+    List<SlowRequest> result = new ArrayList<>(slowRequests);
+    result.sort(Comparator.comparing(SlowRequest::getDurationMs).reversed());
+    return result;
+  }
+
+  private static Map<String, String> params(WebService.Action action, Request request) {
+    Map<String, String> params = new LinkedHashMap<>();
+    for (WebService.Param param : action.params()) {
+      String key = param.key();
+      try {
+        if (request.hasParam(key)) {
+          String value = request.param(key);
+          if (value != null) {
+            params.put(key, isSecret(key) ? MASKED_VALUE : abbreviate(value, MAX_PARAM_VALUE_LENGTH));
+          }
+        }
+      } catch (RuntimeException e) {
+        // invalid value, or parameter that is not a string (multipart). Ignored.
+      }
+    }
+    return params;
+  }
+
+  private static boolean isSecret(String paramKey) {
+    String key = paramKey.toLowerCase(Locale.ENGLISH);
+    return key.contains("password") || key.contains("passcode") || key.contains("token") || key.contains("secret");
+  }
+
+  public static final class SlowRequest {
+    private final String path;
+    private final Map<String, String> params;
+    private final int httpStatus;
+    private final long durationMs;
+    private final long dbTimeMs;
+    private final long esTimeMs;
+    private final long date;
+
+    SlowRequest(String path, Map<String, String> params, int httpStatus, long durationMs, long dbTimeMs, long esTimeMs, long date) {
+      this.path = path;
+      this.params = params;
+      this.httpStatus = httpStatus;
+      this.durationMs = durationMs;
+      this.dbTimeMs = dbTimeMs;
+      this.esTimeMs = esTimeMs;
+      this.date = date;
+    }
+
+    public String getPath() {
+      return path;
+    }
+
+    /**
+     * Parameters declared by the action. Long values are abbreviated and secrets are masked.
+     */
+    public Map<String, String> getParams() {
+      return params;
+    }
+
+    public int getHttpStatus() {
+      return httpStatus;
+    }
+
+    public long getDurationMs() {
+      return durationMs;
+    }
+
+    public long getDbTimeMs() {
+      return dbTimeMs;
+    }
+
+    public long getEsTimeMs() {
+      return esTimeMs;
+    }
+
+    public long getDate() {
+      return date;
+    }
+
+    @Override
+    public String toString() {
+      return path + params + " status=" + httpStatus + " time=" + durationMs + "ms db=" + dbTimeMs + "ms es=" + esTimeMs + "ms";
+    }
+  }
+}
@@ -87,4 +87,28 @@ public class ProjectActionTest {
     WsProjectResponse wsProjectResponse = WsProjectResponse.parseFrom(result.getInputStream());
     assertThat(wsProjectResponse.getFileDataByModuleAndPath()).isEmpty();
   }
+
+  @Test
+  public void return_analysis_uuid_and_delta_when_file_data_is_requested_since_an_analysis() throws Exception {
+    ProjectRepositories projectRepositories = new ProjectRepositories()
+      .setAnalysisUuid("U2")
+      .setDelta(true)
+      .setFileKeysHash("abcd")
+      .addFileData("module-1", "src/Foo.java", new FileData("xyz", "123"));
+    ArgumentCaptor<ProjectDataQuery> queryArgumentCaptor = ArgumentCaptor.forClass(ProjectDataQuery.class);
+    when(projectDataLoader.load(queryArgumentCaptor.capture())).thenReturn(projectRepositories);
+
+    TestResponse result = ws.newRequest()
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setParam("key", "org.codehaus.sonar:sonar")
+      .setParam("since_analysis", "U1")
+      .execute();
+
+    assertThat(queryArgumentCaptor.getValue().getSinceAnalysisUuid()).isEqualTo("U1");
+    WsProjectResponse wsProjectResponse = WsProjectResponse.parseFrom(result.getInputStream());
+    assertThat(wsProjectResponse.getAnalysisUuid()).isEqualTo("U2");
+    assertThat(wsProjectResponse.getDelta()).isTrue();
+    assertThat(wsProjectResponse.getFileKeysHash()).isEqualTo("abcd");
+    assertThat(wsProjectResponse.getFileDataByModuleAndPath().get("module-1").getFileDataByPath()).containsOnlyKeys("src/Foo.java");
+  }
 }
@@ -34,6 +34,7 @@ import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentTesting;
+import org.sonar.db.component.SnapshotDto;
 import org.sonar.db.property.PropertyDto;
 import org.sonar.db.qualityprofile.QualityProfileDto;
 import org.sonar.db.source.FileSourceDao;
@@ -46,10 +47,12 @@ import org.sonar.server.qualityprofile.QProfileName;
 import org.sonar.server.tester.ServerTester;
 import org.sonar.server.tester.UserSessionRule;
 
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
 import static org.sonar.api.utils.DateUtils.formatDateTime;
 import static org.sonar.core.permission.GlobalPermissions.SCAN_EXECUTION;
+import static org.sonar.db.component.SnapshotTesting.newAnalysis;
 import static org.sonar.server.qualityprofile.QProfileTesting.newQProfileDto;
 
 public class ProjectDataLoaderMediumTest {
@@ -562,6 +565,37 @@ public class ProjectDataLoaderMediumTest {
     assertThat(ref.fileData(project.key(), projectFile.path())).isNull();
   }
 
+  @Test
+  public void return_only_file_data_updated_since_specified_analysis() {
+    ComponentDto project = ComponentTesting.newProjectDto();
+    userSessionRule.login("john").setGlobalPermissions(SCAN_EXECUTION);
+    tester.get(DbClient.class).componentDao().insert(dbSession, project);
+    addDefaultProfile();
+    SnapshotDto analysis = tester.get(DbClient.class).snapshotDao().insert(dbSession, newAnalysis(project).setBuildDate(1_000L));
+
+    ComponentDto unchangedFile = ComponentTesting.newFileDto(project, null, "unchangedFile");
+    tester.get(DbClient.class).componentDao().insert(dbSession, unchangedFile);
+    tester.get(FileSourceDao.class).insert(newFileSourceDto(unchangedFile).setSrcHash("123456").setUpdatedAt(500L));
+    ComponentDto updatedFile = ComponentTesting.newFileDto(project, null, "updatedFile");
+    tester.get(DbClient.class).componentDao().insert(dbSession, updatedFile);
+    tester.get(FileSourceDao.class).insert(newFileSourceDto(updatedFile).setSrcHash("789456").setUpdatedAt(2_000L));
+
+    dbSession.commit();
+
+    ProjectRepositories ref = underTest.load(ProjectDataQuery.create().setModuleKey(project.key()).setSinceAnalysisUuid(analysis.getUuid()));
+    assertThat(ref.analysisUuid()).isEqualTo(analysis.getUuid());
+    assertThat(ref.isDelta()).isTrue();
+    assertThat(ref.fileKeysHash()).isEqualTo(
+      ProjectRepositories.hashFileKeys(ImmutableMap.of(project.key(), asList(unchangedFile.path(), updatedFile.path()))));
+    assertThat(ref.fileDataByPath(project.key())).containsOnlyKeys(updatedFile.path());
+
+    ref = underTest.load(ProjectDataQuery.create().setModuleKey(project.key()).setSinceAnalysisUuid("unknown"));
+    assertThat(ref.analysisUuid()).isEqualTo(analysis.getUuid());
+    assertThat(ref.isDelta()).isFalse();
+    assertThat(ref.fileKeysHash()).isNull();
+    assertThat(ref.fileDataByPath(project.key())).containsOnlyKeys(unchangedFile.path(), updatedFile.path());
+  }
+
   private void addDefaultProfile() {
     QualityProfileDto profileDto = newQProfileDto(QProfileName.createFor(ServerTester.Xoo.KEY, "SonarQube way"), "abcd").setRulesUpdatedAt(
       formatDateTime(new Date())).setDefault(true);
@@ -29,6 +29,7 @@ import org.sonar.core.util.Protobuf;
 import org.sonar.db.DbTester;
 import org.sonar.db.ce.CeActivityDto;
 import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.ce.CeTaskProfile;
 import org.sonar.db.ce.CeTaskTypes;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentTesting;
@@ -40,6 +41,7 @@ import org.sonar.server.ws.WsActionTester;
 import org.sonarqube.ws.MediaTypes;
 import org.sonarqube.ws.WsCe;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.singleton;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.sonar.core.permission.GlobalPermissions.PROVISIONING;
@@ -189,6 +191,54 @@ public class TaskActionTest {
     assertThat(task.getScannerContext()).isEqualTo(scannerContext);
   }
 
+  @Test
+  public void return_profile_of_activity_when_additionalField_is_set() {
+    userSession.login("john").setGlobalPermissions(SYSTEM_ADMIN);
+    persist(createActivityDto(SOME_TASK_UUID));
+    dbTester.getDbClient().ceTaskProfileDao().insert(dbTester.getSession(), SOME_TASK_UUID, new CeTaskProfile(asList(
+      new CeTaskProfile.Step().setDescription("Load report").setDurationMs(120L).setCpuTimeMs(100L).setSqlStatements(3L),
+      new CeTaskProfile.Step().setDescription("Index issues").setDurationMs(40L).setEsDocuments(10L))));
+
+    WsCe.Task task = callWithAdditionalFields("profile");
+
+    assertThat(task.getProfile().getStepsList()).extracting("description").containsExactly("Load report", "Index issues");
+    WsCe.StepProfile loadReport = task.getProfile().getSteps(0);
+    assertThat(loadReport.getDurationMs()).isEqualTo(120L);
+    assertThat(loadReport.getCpuTimeMs()).isEqualTo(100L);
+    assertThat(loadReport.getSqlStatements()).isEqualTo(3L);
+    WsCe.StepProfile indexIssues = task.getProfile().getSteps(1);
+    assertThat(indexIssues.getEsDocuments()).isEqualTo(10L);
+    assertThat(indexIssues.hasCpuTimeMs()).isFalse();
+    assertThat(indexIssues.hasAllocatedBytes()).isFalse();
+  }
+
+  @Test
+  public void do_not_return_profile_of_activity_when_additionalField_is_not_set() {
+    userSession.login("john").setGlobalPermissions(SYSTEM_ADMIN);
+    persist(createActivityDto(SOME_TASK_UUID));
+    dbTester.getDbClient().ceTaskProfileDao().insert(dbTester.getSession(), SOME_TASK_UUID,
+      new CeTaskProfile(asList(new CeTaskProfile.Step().setDescription("Load report").setDurationMs(120L))));
+
+    assertThat(callWithAdditionalFields("stacktrace").hasProfile()).isFalse();
+  }
+
+  @Test
+  public void do_not_return_profile_of_activity_without_profile() {
+    userSession.login("john").setGlobalPermissions(SYSTEM_ADMIN);
+    persist(createActivityDto(SOME_TASK_UUID));
+
+    assertThat(callWithAdditionalFields("profile").hasProfile()).isFalse();
+  }
+
+  private WsCe.Task callWithAdditionalFields(String additionalFields) {
+    TestResponse wsResponse = ws.newRequest()
+      .setMediaType(PROTOBUF)
+      .setParam("id", SOME_TASK_UUID)
+      .setParam("additionalFields", additionalFields)
+      .execute();
+    return Protobuf.read(wsResponse.getInputStream(), WsCe.TaskResponse.PARSER).getTask();
+  }
+
   @Test
   public void do_not_return_scannerContext_of_activity_with_scannerContext_when_additionalField_is_not_set() {
     userSession.login("john").setGlobalPermissions(SYSTEM_ADMIN);
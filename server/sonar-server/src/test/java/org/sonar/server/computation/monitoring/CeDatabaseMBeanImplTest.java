@@ -54,9 +54,10 @@ public class CeDatabaseMBeanImplTest {
   public void export_system_info() {
     ProtobufSystemInfo.Section section = underTest.toProtobuf();
     assertThat(section.getName()).isEqualTo("Compute Engine Database Connection");
-    assertThat(section.getAttributesCount()).isEqualTo(9);
+    assertThat(section.getAttributesCount()).isEqualTo(12);
     assertThat(section.getAttributes(0).getKey()).isEqualTo("Pool Initial Size");
     assertThat(section.getAttributes(0).getLongValue()).isGreaterThanOrEqualTo(0);
+    assertThat(section.getAttributes(9).getKey()).isEqualTo("SQL Executions");
   }
 
   @CheckForNull
@@ -0,0 +1,88 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.monitoring;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbTester;
+import org.sonar.db.ce.CeTaskProfile;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CeTaskProfilesTest {
+
+  @Rule
+  public DbTester dbTester = DbTester.create(System2.INSTANCE);
+
+  private CeTaskProfiles underTest = new CeTaskProfiles(dbTester.getDbClient());
+
+  @Test
+  public void persist_profile_of_task() {
+    underTest.record("TASK_1", new CeTaskProfile(singletonList(step("Extract report", 10L))));
+
+    CeTaskProfile profile = dbTester.getDbClient().ceTaskProfileDao().selectByTaskUuid(dbTester.getSession(), "TASK_1").get();
+    assertThat(profile.getSteps()).extracting(CeTaskProfile.Step::getDurationMs).containsExactly(10L);
+  }
+
+  @Test
+  public void persistence_failure_is_ignored() {
+    underTest.record("TASK_1", new CeTaskProfile(singletonList(step("Extract report", 10L))));
+    // primary key violation
+    underTest.record("TASK_1", new CeTaskProfile(singletonList(step("Extract report", 20L))));
+
+    assertThat(underTest.getStepStatistics()).hasSize(1);
+  }
+
+  @Test
+  public void compute_percentiles_per_step() {
+    for (int i = 1; i <= 10; i++) {
+      underTest.record("TASK_" + i, new CeTaskProfile(asList(
+        step("Extract report", i),
+        step("Persist issues", 100L * i).setCpuTimeMs(10L * i).setAllocatedBytes(2_000_000L * i).setSqlStatements(i).setEsDocuments(20L * i))));
+    }
+
+    assertThat(underTest.getStepStatistics()).containsExactly(
+      "Extract report tasks=10 p50=5ms p90=9ms p99=10ms max=10ms cpu.p50=? alloc.p50=? sql.p50=0 es.docs.p50=0",
+      "Persist issues tasks=10 p50=500ms p90=900ms p99=1000ms max=1000ms cpu.p50=50ms alloc.p50=10MB sql.p50=5 es.docs.p50=100");
+  }
+
+  @Test
+  public void keep_only_latest_profiles_in_memory() {
+    for (int i = 0; i < CeTaskProfiles.MAX_RECENT_PROFILES + 10; i++) {
+      underTest.record("TASK_" + i, new CeTaskProfile(singletonList(step("Extract report", i))));
+    }
+
+    assertThat(underTest.getStepStatistics()).containsExactly(
+      "Extract report tasks=100 p50=59ms p90=99ms p99=108ms max=109ms cpu.p50=? alloc.p50=? sql.p50=0 es.docs.p50=0");
+  }
+
+  @Test
+  public void percentile_of_single_value() {
+    assertThat(CeTaskProfiles.percentile(new long[] {42L}, 50)).isEqualTo(42L);
+    assertThat(CeTaskProfiles.percentile(new long[] {42L}, 99)).isEqualTo(42L);
+  }
+
+  private static CeTaskProfile.Step step(String description, long durationMs) {
+    return new CeTaskProfile.Step().setDescription(description).setDurationMs(durationMs);
+  }
+}
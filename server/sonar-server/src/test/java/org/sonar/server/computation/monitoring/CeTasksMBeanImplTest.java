@@ -28,8 +28,12 @@ import org.junit.Test;
 import org.sonar.ce.monitoring.CEQueueStatus;
 import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
 import org.sonar.server.computation.configuration.CeConfiguration;
+import org.sonar.server.computation.task.projectanalysis.issue.RuleSnapshotCache;
 
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class CeTasksMBeanImplTest {
   private static final long PENDING_COUNT = 2;
@@ -39,7 +43,9 @@ public class CeTasksMBeanImplTest {
   private static final long PROCESSING_TIME = 987;
   private static final int WORKER_COUNT = 56;
 
-  private CeTasksMBeanImpl underTest = new CeTasksMBeanImpl(new DumbCEQueueStatus(), new DumbCeConfiguration());
+  private CeTaskProfiles taskProfiles = mock(CeTaskProfiles.class);
+  private RuleSnapshotCache ruleSnapshotCache = mock(RuleSnapshotCache.class);
+  private CeTasksMBeanImpl underTest = new CeTasksMBeanImpl(new DumbCEQueueStatus(), new DumbCeConfiguration(), taskProfiles, ruleSnapshotCache);
 
   @Test
   public void register_and_unregister() throws Exception {
@@ -66,6 +72,22 @@ public class CeTasksMBeanImplTest {
     assertThat(underTest.getWorkerCount()).isEqualTo(WORKER_COUNT);
   }
 
+  @Test
+  public void getStepStatistics_delegates_to_the_CeTaskProfiles_instance() {
+    when(taskProfiles.getStepStatistics()).thenReturn(asList("step1 tasks=2", "step2 tasks=1"));
+
+    assertThat(underTest.getStepStatistics()).containsExactly("step1 tasks=2", "step2 tasks=1");
+  }
+
+  @Test
+  public void rule_cache_counters_delegate_to_the_RuleSnapshotCache_instance() {
+    when(ruleSnapshotCache.getHitCount()).thenReturn(12L);
+    when(ruleSnapshotCache.getRefreshCount()).thenReturn(3L);
+
+    assertThat(underTest.getRuleCacheHitCount()).isEqualTo(12L);
+    assertThat(underTest.getRuleCacheRefreshCount()).isEqualTo(3L);
+  }
+
   @Test
   public void export_system_info() {
     ProtobufSystemInfo.Section section = underTest.toProtobuf();
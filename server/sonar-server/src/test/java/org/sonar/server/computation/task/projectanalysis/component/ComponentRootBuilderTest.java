@@ -480,6 +480,16 @@ public class ComponentRootBuilderTest {
     assertThat(createFileAttributes(newBuilder().setType(FILE).setIsTest(true).build()).isUnitTest()).isTrue();
   }
 
+  @Test
+  public void createFileAttributes_shares_instances_with_same_language_and_unitTest() {
+    FileAttributes javaFile = createFileAttributes(newBuilder().setType(FILE).setLanguage("java").build());
+
+    assertThat(createFileAttributes(newBuilder().setType(FILE).setLanguage("java").build())).isSameAs(javaFile);
+    assertThat(createFileAttributes(newBuilder().setType(FILE).setLanguage("java").setIsTest(true).build())).isNotSameAs(javaFile);
+    assertThat(createFileAttributes(newBuilder().setType(FILE).setLanguage("js").build()).getLanguageKey()).isEqualTo("js");
+    assertThat(createFileAttributes(newBuilder().setType(FILE).build())).isSameAs(createFileAttributes(newBuilder().setType(FILE).build()));
+  }
+
   private static class ScannerComponentProvider extends ExternalResource implements Function<Integer, ScannerReport.Component> {
     private final Map<Integer, ScannerReport.Component> components = new HashMap<>();
 
@@ -61,6 +61,28 @@ public class DbIdsRepositoryImplTest {
     cache.setComponentId(SOME_COMPONENT, 11L);
   }
 
+  @Test
+  public void add_and_get_component_id_of_refs_greater_than_initial_capacity() {
+    Component component = ReportComponent.builder(PROJECT, 100_000).setKey("other").build();
+    DbIdsRepositoryImpl cache = new DbIdsRepositoryImpl();
+    cache.setComponentId(SOME_COMPONENT, 10L);
+    cache.setComponentId(component, 20L);
+
+    assertThat(cache.getComponentId(SOME_COMPONENT)).isEqualTo(10L);
+    assertThat(cache.getComponentId(component)).isEqualTo(20L);
+  }
+
+  @Test
+  public void fail_to_get_component_id_on_ref_greater_than_any_registered() {
+    DbIdsRepositoryImpl cache = new DbIdsRepositoryImpl();
+    cache.setComponentId(SOME_COMPONENT, 10L);
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("No component id registered in repository for Component 'other'");
+
+    cache.getComponentId(ReportComponent.builder(PROJECT, 5_000).setKey("other").build());
+  }
+
   @Test
   public void add_and_get_developer_id() {
     DbIdsRepositoryImpl cache = new DbIdsRepositoryImpl();
@@ -109,6 +109,37 @@ public class TreeRootHolderImplTest {
     underTest.getComponentByRef(6);
   }
 
+  @Test
+  public void getComponentByRef_throws_IAE_if_ref_is_negative() {
+    underTest.setRoot(SOME_REPORT_COMPONENT_TREE);
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Component with ref '-1' can't be found");
+
+    underTest.getComponentByRef(-1);
+  }
+
+  @Test
+  public void getComponentByRef_supports_refs_greater_than_initial_capacity() {
+    Component file = ReportComponent.builder(FILE, 1_000).build();
+    underTest.setRoot(ReportComponent.builder(PROJECT, 1).addChildren(file).build());
+
+    assertThat(underTest.getComponentByRef(1_000)).isSameAs(file);
+    assertThat(underTest.getComponentByRef(1).getType()).isEqualTo(PROJECT);
+  }
+
+  @Test
+  public void getComponentByRef_throws_IAE_if_ref_is_used_by_many_components() {
+    underTest.setRoot(ReportComponent.builder(PROJECT, 1)
+      .addChildren(ReportComponent.builder(FILE, 2).setKey("a").build(), ReportComponent.builder(FILE, 2).setKey("b").build())
+      .build());
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Ref 2 is used by components 'a' and 'b'");
+
+    underTest.getComponentByRef(1);
+  }
+
   @Test
   public void getComponentByRef_throws_IAE_if_holder_contains_View_tree() {
     underTest.setRoot(SOME_VIEWS_COMPONENT_TREE);
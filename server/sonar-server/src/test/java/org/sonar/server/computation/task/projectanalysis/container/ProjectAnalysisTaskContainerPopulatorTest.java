@@ -36,8 +36,17 @@ import org.sonar.core.platform.ComponentContainer;
 import org.sonar.plugin.ce.ReportAnalysisComponentProvider;
 import org.sonar.server.computation.task.container.TaskContainer;
 import org.sonar.server.computation.task.step.StepsExplorer;
+import org.sonar.server.computation.task.projectanalysis.step.CommentMeasuresStep;
+import org.sonar.server.computation.task.projectanalysis.step.ComplexityMeasuresStep;
+import org.sonar.server.computation.task.projectanalysis.step.CoverageMeasuresStep;
+import org.sonar.server.computation.task.projectanalysis.step.DuplicationMeasuresStep;
+import org.sonar.server.computation.task.projectanalysis.step.LanguageDistributionMeasuresStep;
+import org.sonar.server.computation.task.projectanalysis.step.NewCoverageMeasuresStep;
+import org.sonar.server.computation.task.projectanalysis.step.NewSizeMeasuresStep;
 import org.sonar.server.computation.task.projectanalysis.step.PersistComponentsStep;
 import org.sonar.server.computation.task.projectanalysis.step.PersistDevelopersStep;
+import org.sonar.server.computation.task.projectanalysis.step.SizeMeasuresStep;
+import org.sonar.server.computation.task.projectanalysis.step.UnitTestMeasuresStep;
 import org.sonar.server.computation.task.step.ComputationStep;
 
 import static com.google.common.base.Predicates.notNull;
@@ -84,8 +93,19 @@ public class ProjectAnalysisTaskContainerPopulatorTest {
       .transform(StepsExplorer.toCanonicalName())
       .toSet();
 
-    // PersistDevelopersStep is the only step that is not in the report container (it's only added when Dev Cockpit plugin is installed)
-    assertThat(difference(StepsExplorer.retrieveStepPackageStepsCanonicalNames(PROJECTANALYSIS_STEP_PACKAGE), computationStepClassNames)).containsOnly(PersistDevelopersStep.class.getCanonicalName());
+    // PersistDevelopersStep is not in the report container (it's only added when Dev Cockpit plugin is installed)
+    // and the steps based on formulas are executed by FormulaMeasuresStep
+    assertThat(difference(StepsExplorer.retrieveStepPackageStepsCanonicalNames(PROJECTANALYSIS_STEP_PACKAGE), computationStepClassNames)).containsOnly(
+      PersistDevelopersStep.class.getCanonicalName(),
+      SizeMeasuresStep.class.getCanonicalName(),
+      NewCoverageMeasuresStep.class.getCanonicalName(),
+      CoverageMeasuresStep.class.getCanonicalName(),
+      CommentMeasuresStep.class.getCanonicalName(),
+      DuplicationMeasuresStep.class.getCanonicalName(),
+      NewSizeMeasuresStep.class.getCanonicalName(),
+      LanguageDistributionMeasuresStep.class.getCanonicalName(),
+      UnitTestMeasuresStep.class.getCanonicalName(),
+      ComplexityMeasuresStep.class.getCanonicalName());
   }
 
   @Test
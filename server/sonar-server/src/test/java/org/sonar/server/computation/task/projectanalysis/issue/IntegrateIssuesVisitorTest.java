@@ -49,6 +49,7 @@ import org.sonar.server.computation.task.projectanalysis.filemove.MovedFilesRepo
 import org.sonar.server.computation.task.projectanalysis.issue.commonrule.CommonRuleEngineImpl;
 import org.sonar.server.computation.task.projectanalysis.issue.filter.IssueFilter;
 import org.sonar.server.computation.task.projectanalysis.qualityprofile.ActiveRulesHolderRule;
+import org.sonar.server.computation.task.projectanalysis.source.SourceHashRepositoryImpl;
 import org.sonar.server.computation.task.projectanalysis.source.SourceLinesRepositoryRule;
 import org.sonar.server.issue.IssueTesting;
 
@@ -107,7 +108,7 @@ public class IntegrateIssuesVisitorTest {
   MovedFilesRepository movedFilesRepository = mock(MovedFilesRepository.class);
   TrackerExecution tracker = new TrackerExecution(new TrackerBaseInputFactory(baseIssuesLoader, dbTester.getDbClient(), movedFilesRepository),
     new TrackerRawInputFactory(treeRootHolder, reportReader,
-      fileSourceRepository, new CommonRuleEngineImpl(), issueFilter),
+      new SourceHashRepositoryImpl(fileSourceRepository), new CommonRuleEngineImpl(), issueFilter),
     new Tracker<>());
   IssueCache issueCache;
 
@@ -0,0 +1,246 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rule.RuleStatus;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.rule.RuleDao;
+import org.sonar.db.rule.RuleDto;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.sonar.server.computation.task.projectanalysis.issue.RuleSnapshotCache.FULL_RELOAD_PERIOD_MS;
+import static org.sonar.server.computation.task.projectanalysis.issue.RuleSnapshotCache.OVERLAP_MS;
+
+public class RuleSnapshotCacheTest {
+
+  private static final long UPDATED_AT = 1_500_000_000_000L;
+  private static final long NOW = 1_600_000_000_000L;
+
+  private DbClient dbClient = mock(DbClient.class);
+  private DbSession dbSession = mock(DbSession.class);
+  private RuleDao ruleDao = mock(RuleDao.class);
+  private System2 system2 = mock(System2.class);
+
+  private RuleSnapshotCache underTest = new RuleSnapshotCache(dbClient, system2);
+
+  @Before
+  public void setUp() {
+    when(dbClient.openSession(anyBoolean())).thenReturn(dbSession);
+    when(dbClient.ruleDao()).thenReturn(ruleDao);
+    when(system2.now()).thenReturn(NOW);
+  }
+
+  @Test
+  public void first_call_to_get_loads_all_rules() {
+    when(ruleDao.selectAll(dbSession)).thenReturn(asList(newRule(1, "S001", UPDATED_AT), newRule(2, "S002", UPDATED_AT - 10)));
+
+    RuleSnapshotCache.Snapshot snapshot = underTest.get();
+
+    assertThat(snapshot.getVersion()).isEqualTo(1);
+    assertThat(snapshot.getById(1).getKey()).isEqualTo(RuleKey.of("java", "S001"));
+    assertThat(snapshot.getByKey(RuleKey.of("java", "S002")).getId()).isEqualTo(2);
+    assertThat(snapshot.getById(3)).isNull();
+    assertThat(underTest.getRefreshCount()).isEqualTo(1);
+    assertThat(underTest.getHitCount()).isEqualTo(0);
+    verify(ruleDao, never()).selectUpdatedSince(any(DbSession.class), anyLong());
+    verify(dbClient).closeSession(dbSession);
+  }
+
+  @Test
+  public void get_returns_same_snapshot_if_no_rule_has_been_updated() {
+    RuleDto rule = newRule(1, "S001", UPDATED_AT);
+    when(ruleDao.selectAll(dbSession)).thenReturn(singletonList(rule));
+    when(ruleDao.countAll(dbSession)).thenReturn(1);
+    // rules updated during the overlap are always returned again by DB
+    when(ruleDao.selectUpdatedSince(dbSession, UPDATED_AT - OVERLAP_MS)).thenReturn(singletonList(rule));
+
+    RuleSnapshotCache.Snapshot snapshot = underTest.get();
+
+    assertThat(underTest.get()).isSameAs(snapshot);
+    assertThat(underTest.get()).isSameAs(snapshot);
+    assertThat(underTest.getRefreshCount()).isEqualTo(1);
+    assertThat(underTest.getHitCount()).isEqualTo(2);
+    verify(ruleDao, times(1)).selectAll(dbSession);
+  }
+
+  @Test
+  public void get_loads_only_rules_updated_since_latest_snapshot() {
+    when(ruleDao.selectAll(dbSession)).thenReturn(asList(newRule(1, "S001", UPDATED_AT), newRule(2, "S002", UPDATED_AT)));
+    when(ruleDao.countAll(dbSession)).thenReturn(2);
+    RuleSnapshotCache.Snapshot snapshot = underTest.get();
+
+    when(ruleDao.selectUpdatedSince(dbSession, UPDATED_AT - OVERLAP_MS)).thenReturn(singletonList(newRule(2, "S002", UPDATED_AT + 10).setName("renamed")));
+    RuleSnapshotCache.Snapshot refreshed = underTest.get();
+
+    assertThat(refreshed.getVersion()).isEqualTo(2);
+    assertThat(refreshed.getById(1)).isSameAs(snapshot.getById(1));
+    assertThat(refreshed.getById(2).getName()).isEqualTo("renamed");
+    assertThat(refreshed.getByKey(RuleKey.of("java", "S002")).getName()).isEqualTo("renamed");
+    // snapshots are immutable
+    assertThat(snapshot.getById(2).getName()).isEqualTo("name_S002");
+    assertThat(underTest.getRefreshCount()).isEqualTo(2);
+
+    when(ruleDao.selectUpdatedSince(dbSession, UPDATED_AT + 10 - OVERLAP_MS)).thenReturn(emptyList());
+    assertThat(underTest.get()).isSameAs(refreshed);
+    verify(ruleDao).selectUpdatedSince(dbSession, UPDATED_AT + 10 - OVERLAP_MS);
+    verify(ruleDao, times(1)).selectAll(dbSession);
+  }
+
+  @Test
+  public void get_loads_rule_committed_after_a_rule_with_a_greater_update_date() {
+    RuleDto rule1 = newRule(1, "S001", UPDATED_AT);
+    when(ruleDao.selectAll(dbSession)).thenReturn(singletonList(rule1));
+    when(ruleDao.countAll(dbSession)).thenReturn(1);
+    underTest.get();
+
+    // rule 2 has been updated before rule 1 but committed after
+    RuleDto rule2 = newRule(2, "S002", UPDATED_AT - 1_000).setStatus(RuleStatus.REMOVED);
+    when(ruleDao.selectUpdatedSince(dbSession, UPDATED_AT - OVERLAP_MS)).thenReturn(asList(rule1, rule2));
+    when(ruleDao.countAll(dbSession)).thenReturn(2);
+    RuleSnapshotCache.Snapshot refreshed = underTest.get();
+
+    assertThat(refreshed.getVersion()).isEqualTo(2);
+    assertThat(refreshed.getById(2).getStatus()).isEqualTo(RuleStatus.REMOVED);
+    assertThat(underTest.getHitCount()).isEqualTo(0);
+    verify(ruleDao, times(1)).selectAll(dbSession);
+  }
+
+  @Test
+  public void get_reloads_all_rules_when_count_differs_from_DB() {
+    when(ruleDao.selectAll(dbSession)).thenReturn(singletonList(newRule(1, "S001", UPDATED_AT)));
+    when(ruleDao.countAll(dbSession)).thenReturn(1);
+    underTest.get();
+
+    // rule 2 has been committed with a date older than the overlap
+    when(ruleDao.selectAll(dbSession)).thenReturn(asList(newRule(1, "S001", UPDATED_AT), newRule(2, "S002", UPDATED_AT - OVERLAP_MS - 1)));
+    when(ruleDao.selectUpdatedSince(dbSession, UPDATED_AT - OVERLAP_MS)).thenReturn(emptyList());
+    when(ruleDao.countAll(dbSession)).thenReturn(2);
+    RuleSnapshotCache.Snapshot reloaded = underTest.get();
+
+    assertThat(reloaded.getVersion()).isEqualTo(2);
+    assertThat(reloaded.getById(2)).isNotNull();
+    verify(ruleDao, times(2)).selectAll(dbSession);
+  }
+
+  @Test
+  public void get_reloads_all_rules_periodically() {
+    when(ruleDao.selectAll(dbSession)).thenReturn(singletonList(newRule(1, "S001", UPDATED_AT)));
+    when(ruleDao.countAll(dbSession)).thenReturn(1);
+    when(ruleDao.selectUpdatedSince(dbSession, UPDATED_AT - OVERLAP_MS)).thenReturn(emptyList());
+    underTest.get();
+
+    when(system2.now()).thenReturn(NOW + FULL_RELOAD_PERIOD_MS - 1);
+    underTest.get();
+    verify(ruleDao, times(1)).selectAll(dbSession);
+
+    // an update older than the overlap has been committed, with the same number of rules
+    when(ruleDao.selectAll(dbSession)).thenReturn(singletonList(newRule(1, "S001", UPDATED_AT - OVERLAP_MS - 1).setName("renamed")));
+    when(system2.now()).thenReturn(NOW + FULL_RELOAD_PERIOD_MS);
+    RuleSnapshotCache.Snapshot reloaded = underTest.get();
+
+    assertThat(reloaded.getById(1).getName()).isEqualTo("renamed");
+    verify(ruleDao, times(2)).selectAll(dbSession);
+  }
+
+  @Test
+  public void get_does_not_hold_lock_while_checking_updated_rules() throws Exception {
+    RuleDto rule = newRule(1, "S001", UPDATED_AT);
+    when(ruleDao.selectAll(dbSession)).thenReturn(singletonList(rule));
+    when(ruleDao.countAll(dbSession)).thenReturn(1);
+    RuleSnapshotCache.Snapshot snapshot = underTest.get();
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    AtomicBoolean firstCheck = new AtomicBoolean(true);
+    try {
+      when(ruleDao.selectUpdatedSince(dbSession, UPDATED_AT - OVERLAP_MS)).thenAnswer(invocation -> {
+        if (firstCheck.getAndSet(false)) {
+          // another caller checks updated rules while this one is waiting for the DB
+          assertThat(executor.submit(underTest::get).get(10, TimeUnit.SECONDS)).isSameAs(snapshot);
+        }
+        return singletonList(rule);
+      });
+
+      assertThat(underTest.get()).isSameAs(snapshot);
+    } finally {
+      executor.shutdownNow();
+    }
+    assertThat(underTest.getHitCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void updated_rule_replaces_previous_key() {
+    when(ruleDao.selectAll(dbSession)).thenReturn(singletonList(newRule(1, "S001", UPDATED_AT)));
+    when(ruleDao.countAll(dbSession)).thenReturn(1);
+    underTest.get();
+
+    when(ruleDao.selectUpdatedSince(dbSession, UPDATED_AT - OVERLAP_MS)).thenReturn(singletonList(newRule(1, "S001_renamed", UPDATED_AT + 10)));
+    RuleSnapshotCache.Snapshot refreshed = underTest.get();
+
+    assertThat(refreshed.getByKey(RuleKey.of("java", "S001"))).isNull();
+    assertThat(refreshed.getByKey(RuleKey.of("java", "S001_renamed")).getId()).isEqualTo(1);
+  }
+
+  @Test
+  public void repository_keys_and_tags_are_shared_by_rules() {
+    when(ruleDao.selectAll(dbSession)).thenReturn(asList(
+      newRule(1, "S001", UPDATED_AT).setTags(singleton("performance")),
+      newRule(2, "S002", UPDATED_AT).setTags(singleton("performance"))));
+
+    RuleSnapshotCache.Snapshot snapshot = underTest.get();
+
+    Rule rule1 = snapshot.getById(1);
+    Rule rule2 = snapshot.getById(2);
+    assertThat(rule1.getKey().repository()).isSameAs(rule2.getKey().repository());
+    assertThat(rule1.getTags().iterator().next()).isSameAs(rule2.getTags().iterator().next());
+  }
+
+  private static RuleDto newRule(int id, String ruleKey, long updatedAt) {
+    return new RuleDto()
+      .setId(id)
+      .setRepositoryKey(new String("java"))
+      .setRuleKey(ruleKey)
+      .setName("name_" + ruleKey)
+      .setStatus(RuleStatus.READY)
+      .setType(RuleType.CODE_SMELL)
+      .setUpdatedAt(updatedAt);
+  }
+}
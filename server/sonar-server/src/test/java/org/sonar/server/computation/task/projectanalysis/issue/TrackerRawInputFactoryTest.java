@@ -37,6 +37,7 @@ import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
 import org.sonar.server.computation.task.projectanalysis.issue.commonrule.CommonRuleEngine;
 import org.sonar.server.computation.task.projectanalysis.issue.filter.IssueFilter;
+import org.sonar.server.computation.task.projectanalysis.source.SourceHashRepositoryImpl;
 import org.sonar.server.computation.task.projectanalysis.source.SourceLinesRepositoryRule;
 import org.sonar.server.rule.CommonRuleKeys;
 
@@ -67,7 +68,8 @@ public class TrackerRawInputFactoryTest {
 
   IssueFilter issueFilter = mock(IssueFilter.class);
 
-  TrackerRawInputFactory underTest = new TrackerRawInputFactory(treeRootHolder, reportReader, fileSourceRepository, commonRuleEngine, issueFilter);
+  TrackerRawInputFactory underTest = new TrackerRawInputFactory(treeRootHolder, reportReader, new SourceHashRepositoryImpl(fileSourceRepository),
+    commonRuleEngine, issueFilter);
 
   @Test
   public void load_source_hash_sequences() throws Exception {
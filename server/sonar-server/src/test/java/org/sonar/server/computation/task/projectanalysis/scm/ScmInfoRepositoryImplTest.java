@@ -32,6 +32,7 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.sonar.api.utils.System2;
+import org.sonar.api.utils.TempFolder;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.core.hash.SourceHashComputer;
 import org.sonar.db.DbClient;
@@ -86,7 +87,7 @@ public class ScmInfoRepositoryImplTest {
   DbClient dbClient = dbTester.getDbClient();
 
   ScmInfoRepositoryImpl underTest = new ScmInfoRepositoryImpl(reportReader, analysisMetadataHolder, dbClient,
-    new SourceHashRepositoryImpl(new SourceLinesRepositoryImpl(reportReader)));
+    new SourceHashRepositoryImpl(new SourceLinesRepositoryImpl(reportReader, dbClient, mock(TempFolder.class))));
 
   @Test
   public void read_from_report() throws Exception {
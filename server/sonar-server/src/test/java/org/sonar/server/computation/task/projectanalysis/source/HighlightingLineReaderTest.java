@@ -32,6 +32,7 @@ import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.scanner.protocol.output.ScannerReport.SyntaxHighlightingRule.HighlightingType;
 import org.sonar.scanner.protocol.output.ScannerReport.TextRange;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.source.RangeOffsetConverter.OffsetRange;
 import org.sonar.server.computation.task.projectanalysis.source.RangeOffsetConverter.RangeOffsetConverterException;
 
 import static com.google.common.collect.ImmutableMap.of;
@@ -48,6 +49,7 @@ import static org.sonar.scanner.protocol.output.ScannerReport.SyntaxHighlighting
 import static org.sonar.scanner.protocol.output.ScannerReport.SyntaxHighlightingRule.HighlightingType.HIGHLIGHTING_STRING;
 import static org.sonar.scanner.protocol.output.ScannerReport.SyntaxHighlightingRule.HighlightingType.KEYWORD;
 import static org.sonar.server.computation.task.projectanalysis.component.ReportComponent.builder;
+import static org.sonar.server.source.index.FileSourceTesting.highlightingOf;
 
 public class HighlightingLineReaderTest {
 
@@ -69,6 +71,12 @@ public class HighlightingLineReaderTest {
   static final String RANGE_LABEL_4 = "0,2";
   static final String RANGE_LABEL_5 = "0,3";
 
+  static final OffsetRange RANGE_1 = new OffsetRange(1, 2);
+  static final OffsetRange RANGE_2 = new OffsetRange(2, 3);
+  static final OffsetRange RANGE_3 = new OffsetRange(3, 4);
+  static final OffsetRange RANGE_4 = new OffsetRange(0, 2);
+  static final OffsetRange RANGE_5 = new OffsetRange(0, 3);
+
   RangeOffsetConverter rangeOffsetConverter = mock(RangeOffsetConverter.class);
 
   DbFileSources.Data.Builder sourceData = newBuilder();
@@ -84,34 +92,34 @@ public class HighlightingLineReaderTest {
     DbFileSources.Line.Builder lineBuilder = newBuilder().addLinesBuilder().setLine(1);
     highlightingLineReader.read(lineBuilder);
 
-    assertThat(lineBuilder.hasHighlighting()).isFalse();
+    assertThat(highlightingOf(lineBuilder)).isEmpty();
   }
 
   @Test
   public void read_one_line() {
     HighlightingLineReader highlightingLineReader = newReader(of(
-      newSingleLineTextRangeWithExpectingLabel(LINE_1, RANGE_LABEL_1), ANNOTATION));
+      newSingleLineTextRangeWithExpectingLabel(LINE_1, RANGE_1), ANNOTATION));
 
     highlightingLineReader.read(line1);
 
-    assertThat(line1.getHighlighting()).isEqualTo(RANGE_LABEL_1 + ",a");
+    assertThat(highlightingOf(line1)).isEqualTo(RANGE_LABEL_1 + ",a");
   }
 
   @Test
   public void read_many_lines() {
     HighlightingLineReader highlightingLineReader = newReader(of(
-      newSingleLineTextRangeWithExpectingLabel(LINE_1, RANGE_LABEL_1), ANNOTATION,
-      newSingleLineTextRangeWithExpectingLabel(LINE_2, RANGE_LABEL_2), COMMENT,
-      newSingleLineTextRangeWithExpectingLabel(LINE_4, RANGE_LABEL_3), CONSTANT));
+      newSingleLineTextRangeWithExpectingLabel(LINE_1, RANGE_1), ANNOTATION,
+      newSingleLineTextRangeWithExpectingLabel(LINE_2, RANGE_2), COMMENT,
+      newSingleLineTextRangeWithExpectingLabel(LINE_4, RANGE_3), CONSTANT));
 
     highlightingLineReader.read(line1);
     highlightingLineReader.read(line2);
     highlightingLineReader.read(line3);
     highlightingLineReader.read(line4);
 
-    assertThat(line1.getHighlighting()).isEqualTo(RANGE_LABEL_1 + ",a");
-    assertThat(line2.getHighlighting()).isEqualTo(RANGE_LABEL_2 + ",cd");
-    assertThat(line4.getHighlighting()).isEqualTo(RANGE_LABEL_3 + ",c");
+    assertThat(highlightingOf(line1)).isEqualTo(RANGE_LABEL_1 + ",a");
+    assertThat(highlightingOf(line2)).isEqualTo(RANGE_LABEL_2 + ",cd");
+    assertThat(highlightingOf(line4)).isEqualTo(RANGE_LABEL_3 + ",c");
   }
 
   @Test
@@ -167,21 +175,21 @@ public class HighlightingLineReaderTest {
   @Test
   public void read_many_syntax_highlighting_on_same_line() {
     HighlightingLineReader highlightingLineReader = newReader(of(
-      newSingleLineTextRangeWithExpectingLabel(LINE_1, RANGE_LABEL_1), ANNOTATION,
-      newSingleLineTextRangeWithExpectingLabel(LINE_1, RANGE_LABEL_2), COMMENT));
+      newSingleLineTextRangeWithExpectingLabel(LINE_1, RANGE_1), ANNOTATION,
+      newSingleLineTextRangeWithExpectingLabel(LINE_1, RANGE_2), COMMENT));
 
     highlightingLineReader.read(line1);
 
-    assertThat(line1.getHighlighting()).isEqualTo(RANGE_LABEL_1 + ",a;" + RANGE_LABEL_2 + ",cd");
+    assertThat(highlightingOf(line1)).isEqualTo(RANGE_LABEL_1 + ",a;" + RANGE_LABEL_2 + ",cd");
   }
 
   @Test
   public void read_one_syntax_highlighting_on_many_lines() {
     // This highlighting begin on line 1 and finish on line 3
     TextRange textRange = newTextRange(LINE_1, LINE_3);
-    when(rangeOffsetConverter.offsetToString(textRange, LINE_1, DEFAULT_LINE_LENGTH)).thenReturn(RANGE_LABEL_1);
-    when(rangeOffsetConverter.offsetToString(textRange, LINE_2, 6)).thenReturn(RANGE_LABEL_2);
-    when(rangeOffsetConverter.offsetToString(textRange, LINE_3, DEFAULT_LINE_LENGTH)).thenReturn(RANGE_LABEL_3);
+    when(rangeOffsetConverter.toOffsetRange(textRange, LINE_1, DEFAULT_LINE_LENGTH)).thenReturn(RANGE_1);
+    when(rangeOffsetConverter.toOffsetRange(textRange, LINE_2, 6)).thenReturn(RANGE_2);
+    when(rangeOffsetConverter.toOffsetRange(textRange, LINE_3, DEFAULT_LINE_LENGTH)).thenReturn(RANGE_3);
 
     HighlightingLineReader highlightingLineReader = newReader(of(textRange, ANNOTATION));
 
@@ -190,25 +198,25 @@ public class HighlightingLineReaderTest {
     highlightingLineReader.read(line2);
     highlightingLineReader.read(line3);
 
-    assertThat(line1.getHighlighting()).isEqualTo(RANGE_LABEL_1 + ",a");
-    assertThat(line2.getHighlighting()).isEqualTo(RANGE_LABEL_2 + ",a");
-    assertThat(line3.getHighlighting()).isEqualTo(RANGE_LABEL_3 + ",a");
+    assertThat(highlightingOf(line1)).isEqualTo(RANGE_LABEL_1 + ",a");
+    assertThat(highlightingOf(line2)).isEqualTo(RANGE_LABEL_2 + ",a");
+    assertThat(highlightingOf(line3)).isEqualTo(RANGE_LABEL_3 + ",a");
   }
 
   @Test
   public void read_many_syntax_highlighting_on_many_lines() {
     TextRange textRange1 = newTextRange(LINE_1, LINE_3);
-    when(rangeOffsetConverter.offsetToString(textRange1, LINE_1, DEFAULT_LINE_LENGTH)).thenReturn(RANGE_LABEL_1);
-    when(rangeOffsetConverter.offsetToString(textRange1, LINE_2, DEFAULT_LINE_LENGTH)).thenReturn(RANGE_LABEL_2);
-    when(rangeOffsetConverter.offsetToString(textRange1, LINE_3, DEFAULT_LINE_LENGTH)).thenReturn(RANGE_LABEL_3);
+    when(rangeOffsetConverter.toOffsetRange(textRange1, LINE_1, DEFAULT_LINE_LENGTH)).thenReturn(RANGE_1);
+    when(rangeOffsetConverter.toOffsetRange(textRange1, LINE_2, DEFAULT_LINE_LENGTH)).thenReturn(RANGE_2);
+    when(rangeOffsetConverter.toOffsetRange(textRange1, LINE_3, DEFAULT_LINE_LENGTH)).thenReturn(RANGE_3);
 
     TextRange textRange2 = newTextRange(LINE_2, LINE_4);
-    when(rangeOffsetConverter.offsetToString(textRange2, LINE_2, DEFAULT_LINE_LENGTH)).thenReturn(RANGE_LABEL_2);
-    when(rangeOffsetConverter.offsetToString(textRange2, LINE_3, DEFAULT_LINE_LENGTH)).thenReturn(RANGE_LABEL_2);
-    when(rangeOffsetConverter.offsetToString(textRange2, LINE_4, DEFAULT_LINE_LENGTH)).thenReturn(RANGE_LABEL_4);
+    when(rangeOffsetConverter.toOffsetRange(textRange2, LINE_2, DEFAULT_LINE_LENGTH)).thenReturn(RANGE_2);
+    when(rangeOffsetConverter.toOffsetRange(textRange2, LINE_3, DEFAULT_LINE_LENGTH)).thenReturn(RANGE_2);
+    when(rangeOffsetConverter.toOffsetRange(textRange2, LINE_4, DEFAULT_LINE_LENGTH)).thenReturn(RANGE_4);
 
     TextRange textRange3 = newTextRange(LINE_2, LINE_2);
-    when(rangeOffsetConverter.offsetToString(textRange3, LINE_2, DEFAULT_LINE_LENGTH)).thenReturn(RANGE_LABEL_5);
+    when(rangeOffsetConverter.toOffsetRange(textRange3, LINE_2, DEFAULT_LINE_LENGTH)).thenReturn(RANGE_5);
 
     HighlightingLineReader highlightingLineReader = newReader(of(
       textRange1, ANNOTATION,
@@ -220,17 +228,17 @@ public class HighlightingLineReaderTest {
     highlightingLineReader.read(line3);
     highlightingLineReader.read(line4);
 
-    assertThat(line1.getHighlighting()).isEqualTo(RANGE_LABEL_1 + ",a");
-    assertThat(line2.getHighlighting()).isEqualTo(RANGE_LABEL_2 + ",a;" + RANGE_LABEL_2 + ",s;" + RANGE_LABEL_5 + ",cd");
-    assertThat(line3.getHighlighting()).isEqualTo(RANGE_LABEL_3 + ",a;" + RANGE_LABEL_2 + ",s");
-    assertThat(line4.getHighlighting()).isEqualTo(RANGE_LABEL_4 + ",s");
+    assertThat(highlightingOf(line1)).isEqualTo(RANGE_LABEL_1 + ",a");
+    assertThat(highlightingOf(line2)).isEqualTo(RANGE_LABEL_2 + ",a;" + RANGE_LABEL_2 + ",s;" + RANGE_LABEL_5 + ",cd");
+    assertThat(highlightingOf(line3)).isEqualTo(RANGE_LABEL_3 + ",a;" + RANGE_LABEL_2 + ",s");
+    assertThat(highlightingOf(line4)).isEqualTo(RANGE_LABEL_4 + ",s");
   }
 
   @Test
   public void read_highlighting_declared_on_a_whole_line() {
     TextRange textRange = newTextRange(LINE_1, LINE_2);
-    when(rangeOffsetConverter.offsetToString(textRange, LINE_1, DEFAULT_LINE_LENGTH)).thenReturn(RANGE_LABEL_1);
-    when(rangeOffsetConverter.offsetToString(textRange, LINE_2, DEFAULT_LINE_LENGTH)).thenReturn("");
+    when(rangeOffsetConverter.toOffsetRange(textRange, LINE_1, DEFAULT_LINE_LENGTH)).thenReturn(RANGE_1);
+    when(rangeOffsetConverter.toOffsetRange(textRange, LINE_2, DEFAULT_LINE_LENGTH)).thenReturn(null);
 
     HighlightingLineReader highlightingLineReader = newReader(of(textRange, ANNOTATION));
 
@@ -238,20 +246,20 @@ public class HighlightingLineReaderTest {
     highlightingLineReader.read(line2);
     highlightingLineReader.read(line3);
 
-    assertThat(line1.getHighlighting()).isEqualTo(RANGE_LABEL_1 + ",a");
+    assertThat(highlightingOf(line1)).isEqualTo(RANGE_LABEL_1 + ",a");
     // Nothing should be set on line 2
-    assertThat(line2.getHighlighting()).isEmpty();
-    assertThat(line3.getHighlighting()).isEmpty();
+    assertThat(highlightingOf(line2)).isEmpty();
+    assertThat(highlightingOf(line3)).isEmpty();
   }
 
   @Test
   public void not_fail_and_stop_processing_when_range_offset_converter_throw_RangeOffsetConverterException() {
     TextRange textRange1 = newTextRange(LINE_1, LINE_1);
-    doThrow(RangeOffsetConverterException.class).when(rangeOffsetConverter).offsetToString(textRange1, LINE_1, DEFAULT_LINE_LENGTH);
+    doThrow(RangeOffsetConverterException.class).when(rangeOffsetConverter).toOffsetRange(textRange1, LINE_1, DEFAULT_LINE_LENGTH);
 
     HighlightingLineReader highlightingLineReader = newReader(of(
       textRange1, HighlightingType.ANNOTATION,
-      newSingleLineTextRangeWithExpectingLabel(LINE_2, RANGE_LABEL_1), HIGHLIGHTING_STRING));
+      newSingleLineTextRangeWithExpectingLabel(LINE_2, RANGE_1), HIGHLIGHTING_STRING));
 
     highlightingLineReader.read(line1);
     highlightingLineReader.read(line2);
@@ -263,24 +271,39 @@ public class HighlightingLineReaderTest {
   @Test
   public void keep_existing_processed_highlighting_when_range_offset_converter_throw_RangeOffsetConverterException() {
     TextRange textRange2 = newTextRange(LINE_2, LINE_2);
-    doThrow(RangeOffsetConverterException.class).when(rangeOffsetConverter).offsetToString(textRange2, LINE_2, DEFAULT_LINE_LENGTH);
+    doThrow(RangeOffsetConverterException.class).when(rangeOffsetConverter).toOffsetRange(textRange2, LINE_2, DEFAULT_LINE_LENGTH);
 
     HighlightingLineReader highlightingLineReader = newReader(of(
-      newSingleLineTextRangeWithExpectingLabel(LINE_1, RANGE_LABEL_1), ANNOTATION,
+      newSingleLineTextRangeWithExpectingLabel(LINE_1, RANGE_1), ANNOTATION,
       textRange2, HIGHLIGHTING_STRING));
 
     highlightingLineReader.read(line1);
     highlightingLineReader.read(line2);
 
-    assertThat(line1.hasHighlighting()).isTrue();
-    assertThat(line2.hasHighlighting()).isFalse();
+    assertThat(highlightingOf(line1)).isNotEmpty();
+    assertThat(highlightingOf(line2)).isEmpty();
+    assertThat(logTester.logs(WARN)).isNotEmpty();
+  }
+
+  @Test
+  public void do_not_keep_highlighting_of_line_processed_before_RangeOffsetConverterException() {
+    TextRange textRange2 = newTextRange(LINE_1, LINE_1);
+    doThrow(RangeOffsetConverterException.class).when(rangeOffsetConverter).toOffsetRange(textRange2, LINE_1, DEFAULT_LINE_LENGTH);
+
+    HighlightingLineReader highlightingLineReader = newReader(of(
+      newSingleLineTextRangeWithExpectingLabel(LINE_1, RANGE_1), ANNOTATION,
+      textRange2, HIGHLIGHTING_STRING));
+
+    highlightingLineReader.read(line1);
+
+    assertThat(highlightingOf(line1)).isEmpty();
     assertThat(logTester.logs(WARN)).isNotEmpty();
   }
 
   @Test
   public void display_file_key_in_warning_when_range_offset_converter_throw_RangeOffsetConverterException() {
     TextRange textRange1 = newTextRange(LINE_1, LINE_1);
-    doThrow(RangeOffsetConverterException.class).when(rangeOffsetConverter).offsetToString(textRange1, LINE_1, DEFAULT_LINE_LENGTH);
+    doThrow(RangeOffsetConverterException.class).when(rangeOffsetConverter).toOffsetRange(textRange1, LINE_1, DEFAULT_LINE_LENGTH);
     HighlightingLineReader highlightingLineReader = newReader(of(textRange1, ANNOTATION));
 
     highlightingLineReader.read(line1);
@@ -308,17 +331,17 @@ public class HighlightingLineReaderTest {
       .build();
   }
 
-  private TextRange newSingleLineTextRangeWithExpectingLabel(int line, String rangeLabel) {
+  private TextRange newSingleLineTextRangeWithExpectingLabel(int line, OffsetRange range) {
     TextRange textRange = newTextRange(line, line);
-    when(rangeOffsetConverter.offsetToString(textRange, line, DEFAULT_LINE_LENGTH)).thenReturn(rangeLabel);
+    when(rangeOffsetConverter.toOffsetRange(textRange, line, DEFAULT_LINE_LENGTH)).thenReturn(range);
     return textRange;
   }
 
   private void assertNoHighlighting() {
-    assertThat(line1.hasHighlighting()).isFalse();
-    assertThat(line2.hasHighlighting()).isFalse();
-    assertThat(line3.hasHighlighting()).isFalse();
-    assertThat(line4.hasHighlighting()).isFalse();
+    assertThat(highlightingOf(line1)).isEmpty();
+    assertThat(highlightingOf(line2)).isEmpty();
+    assertThat(highlightingOf(line3)).isEmpty();
+    assertThat(highlightingOf(line4)).isEmpty();
   }
 
 }
@@ -23,6 +23,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.sonar.scanner.protocol.output.ScannerReport;
+import org.sonar.server.computation.task.projectanalysis.source.RangeOffsetConverter.OffsetRange;
 import org.sonar.server.computation.task.projectanalysis.source.RangeOffsetConverter.RangeOffsetConverterException;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -48,44 +49,44 @@ public class RangeOffsetConverterTest {
 
   @Test
   public void return_range() {
-    assertThat(underTest.offsetToString(createTextRange(LINE_1, LINE_1, OFFSET_2, OFFSET_3),
+    assertThat(underTest.toOffsetRange(createTextRange(LINE_1, LINE_1, OFFSET_2, OFFSET_3),
       LINE_1, DEFAULT_LINE_LENGTH))
-      .isEqualTo(OFFSET_2 + "," + OFFSET_3);
+      .isEqualToComparingFieldByField(new OffsetRange(OFFSET_2, OFFSET_3));
   }
 
   @Test
   public void return_range_not_finishing_in_current_line() {
-    assertThat(underTest.offsetToString(createTextRange(LINE_1, LINE_3, OFFSET_2, OFFSET_3),
+    assertThat(underTest.toOffsetRange(createTextRange(LINE_1, LINE_3, OFFSET_2, OFFSET_3),
       LINE_1, DEFAULT_LINE_LENGTH))
-      .isEqualTo(OFFSET_2 + "," + DEFAULT_LINE_LENGTH);
+      .isEqualToComparingFieldByField(new OffsetRange(OFFSET_2, DEFAULT_LINE_LENGTH));
   }
 
   @Test
   public void return_range_that_began_in_previous_line_and_finish_in_current_line() {
-    assertThat(underTest.offsetToString(createTextRange(LINE_1, LINE_3, OFFSET_2, OFFSET_3),
+    assertThat(underTest.toOffsetRange(createTextRange(LINE_1, LINE_3, OFFSET_2, OFFSET_3),
       LINE_3, DEFAULT_LINE_LENGTH))
-      .isEqualTo(OFFSET_0 + "," + OFFSET_3);
+      .isEqualToComparingFieldByField(new OffsetRange(OFFSET_0, OFFSET_3));
   }
 
   @Test
   public void return_range_that_began_in_previous_line_and_not_finishing_in_current_line() {
-    assertThat(underTest.offsetToString(createTextRange(LINE_1, LINE_1, OFFSET_2, OFFSET_3),
+    assertThat(underTest.toOffsetRange(createTextRange(LINE_1, LINE_1, OFFSET_2, OFFSET_3),
       LINE_2, DEFAULT_LINE_LENGTH))
-      .isEqualTo(OFFSET_0 + "," + DEFAULT_LINE_LENGTH);
+      .isEqualToComparingFieldByField(new OffsetRange(OFFSET_0, DEFAULT_LINE_LENGTH));
   }
 
   @Test
-  public void return_empty_string_when_offset_is_empty() {
-    assertThat(underTest.offsetToString(createTextRange(LINE_1, LINE_1, OFFSET_0, OFFSET_0),
+  public void return_null_when_offset_is_empty() {
+    assertThat(underTest.toOffsetRange(createTextRange(LINE_1, LINE_1, OFFSET_0, OFFSET_0),
       LINE_1, DEFAULT_LINE_LENGTH))
-      .isEmpty();
+      .isNull();
   }
 
   @Test
   public void return_whole_line_offset_when_range_begin_at_first_character_and_ends_at_first_character_of_next_line() {
-    assertThat(underTest.offsetToString(createTextRange(LINE_1, LINE_2, OFFSET_0, OFFSET_0),
+    assertThat(underTest.toOffsetRange(createTextRange(LINE_1, LINE_2, OFFSET_0, OFFSET_0),
       LINE_1, DEFAULT_LINE_LENGTH))
-      .isEqualTo(OFFSET_0 + "," + DEFAULT_LINE_LENGTH);
+      .isEqualToComparingFieldByField(new OffsetRange(OFFSET_0, DEFAULT_LINE_LENGTH));
   }
 
   @Test
@@ -93,7 +94,7 @@ public class RangeOffsetConverterTest {
     thrown.expect(RangeOffsetConverterException.class);
     thrown.expectMessage("End offset 2 cannot be defined before start offset 4 on line 1");
 
-    underTest.offsetToString(createTextRange(LINE_1, LINE_1, OFFSET_4, OFFSET_2),
+    underTest.toOffsetRange(createTextRange(LINE_1, LINE_1, OFFSET_4, OFFSET_2),
       LINE_1, DEFAULT_LINE_LENGTH);
   }
 
@@ -102,7 +103,7 @@ public class RangeOffsetConverterTest {
     thrown.expect(RangeOffsetConverterException.class);
     thrown.expectMessage("End offset 10 is defined outside the length (5) of the line 1");
 
-    underTest.offsetToString(createTextRange(LINE_1, LINE_1, OFFSET_4, BIG_OFFSET),
+    underTest.toOffsetRange(createTextRange(LINE_1, LINE_1, OFFSET_4, BIG_OFFSET),
       LINE_1, DEFAULT_LINE_LENGTH);
   }
 
@@ -111,7 +112,7 @@ public class RangeOffsetConverterTest {
     thrown.expect(RangeOffsetConverterException.class);
     thrown.expectMessage("Start offset 10 is defined outside the length (5) of the line 1");
 
-    underTest.offsetToString(createTextRange(LINE_1, LINE_1, BIG_OFFSET, BIG_OFFSET + 1),
+    underTest.toOffsetRange(createTextRange(LINE_1, LINE_1, BIG_OFFSET, BIG_OFFSET + 1),
       LINE_1, DEFAULT_LINE_LENGTH);
   }
 
@@ -26,12 +26,14 @@ import com.tngtech.java.junit.dataprovider.DataProvider;
 import com.tngtech.java.junit.dataprovider.DataProviderRunner;
 import com.tngtech.java.junit.dataprovider.UseDataProvider;
 import java.util.Arrays;
+import java.util.List;
 import javax.annotation.Nullable;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.sonar.core.hash.SourceHashComputer;
+import org.sonar.core.hash.SourceLinesHashesComputer;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
@@ -146,4 +148,64 @@ public class SourceHashRepositoryImplTest {
 
     mockedUnderTest.getRawSourceHash(FILE_COMPONENT);
   }
+
+  @Test
+  public void getLineHashes_returns_hashes_of_lines_from_SourceLinesRepository() {
+    sourceLinesRepository.addLines(FILE_REF, "line 1", "", " \t ", "line 4");
+
+    SourceLinesHashesComputer linesHashesComputer = new SourceLinesHashesComputer();
+    for (String line : new String[] {"line 1", "", " \t ", "line 4"}) {
+      linesHashesComputer.addLine(line);
+    }
+
+    assertThat(underTest.getLineHashes(FILE_COMPONENT)).isEqualTo(linesHashesComputer.getLineHashes());
+  }
+
+  @Test
+  public void getLineHashes_throws_IAE_if_Component_argument_is_not_FILE() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("File source information can only be retrieved from FILE components (got PROJECT)");
+
+    underTest.getLineHashes(ReportComponent.builder(Component.Type.PROJECT, 1).setKey("project key").build());
+  }
+
+  @Test
+  public void getRawSourceHash_and_getLineHashes_read_lines_from_SourceLinesRepository_only_once() {
+    when(mockedSourceLinesRepository.readLines(FILE_COMPONENT)).thenReturn(CloseableIterator.from(Arrays.asList(SOME_LINES).iterator()));
+
+    mockedUnderTest.getLineHashes(FILE_COMPONENT);
+    mockedUnderTest.getRawSourceHash(FILE_COMPONENT);
+    mockedUnderTest.getLineHashes(FILE_COMPONENT);
+
+    verify(mockedSourceLinesRepository, times(1)).readLines(FILE_COMPONENT);
+  }
+
+  @Test
+  public void getLineHashes_returns_cached_hashes_as_is() {
+    when(mockedSourceLinesRepository.readLines(FILE_COMPONENT)).thenReturn(CloseableIterator.from(Arrays.asList(SOME_LINES).iterator()));
+
+    List<String> lineHashes = mockedUnderTest.getLineHashes(FILE_COMPONENT);
+
+    assertThat(mockedUnderTest.getLineHashes(FILE_COMPONENT)).isSameAs(lineHashes);
+  }
+
+  @Test
+  public void getLineHashes_reads_lines_again_when_line_hashes_have_been_dropped_from_cache() {
+    Component otherFile = ReportComponent.builder(Component.Type.FILE, FILE_REF + 1).setKey("other file key").build();
+    when(mockedSourceLinesRepository.readLines(FILE_COMPONENT)).thenReturn(
+      CloseableIterator.from(Arrays.asList(SOME_LINES).iterator()),
+      CloseableIterator.from(Arrays.asList(SOME_LINES).iterator()));
+    when(mockedSourceLinesRepository.readLines(otherFile)).thenReturn(CloseableIterator.from(Arrays.asList(SOME_LINES).iterator()));
+    SourceHashRepositoryImpl underTest = new SourceHashRepositoryImpl(mockedSourceLinesRepository, SOME_LINES.length);
+
+    List<String> lineHashes = underTest.getLineHashes(FILE_COMPONENT);
+    underTest.getLineHashes(otherFile);
+
+    // source hash is always kept
+    underTest.getRawSourceHash(FILE_COMPONENT);
+    verify(mockedSourceLinesRepository, times(1)).readLines(FILE_COMPONENT);
+
+    assertThat(underTest.getLineHashes(FILE_COMPONENT)).isEqualTo(lineHashes);
+    verify(mockedSourceLinesRepository, times(2)).readLines(FILE_COMPONENT);
+  }
 }
@@ -22,7 +22,12 @@ package org.sonar.server.computation.task.projectanalysis.source;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.internal.JUnitTempFolder;
 import org.sonar.core.util.CloseableIterator;
+import org.sonar.db.DbTester;
+import org.sonar.db.protobuf.DbFileSources;
+import org.sonar.db.source.FileSourceDto;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReaderRule;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
@@ -47,7 +52,13 @@ public class SourceLinesRepositoryImplTest {
   @Rule
   public BatchReportReaderRule reportReader = new BatchReportReaderRule();
 
-  SourceLinesRepositoryImpl underTest = new SourceLinesRepositoryImpl(reportReader);
+  @Rule
+  public DbTester dbTester = DbTester.create(System2.INSTANCE);
+
+  @Rule
+  public JUnitTempFolder tempFolder = new JUnitTempFolder();
+
+  SourceLinesRepositoryImpl underTest = new SourceLinesRepositoryImpl(reportReader, dbTester.getDbClient(), tempFolder);
 
   @Test
   public void read_lines_from_report() throws Exception {
@@ -105,6 +116,46 @@ public class SourceLinesRepositoryImplTest {
     underTest.readLines(FILE);
   }
 
+  @Test
+  public void read_lines_of_unchanged_file_from_db() throws Exception {
+    reportReader.putComponent(createFileBatchComponent(3).toBuilder().setUnchangedSourceHash("HASH").build());
+    persistSource("HASH", "line1", "line2", "");
+
+    assertThat(underTest.readLines(FILE)).containsExactly("line1", "line2", "");
+  }
+
+  @Test
+  public void load_source_of_unchanged_file_from_db_only_once() throws Exception {
+    reportReader.putComponent(createFileBatchComponent(2).toBuilder().setUnchangedSourceHash("HASH").build());
+    persistSource("HASH", "line1", "line2");
+
+    assertThat(underTest.readLines(FILE)).containsExactly("line1", "line2");
+    dbTester.executeUpdateSql("delete from file_sources");
+
+    assertThat(underTest.readLines(FILE)).containsExactly("line1", "line2");
+  }
+
+  @Test
+  public void fail_when_source_of_unchanged_file_differs_from_db() throws Exception {
+    reportReader.putComponent(createFileBatchComponent(2).toBuilder().setUnchangedSourceHash("HASH").build());
+    persistSource("OTHER_HASH", "line1", "line2");
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Source of file 'FILE_KEY' is not in the report and differs from the source of the previous analysis. Please analyze the project again.");
+
+    underTest.readLines(FILE);
+  }
+
+  @Test
+  public void fail_when_source_of_unchanged_file_is_not_in_db() throws Exception {
+    reportReader.putComponent(createFileBatchComponent(3).toBuilder().setUnchangedSourceHash("HASH").build());
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Source of file 'FILE_KEY' is not in the report");
+
+    underTest.readLines(FILE);
+  }
+
   @Test
   public void fail_with_NPE_to_read_lines_on_null_component() throws Exception {
     thrown.expect(NullPointerException.class);
@@ -125,6 +176,22 @@ public class SourceLinesRepositoryImplTest {
     return ScannerReport.Component.newBuilder().setRef(FILE_REF).setLines(lineCount).build();
   }
 
+  private void persistSource(String srcHash, String... lines) {
+    DbFileSources.Data.Builder data = DbFileSources.Data.newBuilder();
+    for (int i = 0; i < lines.length; i++) {
+      data.addLinesBuilder().setLine(i + 1).setSource(lines[i]);
+    }
+    dbTester.getDbClient().fileSourceDao().insert(dbTester.getSession(), new FileSourceDto()
+      .setProjectUuid("PROJECT_UUID")
+      .setFileUuid(FILE_UUID)
+      .setDataType(FileSourceDto.Type.SOURCE)
+      .setSrcHash(srcHash)
+      .setSourceData(data.build())
+      .setCreatedAt(1_000L)
+      .setUpdatedAt(1_000L));
+    dbTester.commit();
+  }
+
   private static void consume(CloseableIterator<String> stringCloseableIterator) {
     try{
       while (stringCloseableIterator.hasNext()) {
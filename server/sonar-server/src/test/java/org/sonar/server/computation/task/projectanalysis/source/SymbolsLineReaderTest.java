@@ -27,6 +27,7 @@ import org.sonar.db.protobuf.DbFileSources;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.scanner.protocol.output.ScannerReport.TextRange;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.source.RangeOffsetConverter.OffsetRange;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.doThrow;
@@ -34,6 +35,7 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.sonar.api.utils.log.LoggerLevel.WARN;
 import static org.sonar.server.computation.task.projectanalysis.component.ReportComponent.builder;
+import static org.sonar.server.source.index.FileSourceTesting.symbolsOf;
 
 public class SymbolsLineReaderTest {
 
@@ -60,6 +62,11 @@ public class SymbolsLineReaderTest {
   static final String RANGE_LABEL_3 = "3,4";
   static final String RANGE_LABEL_4 = "0,2";
 
+  static final OffsetRange RANGE_1 = new OffsetRange(1, 2);
+  static final OffsetRange RANGE_2 = new OffsetRange(2, 3);
+  static final OffsetRange RANGE_3 = new OffsetRange(3, 4);
+  static final OffsetRange RANGE_4 = new OffsetRange(0, 2);
+
   RangeOffsetConverter rangeOffsetConverter = mock(RangeOffsetConverter.class);
 
   DbFileSources.Data.Builder sourceData = DbFileSources.Data.newBuilder();
@@ -74,101 +81,101 @@ public class SymbolsLineReaderTest {
 
     symbolsLineReader.read(line1);
 
-    assertThat(line1.getSymbols()).isEmpty();
+    assertThat(symbolsOf(line1)).isEmpty();
   }
 
   @Test
   public void read_symbols() {
     SymbolsLineReader symbolsLineReader = newReader(newSymbol(
-      newSingleLineTextRangeWithExpectedLabel(LINE_1, OFFSET_2, OFFSET_4, RANGE_LABEL_1),
-      newSingleLineTextRangeWithExpectedLabel(LINE_3, OFFSET_1, OFFSET_3, RANGE_LABEL_2)
+      newSingleLineTextRangeWithExpectedLabel(LINE_1, OFFSET_2, OFFSET_4, RANGE_1),
+      newSingleLineTextRangeWithExpectedLabel(LINE_3, OFFSET_1, OFFSET_3, RANGE_2)
       ));
 
     symbolsLineReader.read(line1);
     symbolsLineReader.read(line2);
     symbolsLineReader.read(line3);
 
-    assertThat(line1.getSymbols()).isEqualTo(RANGE_LABEL_1 + ",1");
-    assertThat(line2.getSymbols()).isEmpty();
-    assertThat(line3.getSymbols()).isEqualTo(RANGE_LABEL_2 + ",1");
+    assertThat(symbolsOf(line1)).isEqualTo(RANGE_LABEL_1 + ",1");
+    assertThat(symbolsOf(line2)).isEmpty();
+    assertThat(symbolsOf(line3)).isEqualTo(RANGE_LABEL_2 + ",1");
   }
 
   @Test
   public void read_symbols_with_reference_on_same_line() {
     SymbolsLineReader symbolsLineReader = newReader(newSymbol(
-      newSingleLineTextRangeWithExpectedLabel(LINE_1, OFFSET_0, OFFSET_1, RANGE_LABEL_1),
-      newSingleLineTextRangeWithExpectedLabel(LINE_1, OFFSET_2, OFFSET_3, RANGE_LABEL_2)
+      newSingleLineTextRangeWithExpectedLabel(LINE_1, OFFSET_0, OFFSET_1, RANGE_1),
+      newSingleLineTextRangeWithExpectedLabel(LINE_1, OFFSET_2, OFFSET_3, RANGE_2)
       ));
 
     symbolsLineReader.read(line1);
 
-    assertThat(line1.getSymbols()).isEqualTo(RANGE_LABEL_1 + ",1;" + RANGE_LABEL_2 + ",1");
+    assertThat(symbolsOf(line1)).isEqualTo(RANGE_LABEL_1 + ",1;" + RANGE_LABEL_2 + ",1");
   }
 
   @Test
   public void read_symbols_with_two_references() {
     SymbolsLineReader symbolsLineReader = newReader(newSymbol(
-      newSingleLineTextRangeWithExpectedLabel(LINE_1, OFFSET_2, OFFSET_4, RANGE_LABEL_1),
-      newSingleLineTextRangeWithExpectedLabel(LINE_3, OFFSET_1, OFFSET_3, RANGE_LABEL_2),
-      newSingleLineTextRangeWithExpectedLabel(LINE_2, OFFSET_0, OFFSET_2, RANGE_LABEL_3)
+      newSingleLineTextRangeWithExpectedLabel(LINE_1, OFFSET_2, OFFSET_4, RANGE_1),
+      newSingleLineTextRangeWithExpectedLabel(LINE_3, OFFSET_1, OFFSET_3, RANGE_2),
+      newSingleLineTextRangeWithExpectedLabel(LINE_2, OFFSET_0, OFFSET_2, RANGE_3)
       ));
 
     symbolsLineReader.read(line1);
     symbolsLineReader.read(line2);
     symbolsLineReader.read(line3);
 
-    assertThat(line1.getSymbols()).isEqualTo(RANGE_LABEL_1 + ",1");
-    assertThat(line2.getSymbols()).isEqualTo(RANGE_LABEL_3 + ",1");
-    assertThat(line3.getSymbols()).isEqualTo(RANGE_LABEL_2 + ",1");
+    assertThat(symbolsOf(line1)).isEqualTo(RANGE_LABEL_1 + ",1");
+    assertThat(symbolsOf(line2)).isEqualTo(RANGE_LABEL_3 + ",1");
+    assertThat(symbolsOf(line3)).isEqualTo(RANGE_LABEL_2 + ",1");
   }
 
   @Test
   public void read_symbols_with_two_references_on_the_same_line() {
     SymbolsLineReader symbolsLineReader = newReader(newSymbol(
-      newSingleLineTextRangeWithExpectedLabel(LINE_1, OFFSET_2, OFFSET_3, RANGE_LABEL_1),
-      newSingleLineTextRangeWithExpectedLabel(LINE_2, OFFSET_0, OFFSET_1, RANGE_LABEL_2),
-      newSingleLineTextRangeWithExpectedLabel(LINE_2, OFFSET_2, OFFSET_3, RANGE_LABEL_3)
+      newSingleLineTextRangeWithExpectedLabel(LINE_1, OFFSET_2, OFFSET_3, RANGE_1),
+      newSingleLineTextRangeWithExpectedLabel(LINE_2, OFFSET_0, OFFSET_1, RANGE_2),
+      newSingleLineTextRangeWithExpectedLabel(LINE_2, OFFSET_2, OFFSET_3, RANGE_3)
       ));
 
     symbolsLineReader.read(line1);
     symbolsLineReader.read(line2);
 
-    assertThat(line1.getSymbols()).isEqualTo(RANGE_LABEL_1 + ",1");
-    assertThat(line2.getSymbols()).isEqualTo(RANGE_LABEL_2 + ",1;" + RANGE_LABEL_3 + ",1");
+    assertThat(symbolsOf(line1)).isEqualTo(RANGE_LABEL_1 + ",1");
+    assertThat(symbolsOf(line2)).isEqualTo(RANGE_LABEL_2 + ",1;" + RANGE_LABEL_3 + ",1");
   }
 
   @Test
   public void read_symbols_when_reference_line_is_before_declaration_line() {
     SymbolsLineReader symbolsLineReader = newReader(newSymbol(
-      newSingleLineTextRangeWithExpectedLabel(LINE_2, OFFSET_3, OFFSET_4, RANGE_LABEL_1),
-      newSingleLineTextRangeWithExpectedLabel(LINE_1, OFFSET_1, OFFSET_2, RANGE_LABEL_2)
+      newSingleLineTextRangeWithExpectedLabel(LINE_2, OFFSET_3, OFFSET_4, RANGE_1),
+      newSingleLineTextRangeWithExpectedLabel(LINE_1, OFFSET_1, OFFSET_2, RANGE_2)
       ));
 
     symbolsLineReader.read(line1);
     symbolsLineReader.read(line2);
 
-    assertThat(line1.getSymbols()).isEqualTo(RANGE_LABEL_2 + ",1");
-    assertThat(line2.getSymbols()).isEqualTo(RANGE_LABEL_1 + ",1");
+    assertThat(symbolsOf(line1)).isEqualTo(RANGE_LABEL_2 + ",1");
+    assertThat(symbolsOf(line2)).isEqualTo(RANGE_LABEL_1 + ",1");
   }
 
   @Test
   public void read_many_symbols_on_lines() {
     SymbolsLineReader symbolsLineReader = newReader(
       newSymbol(
-        newSingleLineTextRangeWithExpectedLabel(LINE_1, OFFSET_1, OFFSET_2, RANGE_LABEL_1),
-        newSingleLineTextRangeWithExpectedLabel(LINE_3, OFFSET_2, OFFSET_3, RANGE_LABEL_2)),
+        newSingleLineTextRangeWithExpectedLabel(LINE_1, OFFSET_1, OFFSET_2, RANGE_1),
+        newSingleLineTextRangeWithExpectedLabel(LINE_3, OFFSET_2, OFFSET_3, RANGE_2)),
       newSymbol(
-        newSingleLineTextRangeWithExpectedLabel(LINE_1, OFFSET_3, OFFSET_4, RANGE_LABEL_3),
-        newSingleLineTextRangeWithExpectedLabel(LINE_3, OFFSET_0, OFFSET_1, RANGE_LABEL_4)
+        newSingleLineTextRangeWithExpectedLabel(LINE_1, OFFSET_3, OFFSET_4, RANGE_3),
+        newSingleLineTextRangeWithExpectedLabel(LINE_3, OFFSET_0, OFFSET_1, RANGE_4)
       ));
 
     symbolsLineReader.read(line1);
     symbolsLineReader.read(line2);
     symbolsLineReader.read(line3);
 
-    assertThat(line1.getSymbols()).isEqualTo(RANGE_LABEL_1 + ",1;" + RANGE_LABEL_3 + ",2");
-    assertThat(line2.getSymbols()).isEmpty();
-    assertThat(line3.getSymbols()).isEqualTo(RANGE_LABEL_2 + ",1;" + RANGE_LABEL_4 + ",2");
+    assertThat(symbolsOf(line1)).isEqualTo(RANGE_LABEL_1 + ",1;" + RANGE_LABEL_3 + ",2");
+    assertThat(symbolsOf(line2)).isEmpty();
+    assertThat(symbolsOf(line3)).isEqualTo(RANGE_LABEL_2 + ",1;" + RANGE_LABEL_4 + ",2");
   }
 
   @Test
@@ -176,51 +183,51 @@ public class SymbolsLineReaderTest {
     SymbolsLineReader symbolsLineReader = newReader(
       newSymbol(
         // This symbol begins after the second symbol, it should appear in second place
-        newSingleLineTextRangeWithExpectedLabel(LINE_1, OFFSET_2, OFFSET_3, RANGE_LABEL_1),
-        newSingleLineTextRangeWithExpectedLabel(LINE_3, OFFSET_2, OFFSET_3, RANGE_LABEL_1)),
+        newSingleLineTextRangeWithExpectedLabel(LINE_1, OFFSET_2, OFFSET_3, RANGE_1),
+        newSingleLineTextRangeWithExpectedLabel(LINE_3, OFFSET_2, OFFSET_3, RANGE_1)),
       newSymbol(
-        newSingleLineTextRangeWithExpectedLabel(LINE_1, OFFSET_0, OFFSET_1, RANGE_LABEL_2),
-        newSingleLineTextRangeWithExpectedLabel(LINE_3, OFFSET_0, OFFSET_1, RANGE_LABEL_2)
+        newSingleLineTextRangeWithExpectedLabel(LINE_1, OFFSET_0, OFFSET_1, RANGE_2),
+        newSingleLineTextRangeWithExpectedLabel(LINE_3, OFFSET_0, OFFSET_1, RANGE_2)
       ));
 
     symbolsLineReader.read(line1);
     symbolsLineReader.read(line2);
     symbolsLineReader.read(line3);
 
-    assertThat(line1.getSymbols()).isEqualTo(RANGE_LABEL_2 + ",1;" + RANGE_LABEL_1 + ",2");
-    assertThat(line2.getSymbols()).isEmpty();
-    assertThat(line3.getSymbols()).isEqualTo(RANGE_LABEL_2 + ",1;" + RANGE_LABEL_1 + ",2");
+    assertThat(symbolsOf(line1)).isEqualTo(RANGE_LABEL_2 + ",1;" + RANGE_LABEL_1 + ",2");
+    assertThat(symbolsOf(line2)).isEmpty();
+    assertThat(symbolsOf(line3)).isEqualTo(RANGE_LABEL_2 + ",1;" + RANGE_LABEL_1 + ",2");
   }
 
   @Test
   public void symbol_declaration_should_be_sorted_by_line() {
     SymbolsLineReader symbolsLineReader = newReader(
       newSymbol(
-        newSingleLineTextRangeWithExpectedLabel(LINE_2, OFFSET_0, OFFSET_1, RANGE_LABEL_1),
-        newSingleLineTextRangeWithExpectedLabel(LINE_3, OFFSET_2, OFFSET_3, RANGE_LABEL_2)),
+        newSingleLineTextRangeWithExpectedLabel(LINE_2, OFFSET_0, OFFSET_1, RANGE_1),
+        newSingleLineTextRangeWithExpectedLabel(LINE_3, OFFSET_2, OFFSET_3, RANGE_2)),
       newSymbol(
-        newSingleLineTextRangeWithExpectedLabel(LINE_1, OFFSET_0, OFFSET_1, RANGE_LABEL_1),
-        newSingleLineTextRangeWithExpectedLabel(LINE_3, OFFSET_0, OFFSET_1, RANGE_LABEL_1)
+        newSingleLineTextRangeWithExpectedLabel(LINE_1, OFFSET_0, OFFSET_1, RANGE_1),
+        newSingleLineTextRangeWithExpectedLabel(LINE_3, OFFSET_0, OFFSET_1, RANGE_1)
       ));
 
     symbolsLineReader.read(line1);
     symbolsLineReader.read(line2);
     symbolsLineReader.read(line3);
 
-    assertThat(line1.getSymbols()).isEqualTo(RANGE_LABEL_1 + ",1");
-    assertThat(line2.getSymbols()).isEqualTo(RANGE_LABEL_1 + ",2");
-    assertThat(line3.getSymbols()).isEqualTo(RANGE_LABEL_1 + ",1;" + RANGE_LABEL_2 + ",2");
+    assertThat(symbolsOf(line1)).isEqualTo(RANGE_LABEL_1 + ",1");
+    assertThat(symbolsOf(line2)).isEqualTo(RANGE_LABEL_1 + ",2");
+    assertThat(symbolsOf(line3)).isEqualTo(RANGE_LABEL_1 + ",1;" + RANGE_LABEL_2 + ",2");
   }
 
   @Test
   public void read_symbols_defined_on_many_lines() {
     TextRange declaration = newTextRange(LINE_1, LINE_2, OFFSET_1, OFFSET_3);
-    when(rangeOffsetConverter.offsetToString(declaration, LINE_1, DEFAULT_LINE_LENGTH)).thenReturn(RANGE_LABEL_1);
-    when(rangeOffsetConverter.offsetToString(declaration, LINE_2, DEFAULT_LINE_LENGTH)).thenReturn(RANGE_LABEL_2);
+    when(rangeOffsetConverter.toOffsetRange(declaration, LINE_1, DEFAULT_LINE_LENGTH)).thenReturn(RANGE_1);
+    when(rangeOffsetConverter.toOffsetRange(declaration, LINE_2, DEFAULT_LINE_LENGTH)).thenReturn(RANGE_2);
 
     TextRange reference = newTextRange(LINE_3, LINE_4, OFFSET_1, OFFSET_3);
-    when(rangeOffsetConverter.offsetToString(reference, LINE_3, DEFAULT_LINE_LENGTH)).thenReturn(RANGE_LABEL_1);
-    when(rangeOffsetConverter.offsetToString(reference, LINE_4, DEFAULT_LINE_LENGTH)).thenReturn(RANGE_LABEL_2);
+    when(rangeOffsetConverter.toOffsetRange(reference, LINE_3, DEFAULT_LINE_LENGTH)).thenReturn(RANGE_1);
+    when(rangeOffsetConverter.toOffsetRange(reference, LINE_4, DEFAULT_LINE_LENGTH)).thenReturn(RANGE_2);
 
     SymbolsLineReader symbolsLineReader = newReader(newSymbol(declaration, reference));
 
@@ -229,18 +236,18 @@ public class SymbolsLineReaderTest {
     symbolsLineReader.read(line3);
     symbolsLineReader.read(line4);
 
-    assertThat(line1.getSymbols()).isEqualTo(RANGE_LABEL_1 + ",1");
-    assertThat(line2.getSymbols()).isEqualTo(RANGE_LABEL_2 + ",1");
-    assertThat(line3.getSymbols()).isEqualTo(RANGE_LABEL_1 + ",1");
-    assertThat(line4.getSymbols()).isEqualTo(RANGE_LABEL_2 + ",1");
+    assertThat(symbolsOf(line1)).isEqualTo(RANGE_LABEL_1 + ",1");
+    assertThat(symbolsOf(line2)).isEqualTo(RANGE_LABEL_2 + ",1");
+    assertThat(symbolsOf(line3)).isEqualTo(RANGE_LABEL_1 + ",1");
+    assertThat(symbolsOf(line4)).isEqualTo(RANGE_LABEL_2 + ",1");
   }
 
   @Test
   public void read_symbols_declared_on_a_whole_line() {
     TextRange declaration = newTextRange(LINE_1, LINE_2, OFFSET_0, OFFSET_0);
-    when(rangeOffsetConverter.offsetToString(declaration, LINE_1, DEFAULT_LINE_LENGTH)).thenReturn(RANGE_LABEL_1);
-    when(rangeOffsetConverter.offsetToString(declaration, LINE_2, DEFAULT_LINE_LENGTH)).thenReturn("");
-    TextRange reference = newSingleLineTextRangeWithExpectedLabel(LINE_3, OFFSET_1, OFFSET_3, RANGE_LABEL_2);
+    when(rangeOffsetConverter.toOffsetRange(declaration, LINE_1, DEFAULT_LINE_LENGTH)).thenReturn(RANGE_1);
+    when(rangeOffsetConverter.toOffsetRange(declaration, LINE_2, DEFAULT_LINE_LENGTH)).thenReturn(null);
+    TextRange reference = newSingleLineTextRangeWithExpectedLabel(LINE_3, OFFSET_1, OFFSET_3, RANGE_2);
 
     SymbolsLineReader symbolsLineReader = newReader(newSymbol(declaration, reference));
 
@@ -249,18 +256,18 @@ public class SymbolsLineReaderTest {
     symbolsLineReader.read(line3);
     symbolsLineReader.read(line4);
 
-    assertThat(line1.getSymbols()).isEqualTo(RANGE_LABEL_1 + ",1");
-    assertThat(line2.getSymbols()).isEmpty();
-    assertThat(line3.getSymbols()).isEqualTo(RANGE_LABEL_2 + ",1");
-    assertThat(line4.getSymbols()).isEmpty();
+    assertThat(symbolsOf(line1)).isEqualTo(RANGE_LABEL_1 + ",1");
+    assertThat(symbolsOf(line2)).isEmpty();
+    assertThat(symbolsOf(line3)).isEqualTo(RANGE_LABEL_2 + ",1");
+    assertThat(symbolsOf(line4)).isEmpty();
   }
 
   @Test
   public void not_fail_and_stop_processing_when_range_offset_converter_throw_RangeOffsetConverterException() {
     TextRange declaration = newTextRange(LINE_1, LINE_1, OFFSET_1, OFFSET_3);
-    doThrow(RangeOffsetConverter.RangeOffsetConverterException.class).when(rangeOffsetConverter).offsetToString(declaration, LINE_1, DEFAULT_LINE_LENGTH);
+    doThrow(RangeOffsetConverter.RangeOffsetConverterException.class).when(rangeOffsetConverter).toOffsetRange(declaration, LINE_1, DEFAULT_LINE_LENGTH);
 
-    TextRange reference = newSingleLineTextRangeWithExpectedLabel(LINE_2, OFFSET_1, OFFSET_3, RANGE_LABEL_2);
+    TextRange reference = newSingleLineTextRangeWithExpectedLabel(LINE_2, OFFSET_1, OFFSET_3, RANGE_2);
 
     SymbolsLineReader symbolsLineReader = newReader(newSymbol(declaration, reference));
 
@@ -273,26 +280,41 @@ public class SymbolsLineReaderTest {
 
   @Test
   public void keep_existing_processed_symbols_when_range_offset_converter_throw_RangeOffsetConverterException() {
-    TextRange declaration = newSingleLineTextRangeWithExpectedLabel(LINE_1, OFFSET_1, OFFSET_3, RANGE_LABEL_2);
+    TextRange declaration = newSingleLineTextRangeWithExpectedLabel(LINE_1, OFFSET_1, OFFSET_3, RANGE_2);
 
     TextRange reference = newTextRange(LINE_2, LINE_2, OFFSET_1, OFFSET_3);
-    doThrow(RangeOffsetConverter.RangeOffsetConverterException.class).when(rangeOffsetConverter).offsetToString(reference, LINE_2, DEFAULT_LINE_LENGTH);
+    doThrow(RangeOffsetConverter.RangeOffsetConverterException.class).when(rangeOffsetConverter).toOffsetRange(reference, LINE_2, DEFAULT_LINE_LENGTH);
 
     SymbolsLineReader symbolsLineReader = newReader(newSymbol(declaration, reference));
 
     symbolsLineReader.read(line1);
     symbolsLineReader.read(line2);
 
-    assertThat(line1.hasSymbols()).isTrue();
-    assertThat(line2.hasSymbols()).isFalse();
+    assertThat(symbolsOf(line1)).isNotEmpty();
+    assertThat(symbolsOf(line2)).isEmpty();
+    assertThat(logTester.logs(WARN)).isNotEmpty();
+  }
+
+  @Test
+  public void do_not_keep_symbols_of_line_processed_before_RangeOffsetConverterException() {
+    TextRange declaration = newSingleLineTextRangeWithExpectedLabel(LINE_1, OFFSET_0, OFFSET_1, RANGE_1);
+
+    TextRange reference = newTextRange(LINE_1, LINE_1, OFFSET_2, OFFSET_3);
+    doThrow(RangeOffsetConverter.RangeOffsetConverterException.class).when(rangeOffsetConverter).toOffsetRange(reference, LINE_1, DEFAULT_LINE_LENGTH);
+
+    SymbolsLineReader symbolsLineReader = newReader(newSymbol(declaration, reference));
+
+    symbolsLineReader.read(line1);
+
+    assertThat(symbolsOf(line1)).isEmpty();
     assertThat(logTester.logs(WARN)).isNotEmpty();
   }
 
   @Test
   public void display_file_key_in_warning_when_range_offset_converter_throw_RangeOffsetConverterException() {
     TextRange declaration = newTextRange(LINE_1, LINE_1, OFFSET_1, OFFSET_3);
-    doThrow(RangeOffsetConverter.RangeOffsetConverterException.class).when(rangeOffsetConverter).offsetToString(declaration, LINE_1, DEFAULT_LINE_LENGTH);
-    SymbolsLineReader symbolsLineReader = newReader(newSymbol(declaration, newSingleLineTextRangeWithExpectedLabel(LINE_2, OFFSET_1, OFFSET_3, RANGE_LABEL_2)));
+    doThrow(RangeOffsetConverter.RangeOffsetConverterException.class).when(rangeOffsetConverter).toOffsetRange(declaration, LINE_1, DEFAULT_LINE_LENGTH);
+    SymbolsLineReader symbolsLineReader = newReader(newSymbol(declaration, newSingleLineTextRangeWithExpectedLabel(LINE_2, OFFSET_1, OFFSET_3, RANGE_2)));
 
     symbolsLineReader.read(line1);
 
@@ -312,9 +334,9 @@ public class SymbolsLineReaderTest {
     return new SymbolsLineReader(FILE, Arrays.asList(symbols).iterator(), rangeOffsetConverter);
   }
 
-  private TextRange newSingleLineTextRangeWithExpectedLabel(int line, int startOffset, int endOffset, String rangeLabel) {
+  private TextRange newSingleLineTextRangeWithExpectedLabel(int line, int startOffset, int endOffset, OffsetRange range) {
     TextRange textRange = newTextRange(line, line, startOffset, endOffset);
-    when(rangeOffsetConverter.offsetToString(textRange, line, DEFAULT_LINE_LENGTH)).thenReturn(rangeLabel);
+    when(rangeOffsetConverter.toOffsetRange(textRange, line, DEFAULT_LINE_LENGTH)).thenReturn(range);
     return textRange;
   }
 
@@ -326,10 +348,10 @@ public class SymbolsLineReaderTest {
   }
 
   private void assertNoSymbol() {
-    assertThat(line1.hasSymbols()).isFalse();
-    assertThat(line2.hasSymbols()).isFalse();
-    assertThat(line3.hasSymbols()).isFalse();
-    assertThat(line4.hasSymbols()).isFalse();
+    assertThat(symbolsOf(line1)).isEmpty();
+    assertThat(symbolsOf(line2)).isEmpty();
+    assertThat(symbolsOf(line3)).isEmpty();
+    assertThat(symbolsOf(line4)).isEmpty();
   }
 
 }
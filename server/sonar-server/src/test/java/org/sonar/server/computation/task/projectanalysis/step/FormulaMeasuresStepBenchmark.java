@@ -0,0 +1,155 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.step;
+
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Metric;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.FileAttributes;
+import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
+import org.sonar.server.computation.task.projectanalysis.duplication.DuplicationRepositoryRule;
+import org.sonar.server.computation.task.projectanalysis.measure.MeasureRepoEntry;
+import org.sonar.server.computation.task.projectanalysis.measure.MeasureRepositoryRule;
+import org.sonar.server.computation.task.projectanalysis.metric.MetricRepositoryRule;
+import org.sonar.server.computation.task.projectanalysis.period.PeriodsHolderRule;
+import org.sonar.server.computation.task.projectanalysis.scm.ScmInfoRepositoryRule;
+import org.sonar.server.computation.task.step.ComputationStep;
+
+import static com.google.common.collect.Iterables.toArray;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.api.measures.CoreMetrics.CLASSES_KEY;
+import static org.sonar.api.measures.CoreMetrics.COMMENT_LINES_KEY;
+import static org.sonar.api.measures.CoreMetrics.COMPLEXITY_KEY;
+import static org.sonar.api.measures.CoreMetrics.FUNCTIONS_KEY;
+import static org.sonar.api.measures.CoreMetrics.LINES_KEY;
+import static org.sonar.api.measures.CoreMetrics.LINES_TO_COVER_KEY;
+import static org.sonar.api.measures.CoreMetrics.NCLOC_KEY;
+import static org.sonar.api.measures.CoreMetrics.UNCOVERED_LINES_KEY;
+import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.DIRECTORY;
+import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.FILE;
+import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.MODULE;
+import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.PROJECT;
+import static org.sonar.server.computation.task.projectanalysis.component.ReportComponent.builder;
+import static org.sonar.server.computation.task.projectanalysis.measure.Measure.newMeasureBuilder;
+import static org.sonar.server.computation.task.projectanalysis.measure.MeasureRepoEntry.toEntries;
+
+/**
+ * Compares the execution of the formula steps one after the other with their execution in a single crawl,
+ * on a project of 100,000 files. Not a unit test: the name of the class does not match the test classes
+ * executed by the build, so it must be run explicitly:
+ * <pre>mvn test -Dtest=FormulaMeasuresStepBenchmark</pre>
+ */
+public class FormulaMeasuresStepBenchmark {
+
+  private static final Logger LOG = Loggers.get(FormulaMeasuresStepBenchmark.class);
+  private static final int ROOT_REF = 1;
+
+  @Rule
+  public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule();
+  @Rule
+  public MetricRepositoryRule metricRepository = new MetricRepositoryRule();
+  @Rule
+  public PeriodsHolderRule periodsHolder = new PeriodsHolderRule().setPeriods();
+  @Rule
+  public ScmInfoRepositoryRule scmInfoRepository = new ScmInfoRepositoryRule();
+  @Rule
+  public DuplicationRepositoryRule duplicationRepository = DuplicationRepositoryRule.create(treeRootHolder);
+
+  @Before
+  public void setUp() {
+    for (Metric<?> metric : CoreMetrics.getMetrics()) {
+      metricRepository.add(metric);
+    }
+    ReportComponent.Builder project = builder(PROJECT, ROOT_REF);
+    int ref = ROOT_REF + 1;
+    for (int module = 0; module < 10; module++) {
+      ReportComponent.Builder moduleBuilder = builder(MODULE, ref++);
+      for (int directory = 0; directory < 100; directory++) {
+        ReportComponent.Builder directoryBuilder = builder(DIRECTORY, ref++);
+        for (int file = 0; file < 100; file++) {
+          directoryBuilder.addChildren(builder(FILE, ref++).setFileAttributes(new FileAttributes(false, "java")).build());
+        }
+        moduleBuilder.addChildren(directoryBuilder.build());
+      }
+      project.addChildren(moduleBuilder.build());
+    }
+    treeRootHolder.setRoot(project.build());
+  }
+
+  @Test
+  public void formulas_on_100k_files() {
+    MeasureRepositoryRule sequential = MeasureRepositoryRule.create(treeRootHolder, metricRepository);
+    MeasureRepositoryRule fused = MeasureRepositoryRule.create(treeRootHolder, metricRepository);
+    addSourceFileMeasures(sequential, treeRootHolder.getRoot());
+    addSourceFileMeasures(fused, treeRootHolder.getRoot());
+
+    long start = System.currentTimeMillis();
+    executeFormulaStepsSequentially(sequential);
+    LOG.info("Formula steps executed one after the other: {} ms", System.currentTimeMillis() - start);
+
+    start = System.currentTimeMillis();
+    new FormulaMeasuresStep(treeRootHolder, periodsHolder, metricRepository, fused, scmInfoRepository, duplicationRepository).execute();
+    LOG.info("Formula steps executed in a single crawl: {} ms", System.currentTimeMillis() - start);
+
+    assertThat(toEntries(fused.getAddedRawMeasures(ROOT_REF)))
+      .containsOnly(toArray(toEntries(sequential.getAddedRawMeasures(ROOT_REF)), MeasureRepoEntry.class));
+  }
+
+  private void executeFormulaStepsSequentially(MeasureRepositoryRule repository) {
+    List<ComputationStep> steps = asList(
+      new SizeMeasuresStep(treeRootHolder, metricRepository, repository),
+      new NewCoverageMeasuresStep(treeRootHolder, periodsHolder, repository, metricRepository, scmInfoRepository),
+      new CoverageMeasuresStep(treeRootHolder, metricRepository, repository),
+      new CommentMeasuresStep(treeRootHolder, metricRepository, repository),
+      new DuplicationMeasuresStep(treeRootHolder, metricRepository, repository, duplicationRepository),
+      new NewSizeMeasuresStep(treeRootHolder, periodsHolder, metricRepository, repository, scmInfoRepository, duplicationRepository),
+      new LanguageDistributionMeasuresStep(treeRootHolder, metricRepository, repository),
+      new UnitTestMeasuresStep(treeRootHolder, metricRepository, repository),
+      new ComplexityMeasuresStep(treeRootHolder, metricRepository, repository));
+    for (ComputationStep step : steps) {
+      step.execute();
+    }
+  }
+
+  private static void addSourceFileMeasures(MeasureRepositoryRule repository, Component component) {
+    if (component.getType() == FILE) {
+      int fileRef = component.getReportAttributes().getRef();
+      repository.addRawMeasure(fileRef, LINES_KEY, newMeasureBuilder().create(54));
+      repository.addRawMeasure(fileRef, NCLOC_KEY, newMeasureBuilder().create(27));
+      repository.addRawMeasure(fileRef, COMMENT_LINES_KEY, newMeasureBuilder().create(3));
+      repository.addRawMeasure(fileRef, CLASSES_KEY, newMeasureBuilder().create(1));
+      repository.addRawMeasure(fileRef, FUNCTIONS_KEY, newMeasureBuilder().create(5));
+      repository.addRawMeasure(fileRef, COMPLEXITY_KEY, newMeasureBuilder().create(13));
+      repository.addRawMeasure(fileRef, LINES_TO_COVER_KEY, newMeasureBuilder().create(26));
+      repository.addRawMeasure(fileRef, UNCOVERED_LINES_KEY, newMeasureBuilder().create(13));
+    }
+    for (Component child : component.getChildren()) {
+      addSourceFileMeasures(repository, child);
+    }
+  }
+}
@@ -0,0 +1,193 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.step;
+
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Metric;
+import org.sonar.server.computation.task.projectanalysis.component.FileAttributes;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
+import org.sonar.server.computation.task.projectanalysis.duplication.DuplicationRepositoryRule;
+import org.sonar.server.computation.task.projectanalysis.measure.MeasureRepoEntry;
+import org.sonar.server.computation.task.projectanalysis.measure.MeasureRepositoryRule;
+import org.sonar.server.computation.task.projectanalysis.metric.MetricRepositoryRule;
+import org.sonar.server.computation.task.projectanalysis.period.PeriodsHolderRule;
+import org.sonar.server.computation.task.projectanalysis.scm.ScmInfoRepositoryRule;
+import org.sonar.server.computation.task.step.ComputationStep;
+
+import static com.google.common.collect.Iterables.toArray;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.api.measures.CoreMetrics.CLASSES_KEY;
+import static org.sonar.api.measures.CoreMetrics.COMMENT_LINES_KEY;
+import static org.sonar.api.measures.CoreMetrics.COMPLEXITY_KEY;
+import static org.sonar.api.measures.CoreMetrics.FUNCTIONS_KEY;
+import static org.sonar.api.measures.CoreMetrics.LINES_KEY;
+import static org.sonar.api.measures.CoreMetrics.LINES_TO_COVER_KEY;
+import static org.sonar.api.measures.CoreMetrics.NCLOC_KEY;
+import static org.sonar.api.measures.CoreMetrics.SKIPPED_TESTS_KEY;
+import static org.sonar.api.measures.CoreMetrics.TESTS_KEY;
+import static org.sonar.api.measures.CoreMetrics.TEST_ERRORS_KEY;
+import static org.sonar.api.measures.CoreMetrics.TEST_EXECUTION_TIME_KEY;
+import static org.sonar.api.measures.CoreMetrics.TEST_FAILURES_KEY;
+import static org.sonar.api.measures.CoreMetrics.UNCOVERED_LINES_KEY;
+import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.DIRECTORY;
+import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.FILE;
+import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.MODULE;
+import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.PROJECT;
+import static org.sonar.server.computation.task.projectanalysis.component.ReportComponent.builder;
+import static org.sonar.server.computation.task.projectanalysis.measure.Measure.newMeasureBuilder;
+import static org.sonar.server.computation.task.projectanalysis.measure.MeasureRepoEntry.toEntries;
+
+public class FormulaMeasuresStepTest {
+
+  private static final int ROOT_REF = 1;
+  private static final int MODULE_REF = 11;
+  private static final int DIRECTORY_1_REF = 111;
+  private static final int DIRECTORY_2_REF = 112;
+  private static final int FILE_1_REF = 1111;
+  private static final int FILE_2_REF = 1112;
+  private static final int FILE_3_REF = 1121;
+  private static final int UNIT_TEST_REF = 1122;
+  private static final List<Integer> ALL_REFS = asList(ROOT_REF, MODULE_REF, DIRECTORY_1_REF, DIRECTORY_2_REF, FILE_1_REF, FILE_2_REF, FILE_3_REF, UNIT_TEST_REF);
+
+  @Rule
+  public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule().setRoot(
+    builder(PROJECT, ROOT_REF)
+      .addChildren(
+        builder(MODULE, MODULE_REF)
+          .addChildren(
+            builder(DIRECTORY, DIRECTORY_1_REF)
+              .addChildren(
+                builder(FILE, FILE_1_REF).setFileAttributes(new FileAttributes(false, "java")).build(),
+                builder(FILE, FILE_2_REF).setFileAttributes(new FileAttributes(false, "xoo")).build())
+              .build(),
+            builder(DIRECTORY, DIRECTORY_2_REF)
+              .addChildren(
+                builder(FILE, FILE_3_REF).setFileAttributes(new FileAttributes(false, "java")).build(),
+                builder(FILE, UNIT_TEST_REF).setFileAttributes(new FileAttributes(true, "java")).build())
+              .build())
+          .build())
+      .build());
+  @Rule
+  public MetricRepositoryRule metricRepository = new MetricRepositoryRule();
+  @Rule
+  public MeasureRepositoryRule measureRepository = MeasureRepositoryRule.create(treeRootHolder, metricRepository);
+  @Rule
+  public MeasureRepositoryRule sequentialMeasureRepository = MeasureRepositoryRule.create(treeRootHolder, metricRepository);
+  @Rule
+  public PeriodsHolderRule periodsHolder = new PeriodsHolderRule().setPeriods();
+  @Rule
+  public ScmInfoRepositoryRule scmInfoRepository = new ScmInfoRepositoryRule();
+  @Rule
+  public DuplicationRepositoryRule duplicationRepository = DuplicationRepositoryRule.create(treeRootHolder);
+
+  @Before
+  public void setUp() {
+    for (Metric<?> metric : CoreMetrics.getMetrics()) {
+      metricRepository.add(metric);
+    }
+  }
+
+  @Test
+  public void compute_measures_of_all_formula_steps() {
+    addSourceFileMeasures(measureRepository, FILE_1_REF, 9);
+    addSourceFileMeasures(measureRepository, FILE_2_REF, 18);
+    addSourceFileMeasures(measureRepository, FILE_3_REF, 27);
+    addUnitTestMeasures(measureRepository, UNIT_TEST_REF);
+
+    newFormulaMeasuresStep(measureRepository).execute();
+
+    // SizeMeasuresStep
+    assertThat(measureRepository.getAddedRawMeasure(ROOT_REF, CoreMetrics.FILES_KEY).get().getIntValue()).isEqualTo(3);
+    assertThat(measureRepository.getAddedRawMeasure(ROOT_REF, CoreMetrics.DIRECTORIES_KEY).get().getIntValue()).isEqualTo(2);
+    assertThat(measureRepository.getAddedRawMeasure(ROOT_REF, NCLOC_KEY).get().getIntValue()).isEqualTo(54);
+    // CommentMeasuresStep, which reads ncloc aggregated by SizeMeasuresStep
+    assertThat(measureRepository.getAddedRawMeasure(DIRECTORY_1_REF, CoreMetrics.COMMENT_LINES_DENSITY_KEY).get().getDoubleValue()).isEqualTo(10d);
+    // CoverageMeasuresStep
+    assertThat(measureRepository.getAddedRawMeasure(ROOT_REF, CoreMetrics.LINE_COVERAGE_KEY).get().getDoubleValue()).isEqualTo(50d);
+    // LanguageDistributionMeasuresStep
+    assertThat(measureRepository.getAddedRawMeasure(ROOT_REF, CoreMetrics.NCLOC_LANGUAGE_DISTRIBUTION_KEY).get().getData()).isEqualTo("java=36;xoo=18");
+    // UnitTestMeasuresStep
+    assertThat(measureRepository.getAddedRawMeasure(ROOT_REF, TESTS_KEY).get().getIntValue()).isEqualTo(4);
+    // ComplexityMeasuresStep
+    assertThat(measureRepository.getAddedRawMeasure(ROOT_REF, COMPLEXITY_KEY).get().getIntValue()).isEqualTo(26);
+  }
+
+  @Test
+  public void create_same_measures_as_formula_steps_executed_one_after_the_other() {
+    for (MeasureRepositoryRule repository : asList(measureRepository, sequentialMeasureRepository)) {
+      addSourceFileMeasures(repository, FILE_1_REF, 9);
+      addSourceFileMeasures(repository, FILE_2_REF, 18);
+      addSourceFileMeasures(repository, FILE_3_REF, 27);
+      addUnitTestMeasures(repository, UNIT_TEST_REF);
+    }
+
+    newFormulaMeasuresStep(measureRepository).execute();
+    executeFormulaStepsSequentially(sequentialMeasureRepository);
+
+    for (int ref : ALL_REFS) {
+      assertThat(toEntries(measureRepository.getAddedRawMeasures(ref)))
+        .containsOnly(toArray(toEntries(sequentialMeasureRepository.getAddedRawMeasures(ref)), MeasureRepoEntry.class));
+    }
+  }
+
+  private FormulaMeasuresStep newFormulaMeasuresStep(MeasureRepositoryRule repository) {
+    return new FormulaMeasuresStep(treeRootHolder, periodsHolder, metricRepository, repository, scmInfoRepository, duplicationRepository);
+  }
+
+  private void executeFormulaStepsSequentially(MeasureRepositoryRule repository) {
+    List<ComputationStep> steps = asList(
+      new SizeMeasuresStep(treeRootHolder, metricRepository, repository),
+      new NewCoverageMeasuresStep(treeRootHolder, periodsHolder, repository, metricRepository, scmInfoRepository),
+      new CoverageMeasuresStep(treeRootHolder, metricRepository, repository),
+      new CommentMeasuresStep(treeRootHolder, metricRepository, repository),
+      new DuplicationMeasuresStep(treeRootHolder, metricRepository, repository, duplicationRepository),
+      new NewSizeMeasuresStep(treeRootHolder, periodsHolder, metricRepository, repository, scmInfoRepository, duplicationRepository),
+      new LanguageDistributionMeasuresStep(treeRootHolder, metricRepository, repository),
+      new UnitTestMeasuresStep(treeRootHolder, metricRepository, repository),
+      new ComplexityMeasuresStep(treeRootHolder, metricRepository, repository));
+    for (ComputationStep step : steps) {
+      step.execute();
+    }
+  }
+
+  private static void addSourceFileMeasures(MeasureRepositoryRule repository, int fileRef, int ncloc) {
+    repository.addRawMeasure(fileRef, LINES_KEY, newMeasureBuilder().create(ncloc * 2));
+    repository.addRawMeasure(fileRef, NCLOC_KEY, newMeasureBuilder().create(ncloc));
+    repository.addRawMeasure(fileRef, COMMENT_LINES_KEY, newMeasureBuilder().create(ncloc / 9));
+    repository.addRawMeasure(fileRef, CLASSES_KEY, newMeasureBuilder().create(1));
+    repository.addRawMeasure(fileRef, FUNCTIONS_KEY, newMeasureBuilder().create(ncloc / 5));
+    repository.addRawMeasure(fileRef, COMPLEXITY_KEY, newMeasureBuilder().create(ncloc / 2));
+    repository.addRawMeasure(fileRef, LINES_TO_COVER_KEY, newMeasureBuilder().create(2 * (ncloc / 2)));
+    repository.addRawMeasure(fileRef, UNCOVERED_LINES_KEY, newMeasureBuilder().create(ncloc / 2));
+  }
+
+  private static void addUnitTestMeasures(MeasureRepositoryRule repository, int fileRef) {
+    repository.addRawMeasure(fileRef, TESTS_KEY, newMeasureBuilder().create(4));
+    repository.addRawMeasure(fileRef, TEST_ERRORS_KEY, newMeasureBuilder().create(0));
+    repository.addRawMeasure(fileRef, TEST_FAILURES_KEY, newMeasureBuilder().create(1));
+    repository.addRawMeasure(fileRef, SKIPPED_TESTS_KEY, newMeasureBuilder().create(0));
+    repository.addRawMeasure(fileRef, TEST_EXECUTION_TIME_KEY, newMeasureBuilder().create(100L));
+  }
+}
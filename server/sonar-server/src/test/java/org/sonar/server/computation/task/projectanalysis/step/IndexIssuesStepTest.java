@@ -21,9 +21,18 @@ package org.sonar.server.computation.task.projectanalysis.step;
 
 import org.junit.Rule;
 import org.junit.Test;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.System2;
+import org.sonar.core.util.ThreadCounter;
+import org.sonar.core.util.ThreadElapsedTime;
+import org.sonar.db.DbTester;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
+import org.sonar.server.es.EsTester;
+import org.sonar.server.issue.index.IssueIndexDefinition;
 import org.sonar.server.issue.index.IssueIndexer;
+import org.sonar.server.issue.index.IssueIndexerTest;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.*;
@@ -31,7 +40,14 @@ import static org.sonar.server.computation.task.projectanalysis.component.Report
 
 public class IndexIssuesStepTest {
 
-  static String PROJECT_UUID = "PROJECT_UUID";
+  // project of the dataset IssueIndexerTest/index_project.xml
+  static String PROJECT_UUID = "THE_PROJECT_1";
+
+  @Rule
+  public EsTester esTester = new EsTester(new IssueIndexDefinition(new Settings()));
+
+  @Rule
+  public DbTester dbTester = DbTester.create(System2.INSTANCE);
 
   @Rule
   public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule()
@@ -46,4 +62,21 @@ public class IndexIssuesStepTest {
 
     verify(issueIndexer).index(PROJECT_UUID);
   }
+
+  @Test
+  public void elasticsearch_requests_of_indexer_thread_are_counted_in_step_thread() {
+    dbTester.prepareDbUnit(IssueIndexerTest.class, "index_project.xml");
+    IssueIndexer issueIndexer = new IssueIndexer(dbTester.getDbClient(), esTester.client());
+    issueIndexer.setEnabled(true);
+    long bulkRequestsBefore = ThreadCounter.ES_BULK_REQUESTS.get();
+    long documentsBefore = ThreadCounter.ES_DOCUMENTS.get();
+    long esTimeBefore = ThreadElapsedTime.ELASTICSEARCH.get();
+
+    new IndexIssuesStep(issueIndexer, treeRootHolder).execute();
+
+    assertThat(esTester.countDocuments(IssueIndexDefinition.INDEX, IssueIndexDefinition.TYPE_ISSUE)).isEqualTo(1L);
+    assertThat(ThreadCounter.ES_BULK_REQUESTS.get() - bulkRequestsBefore).isGreaterThan(0L);
+    assertThat(ThreadCounter.ES_DOCUMENTS.get() - documentsBefore).isEqualTo(1L);
+    assertThat(ThreadElapsedTime.ELASTICSEARCH.get() - esTimeBefore).isGreaterThan(0L);
+  }
 }
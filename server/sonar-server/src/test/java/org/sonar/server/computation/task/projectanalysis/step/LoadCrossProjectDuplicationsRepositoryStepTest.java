@@ -58,6 +58,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.FILE;
@@ -259,6 +260,104 @@ public class LoadCrossProjectDuplicationsRepositoryStepTest {
         .build());
   }
 
+  @Test
+  public void call_compute_cpd_on_each_file_loaded_by_the_same_query() throws Exception {
+    Component secondFile = ReportComponent.builder(FILE, 3)
+      .setKey("SECOND_FILE_KEY")
+      .setFileAttributes(new FileAttributes(false, XOO_LANGUAGE))
+      .build();
+    Component thirdFile = ReportComponent.builder(FILE, 4)
+      .setKey("THIRD_FILE_KEY")
+      .setFileAttributes(new FileAttributes(false, XOO_LANGUAGE))
+      .build();
+    treeRootHolder.setRoot(ReportComponent.builder(PROJECT, PROJECT_REF).addChildren(CURRENT_FILE, secondFile, thirdFile).build());
+    when(crossProjectDuplicationStatusHolder.isEnabled()).thenReturn(true);
+    analysisMetadataHolder.setBaseAnalysis(baseProjectAnalysis);
+
+    ComponentDto otherProject = createProject("OTHER_PROJECT_KEY");
+    SnapshotDto otherProjectSnapshot = createProjectSnapshot(otherProject);
+    ComponentDto otherFile = createFile("OTHER_FILE_KEY", otherProject);
+
+    DuplicationUnitDto duplicate1 = new DuplicationUnitDto()
+      .setHash("a8998353e96320ec")
+      .setStartLine(40)
+      .setEndLine(55)
+      .setIndexInFile(0)
+      .setAnalysisUuid(otherProjectSnapshot.getUuid())
+      .setComponentUuid(otherFile.uuid());
+    DuplicationUnitDto duplicate2 = new DuplicationUnitDto()
+      .setHash("b1234353e96320ff")
+      .setStartLine(20)
+      .setEndLine(35)
+      .setIndexInFile(1)
+      .setAnalysisUuid(otherProjectSnapshot.getUuid())
+      .setComponentUuid(otherFile.uuid());
+    dbClient.duplicationDao().insert(dbSession, duplicate1);
+    dbClient.duplicationDao().insert(dbSession, duplicate2);
+    dbSession.commit();
+
+    ScannerReport.CpdTextBlock originBlock1 = ScannerReport.CpdTextBlock.newBuilder()
+      .setHash(duplicate1.getHash())
+      .setStartLine(30)
+      .setEndLine(45)
+      .setStartTokenIndex(0)
+      .setEndTokenIndex(10)
+      .build();
+    ScannerReport.CpdTextBlock originBlock2 = ScannerReport.CpdTextBlock.newBuilder()
+      .setHash(duplicate2.getHash())
+      .setStartLine(10)
+      .setEndLine(25)
+      .setStartTokenIndex(5)
+      .setEndTokenIndex(15)
+      .build();
+    ScannerReport.CpdTextBlock notDuplicatedBlock = ScannerReport.CpdTextBlock.newBuilder()
+      .setHash("c0000353e96320aa")
+      .setStartLine(1)
+      .setEndLine(10)
+      .setStartTokenIndex(0)
+      .setEndTokenIndex(5)
+      .build();
+    batchReportReader.putDuplicationBlocks(FILE_REF, asList(originBlock1));
+    batchReportReader.putDuplicationBlocks(3, asList(originBlock2));
+    batchReportReader.putDuplicationBlocks(4, asList(notDuplicatedBlock));
+
+    underTest.execute();
+
+    verify(integrateCrossProjectDuplications).computeCpd(CURRENT_FILE,
+      Arrays.asList(
+        new Block.Builder()
+          .setResourceId(CURRENT_FILE_KEY)
+          .setBlockHash(new ByteArray(originBlock1.getHash()))
+          .setIndexInFile(0)
+          .setLines(originBlock1.getStartLine(), originBlock1.getEndLine())
+          .setUnit(originBlock1.getStartTokenIndex(), originBlock1.getEndTokenIndex())
+          .build()),
+      Arrays.asList(
+        new Block.Builder()
+          .setResourceId(otherFile.getKey())
+          .setBlockHash(new ByteArray(duplicate1.getHash()))
+          .setIndexInFile(duplicate1.getIndexInFile())
+          .setLines(duplicate1.getStartLine(), duplicate1.getEndLine())
+          .build()));
+    verify(integrateCrossProjectDuplications).computeCpd(secondFile,
+      Arrays.asList(
+        new Block.Builder()
+          .setResourceId("SECOND_FILE_KEY")
+          .setBlockHash(new ByteArray(originBlock2.getHash()))
+          .setIndexInFile(0)
+          .setLines(originBlock2.getStartLine(), originBlock2.getEndLine())
+          .setUnit(originBlock2.getStartTokenIndex(), originBlock2.getEndTokenIndex())
+          .build()),
+      Arrays.asList(
+        new Block.Builder()
+          .setResourceId(otherFile.getKey())
+          .setBlockHash(new ByteArray(duplicate2.getHash()))
+          .setIndexInFile(duplicate2.getIndexInFile())
+          .setLines(duplicate2.getStartLine(), duplicate2.getEndLine())
+          .build()));
+    verifyNoMoreInteractions(integrateCrossProjectDuplications);
+  }
+
   @Test
   public void nothing_to_do_when_cross_project_duplication_is_disabled() throws Exception {
     when(crossProjectDuplicationStatusHolder.isEnabled()).thenReturn(false);
@@ -52,6 +52,8 @@ import static com.google.common.collect.Lists.newArrayList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
+import static org.sonar.server.source.index.FileSourceTesting.highlightingOf;
+import static org.sonar.server.source.index.FileSourceTesting.symbolsOf;
 
 public class PersistFileSourcesStepTest extends BaseStepTest {
 
@@ -209,7 +211,7 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
 
     assertThat(data.getLinesList()).hasSize(1);
 
-    assertThat(data.getLines(0).getHighlighting()).isEqualTo("2,4,a");
+    assertThat(highlightingOf(data.getLines(0))).isEqualTo("2,4,a");
   }
 
   @Test
@@ -234,9 +236,9 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
 
     assertThat(data.getLinesList()).hasSize(3);
 
-    assertThat(data.getLines(0).getSymbols()).isEqualTo("2,4,1");
-    assertThat(data.getLines(1).getSymbols()).isEmpty();
-    assertThat(data.getLines(2).getSymbols()).isEqualTo("1,3,1");
+    assertThat(symbolsOf(data.getLines(0))).isEqualTo("2,4,1");
+    assertThat(symbolsOf(data.getLines(1))).isEmpty();
+    assertThat(symbolsOf(data.getLines(2))).isEqualTo("1,3,1");
   }
 
   @Test
@@ -38,17 +38,22 @@ import org.sonar.db.DbTester;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentTesting;
 import org.sonar.db.issue.IssueDto;
+import org.sonar.db.issue.IssueMapper;
 import org.sonar.db.rule.RuleDto;
 import org.sonar.db.rule.RuleTesting;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReaderRule;
 import org.sonar.server.computation.task.projectanalysis.issue.IssueCache;
 import org.sonar.server.computation.task.projectanalysis.issue.RuleRepositoryImpl;
+import org.sonar.server.computation.task.projectanalysis.issue.RuleSnapshotCache;
 import org.sonar.server.computation.task.projectanalysis.issue.UpdateConflictResolver;
 import org.sonar.server.computation.task.step.ComputationStep;
+import org.sonar.server.util.cache.DiskCache;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class PersistIssuesStepTest extends BaseStepTest {
@@ -86,7 +91,7 @@ public class PersistIssuesStepTest extends BaseStepTest {
     when(system2.now()).thenReturn(NOW);
     reportReader.setMetadata(ScannerReport.Metadata.getDefaultInstance());
 
-    step = new PersistIssuesStep(dbClient, system2, new UpdateConflictResolver(), new RuleRepositoryImpl(dbClient), issueCache);
+    step = new PersistIssuesStep(dbClient, system2, new UpdateConflictResolver(), new RuleRepositoryImpl(new RuleSnapshotCache(dbClient, system2)), issueCache);
   }
 
   @After
@@ -207,4 +212,70 @@ public class PersistIssuesStepTest extends BaseStepTest {
     dbTester.assertDbUnit(getClass(), "add_change-result.xml", new String[] {"id", "created_at", "updated_at"}, "issue_changes");
   }
 
+  @Test
+  public void insert_new_issues_and_comments_by_multi_row_statements() {
+    RuleDto rule = RuleTesting.newDto(RuleKey.of("xoo", "S01"));
+    dbClient.ruleDao().insert(session, rule);
+    ComponentDto project = ComponentTesting.newProjectDto();
+    dbClient.componentDao().insert(session, project);
+    ComponentDto file = ComponentTesting.newFileDto(project, null);
+    dbClient.componentDao().insert(session, file);
+    session.commit();
+
+    int nbIssues = 2_500;
+    DiskCache<DefaultIssue>.DiskAppender appender = issueCache.newAppender();
+    for (int i = 0; i < nbIssues; i++) {
+      appender.append(new DefaultIssue()
+        .setKey("ISSUE_" + i)
+        .setType(RuleType.CODE_SMELL)
+        .setRuleKey(rule.getKey())
+        .setComponentUuid(file.uuid())
+        .setProjectUuid(project.uuid())
+        .setSeverity(Severity.MAJOR)
+        .setStatus(Issue.STATUS_OPEN)
+        .setLine(i + 1)
+        .setNew(true)
+        .addComment(new DefaultIssueComment()
+          .setKey("COMMENT_" + i)
+          .setIssueKey("ISSUE_" + i)
+          .setUserLogin("john")
+          .setMarkdownText("Some text")
+          .setNew(true)));
+    }
+    appender.close();
+
+    step.execute();
+
+    assertThat(dbTester.countRowsOfTable("issues")).isEqualTo(nbIssues);
+    assertThat(dbTester.countRowsOfTable("issue_changes")).isEqualTo(nbIssues);
+    IssueDto result = dbClient.issueDao().selectOrFailByKey(session, "ISSUE_1234");
+    assertThat(result.getLine()).isEqualTo(1235);
+    assertThat(result.getRuleKey()).isEqualTo(rule.getKey());
+  }
+
+  @Test
+  public void resolve_conflict_when_issue_has_been_updated_since_its_selection() {
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+    UpdateConflictResolver conflictResolver = mock(UpdateConflictResolver.class);
+    step = new PersistIssuesStep(dbClient, system2, conflictResolver, new RuleRepositoryImpl(new RuleSnapshotCache(dbClient, system2)), issueCache);
+
+    DefaultIssue issue = new DefaultIssue()
+      .setKey("ISSUE")
+      .setType(RuleType.CODE_SMELL)
+      .setRuleKey(RuleKey.of("xoo", "S01"))
+      .setComponentUuid("COMPONENT")
+      .setProjectUuid("PROJECT")
+      .setSeverity(Severity.BLOCKER)
+      .setStatus(Issue.STATUS_CLOSED)
+      .setResolution(Issue.RESOLUTION_FIXED)
+      // issue was updated in db at 1300000000000
+      .setSelectedAt(1200000000000L)
+      .setNew(false)
+      .setChanged(true);
+    issueCache.newAppender().append(issue).close();
+
+    step.execute();
+
+    verify(conflictResolver).resolve(any(DefaultIssue.class), any(IssueMapper.class));
+  }
 }
@@ -147,6 +147,35 @@ public class ReportComputeMeasureVariationsStepTest {
     assertThat(measureRepository.getRawMeasure(directory, ISSUES_METRIC).get().getVariations().getVariation1()).isEqualTo(10d);
   }
 
+  @Test
+  public void set_variation_when_past_measures_are_loaded_by_chunks() {
+    SnapshotDto period1Snapshot = newAnalysis(PROJECT_DTO);
+    dbClient.snapshotDao().insert(session, period1Snapshot);
+    dbClient.measureDao().insert(session, newMeasureDto(ISSUES_METRIC.getId(), PROJECT_DTO.uuid(), period1Snapshot.getUuid(), 60d));
+    ComponentDto directoryDto = ComponentTesting.newDirectory(PROJECT_DTO, "dir");
+    dbClient.componentDao().insert(session, directoryDto);
+    dbClient.measureDao().insert(session, newMeasureDto(ISSUES_METRIC.getId(), directoryDto.uuid(), period1Snapshot.getUuid(), 10d),
+      newMeasureDto(DEBT_METRIC.getId(), directoryDto.uuid(), period1Snapshot.getUuid(), 7d));
+    session.commit();
+
+    periodsHolder.setPeriods(newPeriod(1, period1Snapshot));
+
+    Component directory = ReportComponent.builder(Component.Type.DIRECTORY, 2).setUuid(directoryDto.uuid()).build();
+    Component project = ReportComponent.builder(Component.Type.PROJECT, 1).setUuid(PROJECT_DTO.uuid()).addChildren(directory).build();
+    treeRootHolder.setRoot(project);
+
+    addRawMeasure(project, ISSUES_METRIC, newMeasureBuilder().create(80, null));
+    addRawMeasure(directory, ISSUES_METRIC, newMeasureBuilder().create(20, null));
+    addRawMeasure(directory, DEBT_METRIC, newMeasureBuilder().create(10L, null));
+
+    // memory is large enough for the past values of a single component
+    new ComputeMeasureVariationsStep(dbClient, treeRootHolder, periodsHolder, metricRepository, measureRepository, 5).execute();
+
+    assertThat(measureRepository.getRawMeasure(project, ISSUES_METRIC).get().getVariations().getVariation1()).isEqualTo(20d);
+    assertThat(measureRepository.getRawMeasure(directory, ISSUES_METRIC).get().getVariations().getVariation1()).isEqualTo(10d);
+    assertThat(measureRepository.getRawMeasure(directory, DEBT_METRIC).get().getVariations().getVariation1()).isEqualTo(3d);
+  }
+
   @Test
   public void set_zero_variation_when_no_change() {
     // Project
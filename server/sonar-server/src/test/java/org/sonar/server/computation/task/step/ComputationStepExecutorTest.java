@@ -21,24 +21,37 @@ package org.sonar.server.computation.task.step;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InOrder;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.ce.queue.CeTask;
+import org.sonar.db.ce.CeTaskProfile;
+import org.sonar.server.computation.monitoring.CeTaskProfiles;
 import org.sonar.server.computation.task.ChangeLogLevel;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 public class ComputationStepExecutorTest {
+  private static final CountDownLatch NO_WAIT = new CountDownLatch(0);
+
   @Rule
   public LogTester logTester = new LogTester();
   @Rule
@@ -48,6 +61,9 @@ public class ComputationStepExecutorTest {
   private final ComputationStep computationStep1 = mockComputationStep("step1");
   private final ComputationStep computationStep2 = mockComputationStep("step2");
   private final ComputationStep computationStep3 = mockComputationStep("step3");
+  private final List<String> executed = new CopyOnWriteArrayList<>();
+  private final CeTaskProfiles taskProfiles = mock(CeTaskProfiles.class);
+  private final CeTask task = new CeTask.Builder().setUuid("TASK_1").setType("REPORT").build();
 
   @Test
   public void execute_call_execute_on_each_ComputationStep_in_order_returned_by_instances_method() {
@@ -142,6 +158,98 @@ public class ComputationStepExecutorTest {
 
   }
 
+  @Test
+  public void independent_concurrent_steps_are_executed_concurrently() {
+    CountDownLatch latch = new CountDownLatch(2);
+    new ComputationStepExecutor(mockComputationSteps(new ReadingStep(executed, latch), new OtherReadingStep(executed, latch)), listener, 2)
+      .execute();
+
+    assertThat(executed).containsOnly("read", "other read");
+    verify(listener).finished(true);
+  }
+
+  @Test
+  public void concurrent_steps_accessing_same_data_are_executed_in_order() {
+    new ComputationStepExecutor(mockComputationSteps(new WritingStep(executed), new ReadingStep(executed, NO_WAIT), new WritingStep(executed)), listener, 4)
+      .execute();
+
+    assertThat(executed).containsExactly("write", "read", "write");
+  }
+
+  @Test
+  public void not_annotated_steps_wait_for_previous_concurrent_steps() {
+    ComputationStep last = mockComputationStep("last");
+    doAnswer(invocation -> executed.add("last")).when(last).execute();
+
+    new ComputationStepExecutor(mockComputationSteps(new ReadingStep(executed, NO_WAIT), new OtherReadingStep(executed, NO_WAIT), last), listener, 4)
+      .execute();
+
+    assertThat(executed).hasSize(3);
+    assertThat(executed.get(2)).isEqualTo("last");
+  }
+
+  @Test
+  public void steps_depending_on_failed_step_are_not_executed() {
+    RuntimeException toBeThrown = new IllegalStateException("simulating failing step");
+    doThrow(toBeThrown).when(computationStep2).execute();
+
+    try {
+      new ComputationStepExecutor(mockComputationSteps(computationStep1, computationStep2, new ReadingStep(executed, NO_WAIT)), listener, 4)
+        .execute();
+      fail("exception toBeThrown should have been raised");
+    } catch (RuntimeException e) {
+      assertThat(e).isSameAs(toBeThrown);
+      assertThat(executed).isEmpty();
+      verify(listener).finished(false);
+    }
+  }
+
+  @Test
+  public void execute_logs_total_duration_and_critical_path() {
+    new ComputationStepExecutor(mockComputationSteps(computationStep1, computationStep2), listener, 2)
+      .execute();
+
+    assertThat(logTester.logs(LoggerLevel.INFO)).hasSize(1);
+    assertThat(logTester.logs(LoggerLevel.INFO).get(0)).startsWith("Steps executed in ").contains("with 2 threads", "critical path: ");
+  }
+
+  @Test
+  public void execute_records_profile_of_steps_in_order_of_declaration() {
+    new ComputationStepExecutor(mockComputationSteps(computationStep1, computationStep2, computationStep3), listener, 1, task, taskProfiles)
+      .execute();
+
+    CeTaskProfile profile = captureProfile();
+    assertThat(profile.getSteps()).extracting("description").containsExactly("step1", "step2", "step3");
+    assertThat(profile.getSteps()).extracting("durationMs").doesNotContain(CeTaskProfile.UNKNOWN);
+    assertThat(profile.getSteps()).extracting("sqlStatements").containsOnly(0L);
+  }
+
+  @Test
+  public void execute_records_profile_of_steps_executed_before_failure() {
+    doThrow(new IllegalStateException("fail")).when(computationStep2).execute();
+
+    try {
+      new ComputationStepExecutor(mockComputationSteps(computationStep1, computationStep2, computationStep3), listener, 1, task, taskProfiles)
+        .execute();
+      fail("exception should have been thrown");
+    } catch (IllegalStateException e) {
+      assertThat(captureProfile().getSteps()).extracting("description").containsExactly("step1", "step2");
+    }
+  }
+
+  @Test
+  public void execute_does_not_record_profile_when_no_step() {
+    new ComputationStepExecutor(mockComputationSteps(), listener, 1, task, taskProfiles).execute();
+
+    verify(taskProfiles, never()).record(any(String.class), any(CeTaskProfile.class));
+  }
+
+  private CeTaskProfile captureProfile() {
+    ArgumentCaptor<CeTaskProfile> captor = ArgumentCaptor.forClass(CeTaskProfile.class);
+    verify(taskProfiles).record(eq("TASK_1"), captor.capture());
+    return captor.getValue();
+  }
+
   private static ComputationSteps mockComputationSteps(ComputationStep... computationSteps) {
     ComputationSteps steps = mock(ComputationSteps.class);
     when(steps.instances()).thenReturn(Arrays.asList(computationSteps));
@@ -153,4 +261,58 @@ public class ComputationStepExecutorTest {
     when(mock.getDescription()).thenReturn(desc);
     return mock;
   }
+
+  @ConcurrentStep(reads = String.class, tables = "table1")
+  private static class ReadingStep extends RecordingStep {
+    ReadingStep(List<String> executed, CountDownLatch latch) {
+      super(executed, latch, "read");
+    }
+  }
+
+  @ConcurrentStep(reads = String.class, tables = "table2")
+  private static class OtherReadingStep extends RecordingStep {
+    OtherReadingStep(List<String> executed, CountDownLatch latch) {
+      super(executed, latch, "other read");
+    }
+  }
+
+  @ConcurrentStep(writes = String.class)
+  private static class WritingStep extends RecordingStep {
+    WritingStep(List<String> executed) {
+      super(executed, NO_WAIT, "write");
+    }
+  }
+
+  /**
+   * Records its execution, then waits for the other steps sharing the same latch
+   */
+  private abstract static class RecordingStep implements ComputationStep {
+    private final List<String> executed;
+    private final CountDownLatch latch;
+    private final String description;
+
+    RecordingStep(List<String> executed, CountDownLatch latch, String description) {
+      this.executed = executed;
+      this.latch = latch;
+      this.description = description;
+    }
+
+    @Override
+    public void execute() {
+      executed.add(description);
+      latch.countDown();
+      try {
+        if (!latch.await(10, TimeUnit.SECONDS)) {
+          throw new IllegalStateException("Steps are not executed concurrently");
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    @Override
+    public String getDescription() {
+      return description;
+    }
+  }
 }
@@ -47,6 +47,7 @@ import org.elasticsearch.search.SearchHit;
 import org.junit.rules.ExternalResource;
 import org.sonar.api.config.Settings;
 import org.sonar.core.platform.ComponentContainer;
+import org.sonar.server.es.metadata.MetadataIndex;
 
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.Lists.newArrayList;
@@ -72,6 +73,7 @@ public class EsTester extends ExternalResource {
       container.addSingletons(indexDefinitions);
       container.addSingleton(client);
       container.addSingleton(IndexDefinitions.class);
+      container.addSingleton(MetadataIndex.class);
       container.addSingleton(IndexCreator.class);
       container.startComponents();
     }
@@ -30,6 +30,8 @@ import javax.annotation.CheckForNull;
 import java.io.IOException;
 import java.util.Map;
 import org.sonar.api.config.Settings;
+import org.sonar.server.es.metadata.MetadataIndex;
+import org.sonar.server.es.metadata.MetadataIndexDefinition;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -38,13 +40,15 @@ public class IndexCreatorTest {
   @Rule
   public EsTester es = new EsTester();
 
+  private MetadataIndex metadataIndex = new MetadataIndex(es.client());
+
   @Test
   public void create_index() throws Exception {
     assertThat(mappings()).isEmpty();
 
     IndexDefinitions registry = new IndexDefinitions(new IndexDefinition[] {new FakeIndexDefinition()}, new Settings());
     registry.start();
-    IndexCreator creator = new IndexCreator(es.client(), registry);
+    IndexCreator creator = new IndexCreator(es.client(), registry, metadataIndex);
     creator.start();
 
     // check that index is created with related mapping
@@ -69,7 +73,7 @@ public class IndexCreatorTest {
     // v1
     IndexDefinitions registry = new IndexDefinitions(new IndexDefinition[] {new FakeIndexDefinition()}, new Settings());
     registry.start();
-    IndexCreator creator = new IndexCreator(es.client(), registry);
+    IndexCreator creator = new IndexCreator(es.client(), registry, metadataIndex);
     creator.start();
     creator.stop();
     String hashV1 = setting("fakes", "index.sonar_hash");
@@ -78,7 +82,7 @@ public class IndexCreatorTest {
     // v2
     registry = new IndexDefinitions(new IndexDefinition[] {new FakeIndexDefinitionV2()}, new Settings());
     registry.start();
-    creator = new IndexCreator(es.client(), registry);
+    creator = new IndexCreator(es.client(), registry, metadataIndex);
     creator.start();
     ImmutableOpenMap<String, ImmutableOpenMap<String, MappingMetaData>> mappings = mappings();
     MappingMetaData mapping = mappings.get("fakes").get("fake");
@@ -90,6 +94,41 @@ public class IndexCreatorTest {
     creator.stop();
   }
 
+  @Test
+  public void created_index_is_not_initialized() {
+    IndexDefinitions registry = new IndexDefinitions(new IndexDefinition[] {new MetadataIndexDefinition(new Settings()), new FakeIndexDefinition()}, new Settings());
+    registry.start();
+    new IndexCreator(es.client(), registry, metadataIndex).start();
+    assertThat(metadataIndex.isInitialized("fakes")).isFalse();
+
+    metadataIndex.setInitialized("fakes", true);
+    assertThat(metadataIndex.isInitialized("fakes")).isTrue();
+
+    // nothing changed, index is kept
+    new IndexCreator(es.client(), registry, metadataIndex).start();
+    assertThat(metadataIndex.isInitialized("fakes")).isTrue();
+
+    // definition changed, index is re-created and must be populated again
+    registry = new IndexDefinitions(new IndexDefinition[] {new MetadataIndexDefinition(new Settings()), new FakeIndexDefinitionV2()}, new Settings());
+    registry.start();
+    new IndexCreator(es.client(), registry, metadataIndex).start();
+    assertThat(metadataIndex.isInitialized("fakes")).isFalse();
+  }
+
+  @Test
+  public void existing_index_is_initialized_when_metadata_index_is_created() {
+    // index created by a version which does not record the state of indices
+    IndexDefinitions registry = new IndexDefinitions(new IndexDefinition[] {new FakeIndexDefinition()}, new Settings());
+    registry.start();
+    new IndexCreator(es.client(), registry, metadataIndex).start();
+
+    registry = new IndexDefinitions(new IndexDefinition[] {new MetadataIndexDefinition(new Settings()), new FakeIndexDefinition()}, new Settings());
+    registry.start();
+    new IndexCreator(es.client(), registry, metadataIndex).start();
+
+    assertThat(metadataIndex.isInitialized("fakes")).isTrue();
+  }
+
   private String setting(String indexName, String settingKey) {
     GetSettingsResponse indexSettings = es.client().nativeClient().admin().indices().prepareGetSettings(indexName).get();
     return indexSettings.getSetting(indexName, settingKey);
@@ -0,0 +1,52 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es.metadata;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.config.Settings;
+import org.sonar.server.es.EsTester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MetadataIndexTest {
+
+  @Rule
+  public EsTester es = new EsTester(new MetadataIndexDefinition(new Settings()));
+
+  private MetadataIndex underTest = new MetadataIndex(es.client());
+
+  @Test
+  public void index_is_not_initialized_by_default() {
+    assertThat(underTest.isInitialized("issues")).isFalse();
+  }
+
+  @Test
+  public void set_initialized() {
+    underTest.setInitialized("issues", true);
+    underTest.setInitialized("tests", false);
+
+    assertThat(underTest.isInitialized("issues")).isTrue();
+    assertThat(underTest.isInitialized("tests")).isFalse();
+
+    underTest.setInitialized("issues", false);
+    assertThat(underTest.isInitialized("issues")).isFalse();
+  }
+}
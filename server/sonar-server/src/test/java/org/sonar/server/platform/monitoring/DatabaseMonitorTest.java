@@ -61,4 +61,11 @@ public class DatabaseMonitorTest {
     Map<String, Object> attributes = underTest.attributes();
     assertThat((int) attributes.get("Pool Max Connections")).isGreaterThan(0);
   }
+
+  @Test
+  public void sql_statistics() {
+    Map<String, Object> attributes = underTest.attributes();
+    assertThat((long) attributes.get("SQL Executions")).isGreaterThanOrEqualTo(0L);
+    assertThat(attributes).containsKeys("SQL Total Time (ms)", "SQL Fetched Rows", "Top SQL Statements");
+  }
 }
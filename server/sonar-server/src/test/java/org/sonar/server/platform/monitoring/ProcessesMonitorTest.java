@@ -0,0 +1,87 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Map;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.System2;
+import org.sonar.process.DefaultProcessCommands;
+import org.sonar.process.ProcessId;
+import org.sonar.process.ProcessMetric;
+import org.sonar.process.ProcessMetrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.sonar.process.ProcessEntryPoint.PROPERTY_SHARED_PATH;
+
+public class ProcessesMonitorTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private Settings settings = new Settings();
+  private System2 system2 = mock(System2.class);
+  private ProcessesMonitor underTest = new ProcessesMonitor(settings, system2);
+
+  @Test
+  public void name() {
+    assertThat(underTest.name()).isEqualTo("Processes");
+  }
+
+  @Test
+  public void no_attributes_if_shared_directory_is_not_defined() {
+    assertThat(underTest.attributes()).isEmpty();
+  }
+
+  @Test
+  public void attributes_contain_latest_metrics_of_each_process() throws Exception {
+    File sharedDir = temp.newFolder();
+    settings.setProperty(PROPERTY_SHARED_PATH, sharedDir.getAbsolutePath());
+    try (DefaultProcessCommands web = DefaultProcessCommands.main(sharedDir, ProcessId.WEB_SERVER.getIpcIndex())) {
+      web.publishMetrics(metrics(10_000L, 100L));
+      web.publishMetrics(metrics(12_000L, 140L));
+    }
+    when(system2.now()).thenReturn(12_500L);
+
+    Map<String, Object> attributes = underTest.attributes();
+
+    assertThat(attributes).containsOnlyKeys("web");
+    Map<String, Object> web = (Map<String, Object>) attributes.get("web");
+    assertThat(web).containsEntry("Sample Age (ms)", 500L);
+    assertThat(web).containsEntry("Heap Used (MB)", 2L);
+    assertThat(web).containsEntry("Web Service Requests", 140L);
+    assertThat(web).containsEntry("Web Service Requests per Second", 20.0);
+    assertThat(web).doesNotContainKeys("Threads", "Pending CE Tasks");
+  }
+
+  private static ProcessMetrics metrics(long timestamp, long wsRequests) {
+    long[] values = new long[ProcessMetric.MAX_METRICS];
+    Arrays.fill(values, ProcessMetrics.UNKNOWN);
+    values[ProcessMetric.HEAP_USED_BYTES.ordinal()] = 2L * 1024L * 1024L;
+    values[ProcessMetric.WS_REQUESTS.ordinal()] = wsRequests;
+    return new ProcessMetrics(timestamp, values);
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import java.util.Collections;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.db.Database;
+import org.sonar.db.profiling.SqlStatistics;
+import org.sonar.db.profiling.StatementStatistics;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SqlStatisticsLoggerTest {
+
+  @Rule
+  public LogTester logTester = new LogTester();
+
+  Settings settings = new Settings();
+  SqlStatistics statistics = mock(SqlStatistics.class);
+  Database database = mock(Database.class);
+
+  @Test
+  public void log_top_statements() {
+    StatementStatistics statement = mock(StatementStatistics.class);
+    when(statement.toString()).thenReturn("executions=3 sql=select 1");
+    when(statistics.getTopByTotalTime(SqlStatisticsLogger.TOP_STATEMENTS)).thenReturn(singletonList(statement));
+    when(statistics.getExecutions()).thenReturn(3L);
+    when(statistics.getDistinctStatements()).thenReturn(1);
+    when(database.getSqlStatistics()).thenReturn(statistics);
+
+    new SqlStatisticsLogger(settings, database).logTopStatements();
+
+    assertThat(logTester.logs(LoggerLevel.INFO)).hasSize(1);
+    assertThat(logTester.logs(LoggerLevel.INFO).get(0))
+      .startsWith("SQL statistics: 3 executions of 1 distinct statements")
+      .contains("executions=3 sql=select 1");
+  }
+
+  @Test
+  public void do_not_log_if_no_statements() {
+    when(statistics.getTopByTotalTime(SqlStatisticsLogger.TOP_STATEMENTS)).thenReturn(Collections.emptyList());
+    when(database.getSqlStatistics()).thenReturn(statistics);
+
+    new SqlStatisticsLogger(settings, database).logTopStatements();
+
+    assertThat(logTester.logs()).isEmpty();
+  }
+
+  @Test
+  public void start_and_stop_when_disabled() {
+    settings.setProperty(SqlStatisticsLogger.PROPERTY_PERIOD, 0);
+    SqlStatisticsLogger underTest = new SqlStatisticsLogger(settings, database);
+
+    underTest.start();
+    underTest.stop();
+
+    assertThat(logTester.logs()).isEmpty();
+  }
+
+  @Test
+  public void start_and_stop() {
+    SqlStatisticsLogger underTest = new SqlStatisticsLogger(settings, database);
+
+    underTest.start();
+    underTest.stop();
+  }
+}
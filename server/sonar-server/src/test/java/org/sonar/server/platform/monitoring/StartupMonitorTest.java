@@ -0,0 +1,65 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import org.sonar.server.startup.StartupTaskGraph;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StartupMonitorTest {
+
+  private StartupMonitor underTest = new StartupMonitor();
+
+  @Test
+  public void name() {
+    assertThat(underTest.name()).isEqualTo("Startup");
+  }
+
+  @Test
+  public void no_tasks_before_startup_tasks_are_executed() {
+    Map<String, Object> attributes = underTest.attributes();
+
+    assertThat(attributes).containsEntry("Startup Tasks Duration (ms)", 0L);
+    assertThat((Map) attributes.get("Startup Tasks")).isEmpty();
+  }
+
+  @Test
+  public void attributes_contain_timings_of_tasks() {
+    List<StartupTaskGraph.Timing> timings = new StartupTaskGraph()
+      .add("A", () -> {
+      })
+      .add("B", () -> {
+      }, "A")
+      .execute(1);
+
+    underTest.setTimings(timings, 42L, 1);
+
+    Map<String, Object> attributes = underTest.attributes();
+    assertThat(attributes).containsEntry("Startup Tasks Duration (ms)", 42L);
+    assertThat(attributes).containsEntry("Startup Tasks Threads", 1);
+    Map<String, Map<String, Object>> tasks = (Map<String, Map<String, Object>>) attributes.get("Startup Tasks");
+    assertThat(tasks.keySet()).containsExactly("A", "B");
+    assertThat(tasks.get("B")).containsKeys("Duration (ms)", "Start Offset (ms)");
+    assertThat(tasks.get("B")).containsEntry("Thread", "sq-startup-0");
+  }
+}
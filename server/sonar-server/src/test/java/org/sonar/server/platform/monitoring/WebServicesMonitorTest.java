@@ -0,0 +1,86 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import java.util.Collections;
+import java.util.Map;
+import org.junit.Test;
+import org.sonar.server.ws.ActionMetrics;
+import org.sonar.server.ws.WebServiceMetrics;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class WebServicesMonitorTest {
+
+  WebServiceMetrics metrics = mock(WebServiceMetrics.class);
+
+  WebServicesMonitor underTest = new WebServicesMonitor(metrics);
+
+  @Test
+  public void name() {
+    assertThat(underTest.name()).isEqualTo("Web Services");
+  }
+
+  @Test
+  public void no_requests() {
+    Map<String, Object> attributes = underTest.attributes();
+
+    assertThat(attributes.get("Requests")).isEqualTo(0L);
+    assertThat((Map) attributes.get("Actions")).isEmpty();
+    assertThat(underTest.getActionStatistics()).isEmpty();
+    assertThat(underTest.getSlowestRequests()).isEmpty();
+  }
+
+  @Test
+  public void aggregate_statistics_of_actions() {
+    ActionMetrics search = mockAction("api/issues/search", 10L, 2L, 1L);
+    ActionMetrics show = mockAction("api/issues/show", 5L, 0L, 0L);
+    when(metrics.getActionMetrics()).thenReturn(asList(search, show));
+    when(metrics.getSlowestRequests()).thenReturn(Collections.emptyList());
+
+    Map<String, Object> attributes = underTest.attributes();
+
+    assertThat(underTest.getRequests()).isEqualTo(15L);
+    assertThat(underTest.getClientErrors()).isEqualTo(2L);
+    assertThat(underTest.getServerErrors()).isEqualTo(1L);
+    assertThat(attributes.get("Requests")).isEqualTo(15L);
+    Map actions = (Map) attributes.get("Actions");
+    assertThat(actions).containsOnlyKeys("api/issues/search", "api/issues/show");
+    Map searchAttributes = (Map) actions.get("api/issues/search");
+    assertThat(searchAttributes.get("Requests")).isEqualTo(10L);
+    assertThat(searchAttributes.get("99th Percentile Time (ms)")).isEqualTo(99L);
+    assertThat(underTest.getActionStatistics()).hasSize(2);
+    assertThat(underTest.getActionStatistics()[0]).startsWith("api/issues/search requests=10 errors=3 p50=50ms p99=99ms");
+  }
+
+  private static ActionMetrics mockAction(String path, long requests, long clientErrors, long serverErrors) {
+    ActionMetrics action = mock(ActionMetrics.class);
+    when(action.getPath()).thenReturn(path);
+    when(action.getRequests()).thenReturn(requests);
+    when(action.getClientErrors()).thenReturn(clientErrors);
+    when(action.getServerErrors()).thenReturn(serverErrors);
+    when(action.getPercentileMs(50)).thenReturn(50L);
+    when(action.getPercentileMs(99)).thenReturn(99L);
+    return action;
+  }
+}
@@ -550,6 +550,21 @@ public class RuleActivatorMediumTest {
     verifyZeroActiveRules(XOO_P1_KEY);
   }
 
+  @Test
+  public void deactivate_rules_on_all_profiles() {
+    userSessionRule.login();
+    activate(new RuleActivation(XOO_X1), XOO_P1_KEY);
+    activate(new RuleActivation(XOO_X2), XOO_P1_KEY);
+
+    List<ActiveRuleChange> changes = ruleActivator.deactivate(dbSession, Arrays.asList(
+      db.ruleDao().selectOrFailByKey(dbSession, XOO_X1), db.ruleDao().selectOrFailByKey(dbSession, XOO_X2)));
+    dbSession.commit();
+
+    assertThat(changes).extracting(ActiveRuleChange::getKey)
+      .containsOnly(ActiveRuleKey.of(XOO_P1_KEY, XOO_X1), ActiveRuleKey.of(XOO_P1_KEY, XOO_X2));
+    verifyZeroActiveRules(XOO_P1_KEY);
+  }
+
   // INHERITANCE OF PROFILES
   @Test
   public void activate_on_child_profile_but_not_on_parent() {
@@ -0,0 +1,139 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.qualityprofile;
+
+import java.util.Collections;
+import javax.annotation.Nullable;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
+import org.sonar.db.qualityprofile.ActiveRuleDto;
+import org.sonar.db.qualityprofile.ActiveRuleKey;
+import org.sonar.db.qualityprofile.ActiveRuleParamDto;
+import org.sonar.db.qualityprofile.QualityProfileDto;
+import org.sonar.db.rule.RuleDto;
+import org.sonar.db.rule.RuleParamDto;
+import org.sonar.db.rule.RuleTesting;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.qualityprofile.QProfileTesting.XOO_P1_KEY;
+import static org.sonar.server.qualityprofile.QProfileTesting.XOO_P2_KEY;
+import static org.sonar.server.qualityprofile.QProfileTesting.XOO_P3_KEY;
+
+public class RuleActivatorSnapshotTest {
+
+  @Rule
+  public DbTester dbTester = DbTester.create(System2.INSTANCE);
+
+  DbClient db = dbTester.getDbClient();
+  DbSession dbSession = dbTester.getSession();
+
+  RuleDto rule1 = RuleTesting.newXooX1();
+  RuleDto rule2 = RuleTesting.newXooX2();
+  RuleDto rule3 = RuleTesting.newXooX3();
+  RuleParamDto rule1Param;
+  QualityProfileDto p1 = QProfileTesting.newXooP1();
+  QualityProfileDto p2 = QProfileTesting.newXooP2().setParentKee(XOO_P1_KEY);
+  QualityProfileDto p3 = QProfileTesting.newXooP3().setParentKee(XOO_P2_KEY);
+
+  @Before
+  public void setUp() {
+    db.ruleDao().insert(dbSession, rule1);
+    db.ruleDao().insert(dbSession, rule2);
+    db.ruleDao().insert(dbSession, rule3);
+    rule1Param = RuleParamDto.createFor(rule1).setName("max").setType("INTEGER").setDefaultValue("10");
+    db.ruleDao().insertRuleParam(dbSession, rule1, rule1Param);
+    db.qualityProfileDao().insert(dbSession, p1, p2, p3);
+    dbSession.commit();
+  }
+
+  @Test
+  public void load_profile_tree_and_rules() {
+    ActiveRuleDto onParent = insertActiveRule(p1, rule1, "7");
+    ActiveRuleDto onChild = insertActiveRule(p3, rule2, null);
+
+    RuleActivatorSnapshot underTest = RuleActivatorSnapshot.load(db, dbSession, XOO_P2_KEY, Collections.singletonList(rule3.getKey()));
+
+    assertThat(underTest.profile(XOO_P2_KEY).getName()).isEqualTo(p2.getName());
+    assertThat(underTest.children(XOO_P1_KEY)).extracting(QualityProfileDto::getKey).containsOnly(XOO_P2_KEY);
+    assertThat(underTest.children(XOO_P2_KEY)).extracting(QualityProfileDto::getKey).containsOnly(XOO_P3_KEY);
+    assertThat(underTest.children(XOO_P3_KEY)).isEmpty();
+
+    // requested rule and rules active on the profile tree
+    assertThat(underTest.rule(rule1.getKey()).getId()).isEqualTo(rule1.getId());
+    assertThat(underTest.rule(rule2.getKey()).getId()).isEqualTo(rule2.getId());
+    assertThat(underTest.rule(rule3.getKey()).getId()).isEqualTo(rule3.getId());
+    assertThat(underTest.ruleParams(rule1)).extracting(RuleParamDto::getName).containsOnly("max");
+    assertThat(underTest.ruleParams(rule2)).isEmpty();
+
+    assertThat(underTest.activeRule(onParent.getKey()).getId()).isEqualTo(onParent.getId());
+    assertThat(underTest.activeRuleParams(onParent)).extracting(ActiveRuleParamDto::getValue).containsOnly("7");
+    assertThat(underTest.activeRule(onChild.getKey()).getId()).isEqualTo(onChild.getId());
+    assertThat(underTest.activeRuleParams(onChild)).isEmpty();
+    assertThat(underTest.activeRule(ActiveRuleKey.of(XOO_P2_KEY, rule1.getKey()))).isNull();
+  }
+
+  @Test
+  public void do_not_load_active_rules_of_profiles_out_of_tree() {
+    QualityProfileDto other = QProfileTesting.newQProfileDto(new QProfileName("xoo", "Other"), "XOO_OTHER");
+    db.qualityProfileDao().insert(dbSession, other);
+    ActiveRuleDto activeRule = insertActiveRule(other, rule1, null);
+
+    RuleActivatorSnapshot underTest = RuleActivatorSnapshot.load(db, dbSession, XOO_P1_KEY, Collections.emptyList());
+
+    assertThat(underTest.activeRule(activeRule.getKey())).isNull();
+  }
+
+  @Test
+  public void track_changes_of_active_rules() {
+    RuleActivatorSnapshot underTest = RuleActivatorSnapshot.load(db, dbSession, XOO_P1_KEY, asList(rule1.getKey()));
+    ActiveRuleDto activeRule = insertActiveRule(p1, rule1, null);
+    ActiveRuleParamDto param = ActiveRuleParamDto.createFor(rule1Param).setValue("5");
+    db.activeRuleDao().insertParam(dbSession, activeRule, param);
+
+    underTest.addActiveRule(activeRule);
+    underTest.addActiveRuleParam(param);
+    assertThat(underTest.activeRule(activeRule.getKey())).isSameAs(activeRule);
+    assertThat(underTest.activeRuleParams(activeRule)).containsOnly(param);
+
+    underTest.removeActiveRuleParam(param);
+    assertThat(underTest.activeRuleParams(activeRule)).isEmpty();
+
+    underTest.addActiveRuleParam(param);
+    underTest.removeActiveRule(activeRule.getKey());
+    assertThat(underTest.activeRule(activeRule.getKey())).isNull();
+    assertThat(underTest.activeRuleParams(activeRule)).isEmpty();
+  }
+
+  private ActiveRuleDto insertActiveRule(QualityProfileDto profile, RuleDto rule, @Nullable String paramValue) {
+    ActiveRuleDto activeRule = ActiveRuleDto.createFor(profile, rule).setSeverity("MAJOR");
+    db.activeRuleDao().insert(dbSession, activeRule);
+    if (paramValue != null) {
+      db.activeRuleDao().insertParam(dbSession, activeRule, ActiveRuleParamDto.createFor(rule1Param).setValue(paramValue));
+    }
+    dbSession.commit();
+    return activeRule;
+  }
+}
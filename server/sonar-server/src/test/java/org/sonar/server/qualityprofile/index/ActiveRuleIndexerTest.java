@@ -20,7 +20,12 @@
 package org.sonar.server.qualityprofile.index;
 
 import com.google.common.collect.Iterators;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -97,6 +102,26 @@ public class ActiveRuleIndexerTest {
     assertThat(esTester.countDocuments(INDEX, TYPE_ACTIVE_RULE)).isEqualTo(1);
   }
 
+  @Test
+  public void concurrent_indexations_share_pending_requests() throws Exception {
+    dbTester.prepareDbUnit(getClass(), "index.xml");
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        futures.add(executor.submit(() -> indexer.index()));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    assertThat(esTester.countDocuments(INDEX, TYPE_ACTIVE_RULE)).isEqualTo(1);
+  }
+
   @Test
   public void delete_profile() throws Exception {
     indexActiveRules(
@@ -0,0 +1,100 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.rule;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.config.Settings;
+import org.sonar.api.resources.Language;
+import org.sonar.api.resources.Languages;
+import org.sonar.api.server.rule.RulesDefinition;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbTester;
+import org.sonar.server.es.EsTester;
+import org.sonar.server.qualityprofile.RuleActivator;
+import org.sonar.server.qualityprofile.index.ActiveRuleIndexer;
+import org.sonar.server.rule.index.RuleIndexDefinition;
+import org.sonar.server.rule.index.RuleIndexer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Measures registration of 20,000 rules at startup, then a second registration without changes, as done when
+ * server is restarted. Not a unit test: the name of the class does not match the test classes executed by the
+ * build, so it must be run explicitly:
+ * <pre>mvn test -Dtest=RegisterRulesBenchmark</pre>
+ */
+public class RegisterRulesBenchmark {
+
+  private static final Logger LOG = Loggers.get(RegisterRulesBenchmark.class);
+  private static final int RULES = 20_000;
+
+  @Rule
+  public DbTester dbTester = DbTester.create(System2.INSTANCE);
+
+  @Rule
+  public EsTester esTester = new EsTester(new RuleIndexDefinition(new Settings()));
+
+  DbClient dbClient = dbTester.getDbClient();
+
+  @Test
+  public void register_20k_rules() {
+    RulesDefinition repository = context -> {
+      RulesDefinition.NewRepository repo = context.createRepository("big", "java");
+      for (int i = 0; i < RULES; i++) {
+        RulesDefinition.NewRule rule = repo.createRule("rule" + i)
+          .setName("name of " + i)
+          .setHtmlDescription("description of " + i);
+        for (int j = 0; j < 3; j++) {
+          rule.createParam("param" + j).setDefaultValue("" + j);
+        }
+      }
+      repo.done();
+    };
+
+    long start = System.currentTimeMillis();
+    execute(repository);
+    LOG.info("First registration of 20k rules: {} ms", System.currentTimeMillis() - start);
+
+    start = System.currentTimeMillis();
+    execute(repository);
+    LOG.info("Registration of 20k unchanged rules: {} ms", System.currentTimeMillis() - start);
+    assertThat(dbTester.countRowsOfTable("rules")).isEqualTo(RULES);
+  }
+
+  private void execute(RulesDefinition... defs) {
+    RuleDefinitionsLoader loader = new RuleDefinitionsLoader(mock(DeprecatedRulesDefinitionLoader.class), new RuleRepositories(), mock(CommonRuleDefinitionsImpl.class), defs);
+    Languages languages = mock(Languages.class);
+    when(languages.get("java")).thenReturn(mock(Language.class));
+    RuleIndexer ruleIndexer = new RuleIndexer(dbClient, esTester.client());
+    ruleIndexer.setEnabled(true);
+    ActiveRuleIndexer activeRuleIndexer = new ActiveRuleIndexer(dbClient, esTester.client());
+    activeRuleIndexer.setEnabled(true);
+
+    RegisterRules task = new RegisterRules(loader, mock(RuleActivator.class), dbClient, ruleIndexer, activeRuleIndexer, languages, System2.INSTANCE);
+    task.start();
+    dbTester.getSession().commit();
+  }
+}
@@ -21,6 +21,8 @@ package org.sonar.server.source;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.sonar.db.protobuf.DbFileSources;
+import org.sonar.db.source.LineRanges;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -42,6 +44,28 @@ public class HtmlSourceDecoratorTest {
       "<span class=\"k\">package</span> <span class=\"sym-42 sym\">org.polop</span>;");
   }
 
+  @Test
+  public void should_decorate_line_with_compact_ranges() {
+    DbFileSources.Line.Builder line = DbFileSources.Line.newBuilder().setSource("package org.polop;");
+    LineRanges.highlightingEncoder(line).add(0, 7, LineRanges.cssClassIndex("k"));
+    LineRanges.symbolsEncoder(line).add(8, 17, 42);
+
+    assertThat(sourceDecorator.getDecoratedSourceAsHtml(line.build())).isEqualTo(
+      "<span class=\"k\">package</span> <span class=\"sym-42 sym\">org.polop</span>;");
+  }
+
+  @Test
+  public void should_decorate_line_written_before_compact_ranges() {
+    DbFileSources.Line line = DbFileSources.Line.newBuilder()
+      .setSource("package org.polop;")
+      .setHighlighting("0,7,k")
+      .setSymbols("8,17,42")
+      .build();
+
+    assertThat(sourceDecorator.getDecoratedSourceAsHtml(line)).isEqualTo(
+      "<span class=\"k\">package</span> <span class=\"sym-42 sym\">org.polop</span>;");
+  }
+
   @Test
   public void should_handle_highlighting_too_long() {
     String sourceLine = "abc";
@@ -27,6 +27,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.mockito.ArgumentMatcher;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbTester;
 import org.sonar.db.protobuf.DbFileSources;
@@ -34,6 +35,7 @@ import org.sonar.db.source.FileSourceDto;
 import org.sonar.server.source.index.FileSourceTesting;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.argThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -80,9 +82,9 @@ public class SourceServiceTest {
 
   @Test
   public void get_range_of_lines_as_html() throws Exception {
-    when(htmlDecorator.getDecoratedSourceAsHtml("SOURCE_5", "HIGHLIGHTING_5", "SYMBOLS_5")).thenReturn("HTML_5");
-    when(htmlDecorator.getDecoratedSourceAsHtml("SOURCE_6", "HIGHLIGHTING_6", "SYMBOLS_6")).thenReturn("HTML_6");
-    when(htmlDecorator.getDecoratedSourceAsHtml("SOURCE_7", "HIGHLIGHTING_7", "SYMBOLS_7")).thenReturn("HTML_7");
+    when(htmlDecorator.getDecoratedSourceAsHtml(argThat(hasSource("SOURCE_5")))).thenReturn("HTML_5");
+    when(htmlDecorator.getDecoratedSourceAsHtml(argThat(hasSource("SOURCE_6")))).thenReturn("HTML_6");
+    when(htmlDecorator.getDecoratedSourceAsHtml(argThat(hasSource("SOURCE_7")))).thenReturn("HTML_7");
 
     Optional<Iterable<String>> linesOpt = underTest.getLinesAsHtml(dbTester.getSession(), FILE_UUID, 5, 7);
     assertThat(linesOpt.isPresent()).isTrue();
@@ -119,4 +121,12 @@ public class SourceServiceTest {
     assertThat(lines.isPresent()).isFalse();
   }
 
+  private static ArgumentMatcher<DbFileSources.Line> hasSource(String source) {
+    return new ArgumentMatcher<DbFileSources.Line>() {
+      @Override
+      public boolean matches(Object o) {
+        return source.equals(((DbFileSources.Line) o).getSource());
+      }
+    };
+  }
 }
@@ -24,10 +24,12 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.Arrays;
+import java.util.StringJoiner;
 import org.apache.commons.lang.RandomStringUtils;
 import org.apache.commons.lang.math.RandomUtils;
 import org.sonar.db.protobuf.DbFileSources;
 import org.sonar.db.source.FileSourceDto;
+import org.sonar.db.source.LineRanges;
 
 public class FileSourceTesting {
 
@@ -47,6 +49,24 @@ public class FileSourceTesting {
     stmt.close();
   }
 
+  /**
+   * Highlighting of the line in the format "startOffset,endOffset,cssClass;...", whatever its encoding
+   */
+  public static String highlightingOf(DbFileSources.LineOrBuilder line) {
+    StringJoiner joiner = new StringJoiner(";");
+    LineRanges.readHighlighting(line, (start, end, cssClass) -> joiner.add(start + "," + end + "," + cssClass));
+    return joiner.toString();
+  }
+
+  /**
+   * Symbols of the line in the format "startOffset,endOffset,symbolId;...", whatever their encoding
+   */
+  public static String symbolsOf(DbFileSources.LineOrBuilder line) {
+    StringJoiner joiner = new StringJoiner(";");
+    LineRanges.readSymbols(line, (start, end, symbolId) -> joiner.add(start + "," + end + "," + symbolId));
+    return joiner.toString();
+  }
+
   /**
    * Generate predefined fake data. Result is mutable.
    */
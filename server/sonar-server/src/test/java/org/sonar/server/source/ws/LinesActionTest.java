@@ -31,6 +31,7 @@ import org.sonar.db.DbTester;
 import org.sonar.db.component.ComponentDao;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentTesting;
+import org.sonar.db.protobuf.DbFileSources;
 import org.sonar.db.source.FileSourceDto;
 import org.sonar.server.component.ComponentFinder;
 import org.sonar.server.exceptions.ForbiddenException;
@@ -43,7 +44,7 @@ import org.sonar.server.ws.WsTester;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
-import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -73,10 +74,10 @@ public class LinesActionTest {
   @Before
   public void setUp() {
     htmlSourceDecorator = mock(HtmlSourceDecorator.class);
-    when(htmlSourceDecorator.getDecoratedSourceAsHtml(anyString(), anyString(), anyString())).then(new Answer<String>() {
+    when(htmlSourceDecorator.getDecoratedSourceAsHtml(any(DbFileSources.Line.class))).then(new Answer<String>() {
       @Override
       public String answer(InvocationOnMock invocationOnMock) throws Throwable {
-        return "<p>" + invocationOnMock.getArguments()[0] + "</p>";
+        return "<p>" + ((DbFileSources.Line) invocationOnMock.getArguments()[0]).getSource() + "</p>";
       }
     });
     sourceService = new SourceService(dbTester.getDbClient(), htmlSourceDecorator);
@@ -0,0 +1,115 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.startup;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class StartupTaskGraphTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private List<String> executed = new CopyOnWriteArrayList<>();
+  private StartupTaskGraph underTest = new StartupTaskGraph();
+
+  @Test
+  public void execute_tasks_after_their_dependencies() {
+    underTest.add("A", record("A"))
+      .add("B", record("B"), "A")
+      .add("C", record("C"), "A")
+      .add("D", record("D"), "B", "C");
+
+    List<StartupTaskGraph.Timing> timings = underTest.execute(3);
+
+    assertThat(executed).hasSize(4);
+    assertThat(executed.get(0)).isEqualTo("A");
+    assertThat(executed.get(3)).isEqualTo("D");
+    assertThat(timings).extracting(StartupTaskGraph.Timing::getName).containsExactly("A", "B", "C", "D");
+    assertThat(timings).extracting(StartupTaskGraph.Timing::getThreadName).allMatch(name -> name.startsWith("sq-startup-"));
+  }
+
+  @Test
+  public void execute_independent_tasks_concurrently() {
+    CountDownLatch latch = new CountDownLatch(2);
+    Runnable waitForOther = () -> {
+      latch.countDown();
+      try {
+        if (!latch.await(10, TimeUnit.SECONDS)) {
+          fail("tasks are not executed concurrently");
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    };
+    underTest.add("A", waitForOther).add("B", waitForOther);
+
+    underTest.execute(2);
+
+    assertThat(latch.getCount()).isZero();
+  }
+
+  @Test
+  public void dependents_of_failed_task_are_not_executed() {
+    underTest.add("A", () -> {
+      throw new IllegalStateException("Unexpected failure");
+    })
+      .add("B", record("B"), "A")
+      .add("C", record("C"));
+
+    try {
+      underTest.execute(2);
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("Unexpected failure");
+    }
+    assertThat(executed).containsExactly("C");
+  }
+
+  @Test
+  public void fail_if_dependency_is_not_declared() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Startup task 'B' depends on undeclared task 'A'");
+
+    underTest.add("B", record("B"), "A");
+  }
+
+  @Test
+  public void fail_if_task_is_declared_twice() {
+    underTest.add("A", record("A"));
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Startup task 'A' is already declared");
+
+    underTest.add("A", record("A"));
+  }
+
+  private Runnable record(String name) {
+    return () -> executed.add(name);
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ws;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LatencyHistogramTest {
+
+  LatencyHistogram underTest = new LatencyHistogram();
+
+  @Test
+  public void percentile_is_zero_if_no_values() {
+    assertThat(underTest.percentile(50)).isEqualTo(0L);
+  }
+
+  @Test
+  public void small_values_are_exact() {
+    for (long i = 0; i < 8; i++) {
+      assertThat(LatencyHistogram.upperBoundOf(LatencyHistogram.bucketOf(i))).isEqualTo(i);
+    }
+  }
+
+  @Test
+  public void relative_error_is_lower_than_one_eighth() {
+    for (long value = 1; value < 10_000_000L; value = value * 3 / 2 + 1) {
+      long upperBound = LatencyHistogram.upperBoundOf(LatencyHistogram.bucketOf(value));
+      assertThat(upperBound).isGreaterThanOrEqualTo(value);
+      assertThat(upperBound - value).isLessThanOrEqualTo(value / 8);
+    }
+  }
+
+  @Test
+  public void huge_values_are_counted_in_last_bucket() {
+    assertThat(LatencyHistogram.bucketOf(Long.MAX_VALUE)).isEqualTo(LatencyHistogram.BUCKETS - 1);
+    assertThat(LatencyHistogram.bucketOf(-5L)).isEqualTo(0);
+  }
+
+  @Test
+  public void percentiles() {
+    for (int i = 1; i <= 100; i++) {
+      underTest.record(i * 1_000L);
+    }
+
+    assertThat(underTest.percentile(50)).isBetween(50_000L, 50_000L + 50_000L / 8);
+    assertThat(underTest.percentile(99)).isBetween(99_000L, 99_000L + 99_000L / 8);
+    assertThat(underTest.percentile(100)).isBetween(100_000L, 100_000L + 100_000L / 8);
+  }
+}
@@ -91,7 +91,21 @@ public class ServletResponseTest {
 
   @Test
   public void test_output() throws Exception {
-    assertThat(underTest.stream().output()).isEqualTo(output);
+    underTest.stream().output().write(new byte[] {1, 2, 3});
+
+    verify(output).write(new byte[] {1, 2, 3}, 0, 3);
+  }
+
+  @Test
+  public void count_written_bytes() throws Exception {
+    assertThat(underTest.stream().writtenBytes()).isEqualTo(0L);
+
+    underTest.stream().output().write(new byte[] {1, 2, 3});
+    underTest.stream().output().write(4);
+    assertThat(underTest.stream().writtenBytes()).isEqualTo(4L);
+
+    underTest.stream().reset();
+    assertThat(underTest.stream().writtenBytes()).isEqualTo(0L);
   }
 
 
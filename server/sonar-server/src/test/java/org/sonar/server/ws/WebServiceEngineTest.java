@@ -19,6 +19,7 @@
  */
 package org.sonar.server.ws;
 
+import com.google.common.collect.ImmutableMap;
 import java.io.IOException;
 import java.util.Locale;
 import org.apache.catalina.connector.ClientAbortException;
@@ -42,6 +43,7 @@ import org.sonar.server.tester.UserSessionRule;
 import org.sonarqube.ws.MediaTypes;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -55,7 +57,9 @@ public class WebServiceEngineTest {
 
   I18n i18n = mock(I18n.class);
 
-  WebServiceEngine underTest = new WebServiceEngine(new WebService[] {new SystemWs()}, i18n, userSessionRule);
+  WebServiceMetrics metrics = new WebServiceMetrics();
+
+  WebServiceEngine underTest = new WebServiceEngine(new WebService[] {new SystemWs()}, i18n, userSessionRule, metrics);
 
   @Before
   public void start() {
@@ -296,6 +300,35 @@ public class WebServiceEngineTest {
 
     assertThat(response.stream().outputAsString()).isEmpty();
     assertThat(logTester.logs(LoggerLevel.WARN)).isNotEmpty();
+    assertThat(metrics.getActionMetrics()).extracting(ActionMetrics::getPath, ActionMetrics::getRequests, ActionMetrics::getAbortedRequests)
+      .containsExactly(tuple("api/system/fail_with_client_abort_exception", 1L, 1L));
+    assertThat(metrics.getSlowestRequests()).extracting(WebServiceMetrics.SlowRequest::getHttpStatus).containsExactly(WebServiceMetrics.CLIENT_ABORTED_STATUS);
+  }
+
+  @Test
+  public void record_metrics_of_actions() {
+    underTest.execute(new TestRequest().setMethod("GET").setPath("/api/system/health"), new DumbResponse());
+    underTest.execute(new TestRequest().setMethod("GET").setPath("/api/system/health"), new DumbResponse());
+    underTest.execute(new TestRequest().setMethod("GET").setPath("/api/system/fail_with_i18n_message"), new DumbResponse());
+    underTest.execute(new TestRequest().setMethod("GET").setPath("/api/system/fail"), new DumbResponse());
+    underTest.execute(new TestRequest().setMethod("GET").setPath("/api/system/print").setParam("message", "Hello"), new DumbResponse());
+
+    assertThat(metrics.getActionMetrics()).extracting(ActionMetrics::getPath, ActionMetrics::getRequests, ActionMetrics::getClientErrors, ActionMetrics::getServerErrors)
+      .containsExactly(
+        tuple("api/system/fail", 1L, 0L, 1L),
+        tuple("api/system/fail_with_i18n_message", 1L, 1L, 0L),
+        tuple("api/system/health", 2L, 0L, 0L),
+        tuple("api/system/print", 1L, 0L, 0L));
+    assertThat(metrics.getSlowestRequests()).hasSize(5);
+    assertThat(metrics.getSlowestRequests()).extracting(WebServiceMetrics.SlowRequest::getParams).contains(ImmutableMap.of("message", "Hello"));
+  }
+
+  @Test
+  public void do_not_record_metrics_of_unknown_actions() {
+    underTest.execute(new TestRequest().setMethod("GET").setPath("/api/system/xxx"), new DumbResponse());
+    underTest.execute(new TestRequest().setMethod("GET").setPath("/api/xxx/health"), new DumbResponse());
+
+    assertThat(metrics.getActionMetrics()).isEmpty();
   }
 
   static class SystemWs implements WebService {
@@ -0,0 +1,104 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ws;
+
+import org.junit.Test;
+import org.sonar.api.server.ws.WebService;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+public class WebServiceMetricsTest {
+
+  WebService.Action search;
+  WebService.Action show;
+
+  WebServiceMetrics underTest = new WebServiceMetrics(3);
+
+  public WebServiceMetricsTest() {
+    WebService.Context context = new WebService.Context();
+    WebService.NewController controller = context.createController("api/issues");
+    WebService.NewAction newSearch = controller.createAction("search").setHandler((request, response) -> {
+    });
+    newSearch.createParam("q");
+    newSearch.createParam("password");
+    controller.createAction("show").setHandler((request, response) -> {
+    });
+    controller.done();
+    search = context.controller("api/issues").action("search");
+    show = context.controller("api/issues").action("show");
+  }
+
+  @Test
+  public void aggregate_statistics_by_action() {
+    underTest.record(search, new TestRequest(), 200, nanos(10), nanos(4), nanos(2), 100L);
+    underTest.record(search, new TestRequest(), 400, nanos(30), nanos(0), nanos(0), 50L);
+    underTest.record(search, new TestRequest(), 500, nanos(20), nanos(0), nanos(0), 50L);
+    underTest.record(show, new TestRequest(), 200, nanos(5), nanos(5), nanos(0), 10L);
+    underTest.record(show, new TestRequest(), WebServiceMetrics.CLIENT_ABORTED_STATUS, nanos(5), nanos(0), nanos(0), 0L);
+
+    assertThat(underTest.getActionMetrics()).extracting(ActionMetrics::getPath).containsExactly("api/issues/search", "api/issues/show");
+    ActionMetrics metrics = underTest.getActionMetrics().get(0);
+    assertThat(metrics.getRequests()).isEqualTo(3L);
+    assertThat(metrics.getAbortedRequests()).isEqualTo(0L);
+    assertThat(metrics.getClientErrors()).isEqualTo(1L);
+    assertThat(metrics.getServerErrors()).isEqualTo(1L);
+    assertThat(metrics.getTotalTimeMs()).isEqualTo(60L);
+    assertThat(metrics.getMaxTimeMs()).isEqualTo(30L);
+    assertThat(metrics.getDbTimeMs()).isEqualTo(4L);
+    assertThat(metrics.getEsTimeMs()).isEqualTo(2L);
+    assertThat(metrics.getResponseBytes()).isEqualTo(200L);
+    assertThat(metrics.getPercentileMs(50)).isBetween(20L, 22L);
+
+    // aborted requests are not errors
+    ActionMetrics showMetrics = underTest.getActionMetrics().get(1);
+    assertThat(showMetrics.getRequests()).isEqualTo(2L);
+    assertThat(showMetrics.getAbortedRequests()).isEqualTo(1L);
+    assertThat(showMetrics.getClientErrors()).isEqualTo(0L);
+    assertThat(showMetrics.getServerErrors()).isEqualTo(0L);
+  }
+
+  @Test
+  public void keep_only_the_slowest_requests() {
+    underTest.record(search, new TestRequest(), 200, nanos(10), 0L, 0L, 0L);
+    underTest.record(search, new TestRequest(), 200, nanos(50), 0L, 0L, 0L);
+    underTest.record(show, new TestRequest(), 200, nanos(5), 0L, 0L, 0L);
+    underTest.record(show, new TestRequest(), 200, nanos(40), 0L, 0L, 0L);
+    underTest.record(search, new TestRequest(), 200, nanos(1), 0L, 0L, 0L);
+
+    assertThat(underTest.getSlowestRequests()).extracting(WebServiceMetrics.SlowRequest::getDurationMs).containsExactly(50L, 40L, 10L);
+  }
+
+  @Test
+  public void sample_parameters_of_slow_requests_and_mask_secrets() {
+    TestRequest request = new TestRequest().setParam("q", "foo").setParam("password", "bar");
+    request.setAction(search);
+    underTest.record(search, request, 200, nanos(10), 0L, 0L, 0L);
+
+    assertThat(underTest.getSlowestRequests().get(0).getParams()).containsOnly(
+      entry("q", "foo"),
+      entry("password", "******"));
+  }
+
+  private static long nanos(long ms) {
+    return MILLISECONDS.toNanos(ms);
+  }
+}
@@ -39,25 +39,30 @@ public class KeywordsTokenizer extends NotThreadSafeTokenizer {
   private Matcher matcher;
   private final StringBuilder tmpBuilder = new StringBuilder();
   private static final String DEFAULT_REGEX = "[a-zA-Z_][a-zA-Z0-9_]*+";
+  private static final Pattern DEFAULT_PATTERN = Pattern.compile(DEFAULT_REGEX);
 
   private Set<String> keywords = new HashSet<>();
 
   public KeywordsTokenizer(String tagBefore, String tagAfter, Set<String> keywords) {
-    this(tagBefore, tagAfter, keywords, DEFAULT_REGEX);
+    this(tagBefore, tagAfter, keywords, DEFAULT_PATTERN);
   }
 
   public KeywordsTokenizer(String tagBefore, String tagAfter, Set<String> keywords, String regex) {
+    this(tagBefore, tagAfter, keywords, Pattern.compile(regex));
+  }
+
+  private KeywordsTokenizer(String tagBefore, String tagAfter, Set<String> keywords, Pattern pattern) {
     this.tagBefore = tagBefore;
     this.tagAfter = tagAfter;
     this.keywords = keywords;
-    this.matcher = Pattern.compile(regex).matcher("");
+    this.matcher = pattern.matcher("");
   }
 
   public KeywordsTokenizer(String tagBefore, String tagAfter, String... keywords) {
     this.tagBefore = tagBefore;
     this.tagAfter = tagAfter;
     Collections.addAll(this.keywords, keywords);
-    this.matcher = Pattern.compile(DEFAULT_REGEX).matcher("");
+    this.matcher = DEFAULT_PATTERN.matcher("");
   }
 
   @Override
@@ -91,7 +96,8 @@ public class KeywordsTokenizer extends NotThreadSafeTokenizer {
 
   @Override
   public KeywordsTokenizer clone() {
-    KeywordsTokenizer clone = new KeywordsTokenizer(tagBefore, tagAfter, keywords, matcher.pattern().pattern());
+    // compiled patterns are thread-safe, only the matcher must not be shared
+    KeywordsTokenizer clone = new KeywordsTokenizer(tagBefore, tagAfter, keywords, matcher.pattern());
     clone.caseInsensitive = caseInsensitive;
     return clone;
   }
@@ -44,9 +44,13 @@ public class RegexpTokenizer extends NotThreadSafeTokenizer {
    *          Regular expression which must be used to match token
    */
   public RegexpTokenizer(String tagBefore, String tagAfter, String regexp) {
+    this(tagBefore, tagAfter, Pattern.compile(regexp));
+  }
+
+  private RegexpTokenizer(String tagBefore, String tagAfter, Pattern pattern) {
     this.tagBefore = tagBefore;
     this.tagAfter = tagAfter;
-    this.matcher = Pattern.compile(regexp).matcher("");
+    this.matcher = pattern.matcher("");
   }
 
   @Override
@@ -63,6 +67,7 @@ public class RegexpTokenizer extends NotThreadSafeTokenizer {
 
   @Override
   public RegexpTokenizer clone() {
-    return new RegexpTokenizer(tagBefore, tagAfter, matcher.pattern().pattern());
+    // compiled patterns are thread-safe, only the matcher must not be shared
+    return new RegexpTokenizer(tagBefore, tagAfter, matcher.pattern());
   }
 }
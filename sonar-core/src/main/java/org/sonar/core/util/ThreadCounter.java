@@ -0,0 +1,55 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.util;
+
+/**
+ * Number of operations executed by each thread, for example SQL statements. As for {@link ThreadElapsedTime},
+ * values are never reset and are stored in thread-locals: callers subtract two calls to {@link #get()}.
+ *
+ * @since 6.1
+ */
+public final class ThreadCounter {
+
+  public static final ThreadCounter SQL_STATEMENTS = new ThreadCounter();
+  public static final ThreadCounter SQL_FETCHED_ROWS = new ThreadCounter();
+  public static final ThreadCounter ES_BULK_REQUESTS = new ThreadCounter();
+  public static final ThreadCounter ES_DOCUMENTS = new ThreadCounter();
+
+  private final ThreadLocal<long[]> counts = ThreadLocal.withInitial(() -> new long[1]);
+
+  private ThreadCounter() {
+    // only constants
+  }
+
+  public void increment() {
+    counts.get()[0]++;
+  }
+
+  public void add(long count) {
+    counts.get()[0] += count;
+  }
+
+  /**
+   * Number of operations executed so far by the current thread
+   */
+  public long get() {
+    return counts.get()[0];
+  }
+}
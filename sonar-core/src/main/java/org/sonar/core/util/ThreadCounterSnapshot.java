@@ -0,0 +1,85 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.util;
+
+/**
+ * Values of the {@link ThreadCounter}s and {@link ThreadElapsedTime}s of the current thread. Used to charge the caller
+ * with the operations executed on its behalf by another thread, for example by an executor:
+ * <pre>
+ * ThreadCounterSnapshot before = ThreadCounterSnapshot.current();
+ * // operations
+ * return before.elapsed();
+ * </pre>
+ * The calling thread then calls {@link #addToCurrentThread()} on the returned value.
+ *
+ * @since 6.1
+ */
+public final class ThreadCounterSnapshot {
+
+  private static final ThreadCounter[] COUNTERS = {ThreadCounter.SQL_STATEMENTS, ThreadCounter.SQL_FETCHED_ROWS,
+    ThreadCounter.ES_BULK_REQUESTS, ThreadCounter.ES_DOCUMENTS};
+  private static final ThreadElapsedTime[] ELAPSED_TIMES = {ThreadElapsedTime.SQL, ThreadElapsedTime.ELASTICSEARCH};
+
+  private final long[] counts;
+  private final long[] nanos;
+
+  private ThreadCounterSnapshot(long[] counts, long[] nanos) {
+    this.counts = counts;
+    this.nanos = nanos;
+  }
+
+  public static ThreadCounterSnapshot current() {
+    long[] counts = new long[COUNTERS.length];
+    for (int i = 0; i < COUNTERS.length; i++) {
+      counts[i] = COUNTERS[i].get();
+    }
+    long[] nanos = new long[ELAPSED_TIMES.length];
+    for (int i = 0; i < ELAPSED_TIMES.length; i++) {
+      nanos[i] = ELAPSED_TIMES[i].get();
+    }
+    return new ThreadCounterSnapshot(counts, nanos);
+  }
+
+  /**
+   * Operations executed by the current thread since this snapshot, which must have been taken by the same thread
+   */
+  public ThreadCounterSnapshot elapsed() {
+    ThreadCounterSnapshot now = current();
+    for (int i = 0; i < counts.length; i++) {
+      now.counts[i] -= counts[i];
+    }
+    for (int i = 0; i < nanos.length; i++) {
+      now.nanos[i] -= nanos[i];
+    }
+    return now;
+  }
+
+  /**
+   * Adds the values of this snapshot to the counters of the current thread
+   */
+  public void addToCurrentThread() {
+    for (int i = 0; i < COUNTERS.length; i++) {
+      COUNTERS[i].add(counts[i]);
+    }
+    for (int i = 0; i < ELAPSED_TIMES.length; i++) {
+      ELAPSED_TIMES[i].add(nanos[i]);
+    }
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.util;
+
+/**
+ * Cumulated time spent by each thread in a kind of operations, for example SQL requests. Values are never reset,
+ * so callers compute the time spent during a given block by subtracting two calls to {@link #get()}. That supports
+ * nested blocks, for example web services calling other web services.
+ * <p>
+ * Values are stored in thread-locals, so recording does not require any synchronization.
+ * </p>
+ *
+ * @since 6.1
+ */
+public final class ThreadElapsedTime {
+
+  public static final ThreadElapsedTime SQL = new ThreadElapsedTime();
+  public static final ThreadElapsedTime ELASTICSEARCH = new ThreadElapsedTime();
+
+  private final ThreadLocal<long[]> nanos = ThreadLocal.withInitial(() -> new long[1]);
+
+  private ThreadElapsedTime() {
+    // only constants
+  }
+
+  /**
+   * Adds a duration, in nanoseconds, to the current thread
+   */
+  public void add(long durationInNanos) {
+    nanos.get()[0] += durationInNanos;
+  }
+
+  /**
+   * Time spent so far by the current thread, in nanoseconds
+   */
+  public long get() {
+    return nanos.get()[0];
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ThreadCounterSnapshotTest {
+
+  @Test
+  public void add_operations_of_another_thread_to_current_thread() throws Exception {
+    long esDocumentsBefore = ThreadCounter.ES_DOCUMENTS.get();
+    long sqlStatementsBefore = ThreadCounter.SQL_STATEMENTS.get();
+    long esTimeBefore = ThreadElapsedTime.ELASTICSEARCH.get();
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      ThreadCounterSnapshot elapsed = executor.submit(() -> {
+        // operations executed before the snapshot are not counted
+        ThreadCounter.ES_DOCUMENTS.add(1_000L);
+        ThreadCounterSnapshot before = ThreadCounterSnapshot.current();
+        ThreadCounter.ES_DOCUMENTS.add(10L);
+        ThreadCounter.SQL_STATEMENTS.increment();
+        ThreadElapsedTime.ELASTICSEARCH.add(500L);
+        return before.elapsed();
+      }).get();
+
+      assertThat(ThreadCounter.ES_DOCUMENTS.get()).isEqualTo(esDocumentsBefore);
+
+      elapsed.addToCurrentThread();
+
+      assertThat(ThreadCounter.ES_DOCUMENTS.get() - esDocumentsBefore).isEqualTo(10L);
+      assertThat(ThreadCounter.SQL_STATEMENTS.get() - sqlStatementsBefore).isEqualTo(1L);
+      assertThat(ThreadElapsedTime.ELASTICSEARCH.get() - esTimeBefore).isEqualTo(500L);
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
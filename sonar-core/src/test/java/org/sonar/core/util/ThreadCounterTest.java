@@ -0,0 +1,54 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ThreadCounterTest {
+
+  @Test
+  public void count_operations_of_current_thread() {
+    long before = ThreadCounter.SQL_STATEMENTS.get();
+
+    ThreadCounter.SQL_STATEMENTS.increment();
+    ThreadCounter.SQL_STATEMENTS.add(5L);
+
+    assertThat(ThreadCounter.SQL_STATEMENTS.get() - before).isEqualTo(6L);
+  }
+
+  @Test
+  public void counts_are_not_shared_by_threads() throws Exception {
+    long before = ThreadCounter.ES_DOCUMENTS.get();
+    AtomicLong otherThread = new AtomicLong();
+
+    Thread thread = new Thread(() -> {
+      ThreadCounter.ES_DOCUMENTS.add(100L);
+      otherThread.set(ThreadCounter.ES_DOCUMENTS.get());
+    });
+    thread.start();
+    thread.join();
+
+    assertThat(otherThread.get()).isEqualTo(100L);
+    assertThat(ThreadCounter.ES_DOCUMENTS.get()).isEqualTo(before);
+  }
+}
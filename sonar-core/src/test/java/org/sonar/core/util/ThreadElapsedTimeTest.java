@@ -0,0 +1,65 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ThreadElapsedTimeTest {
+
+  @Test
+  public void add_durations_to_current_thread() {
+    long before = ThreadElapsedTime.SQL.get();
+
+    ThreadElapsedTime.SQL.add(10L);
+    ThreadElapsedTime.SQL.add(5L);
+
+    assertThat(ThreadElapsedTime.SQL.get() - before).isEqualTo(15L);
+  }
+
+  @Test
+  public void durations_are_not_shared_by_threads() throws Exception {
+    long before = ThreadElapsedTime.ELASTICSEARCH.get();
+    AtomicLong otherThread = new AtomicLong();
+
+    Thread thread = new Thread(() -> {
+      ThreadElapsedTime.ELASTICSEARCH.add(100L);
+      otherThread.set(ThreadElapsedTime.ELASTICSEARCH.get());
+    });
+    thread.start();
+    thread.join();
+
+    assertThat(otherThread.get()).isEqualTo(100L);
+    assertThat(ThreadElapsedTime.ELASTICSEARCH.get()).isEqualTo(before);
+  }
+
+  @Test
+  public void kinds_of_operations_are_independent() {
+    long sqlBefore = ThreadElapsedTime.SQL.get();
+    long esBefore = ThreadElapsedTime.ELASTICSEARCH.get();
+
+    ThreadElapsedTime.ELASTICSEARCH.add(7L);
+
+    assertThat(ThreadElapsedTime.SQL.get()).isEqualTo(sqlBefore);
+    assertThat(ThreadElapsedTime.ELASTICSEARCH.get()).isEqualTo(esBefore + 7L);
+  }
+}
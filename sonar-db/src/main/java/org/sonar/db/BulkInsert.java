@@ -0,0 +1,335 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.db.dialect.Dialect;
+import org.sonar.db.dialect.PostgreSql;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.lang.String.format;
+
+/**
+ * Inserts rows with multi-row statements ({@code insert into t (a, b) values (?, ?), (?, ?)}), as many rows per statement
+ * as allowed by {@link Dialect#getMaxRowsPerInsert(int)}. Statements are prepared once and reused. Rows are buffered and
+ * written when the flush size is reached, or when {@link #flush()} or {@link #close()} are called. Remaining rows
+ * are inserted with a JDBC batch of single-row statements.
+ * <p>
+ * When a statement fails, for example because one of its rows conflicts with existing data, its rows are written
+ * again one at a time, so that the failure is raised for the faulty row only. Multi-row statements are atomic on all
+ * databases, but a failure aborts the whole transaction on PostgreSQL: a savepoint is then set before each of them.
+ * A savepoint is always set before the JDBC batch, which is not atomic.
+ * </p>
+ * <p>
+ * Rows are written with the JDBC connection of the session, so MyBatis is not aware of them: the session
+ * must be committed with {@link DbSession#commit(boolean) commit(true)}.
+ * </p>
+ *
+ * @since 6.1
+ */
+public class BulkInsert<T> implements AutoCloseable {
+
+  public static final int DEFAULT_FLUSH_SIZE = 1_000;
+
+  private final Connection connection;
+  private final String table;
+  private final List<Column<T>> columns;
+  private final int rowsPerStatement;
+  private final int flushSize;
+  private final List<T> buffer;
+  private final boolean savepointBeforeStatement;
+  private PreparedStatement multiRowStatement;
+  private PreparedStatement singleRowStatement;
+  private long rowCount = 0L;
+  private long statementCount = 0L;
+
+  private BulkInsert(Builder<T> builder, DbSession dbSession, Dialect dialect) {
+    this.connection = dbSession.getConnection();
+    this.table = builder.table;
+    this.columns = new ArrayList<>(builder.columns);
+    this.flushSize = builder.flushSize;
+    this.rowsPerStatement = Math.min(flushSize, dialect.getMaxRowsPerInsert(columns.size()));
+    this.buffer = new ArrayList<>(flushSize);
+    this.savepointBeforeStatement = PostgreSql.ID.equals(dialect.getId());
+  }
+
+  public static <T> Builder<T> builder(String table) {
+    return new Builder<>(table);
+  }
+
+  public BulkInsert<T> add(T row) {
+    buffer.add(row);
+    if (buffer.size() >= flushSize) {
+      flush();
+    }
+    return this;
+  }
+
+  public void flush() {
+    if (buffer.isEmpty()) {
+      return;
+    }
+    try {
+      int index = 0;
+      if (rowsPerStatement > 1) {
+        for (; index + rowsPerStatement <= buffer.size(); index += rowsPerStatement) {
+          executeMultiRowStatement(buffer.subList(index, index + rowsPerStatement));
+        }
+      }
+      if (index < buffer.size()) {
+        executeSingleRowBatch(buffer.subList(index, buffer.size()));
+      }
+      rowCount += buffer.size();
+      buffer.clear();
+    } catch (SQLException e) {
+      throw new IllegalStateException(format("Fail to insert rows into table %s", table), e);
+    }
+  }
+
+  private void executeMultiRowStatement(List<T> rows) throws SQLException {
+    if (multiRowStatement == null) {
+      multiRowStatement = connection.prepareStatement(insertSql(rowsPerStatement));
+    }
+    int parameterIndex = 1;
+    for (T row : rows) {
+      parameterIndex = bind(multiRowStatement, parameterIndex, row);
+    }
+    Savepoint savepoint = setSavepoint();
+    try {
+      multiRowStatement.executeUpdate();
+      statementCount++;
+    } catch (SQLException e) {
+      rollback(savepoint);
+      insertOneByOne(rows);
+    } finally {
+      release(savepoint);
+    }
+  }
+
+  private void executeSingleRowBatch(List<T> rows) throws SQLException {
+    PreparedStatement statement = singleRowStatement();
+    for (T row : rows) {
+      bind(statement, 1, row);
+      statement.addBatch();
+    }
+    // unlike a multi-row statement, a batch is not atomic: rows which precede the failing one may be written
+    Savepoint savepoint = connection.setSavepoint();
+    try {
+      statement.executeBatch();
+      statementCount += rows.size();
+    } catch (SQLException e) {
+      statement.clearBatch();
+      rollback(savepoint);
+      insertOneByOne(rows);
+    } finally {
+      release(savepoint);
+    }
+  }
+
+  /**
+   * Rows inserted before the faulty one are kept, as they would be with single-row statements
+   */
+  private void insertOneByOne(List<T> rows) throws SQLException {
+    PreparedStatement statement = singleRowStatement();
+    for (T row : rows) {
+      bind(statement, 1, row);
+      statement.executeUpdate();
+      statementCount++;
+    }
+  }
+
+  @CheckForNull
+  private Savepoint setSavepoint() throws SQLException {
+    return savepointBeforeStatement ? connection.setSavepoint() : null;
+  }
+
+  private void rollback(@Nullable Savepoint savepoint) throws SQLException {
+    if (savepoint != null) {
+      connection.rollback(savepoint);
+    }
+  }
+
+  private void release(@Nullable Savepoint savepoint) {
+    if (savepoint == null) {
+      return;
+    }
+    try {
+      connection.releaseSavepoint(savepoint);
+    } catch (SQLException e) {
+      // savepoint is released on commit
+    }
+  }
+
+  private PreparedStatement singleRowStatement() throws SQLException {
+    if (singleRowStatement == null) {
+      singleRowStatement = connection.prepareStatement(insertSql(1));
+    }
+    return singleRowStatement;
+  }
+
+  private int bind(PreparedStatement statement, int firstParameterIndex, T row) throws SQLException {
+    int parameterIndex = firstParameterIndex;
+    for (Column<T> column : columns) {
+      column.bind(statement, parameterIndex, row);
+      parameterIndex++;
+    }
+    return parameterIndex;
+  }
+
+  private String insertSql(int rows) {
+    StringBuilder sql = new StringBuilder("insert into ").append(table).append(" (");
+    for (int i = 0; i < columns.size(); i++) {
+      if (i > 0) {
+        sql.append(",");
+      }
+      sql.append(columns.get(i).name);
+    }
+    sql.append(") values ");
+    String rowValues = "(" + DatabaseUtils.repeatCondition("?", columns.size(), ",") + ")";
+    for (int i = 0; i < rows; i++) {
+      if (i > 0) {
+        sql.append(",");
+      }
+      sql.append(rowValues);
+    }
+    return sql.toString();
+  }
+
+  /**
+   * Number of rows written so far
+   */
+  public long getRowCount() {
+    return rowCount;
+  }
+
+  /**
+   * Number of SQL statements executed so far, single-row statements of JDBC batches included
+   */
+  public long getStatementCount() {
+    return statementCount;
+  }
+
+  /**
+   * Flushes the remaining rows and releases the prepared statements
+   */
+  @Override
+  public void close() {
+    try {
+      flush();
+    } finally {
+      DatabaseUtils.closeQuietly(multiRowStatement);
+      DatabaseUtils.closeQuietly(singleRowStatement);
+    }
+  }
+
+  @FunctionalInterface
+  private interface Binder<T> {
+    void bind(PreparedStatement statement, int index, T row) throws SQLException;
+  }
+
+  private static final class Column<T> {
+    private final String name;
+    private final Binder<T> binder;
+
+    private Column(String name, Binder<T> binder) {
+      this.name = name;
+      this.binder = binder;
+    }
+
+    void bind(PreparedStatement statement, int index, T row) throws SQLException {
+      binder.bind(statement, index, row);
+    }
+  }
+
+  public static final class Builder<T> {
+    private final String table;
+    private final List<Column<T>> columns = new ArrayList<>();
+    private int flushSize = DEFAULT_FLUSH_SIZE;
+
+    private Builder(String table) {
+      this.table = table;
+    }
+
+    public Builder<T> addStringColumn(String name, Function<T, String> getter) {
+      return addColumn(name, Types.VARCHAR, getter, (statement, index, value) -> statement.setString(index, value));
+    }
+
+    public Builder<T> addIntColumn(String name, Function<T, Integer> getter) {
+      return addColumn(name, Types.INTEGER, getter, (statement, index, value) -> statement.setInt(index, value));
+    }
+
+    public Builder<T> addLongColumn(String name, Function<T, Long> getter) {
+      return addColumn(name, Types.BIGINT, getter, (statement, index, value) -> statement.setLong(index, value));
+    }
+
+    public Builder<T> addDoubleColumn(String name, Function<T, Double> getter) {
+      return addColumn(name, Types.DOUBLE, getter, (statement, index, value) -> statement.setDouble(index, value));
+    }
+
+    public Builder<T> addBooleanColumn(String name, Function<T, Boolean> getter) {
+      return addColumn(name, Types.BOOLEAN, getter, (statement, index, value) -> statement.setBoolean(index, value));
+    }
+
+    public Builder<T> addBytesColumn(String name, Function<T, byte[]> getter) {
+      return addColumn(name, Types.BINARY, getter, (statement, index, value) -> statement.setBytes(index, value));
+    }
+
+    /**
+     * Number of rows buffered before being written. Default value is {@link #DEFAULT_FLUSH_SIZE}.
+     */
+    public Builder<T> setFlushSize(int flushSize) {
+      checkArgument(flushSize > 0, "Flush size must be positive: %s", flushSize);
+      this.flushSize = flushSize;
+      return this;
+    }
+
+    public BulkInsert<T> build(DbSession dbSession, Dialect dialect) {
+      checkState(!columns.isEmpty(), "At least one column must be defined");
+      return new BulkInsert<>(this, dbSession, dialect);
+    }
+
+    private <V> Builder<T> addColumn(String name, int sqlType, Function<T, V> getter, ValueBinder<V> valueBinder) {
+      columns.add(new Column<>(name, (statement, index, row) -> {
+        V value = getter.apply(row);
+        if (value == null) {
+          statement.setNull(index, sqlType);
+        } else {
+          valueBinder.bind(statement, index, value);
+        }
+      }));
+      return this;
+    }
+  }
+
+  @FunctionalInterface
+  private interface ValueBinder<V> {
+    void bind(PreparedStatement statement, int index, V value) throws SQLException;
+  }
+}
@@ -61,6 +61,7 @@ import org.sonar.db.qualityprofile.ActiveRuleDao;
 import org.sonar.db.qualityprofile.QualityProfileDao;
 import org.sonar.db.rule.RuleDao;
 import org.sonar.db.ce.CeScannerContextDao;
+import org.sonar.db.ce.CeTaskProfileDao;
 import org.sonar.db.source.FileSourceDao;
 import org.sonar.db.user.AuthorDao;
 import org.sonar.db.user.AuthorizationDao;
@@ -109,6 +110,7 @@ public class DaoModule extends Module {
     QualityGateConditionDao.class,
     QualityProfileDao.class,
     CeScannerContextDao.class,
+    CeTaskProfileDao.class,
     RuleDao.class,
     ActiveRuleDao.class,
     ResourceIndexDao.class,
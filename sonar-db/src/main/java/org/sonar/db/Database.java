@@ -22,6 +22,7 @@ package org.sonar.db;
 import javax.sql.DataSource;
 import org.picocontainer.Startable;
 import org.sonar.db.dialect.Dialect;
+import org.sonar.db.profiling.SqlStatistics;
 
 /**
  * @since 2.12
@@ -38,4 +39,11 @@ public interface Database extends Startable {
   Dialect getDialect();
 
   void enableSqlLogging(boolean enable);
+
+  /**
+   * Statistics of the SQL statements executed since startup. They are not recorded
+   * while SQL logging is enabled.
+   * @since 6.1
+   */
+  SqlStatistics getSqlStatistics();
 }
@@ -61,6 +61,7 @@ import org.sonar.db.qualityprofile.ActiveRuleDao;
 import org.sonar.db.qualityprofile.QualityProfileDao;
 import org.sonar.db.rule.RuleDao;
 import org.sonar.db.ce.CeScannerContextDao;
+import org.sonar.db.ce.CeTaskProfileDao;
 import org.sonar.db.source.FileSourceDao;
 import org.sonar.db.user.AuthorDao;
 import org.sonar.db.user.AuthorizationDao;
@@ -103,6 +104,7 @@ public class DbClient {
   private final CeQueueDao ceQueueDao;
   private final CeTaskInputDao ceTaskInputDao;
   private final CeScannerContextDao ceScannerContextDao;
+  private final CeTaskProfileDao ceTaskProfileDao;
   private final DashboardDao dashboardDao;
   private final ActiveDashboardDao activeDashboardDao;
   private final WidgetDao widgetDao;
@@ -160,6 +162,7 @@ public class DbClient {
     ceQueueDao = getDao(map, CeQueueDao.class);
     ceTaskInputDao = getDao(map, CeTaskInputDao.class);
     ceScannerContextDao = getDao(map, CeScannerContextDao.class);
+    ceTaskProfileDao = getDao(map, CeTaskProfileDao.class);
     dashboardDao = getDao(map, DashboardDao.class);
     activeDashboardDao = getDao(map, ActiveDashboardDao.class);
     widgetDao = getDao(map, WidgetDao.class);
@@ -312,6 +315,10 @@ public class DbClient {
     return ceScannerContextDao;
   }
 
+  public CeTaskProfileDao ceTaskProfileDao() {
+    return ceTaskProfileDao;
+  }
+
   public DashboardDao dashboardDao() {
     return dashboardDao;
   }
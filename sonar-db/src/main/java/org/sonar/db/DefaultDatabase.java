@@ -37,8 +37,9 @@ import org.sonar.api.utils.log.Loggers;
 import org.sonar.db.dialect.Dialect;
 import org.sonar.db.dialect.DialectUtils;
 import org.sonar.db.profiling.NullConnectionInterceptor;
-import org.sonar.db.profiling.ProfiledConnectionInterceptor;
 import org.sonar.db.profiling.ProfiledDataSource;
+import org.sonar.db.profiling.SqlStatistics;
+import org.sonar.db.profiling.TimingConnectionInterceptor;
 
 import static java.lang.String.format;
 
@@ -54,6 +55,9 @@ public class DefaultDatabase implements Database {
   private static final String SONAR_JDBC_DIALECT = "sonar.jdbc.dialect";
   private static final String SONAR_JDBC_URL = "sonar.jdbc.url";
 
+  private final SqlStatistics sqlStatistics = new SqlStatistics();
+  private final TimingConnectionInterceptor timingInterceptor = new TimingConnectionInterceptor(sqlStatistics);
+  private final TimingConnectionInterceptor loggingInterceptor = new TimingConnectionInterceptor(sqlStatistics, true);
   private Settings settings;
   private ProfiledDataSource datasource;
   private Dialect dialect;
@@ -93,7 +97,7 @@ public class DefaultDatabase implements Database {
     datasource = new ProfiledDataSource(basicDataSource, NullConnectionInterceptor.INSTANCE);
     datasource.setConnectionInitSqls(dialect.getConnectionInitStatements());
     datasource.setValidationQuery(dialect.getValidationQuery());
-    enableSqlLogging(datasource, "TRACE".equals(settings.getString("sonar.log.level")));
+    enableSqlLogging("TRACE".equals(settings.getString("sonar.log.level")));
   }
 
   private void checkConnection() {
@@ -134,11 +138,12 @@ public class DefaultDatabase implements Database {
 
   @Override
   public void enableSqlLogging(boolean enable) {
-    enableSqlLogging(datasource, enable);
+    datasource.setConnectionInterceptor(enable ? loggingInterceptor : timingInterceptor);
   }
 
-  private static void enableSqlLogging(ProfiledDataSource ds, boolean enable) {
-    ds.setConnectionInterceptor(enable ? ProfiledConnectionInterceptor.INSTANCE : NullConnectionInterceptor.INSTANCE);
+  @Override
+  public SqlStatistics getSqlStatistics() {
+    return sqlStatistics;
   }
 
   /**
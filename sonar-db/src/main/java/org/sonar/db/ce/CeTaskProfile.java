@@ -0,0 +1,244 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.ce;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Resources consumed by each step of a Compute Engine task, stored in table CE_TASK_PROFILE.
+ * <p>
+ * The binary format is a version byte, followed by the number of steps then, for each step, its description
+ * and its counters encoded as zig-zag variable-length longs. Most counters are small, so a step usually
+ * requires less than 40 bytes.
+ * </p>
+ *
+ * @since 6.1
+ */
+public class CeTaskProfile {
+
+  /**
+   * Value of the counters which could not be measured, for example CPU time when not supported by the JVM
+   */
+  public static final long UNKNOWN = -1L;
+
+  private static final byte FORMAT_VERSION = 1;
+
+  private final List<Step> steps;
+
+  public CeTaskProfile(List<Step> steps) {
+    this.steps = Collections.unmodifiableList(new ArrayList<>(steps));
+  }
+
+  /**
+   * Steps, in order of execution
+   */
+  public List<Step> getSteps() {
+    return steps;
+  }
+
+  public byte[] toBytes() {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + 40 * steps.size());
+    try (DataOutputStream output = new DataOutputStream(bytes)) {
+      output.writeByte(FORMAT_VERSION);
+      writeVarLong(output, steps.size());
+      for (Step step : steps) {
+        output.writeUTF(step.description);
+        writeVarLong(output, step.durationMs);
+        writeVarLong(output, step.cpuTimeMs);
+        writeVarLong(output, step.allocatedBytes);
+        writeVarLong(output, step.sqlStatements);
+        writeVarLong(output, step.sqlFetchedRows);
+        writeVarLong(output, step.sqlTimeMs);
+        writeVarLong(output, step.esBulkRequests);
+        writeVarLong(output, step.esDocuments);
+        writeVarLong(output, step.esTimeMs);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to serialize task profile", e);
+    }
+    return bytes.toByteArray();
+  }
+
+  public static CeTaskProfile parse(byte[] data) {
+    try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(data))) {
+      byte version = input.readByte();
+      checkArgument(version == FORMAT_VERSION, "Unsupported format of task profile: %s", version);
+      int size = (int) readVarLong(input);
+      List<Step> steps = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        steps.add(new Step()
+          .setDescription(input.readUTF())
+          .setDurationMs(readVarLong(input))
+          .setCpuTimeMs(readVarLong(input))
+          .setAllocatedBytes(readVarLong(input))
+          .setSqlStatements(readVarLong(input))
+          .setSqlFetchedRows(readVarLong(input))
+          .setSqlTimeMs(readVarLong(input))
+          .setEsBulkRequests(readVarLong(input))
+          .setEsDocuments(readVarLong(input))
+          .setEsTimeMs(readVarLong(input)));
+      }
+      return new CeTaskProfile(steps);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to parse task profile", e);
+    }
+  }
+
+  private static void writeVarLong(DataOutputStream output, long value) throws IOException {
+    long zigZag = (value << 1) ^ (value >> 63);
+    while ((zigZag & ~0x7FL) != 0L) {
+      output.writeByte((int) ((zigZag & 0x7F) | 0x80));
+      zigZag >>>= 7;
+    }
+    output.writeByte((int) zigZag);
+  }
+
+  private static long readVarLong(DataInputStream input) throws IOException {
+    long zigZag = 0L;
+    int shift = 0;
+    byte b;
+    do {
+      checkArgument(shift < 64, "Malformed task profile");
+      b = input.readByte();
+      zigZag |= (long) (b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    return (zigZag >>> 1) ^ -(zigZag & 1);
+  }
+
+  public static class Step {
+    private String description;
+    private long durationMs = 0L;
+    private long cpuTimeMs = UNKNOWN;
+    private long allocatedBytes = UNKNOWN;
+    private long sqlStatements = 0L;
+    private long sqlFetchedRows = 0L;
+    private long sqlTimeMs = 0L;
+    private long esBulkRequests = 0L;
+    private long esDocuments = 0L;
+    private long esTimeMs = 0L;
+
+    public String getDescription() {
+      return description;
+    }
+
+    public Step setDescription(String s) {
+      this.description = requireNonNull(s);
+      return this;
+    }
+
+    public long getDurationMs() {
+      return durationMs;
+    }
+
+    public Step setDurationMs(long l) {
+      this.durationMs = l;
+      return this;
+    }
+
+    /**
+     * @return the CPU time consumed by the thread executing the step, or {@link #UNKNOWN}
+     */
+    public long getCpuTimeMs() {
+      return cpuTimeMs;
+    }
+
+    public Step setCpuTimeMs(long l) {
+      this.cpuTimeMs = l;
+      return this;
+    }
+
+    /**
+     * @return the bytes allocated in heap by the thread executing the step, or {@link #UNKNOWN}
+     */
+    public long getAllocatedBytes() {
+      return allocatedBytes;
+    }
+
+    public Step setAllocatedBytes(long l) {
+      this.allocatedBytes = l;
+      return this;
+    }
+
+    public long getSqlStatements() {
+      return sqlStatements;
+    }
+
+    public Step setSqlStatements(long l) {
+      this.sqlStatements = l;
+      return this;
+    }
+
+    public long getSqlFetchedRows() {
+      return sqlFetchedRows;
+    }
+
+    public Step setSqlFetchedRows(long l) {
+      this.sqlFetchedRows = l;
+      return this;
+    }
+
+    public long getSqlTimeMs() {
+      return sqlTimeMs;
+    }
+
+    public Step setSqlTimeMs(long l) {
+      this.sqlTimeMs = l;
+      return this;
+    }
+
+    public long getEsBulkRequests() {
+      return esBulkRequests;
+    }
+
+    public Step setEsBulkRequests(long l) {
+      this.esBulkRequests = l;
+      return this;
+    }
+
+    public long getEsDocuments() {
+      return esDocuments;
+    }
+
+    public Step setEsDocuments(long l) {
+      this.esDocuments = l;
+      return this;
+    }
+
+    public long getEsTimeMs() {
+      return esTimeMs;
+    }
+
+    public Step setEsTimeMs(long l) {
+      this.esTimeMs = l;
+      return this;
+    }
+  }
+}
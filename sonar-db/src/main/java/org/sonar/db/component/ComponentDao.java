@@ -106,7 +106,15 @@ public class ComponentDao implements Dao {
   }
 
   public List<FilePathWithHashDto> selectEnabledFilesFromProject(DbSession session, String rootComponentUuid) {
-    return mapper(session).selectEnabledFilesFromProject(rootComponentUuid);
+    return mapper(session).selectEnabledFilesFromProject(rootComponentUuid, null);
+  }
+
+  /**
+   * Same as {@link #selectEnabledFilesFromProject(DbSession, String)} but only returns the files which source has been
+   * updated after the specified date.
+   */
+  public List<FilePathWithHashDto> selectEnabledFilesFromProjectUpdatedAfter(DbSession session, String rootComponentUuid, long updatedAfter) {
+    return mapper(session).selectEnabledFilesFromProject(rootComponentUuid, updatedAfter);
   }
 
   public List<ComponentDto> selectByIds(DbSession session, Collection<Long> ids) {
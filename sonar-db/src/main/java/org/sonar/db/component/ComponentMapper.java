@@ -95,9 +95,10 @@ public interface ComponentMapper {
     @Param(value = "excludeDisabled") boolean excludeDisabled);
 
   /**
-   * Return all files from a given project uuid and scope
+   * Return all files from a given project uuid and scope, optionally restricted to the files which source has been updated
+   * after the specified date
    */
-  List<FilePathWithHashDto> selectEnabledFilesFromProject(@Param("projectUuid") String projectUuid);
+  List<FilePathWithHashDto> selectEnabledFilesFromProject(@Param("projectUuid") String projectUuid, @Nullable @Param("updatedAfter") Long updatedAfter);
 
   /**
    * Return all descendant files from a given module uuid and scope
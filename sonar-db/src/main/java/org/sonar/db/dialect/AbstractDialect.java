@@ -26,6 +26,12 @@ import java.util.List;
  * @since 3.2
  */
 abstract class AbstractDialect implements Dialect {
+  /**
+   * Upper bound of rows per multi-row insert, whatever the number of columns. Bigger statements
+   * are not faster and are expensive to parse.
+   */
+  static final int MAX_ROWS_PER_INSERT = 1_000;
+
   private final String id;
   private final String activeRecordDialectCode;
   private final String defaultDriverClassName;
@@ -87,4 +93,19 @@ abstract class AbstractDialect implements Dialect {
   public int getScrollSingleRowFetchSize() {
     return 1;
   }
+
+  @Override
+  public int getMaxRowsPerInsert(int columns) {
+    return maxRowsPerInsert(Integer.MAX_VALUE, columns);
+  }
+
+  /**
+   * Rows per multi-row insert so that the statement does not exceed {@code maxParameters} parameters.
+   */
+  protected static int maxRowsPerInsert(int maxParameters, int columns) {
+    if (columns <= 0) {
+      throw new IllegalArgumentException("Number of columns must be positive: " + columns);
+    }
+    return Math.max(1, Math.min(MAX_ROWS_PER_INSERT, maxParameters / columns));
+  }
 }
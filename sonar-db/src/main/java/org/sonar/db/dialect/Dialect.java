@@ -89,4 +89,12 @@ public interface Dialect {
    * @return a boolean
    */
   boolean supportsMigration();
+
+  /**
+   * Maximum number of rows inserted by a single multi-row insert statement, for a table
+   * of {@code columns} columns. The value 1 means that multi-row inserts must not be used.
+   *
+   * @since 6.1
+   */
+  int getMaxRowsPerInsert(int columns);
 }
@@ -38,4 +38,12 @@ public class MsSql extends AbstractDialect {
   public boolean supportsMigration() {
     return true;
   }
+
+  /**
+   * SQL Server accepts up to 2100 parameters per statement. Some are kept for the driver.
+   */
+  @Override
+  public int getMaxRowsPerInsert(int columns) {
+    return maxRowsPerInsert(2_000, columns);
+  }
 }
@@ -51,4 +51,12 @@ public class MySql extends AbstractDialect {
   public boolean supportsMigration() {
     return true;
   }
+
+  /**
+   * The MySQL protocol limits the number of bind parameters to 65535
+   */
+  @Override
+  public int getMaxRowsPerInsert(int columns) {
+    return maxRowsPerInsert(65_535, columns);
+  }
 }
@@ -41,4 +41,12 @@ public class Oracle extends AbstractDialect {
   public boolean supportsMigration() {
     return true;
   }
+
+  /**
+   * Oracle does not support the syntax {@code insert into t values (...), (...)}. JDBC batches are used instead.
+   */
+  @Override
+  public int getMaxRowsPerInsert(int columns) {
+    return 1;
+  }
 }
@@ -49,4 +49,12 @@ public class PostgreSql extends AbstractDialect {
   public boolean supportsMigration() {
     return true;
   }
+
+  /**
+   * The PostgreSQL protocol limits the number of bind parameters to 32767
+   */
+  @Override
+  public int getMaxRowsPerInsert(int columns) {
+    return maxRowsPerInsert(32_767, columns);
+  }
 }
@@ -25,9 +25,11 @@ import java.util.List;
 import javax.annotation.CheckForNull;
 import org.sonar.core.issue.DefaultIssueComment;
 import org.sonar.core.issue.FieldDiffs;
+import org.sonar.db.BulkInsert;
 import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
 import org.sonar.db.MyBatis;
+import org.sonar.db.dialect.Dialect;
 
 import static java.util.Arrays.asList;
 import static org.sonar.db.DatabaseUtils.executeLargeInputs;
@@ -93,6 +95,25 @@ public class IssueChangeDao implements Dao {
     mapper(session).insert(change);
   }
 
+  /**
+   * Same columns as {@link #insert(DbSession, IssueChangeDto)}, but changes are inserted with multi-row statements.
+   * Session must be committed with {@link DbSession#commit(boolean) commit(true)}.
+   *
+   * @see BulkInsert
+   */
+  public BulkInsert<IssueChangeDto> newBulkInsert(DbSession session, Dialect dialect) {
+    return BulkInsert.<IssueChangeDto>builder("issue_changes")
+      .addStringColumn("kee", IssueChangeDto::getKey)
+      .addStringColumn("issue_key", IssueChangeDto::getIssueKey)
+      .addStringColumn("user_login", IssueChangeDto::getUserLogin)
+      .addStringColumn("change_type", IssueChangeDto::getChangeType)
+      .addStringColumn("change_data", IssueChangeDto::getChangeData)
+      .addLongColumn("created_at", IssueChangeDto::getCreatedAt)
+      .addLongColumn("updated_at", IssueChangeDto::getUpdatedAt)
+      .addLongColumn("issue_change_creation_date", IssueChangeDto::getIssueChangeCreationDate)
+      .build(session, dialect);
+  }
+
   public boolean delete(String key) {
     DbSession session = mybatis.openSession(false);
     try {
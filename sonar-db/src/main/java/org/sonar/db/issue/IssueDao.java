@@ -29,9 +29,11 @@ import java.util.Map;
 import java.util.Set;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import org.sonar.db.BulkInsert;
 import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
 import org.sonar.db.RowNotFoundException;
+import org.sonar.db.dialect.Dialect;
 
 import static com.google.common.collect.FluentIterable.from;
 import static org.sonar.db.DatabaseUtils.executeLargeInputs;
@@ -103,6 +105,42 @@ public class IssueDao implements Dao {
     }
   }
 
+  /**
+   * Same columns as {@link #insert(DbSession, IssueDto)}, but issues are inserted with multi-row statements.
+   * Session must be committed with {@link DbSession#commit(boolean) commit(true)}.
+   *
+   * @see BulkInsert
+   */
+  public BulkInsert<IssueDto> newBulkInsert(DbSession session, Dialect dialect) {
+    return BulkInsert.<IssueDto>builder("issues")
+      .addStringColumn("kee", IssueDto::getKee)
+      .addIntColumn("rule_id", IssueDto::getRuleId)
+      .addStringColumn("severity", IssueDto::getSeverity)
+      .addBooleanColumn("manual_severity", IssueDto::isManualSeverity)
+      .addStringColumn("message", IssueDto::getMessage)
+      .addIntColumn("line", IssueDto::getLine)
+      .addBytesColumn("locations", IssueDto::getLocations)
+      .addDoubleColumn("gap", IssueDto::getGap)
+      // same SQL type as in IssueMapper.xml
+      .addIntColumn("effort", i -> i.getEffort() == null ? null : Math.toIntExact(i.getEffort()))
+      .addStringColumn("status", IssueDto::getStatus)
+      .addStringColumn("tags", IssueDto::getTagsString)
+      .addStringColumn("resolution", IssueDto::getResolution)
+      .addStringColumn("checksum", IssueDto::getChecksum)
+      .addStringColumn("assignee", IssueDto::getAssignee)
+      .addStringColumn("author_login", IssueDto::getAuthorLogin)
+      .addStringColumn("issue_attributes", IssueDto::getIssueAttributes)
+      .addLongColumn("issue_creation_date", IssueDto::getIssueCreationTime)
+      .addLongColumn("issue_update_date", IssueDto::getIssueUpdateTime)
+      .addLongColumn("issue_close_date", IssueDto::getIssueCloseTime)
+      .addLongColumn("created_at", IssueDto::getCreatedAt)
+      .addLongColumn("updated_at", IssueDto::getUpdatedAt)
+      .addStringColumn("component_uuid", IssueDto::getComponentUuid)
+      .addStringColumn("project_uuid", IssueDto::getProjectUuid)
+      .addIntColumn("issue_type", IssueDto::getType)
+      .build(session, dialect);
+  }
+
   public void update(DbSession session, IssueDto dto) {
     mapper(session).update(dto);
   }
@@ -26,8 +26,10 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import org.apache.ibatis.session.ResultHandler;
+import org.sonar.db.BulkInsert;
 import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
+import org.sonar.db.dialect.Dialect;
 
 import static org.sonar.db.DatabaseUtils.executeLargeInputs;
 import static org.sonar.db.DatabaseUtils.executeLargeInputsWithoutOutput;
@@ -91,6 +93,26 @@ public class MeasureDao implements Dao {
       ids -> mapper(dbSession).selectPastMeasures(componentUuid, analysisUuid, ids));
   }
 
+  /**
+   * Streams the {@link PastMeasureDto} of all the components of an analysis, except files, in a single query.
+   * Measures on files, on developers and measures without numeric value are not returned.
+   */
+  public void selectPastMeasuresOfAnalysis(DbSession dbSession, String analysisUuid, ResultHandler resultHandler) {
+    mapper(dbSession).selectPastMeasuresOfAnalysis(analysisUuid, null, resultHandler);
+  }
+
+  /**
+   * Same as {@link #selectPastMeasuresOfAnalysis(DbSession, String, ResultHandler)} but restricted to some components.
+   */
+  public void selectPastMeasuresOfAnalysis(DbSession dbSession, String analysisUuid, Collection<String> componentUuids, ResultHandler resultHandler) {
+    executeLargeInputsWithoutOutput(
+      componentUuids,
+      uuids -> {
+        mapper(dbSession).selectPastMeasuresOfAnalysis(analysisUuid, uuids, resultHandler);
+        return null;
+      });
+  }
+
   /**
    * Used by developer cockpit.
    */
@@ -114,6 +136,33 @@ public class MeasureDao implements Dao {
     insert(session, Lists.asList(item, others));
   }
 
+  /**
+   * Same columns as {@link #insert(DbSession, MeasureDto)}, but measures are inserted with multi-row statements.
+   * Session must be committed with {@link DbSession#commit(boolean) commit(true)}.
+   *
+   * @see BulkInsert
+   */
+  public BulkInsert<MeasureDto> newBulkInsert(DbSession session, Dialect dialect) {
+    return BulkInsert.<MeasureDto>builder("project_measures")
+      .addDoubleColumn("value", MeasureDto::getValue)
+      .addIntColumn("metric_id", MeasureDto::getMetricId)
+      .addStringColumn("component_uuid", MeasureDto::getComponentUuid)
+      .addStringColumn("analysis_uuid", MeasureDto::getAnalysisUuid)
+      .addStringColumn("text_value", MeasureDto::getTextValue)
+      .addStringColumn("alert_status", MeasureDto::getAlertStatus)
+      .addStringColumn("alert_text", MeasureDto::getAlertText)
+      .addStringColumn("description", MeasureDto::getDescription)
+      // same SQL type as in MeasureMapper.xml
+      .addIntColumn("person_id", m -> m.getDeveloperId() == null ? null : Math.toIntExact(m.getDeveloperId()))
+      .addDoubleColumn("variation_value_1", m -> m.getVariation(1))
+      .addDoubleColumn("variation_value_2", m -> m.getVariation(2))
+      .addDoubleColumn("variation_value_3", m -> m.getVariation(3))
+      .addDoubleColumn("variation_value_4", m -> m.getVariation(4))
+      .addDoubleColumn("variation_value_5", m -> m.getVariation(5))
+      .addBytesColumn("measure_data", MeasureDto::getDataValue)
+      .build(session, dialect);
+  }
+
   private static MeasureMapper mapper(DbSession session) {
     return session.getMapper(MeasureMapper.class);
   }
@@ -86,6 +86,16 @@ public class MeasureDto {
     return this;
   }
 
+  @CheckForNull
+  String getTextValue() {
+    return textValue;
+  }
+
+  @CheckForNull
+  byte[] getDataValue() {
+    return dataValue;
+  }
+
   @CheckForNull
   public Double getVariation(int index) {
     switch (index) {
@@ -21,6 +21,7 @@ package org.sonar.db.measure;
 
 import java.util.Collection;
 import java.util.List;
+import javax.annotation.Nullable;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.session.ResultHandler;
 
@@ -32,6 +33,9 @@ public interface MeasureMapper {
 
   List<PastMeasureDto> selectPastMeasures(@Param("componentUuid") String componentUuid, @Param("analysisUuid") String analysisUuid, @Param("metricIds") List<Integer> metricIds);
 
+  void selectPastMeasuresOfAnalysis(@Param("analysisUuid") String analysisUuid, @Nullable @Param("componentUuids") List<String> componentUuids,
+    ResultHandler resultHandler);
+
   List<MeasureDto> selectProjectMeasuresOfDeveloper(@Param("developerId") long developerId, @Param("metricIds") Collection<Integer> metricIds);
 
   void insert(MeasureDto measureDto);
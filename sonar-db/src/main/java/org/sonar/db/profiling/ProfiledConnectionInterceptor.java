@@ -37,7 +37,7 @@ public enum ProfiledConnectionInterceptor implements ConnectionInterceptor {
     return buildConnectionProxy(new ProfilingConnectionHandler(dataSource.getConnection(login, password)));
   }
 
-  private static Connection buildConnectionProxy(ProfilingConnectionHandler connectionHandler) {
+  static Connection buildConnectionProxy(ProfilingConnectionHandler connectionHandler) {
     ClassLoader classloader = ProfiledConnectionInterceptor.class.getClassLoader();
     return (Connection) Proxy.newProxyInstance(classloader, new Class[] {Connection.class}, connectionHandler);
   }
@@ -23,6 +23,8 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.sql.PreparedStatement;
 import org.sonar.api.utils.log.Profiler;
+import org.sonar.core.util.ThreadCounter;
+import org.sonar.core.util.ThreadElapsedTime;
 
 class ProfilingPreparedStatementHandler implements InvocationHandler {
 
@@ -40,10 +42,13 @@ class ProfilingPreparedStatementHandler implements InvocationHandler {
   public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
     if (method.getName().startsWith("execute")) {
       Profiler profiler = Profiler.create(ProfiledDataSource.SQL_LOGGER).start();
+      long start = System.nanoTime();
       Object result = null;
       try {
         result = InvocationUtils.invokeQuietly(statement, method, args);
       } finally {
+        ThreadElapsedTime.SQL.add(System.nanoTime() - start);
+        ThreadCounter.SQL_STATEMENTS.increment();
         profiler.addContext("sql", SqlLogFormatter.formatSql(sql));
         if (sqlParams.length > 0) {
           profiler.addContext("params", SqlLogFormatter.formatParams(sqlParams));
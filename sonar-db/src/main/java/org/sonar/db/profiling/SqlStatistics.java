@@ -0,0 +1,106 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.profiling;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+import static java.util.Comparator.comparing;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Statistics of the SQL statements executed since startup, aggregated by normalized SQL: whitespaces are collapsed,
+ * numeric and string literals are replaced by {@code ?}, and lists of parameters, for example {@code in (?, ?, ?)}
+ * or the rows of multi-row inserts, are replaced by ellipses. Counters are {@link java.util.concurrent.atomic.LongAdder}s,
+ * so recording does not lock.
+ * <p>
+ * The number of distinct statements is limited by {@link #MAX_STATEMENTS}. Next statements are aggregated
+ * under {@link #OTHER_STATEMENTS}.
+ * </p>
+ *
+ * @since 6.1
+ */
+public class SqlStatistics {
+
+  static final int MAX_STATEMENTS = 2_000;
+  static final int MAX_CACHED_SQL = 10_000;
+  public static final String OTHER_STATEMENTS = "<other statements>";
+
+  private static final Pattern WHITESPACES = Pattern.compile("\\s+");
+  private static final Pattern STRING_LITERAL = Pattern.compile("'([^']|'')*'");
+  private static final Pattern NUMERIC_LITERAL = Pattern.compile("\\b\\d+(\\.\\d+)?\\b");
+  private static final Pattern PARAMETER_LIST = Pattern.compile("\\?(\\s*,\\s*\\?)+");
+  private static final Pattern ROW_LIST = Pattern.compile("\\((\\?|\\?\\.\\.\\.)\\)(\\s*,\\s*\\((\\?|\\?\\.\\.\\.)\\))+");
+
+  private final ConcurrentMap<String, StatementStatistics> byNormalizedSql = new ConcurrentHashMap<>();
+  // avoids normalizing SQL of the statements recently executed
+  private final Cache<String, StatementStatistics> bySql = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_SQL).build();
+
+  StatementStatistics forSql(String sql) {
+    StatementStatistics statistics = bySql.getIfPresent(sql);
+    if (statistics == null) {
+      String normalizedSql = normalize(sql);
+      if (byNormalizedSql.size() >= MAX_STATEMENTS && !byNormalizedSql.containsKey(normalizedSql)) {
+        normalizedSql = OTHER_STATEMENTS;
+      }
+      statistics = byNormalizedSql.computeIfAbsent(normalizedSql, StatementStatistics::new);
+      bySql.put(sql, statistics);
+    }
+    return statistics;
+  }
+
+  /**
+   * The statements that took the most time
+   */
+  public List<StatementStatistics> getTopByTotalTime(int limit) {
+    return byNormalizedSql.values().stream()
+      .sorted(comparing(StatementStatistics::getTotalTimeNanos).reversed())
+      .limit(limit)
+      .collect(toList());
+  }
+
+  public long getExecutions() {
+    return byNormalizedSql.values().stream().mapToLong(StatementStatistics::getExecutions).sum();
+  }
+
+  public long getTotalTimeMs() {
+    return byNormalizedSql.values().stream().mapToLong(StatementStatistics::getTotalTimeMs).sum();
+  }
+
+  public long getFetchedRows() {
+    return byNormalizedSql.values().stream().mapToLong(StatementStatistics::getFetchedRows).sum();
+  }
+
+  public int getDistinctStatements() {
+    return byNormalizedSql.size();
+  }
+
+  static String normalize(String sql) {
+    String result = WHITESPACES.matcher(sql.trim()).replaceAll(" ");
+    result = STRING_LITERAL.matcher(result).replaceAll("?");
+    result = NUMERIC_LITERAL.matcher(result).replaceAll("?");
+    result = PARAMETER_LIST.matcher(result).replaceAll("?...");
+    return ROW_LIST.matcher(result).replaceAll("(...)...");
+  }
+}
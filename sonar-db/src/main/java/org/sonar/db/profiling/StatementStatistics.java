@@ -0,0 +1,115 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.profiling;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of the executions of a SQL statement
+ *
+ * @since 6.1
+ */
+public class StatementStatistics {
+
+  private final String sql;
+  private final LongAdder executions = new LongAdder();
+  private final LongAdder errors = new LongAdder();
+  private final LongAdder totalNanos = new LongAdder();
+  private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+  private final LongAdder fetchedRows = new LongAdder();
+  private final LongAdder batches = new LongAdder();
+  private final LongAdder batchedRows = new LongAdder();
+
+  StatementStatistics(String sql) {
+    this.sql = sql;
+  }
+
+  void recordExecution(long durationInNanos, boolean failed) {
+    executions.increment();
+    totalNanos.add(durationInNanos);
+    maxNanos.accumulate(durationInNanos);
+    if (failed) {
+      errors.increment();
+    }
+  }
+
+  void recordBatch(int rows) {
+    batches.increment();
+    batchedRows.add(rows);
+  }
+
+  void recordFetchedRow() {
+    fetchedRows.increment();
+  }
+
+  /**
+   * Normalized SQL
+   */
+  public String getSql() {
+    return sql;
+  }
+
+  public long getExecutions() {
+    return executions.sum();
+  }
+
+  public long getErrors() {
+    return errors.sum();
+  }
+
+  long getTotalTimeNanos() {
+    return totalNanos.sum();
+  }
+
+  public long getTotalTimeMs() {
+    return TimeUnit.NANOSECONDS.toMillis(totalNanos.sum());
+  }
+
+  public long getMaxTimeMs() {
+    return TimeUnit.NANOSECONDS.toMillis(maxNanos.get());
+  }
+
+  public long getFetchedRows() {
+    return fetchedRows.sum();
+  }
+
+  /**
+   * Number of executions of JDBC batches, which are also counted in {@link #getExecutions()}
+   */
+  public long getBatches() {
+    return batches.sum();
+  }
+
+  /**
+   * Average number of rows per JDBC batch
+   */
+  public double getAverageBatchSize() {
+    long count = batches.sum();
+    return count == 0L ? 0d : ((double) batchedRows.sum() / count);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("executions=%d errors=%d time=%dms max=%dms rows=%d batches=%d sql=%s",
+      getExecutions(), getErrors(), getTotalTimeMs(), getMaxTimeMs(), getFetchedRows(), getBatches(), sql);
+  }
+}
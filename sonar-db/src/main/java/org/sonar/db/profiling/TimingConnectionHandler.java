@@ -0,0 +1,64 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.profiling;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import org.sonar.core.util.ThreadElapsedTime;
+
+class TimingConnectionHandler implements InvocationHandler {
+
+  private final Connection connection;
+  private final SqlStatistics statistics;
+
+  TimingConnectionHandler(Connection connection, SqlStatistics statistics) {
+    this.connection = connection;
+    this.statistics = statistics;
+  }
+
+  @Override
+  public Object invoke(Object target, Method method, Object[] args) throws Throwable {
+    String methodName = method.getName();
+    if ("commit".equals(methodName) || "rollback".equals(methodName)) {
+      long start = System.nanoTime();
+      try {
+        return InvocationUtils.invokeQuietly(connection, method, args);
+      } finally {
+        ThreadElapsedTime.SQL.add(System.nanoTime() - start);
+      }
+    }
+    Object result = InvocationUtils.invokeQuietly(connection, method, args);
+    if ("prepareStatement".equals(methodName)) {
+      return buildStatementProxy(PreparedStatement.class, new TimingStatementHandler((Statement) result, statistics, statistics.forSql((String) args[0])));
+    }
+    if ("createStatement".equals(methodName)) {
+      return buildStatementProxy(Statement.class, new TimingStatementHandler((Statement) result, statistics, null));
+    }
+    return result;
+  }
+
+  private static Object buildStatementProxy(Class<? extends Statement> stmtClass, InvocationHandler handler) {
+    return Proxy.newProxyInstance(TimingConnectionHandler.class.getClassLoader(), new Class[] {stmtClass}, handler);
+  }
+}
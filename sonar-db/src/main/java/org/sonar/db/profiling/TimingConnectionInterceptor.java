@@ -0,0 +1,75 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.profiling;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import org.apache.commons.dbcp.BasicDataSource;
+
+/**
+ * Records the duration of SQL requests in {@link org.sonar.core.util.ThreadElapsedTime#SQL}. Cheap enough to be
+ * enabled permanently. SQL requests are also logged, as done by {@link ProfiledConnectionInterceptor}, when
+ * SQL logging is enabled.
+ *
+ * @since 6.1
+ */
+public class TimingConnectionInterceptor implements ConnectionInterceptor {
+
+  private final SqlStatistics statistics;
+  private final boolean sqlLogging;
+
+  public TimingConnectionInterceptor(SqlStatistics statistics) {
+    this(statistics, false);
+  }
+
+  public TimingConnectionInterceptor(SqlStatistics statistics, boolean sqlLogging) {
+    this.statistics = statistics;
+    this.sqlLogging = sqlLogging;
+  }
+
+  @Override
+  public Connection getConnection(BasicDataSource dataSource) throws SQLException {
+    return intercept(dataSource.getConnection());
+  }
+
+  @Override
+  public Connection getConnection(BasicDataSource dataSource, String login, String password) throws SQLException {
+    return intercept(dataSource.getConnection(login, password));
+  }
+
+  public SqlStatistics getStatistics() {
+    return statistics;
+  }
+
+  private Connection intercept(Connection connection) {
+    Connection timedConnection = buildConnectionProxy(new TimingConnectionHandler(connection, statistics));
+    if (sqlLogging) {
+      // duration of logging is not recorded
+      return ProfiledConnectionInterceptor.buildConnectionProxy(new ProfilingConnectionHandler(timedConnection));
+    }
+    return timedConnection;
+  }
+
+  private static Connection buildConnectionProxy(TimingConnectionHandler connectionHandler) {
+    ClassLoader classloader = TimingConnectionInterceptor.class.getClassLoader();
+    return (Connection) Proxy.newProxyInstance(classloader, new Class[] {Connection.class}, connectionHandler);
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.profiling;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.core.util.ThreadCounter;
+import org.sonar.core.util.ThreadElapsedTime;
+
+class TimingStatementHandler implements InvocationHandler {
+
+  private final Statement statement;
+  private final SqlStatistics statistics;
+  // SQL of prepared statements is known when statement is created, else it's given at each execution
+  @CheckForNull
+  private final StatementStatistics preparedStatistics;
+  private StatementStatistics lastStatistics;
+  private int batchedRows = 0;
+
+  TimingStatementHandler(Statement statement, SqlStatistics statistics, @Nullable StatementStatistics preparedStatistics) {
+    this.statement = statement;
+    this.statistics = statistics;
+    this.preparedStatistics = preparedStatistics;
+    this.lastStatistics = preparedStatistics;
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    String methodName = method.getName();
+    if (methodName.startsWith("execute")) {
+      return execute(method, args);
+    }
+    if ("addBatch".equals(methodName)) {
+      batchedRows++;
+      if (preparedStatistics == null && args != null && args.length == 1) {
+        lastStatistics = statistics.forSql((String) args[0]);
+      }
+    } else if ("clearBatch".equals(methodName)) {
+      batchedRows = 0;
+    }
+    Object result = InvocationUtils.invokeQuietly(statement, method, args);
+    if ("getResultSet".equals(methodName)) {
+      return wrapResultSet(result);
+    }
+    return result;
+  }
+
+  private Object execute(Method method, Object[] args) throws Throwable {
+    StatementStatistics executionStatistics = statisticsOfExecution(method, args);
+    boolean failed = true;
+    long start = System.nanoTime();
+    try {
+      Object result = InvocationUtils.invokeQuietly(statement, method, args);
+      failed = false;
+      return wrapResultSet(result);
+    } finally {
+      long duration = System.nanoTime() - start;
+      ThreadElapsedTime.SQL.add(duration);
+      ThreadCounter.SQL_STATEMENTS.increment();
+      if (executionStatistics != null) {
+        executionStatistics.recordExecution(duration, failed);
+        if ("executeBatch".equals(method.getName())) {
+          executionStatistics.recordBatch(batchedRows);
+          batchedRows = 0;
+        }
+      }
+    }
+  }
+
+  @CheckForNull
+  private StatementStatistics statisticsOfExecution(Method method, Object[] args) {
+    if (preparedStatistics == null && args != null && args.length > 0 && args[0] instanceof String) {
+      lastStatistics = statistics.forSql((String) args[0]);
+    }
+    return "executeBatch".equals(method.getName()) || preparedStatistics == null ? lastStatistics : preparedStatistics;
+  }
+
+  private Object wrapResultSet(@Nullable Object result) {
+    if (result instanceof ResultSet && lastStatistics != null) {
+      return new RowCountingResultSet((ResultSet) result, lastStatistics);
+    }
+    return result;
+  }
+}
@@ -78,6 +78,24 @@ public class RuleDao implements Dao {
     return mapper(session).selectAll();
   }
 
+  /**
+   * Select rules, whatever their status, which have been updated at or after the specified date.
+   * <p>
+   * Dates are set by the web server before commit, so a rule can be committed after another one with a greater date.
+   * Callers keeping a copy of the rules must re-read with an overlap and reload everything from time to time.
+   * </p>
+   */
+  public List<RuleDto> selectUpdatedSince(DbSession session, long updatedAt) {
+    return mapper(session).selectUpdatedSince(updatedAt);
+  }
+
+  /**
+   * Number of rules, whatever their status.
+   */
+  public int countAll(DbSession session) {
+    return mapper(session).countAll();
+  }
+
   public List<RuleDto> selectByQuery(DbSession session, RuleQuery ruleQuery){
     return mapper(session).selectByQuery(ruleQuery);
   }
@@ -98,6 +116,10 @@ public class RuleDao implements Dao {
    * RuleParams
    */
 
+  public List<RuleParamDto> selectAllRuleParams(DbSession session) {
+    return mapper(session).selectAllParams();
+  }
+
   public List<RuleParamDto> selectRuleParamsByRuleKey(DbSession session, RuleKey key) {
     return mapper(session).selectParamsByRuleKey(key);
   }
@@ -31,6 +31,10 @@ public interface RuleMapper {
 
   List<RuleDto> selectAll(ResultHandler resultHandler);
 
+  List<RuleDto> selectUpdatedSince(@Param("updatedAt") long updatedAt);
+
+  int countAll();
+
   List<RuleDto> selectEnabled();
 
   void selectEnabled(ResultHandler resultHandler);
@@ -51,6 +55,8 @@ public interface RuleMapper {
 
   void insert(RuleDto rule);
 
+  List<RuleParamDto> selectAllParams();
+
   List<RuleParamDto> selectParamsByRuleIds(@Param("ruleIds") List<Integer> ruleIds);
 
   List<RuleParamDto> selectParamsByRuleKey(RuleKey ruleKey);
@@ -0,0 +1,138 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.source;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import org.sonar.db.protobuf.DbFileSources;
+
+import static java.lang.String.format;
+
+/**
+ * Encoding of the highlighting and symbol ranges of a line of {@link DbFileSources.Line}.
+ * <p>
+ * Each range is stored as three integers in a packed repeated field: the delta between its start offset and the start
+ * offset of the previous range of the line, its length and its value (index of css class or symbol id). Protobuf stores
+ * them as zigzag varints, so most ranges take three bytes instead of a string like "12,17,k;".
+ * <p>
+ * Lines written before 6.1 only have the string fields {@link DbFileSources.Line#getHighlighting()} and
+ * {@link DbFileSources.Line#getSymbols()}. They are still decoded by the read methods.
+ */
+public final class LineRanges {
+
+  /**
+   * Css classes of highlighting, referenced by their index in the encoded ranges. New classes must be appended.
+   */
+  private static final String[] CSS_CLASSES = {"a", "c", "cd", "cppd", "j", "k", "h", "s", "p"};
+
+  private static final String RANGE_SEPARATOR = ";";
+  private static final String FIELD_SEPARATOR = ",";
+
+  private LineRanges() {
+    // only static stuff
+  }
+
+  @FunctionalInterface
+  public interface HighlightingConsumer {
+    void accept(int startOffset, int endOffset, String cssClass);
+  }
+
+  @FunctionalInterface
+  public interface SymbolConsumer {
+    void accept(int startOffset, int endOffset, int symbolId);
+  }
+
+  public static Encoder highlightingEncoder(DbFileSources.Line.Builder line) {
+    return new Encoder(line::addHighlightingRanges);
+  }
+
+  public static Encoder symbolsEncoder(DbFileSources.Line.Builder line) {
+    return new Encoder(line::addSymbolRanges);
+  }
+
+  public static void readHighlighting(DbFileSources.LineOrBuilder line, HighlightingConsumer consumer) {
+    if (line.getHighlightingRangesCount() > 0) {
+      decode(line.getHighlightingRangesList(), (start, end, value) -> consumer.accept(start, end, cssClass(value)));
+    } else if (line.hasHighlighting()) {
+      decodeLegacy(line.getHighlighting(), fields -> consumer.accept(Integer.parseInt(fields[0]), Integer.parseInt(fields[1]), fields[2]));
+    }
+  }
+
+  public static void readSymbols(DbFileSources.LineOrBuilder line, SymbolConsumer consumer) {
+    if (line.getSymbolRangesCount() > 0) {
+      decode(line.getSymbolRangesList(), consumer);
+    } else if (line.hasSymbols()) {
+      decodeLegacy(line.getSymbols(), fields -> consumer.accept(Integer.parseInt(fields[0]), Integer.parseInt(fields[1]), Integer.parseInt(fields[2])));
+    }
+  }
+
+  public static int cssClassIndex(String cssClass) {
+    for (int i = 0; i < CSS_CLASSES.length; i++) {
+      if (CSS_CLASSES[i].equals(cssClass)) {
+        return i;
+      }
+    }
+    throw new IllegalArgumentException(format("Unknown css class '%s'", cssClass));
+  }
+
+  private static String cssClass(int index) {
+    if (index < 0 || index >= CSS_CLASSES.length) {
+      throw new IllegalStateException(format("Unknown css class index %d", index));
+    }
+    return CSS_CLASSES[index];
+  }
+
+  private static void decode(List<Integer> values, SymbolConsumer consumer) {
+    int start = 0;
+    for (int i = 0; i + 2 < values.size(); i += 3) {
+      start += values.get(i);
+      consumer.accept(start, start + values.get(i + 1), values.get(i + 2));
+    }
+  }
+
+  private static void decodeLegacy(String ranges, Consumer<String[]> consumer) {
+    for (String range : ranges.split(RANGE_SEPARATOR)) {
+      if (!range.trim().isEmpty()) {
+        consumer.accept(range.split(FIELD_SEPARATOR));
+      }
+    }
+  }
+
+  /**
+   * Appends ranges to a line, in the order they must be read
+   */
+  public static final class Encoder {
+    private final IntConsumer output;
+    private int previousStart = 0;
+
+    private Encoder(IntConsumer output) {
+      this.output = output;
+    }
+
+    public Encoder add(int startOffset, int endOffset, int value) {
+      output.accept(startOffset - previousStart);
+      output.accept(endOffset - startOffset);
+      output.accept(value);
+      previousStart = startOffset;
+      return this;
+    }
+  }
+}
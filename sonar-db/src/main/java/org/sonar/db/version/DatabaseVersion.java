@@ -30,7 +30,7 @@ import org.sonar.db.MyBatis;
 
 public class DatabaseVersion {
 
-  public static final int LAST_VERSION = 1_309;
+  public static final int LAST_VERSION = 1_310;
 
   /**
    * The minimum supported version which can be upgraded. Lower
@@ -54,6 +54,7 @@ public class DatabaseVersion {
     "ce_queue",
     "ce_task_input",
     "ce_scanner_context",
+    "ce_task_profile",
     "dashboards",
     "duplications_index",
     "events",
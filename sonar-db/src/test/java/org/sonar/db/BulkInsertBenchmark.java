@@ -0,0 +1,76 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.db.dialect.Dialect;
+import org.sonar.db.dialect.H2;
+import org.sonar.db.dialect.Oracle;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares throughput of single-row and multi-row inserts on the embedded H2 database. Not a unit test: the name
+ * of the class does not match the test classes executed by the build, so it must be run explicitly:
+ * <pre>mvn test -Dtest=BulkInsertBenchmark</pre>
+ */
+public class BulkInsertBenchmark {
+
+  private static final Logger LOG = Loggers.get(BulkInsertBenchmark.class);
+  private static final int ROWS = 200_000;
+
+  @Rule
+  public DbTester db = DbTester.createForSchema(System2.INSTANCE, BulkInsertTest.class, "schema.sql");
+
+  @Test
+  public void single_row_statements() {
+    benchmark(new Oracle());
+  }
+
+  @Test
+  public void multi_row_statements() {
+    benchmark(new H2());
+  }
+
+  private void benchmark(Dialect dialect) {
+    DbSession dbSession = db.getSession();
+    long start = System.currentTimeMillis();
+    try (BulkInsert<Integer> underTest = BulkInsert.<Integer>builder("bulk_rows")
+      .addIntColumn("id", i -> i)
+      .addStringColumn("name", i -> "name" + i)
+      .addLongColumn("nb", i -> (long) i)
+      .addDoubleColumn("ratio", i -> (double) i)
+      .addBooleanColumn("enabled", i -> true)
+      .build(dbSession, dialect)) {
+      for (int i = 0; i < ROWS; i++) {
+        underTest.add(i);
+      }
+    }
+    dbSession.commit(true);
+    long duration = Math.max(1L, System.currentTimeMillis() - start);
+
+    assertThat(db.countRowsOfTable("bulk_rows")).isEqualTo(ROWS);
+    LOG.info("{} rows per statement: {} rows/s", dialect.getMaxRowsPerInsert(5), ROWS * 1000L / duration);
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db;
+
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.utils.System2;
+import org.sonar.db.dialect.Dialect;
+import org.sonar.db.dialect.H2;
+import org.sonar.db.dialect.Oracle;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BulkInsertTest {
+
+  @Rule
+  public DbTester db = DbTester.createForSchema(System2.INSTANCE, BulkInsertTest.class, "schema.sql");
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  DbSession dbSession = db.getSession();
+
+  @Test
+  public void insert_rows_with_multi_row_statements() {
+    BulkInsert<Row> underTest = newBulkInsert(new H2(), 10);
+
+    for (int i = 1; i <= 25; i++) {
+      underTest.add(new Row(i, "name" + i, (long) i, i * 1.5d, i % 2 == 0, new byte[] {(byte) i}));
+    }
+    underTest.close();
+    dbSession.commit(true);
+
+    assertThat(db.countRowsOfTable("bulk_rows")).isEqualTo(25);
+    // 2 multi-row statements of 10 rows, then 5 single-row statements
+    assertThat(underTest.getRowCount()).isEqualTo(25);
+    assertThat(underTest.getStatementCount()).isEqualTo(2 + 5);
+    Map<String, Object> row = db.selectFirst("select id as \"id\", name as \"name\", nb as \"nb\", ratio as \"ratio\", enabled as \"enabled\" from bulk_rows where id=12");
+    assertThat(row.get("name")).isEqualTo("name12");
+    assertThat(row.get("nb")).isEqualTo(12L);
+    assertThat(row.get("ratio")).isEqualTo(18d);
+    assertThat(row.get("enabled")).isEqualTo(true);
+  }
+
+  @Test
+  public void insert_null_values() {
+    try (BulkInsert<Row> underTest = newBulkInsert(new H2(), 10)) {
+      underTest.add(new Row(1, null, null, null, null, null));
+      underTest.add(new Row(2, null, null, null, null, null));
+    }
+    dbSession.commit(true);
+
+    List<Map<String, Object>> rows = db.select("select name as \"name\", nb as \"nb\", data as \"data\" from bulk_rows");
+    assertThat(rows).hasSize(2);
+    assertThat(rows.get(0).get("name")).isNull();
+    assertThat(rows.get(0).get("nb")).isNull();
+    assertThat(rows.get(0).get("data")).isNull();
+  }
+
+  @Test
+  public void rows_are_written_only_when_flush_size_is_reached() {
+    BulkInsert<Row> underTest = newBulkInsert(new H2(), 3);
+
+    underTest.add(newRow(1)).add(newRow(2));
+    assertThat(underTest.getRowCount()).isEqualTo(0);
+
+    underTest.add(newRow(3));
+    assertThat(underTest.getRowCount()).isEqualTo(3);
+    assertThat(underTest.getStatementCount()).isEqualTo(1);
+
+    underTest.add(newRow(4));
+    underTest.flush();
+    assertThat(underTest.getRowCount()).isEqualTo(4);
+    underTest.close();
+  }
+
+  @Test
+  public void use_jdbc_batch_if_dialect_does_not_support_multi_row_inserts() {
+    BulkInsert<Row> underTest = newBulkInsert(new Oracle(), 10);
+    for (int i = 1; i <= 12; i++) {
+      underTest.add(newRow(i));
+    }
+    underTest.close();
+    dbSession.commit(true);
+
+    assertThat(underTest.getStatementCount()).isEqualTo(12);
+
+    assertThat(db.countRowsOfTable("bulk_rows")).isEqualTo(12);
+  }
+
+  @Test
+  public void replay_rows_one_by_one_when_multi_row_statement_fails() {
+    db.executeInsert("bulk_rows", "ID", 3);
+
+    BulkInsert<Row> underTest = newBulkInsert(new H2(), 5);
+    underTest.add(newRow(1)).add(newRow(2));
+    try {
+      underTest.add(newRow(3)).add(newRow(4)).add(newRow(5));
+      throw new AssertionError("Duplicated key should fail");
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("Fail to insert rows into table bulk_rows");
+    }
+    dbSession.commit(true);
+
+    // rows inserted before the faulty one are kept, as they would be with single-row statements
+    assertThat(db.select("select id as \"id\" from bulk_rows order by id")).extracting(r -> ((Number) r.get("id")).intValue()).containsExactly(1, 2, 3);
+  }
+
+  @Test
+  public void replay_rows_one_by_one_when_jdbc_batch_fails() {
+    db.executeInsert("bulk_rows", "ID", 3);
+
+    BulkInsert<Row> underTest = newBulkInsert(new Oracle(), 5);
+    underTest.add(newRow(1)).add(newRow(2));
+    try {
+      underTest.add(newRow(3)).add(newRow(4)).add(newRow(5));
+      throw new AssertionError("Duplicated key should fail");
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("Fail to insert rows into table bulk_rows");
+    }
+    dbSession.commit(true);
+
+    // rows inserted before the faulty one are kept, as they would be with single-row statements
+    assertThat(db.select("select id as \"id\" from bulk_rows order by id")).extracting(r -> ((Number) r.get("id")).intValue()).containsExactly(1, 2, 3);
+  }
+
+  @Test
+  public void fail_if_no_columns() {
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("At least one column must be defined");
+
+    BulkInsert.<Row>builder("bulk_rows").build(dbSession, new H2());
+  }
+
+  @Test
+  public void fail_if_flush_size_is_not_positive() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Flush size must be positive: 0");
+
+    BulkInsert.<Row>builder("bulk_rows").setFlushSize(0);
+  }
+
+  private BulkInsert<Row> newBulkInsert(Dialect dialect, int flushSize) {
+    return BulkInsert.<Row>builder("bulk_rows")
+      .addIntColumn("id", r -> r.id)
+      .addStringColumn("name", r -> r.name)
+      .addLongColumn("nb", r -> r.count)
+      .addDoubleColumn("ratio", r -> r.value)
+      .addBooleanColumn("enabled", r -> r.enabled)
+      .addBytesColumn("data", r -> r.data)
+      .setFlushSize(flushSize)
+      .build(dbSession, dialect);
+  }
+
+  private static Row newRow(int id) {
+    return new Row(id, "name" + id, null, null, null, null);
+  }
+
+  private static class Row {
+    private final int id;
+    private final String name;
+    private final Long count;
+    private final Double value;
+    private final Boolean enabled;
+    private final byte[] data;
+
+    Row(int id, @Nullable String name, @Nullable Long count, @Nullable Double value, @Nullable Boolean enabled, @Nullable byte[] data) {
+      this.id = id;
+      this.name = name;
+      this.count = count;
+      this.value = value;
+      this.enabled = enabled;
+      this.data = data;
+    }
+  }
+}
@@ -26,6 +26,7 @@ import org.apache.commons.dbcp.BasicDataSource;
 import org.apache.commons.dbutils.DbUtils;
 import org.sonar.db.dialect.Dialect;
 import org.sonar.db.dialect.H2;
+import org.sonar.db.profiling.SqlStatistics;
 
 import static java.lang.String.format;
 
@@ -37,6 +38,7 @@ import static java.lang.String.format;
 public class H2Database implements Database {
   private final String name;
   private final boolean createSchema;
+  private final SqlStatistics sqlStatistics = new SqlStatistics();
   private BasicDataSource datasource;
 
   /**
@@ -115,6 +117,11 @@ public class H2Database implements Database {
     throw new UnsupportedOperationException();
   }
 
+  @Override
+  public SqlStatistics getSqlStatistics() {
+    return sqlStatistics;
+  }
+
   @Override
   public String toString() {
     return format("H2 Database[%s]", name);
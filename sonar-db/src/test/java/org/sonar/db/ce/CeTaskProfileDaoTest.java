@@ -0,0 +1,126 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.ce;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class CeTaskProfileDaoTest {
+
+  private static final String SOME_UUID = "some UUID";
+
+  @Rule
+  public DbTester dbTester = DbTester.create(System2.INSTANCE);
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private DbSession dbSession = dbTester.getSession();
+
+  private CeTaskProfileDao underTest = new CeTaskProfileDao(mock(System2.class));
+
+  @Test
+  public void selectByTaskUuid_returns_empty_on_empty_table() {
+    assertThat(underTest.selectByTaskUuid(dbSession, SOME_UUID)).isEmpty();
+  }
+
+  @Test
+  public void insert_and_select_profile() {
+    underTest.insert(dbSession, SOME_UUID, new CeTaskProfile(Arrays.asList(
+      new CeTaskProfile.Step().setDescription("Extract report").setDurationMs(12L).setCpuTimeMs(10L).setAllocatedBytes(3_000_000_000L),
+      new CeTaskProfile.Step().setDescription("Persist issues").setDurationMs(2_000L).setSqlStatements(45L).setSqlFetchedRows(1_000L).setSqlTimeMs(1_500L)
+        .setEsBulkRequests(2L).setEsDocuments(3_000L).setEsTimeMs(300L))));
+
+    CeTaskProfile profile = underTest.selectByTaskUuid(dbSession, SOME_UUID).get();
+    assertThat(profile.getSteps()).extracting(CeTaskProfile.Step::getDescription).containsExactly("Extract report", "Persist issues");
+    CeTaskProfile.Step extractReport = profile.getSteps().get(0);
+    assertThat(extractReport.getDurationMs()).isEqualTo(12L);
+    assertThat(extractReport.getCpuTimeMs()).isEqualTo(10L);
+    assertThat(extractReport.getAllocatedBytes()).isEqualTo(3_000_000_000L);
+    assertThat(extractReport.getSqlStatements()).isEqualTo(0L);
+    CeTaskProfile.Step persistIssues = profile.getSteps().get(1);
+    assertThat(persistIssues.getCpuTimeMs()).isEqualTo(CeTaskProfile.UNKNOWN);
+    assertThat(persistIssues.getAllocatedBytes()).isEqualTo(CeTaskProfile.UNKNOWN);
+    assertThat(persistIssues.getSqlStatements()).isEqualTo(45L);
+    assertThat(persistIssues.getSqlFetchedRows()).isEqualTo(1_000L);
+    assertThat(persistIssues.getSqlTimeMs()).isEqualTo(1_500L);
+    assertThat(persistIssues.getEsBulkRequests()).isEqualTo(2L);
+    assertThat(persistIssues.getEsDocuments()).isEqualTo(3_000L);
+    assertThat(persistIssues.getEsTimeMs()).isEqualTo(300L);
+  }
+
+  @Test
+  public void insert_fails_if_row_already_exists_for_taskUuid() {
+    insertProfile(SOME_UUID);
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Fail to insert profile of task " + SOME_UUID);
+
+    insertProfile(SOME_UUID);
+  }
+
+  @Test
+  public void profile_without_steps_is_supported() {
+    underTest.insert(dbSession, SOME_UUID, new CeTaskProfile(emptyList()));
+
+    assertThat(underTest.selectByTaskUuid(dbSession, SOME_UUID).get().getSteps()).isEmpty();
+  }
+
+  @Test
+  public void parse_fails_on_unsupported_format() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Unsupported format of task profile: 42");
+
+    CeTaskProfile.parse(new byte[] {42});
+  }
+
+  @Test
+  public void deleteByUuids_deletes_specified_existing_uuids() {
+    insertProfile(SOME_UUID);
+    insertProfile("UUID_2");
+    insertProfile("UUID_3");
+
+    underTest.deleteByUuids(dbSession, ImmutableSet.of(SOME_UUID, "UUID_3", "UUID_4"));
+
+    assertThat(underTest.selectByTaskUuid(dbSession, SOME_UUID)).isEmpty();
+    assertThat(underTest.selectByTaskUuid(dbSession, "UUID_2")).isPresent();
+    assertThat(underTest.selectByTaskUuid(dbSession, "UUID_3")).isEmpty();
+  }
+
+  @Test
+  public void deleteByUuids_does_not_fail_on_empty_table() {
+    underTest.deleteByUuids(dbSession, singleton("some uuid"));
+  }
+
+  private void insertProfile(String uuid) {
+    underTest.insert(dbSession, uuid, new CeTaskProfile(singletonList(new CeTaskProfile.Step().setDescription("step of " + uuid))));
+  }
+}
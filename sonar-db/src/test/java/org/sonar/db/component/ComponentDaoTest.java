@@ -471,6 +471,16 @@ public class ComponentDaoTest {
     assertThat(underTest.selectEnabledFilesFromProject(dbSession, "unknown")).isEmpty();
   }
 
+  @Test
+  public void select_enabled_files_from_project_updated_after_date() {
+    db.prepareDbUnit(getClass(), "select_module_files_tree.xml");
+
+    assertThat(underTest.selectEnabledFilesFromProjectUpdatedAfter(dbSession, "ABCD", 1_400_000_000_000L)).extracting("uuid").containsOnly("EFGHI", "HIJK");
+    assertThat(underTest.selectEnabledFilesFromProjectUpdatedAfter(dbSession, "ABCD", 1_412_952_242_000L)).extracting("uuid").containsOnly("HIJK");
+    assertThat(underTest.selectEnabledFilesFromProjectUpdatedAfter(dbSession, "ABCD", 1_500_000_000_000L)).isEmpty();
+    assertThat(underTest.selectEnabledFilesFromProjectUpdatedAfter(dbSession, "EFGH", 1_400_000_000_000L)).isEmpty();
+  }
+
   @Test
   public void select_all_components_from_project() {
     db.prepareDbUnit(getClass(), "multi-modules.xml");
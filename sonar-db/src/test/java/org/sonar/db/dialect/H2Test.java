@@ -56,4 +56,15 @@ public class H2Test {
   public void h2_does_not_supportMigration() {
     assertThat(dialect.supportsMigration()).isFalse();
   }
+
+  @Test
+  public void getMaxRowsPerInsert() {
+    assertThat(dialect.getMaxRowsPerInsert(1)).isEqualTo(1000);
+    assertThat(dialect.getMaxRowsPerInsert(20)).isEqualTo(1000);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void getMaxRowsPerInsert_fails_if_no_columns() {
+    dialect.getMaxRowsPerInsert(0);
+  }
 }
@@ -59,4 +59,11 @@ public class MsSqlTest {
   public void msSql_does_supportMigration() {
     assertThat(msSql.supportsMigration()).isTrue();
   }
+
+  @Test
+  public void getMaxRowsPerInsert_is_limited_by_number_of_parameters() {
+    assertThat(msSql.getMaxRowsPerInsert(1)).isEqualTo(1000);
+    assertThat(msSql.getMaxRowsPerInsert(13)).isEqualTo(153);
+    assertThat(msSql.getMaxRowsPerInsert(3000)).isEqualTo(1);
+  }
 }
@@ -60,4 +60,10 @@ public class MySqlTest {
   public void mysql_does_supportMigration() {
     assertThat(mySql.supportsMigration()).isTrue();
   }
+
+  @Test
+  public void getMaxRowsPerInsert_is_limited_by_number_of_parameters() {
+    assertThat(mySql.getMaxRowsPerInsert(1)).isEqualTo(1000);
+    assertThat(mySql.getMaxRowsPerInsert(100)).isEqualTo(655);
+  }
 }
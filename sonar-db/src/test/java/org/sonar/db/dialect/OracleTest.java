@@ -57,4 +57,10 @@ public class OracleTest {
   public void oracle_does_supportMigration() {
     assertThat(dialect.supportsMigration()).isTrue();
   }
+
+  @Test
+  public void multi_row_inserts_are_not_supported() {
+    assertThat(dialect.getMaxRowsPerInsert(1)).isEqualTo(1);
+    assertThat(dialect.getMaxRowsPerInsert(10)).isEqualTo(1);
+  }
 }
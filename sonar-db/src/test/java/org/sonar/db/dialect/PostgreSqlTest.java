@@ -61,4 +61,10 @@ public class PostgreSqlTest {
   public void postgres_does_supportMigration() {
     assertThat(dialect.supportsMigration()).isTrue();
   }
+
+  @Test
+  public void getMaxRowsPerInsert_is_limited_by_number_of_parameters() {
+    assertThat(dialect.getMaxRowsPerInsert(1)).isEqualTo(1000);
+    assertThat(dialect.getMaxRowsPerInsert(40)).isEqualTo(819);
+  }
 }
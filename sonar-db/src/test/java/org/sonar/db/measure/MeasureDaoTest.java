@@ -33,12 +33,14 @@ import org.sonar.api.utils.System2;
 import org.sonar.core.util.UuidFactoryImpl;
 import org.sonar.db.DbTester;
 import org.sonar.db.component.ComponentDto;
+import org.sonar.db.component.ComponentTesting;
 import org.sonar.db.component.SnapshotTesting;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 public class MeasureDaoTest {
 
@@ -368,6 +370,36 @@ public class MeasureDaoTest {
       .setLast(isLast));
   }
 
-  // TODO test selectPastMeasures
+  @Test
+  public void selectPastMeasuresOfAnalysis() {
+    ComponentDto project = ComponentTesting.newProjectDto("C1");
+    ComponentDto directory = ComponentTesting.newDirectory(project, "C2", "src");
+    db.getDbClient().componentDao().insert(db.getSession(), project, directory, ComponentTesting.newFileDto(project, directory, "C3"));
+    insertAnalysis(LAST_ANALYSIS_UUID, true);
+    insertAnalysis(OTHER_ANALYSIS_UUID, false);
+    insertMeasure("M1", OTHER_ANALYSIS_UUID, "C1", NCLOC_METRIC_ID);
+    insertMeasure("M2", LAST_ANALYSIS_UUID, "C1", NCLOC_METRIC_ID);
+    insertMeasure("M3", LAST_ANALYSIS_UUID, "C1", COVERAGE_METRIC_ID);
+    insertMeasureOnPerson("M4", LAST_ANALYSIS_UUID, "C1", NCLOC_METRIC_ID, A_PERSON_ID);
+    insertMeasure("M5", LAST_ANALYSIS_UUID, "C2", NCLOC_METRIC_ID);
+    db.getDbClient().measureDao().insert(db.getSession(), MeasureTesting.newMeasure()
+      .setAnalysisUuid(LAST_ANALYSIS_UUID).setComponentUuid("C2").setMetricId(COMPLEXITY_METRIC_ID).setValue(null));
+    // measures of files are not returned
+    insertMeasure("M6", LAST_ANALYSIS_UUID, "C3", NCLOC_METRIC_ID);
+    db.commit();
+
+    List<PastMeasureDto> measures = new ArrayList<>();
+    underTest.selectPastMeasuresOfAnalysis(db.getSession(), LAST_ANALYSIS_UUID, resultContext -> measures.add((PastMeasureDto) resultContext.getResultObject()));
+    assertThat(measures).extracting(PastMeasureDto::getComponentUuid, PastMeasureDto::getMetricId).containsOnly(
+      tuple("C1", NCLOC_METRIC_ID),
+      tuple("C1", COVERAGE_METRIC_ID),
+      tuple("C2", NCLOC_METRIC_ID));
+    assertThat(measures).extracting(PastMeasureDto::hasValue).containsOnly(true);
+
+    measures.clear();
+    underTest.selectPastMeasuresOfAnalysis(db.getSession(), LAST_ANALYSIS_UUID, asList("C2", "MISSING"),
+      resultContext -> measures.add((PastMeasureDto) resultContext.getResultObject()));
+    assertThat(measures).extracting(PastMeasureDto::getComponentUuid, PastMeasureDto::getMetricId).containsOnly(tuple("C2", NCLOC_METRIC_ID));
+  }
 
 }
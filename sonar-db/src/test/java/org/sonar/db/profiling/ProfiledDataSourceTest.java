@@ -25,6 +25,8 @@ import java.lang.reflect.Modifier;
 import java.sql.Connection;
 import java.sql.Date;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
 import org.apache.commons.dbcp.BasicDataSource;
@@ -32,8 +34,10 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.core.util.ThreadElapsedTime;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -132,6 +136,115 @@ public class ProfiledDataSourceTest {
       .doesNotContain("params=");
   }
 
+  @Test
+  public void record_duration_of_statements_without_logging() throws Exception {
+    logTester.setLevel(LoggerLevel.TRACE);
+
+    Connection connection = mock(Connection.class);
+    when(originDataSource.getConnection()).thenReturn(connection);
+
+    String sql = "select from dual";
+    PreparedStatement preparedStatement = mock(PreparedStatement.class);
+    when(connection.prepareStatement(sql)).thenReturn(preparedStatement);
+    when(preparedStatement.execute()).thenAnswer(invocation -> {
+      Thread.sleep(5L);
+      return true;
+    });
+
+    ProfiledDataSource ds = new ProfiledDataSource(originDataSource, new TimingConnectionInterceptor(new SqlStatistics()));
+    long before = ThreadElapsedTime.SQL.get();
+    assertThat(ds.getConnection().prepareStatement(sql).execute()).isTrue();
+
+    assertThat(ThreadElapsedTime.SQL.get() - before).isGreaterThanOrEqualTo(5_000_000L);
+    assertThat(logTester.logs(LoggerLevel.TRACE)).isEmpty();
+  }
+
+  @Test
+  public void record_duration_of_statements_when_sql_logging_is_enabled() throws Exception {
+    logTester.setLevel(LoggerLevel.TRACE);
+    Connection connection = mock(Connection.class);
+    when(originDataSource.getConnection()).thenReturn(connection);
+    String sql = "select from dual";
+    PreparedStatement stmt = mock(PreparedStatement.class);
+    when(connection.prepareStatement(sql)).thenReturn(stmt);
+    when(stmt.execute()).thenAnswer(invocation -> {
+      Thread.sleep(5L);
+      return true;
+    });
+    SqlStatistics statistics = new SqlStatistics();
+
+    ProfiledDataSource ds = new ProfiledDataSource(originDataSource, new TimingConnectionInterceptor(statistics, true));
+    long before = ThreadElapsedTime.SQL.get();
+    assertThat(ds.getConnection().prepareStatement(sql).execute()).isTrue();
+
+    assertThat(ThreadElapsedTime.SQL.get() - before).isGreaterThanOrEqualTo(5_000_000L);
+    assertThat(statistics.getExecutions()).isEqualTo(1);
+    assertThat(logTester.logs(LoggerLevel.TRACE)).hasSize(1);
+    assertThat(logTester.logs(LoggerLevel.TRACE).get(0)).contains(sql);
+  }
+
+  @Test
+  public void aggregate_statistics_of_prepared_statements() throws Exception {
+    Connection connection = mock(Connection.class);
+    when(originDataSource.getConnection()).thenReturn(connection);
+    PreparedStatement preparedStatement = mock(PreparedStatement.class);
+    when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+    ResultSet resultSet = mock(ResultSet.class);
+    when(preparedStatement.executeQuery()).thenReturn(resultSet);
+    when(resultSet.next()).thenReturn(true, true, false);
+    SqlStatistics statistics = new SqlStatistics();
+    ProfiledDataSource ds = new ProfiledDataSource(originDataSource, new TimingConnectionInterceptor(statistics));
+
+    ResultSet rows = ds.getConnection().prepareStatement("select * from issues where kee in (?, ?)").executeQuery();
+    while (rows.next()) {
+      // fetch all rows
+    }
+    ds.getConnection().prepareStatement("select * from issues where kee in (?, ?, ?)").executeQuery();
+
+    assertThat(statistics.getDistinctStatements()).isEqualTo(1);
+    assertThat(statistics.getExecutions()).isEqualTo(2);
+    assertThat(statistics.getFetchedRows()).isEqualTo(2);
+    StatementStatistics statement = statistics.getTopByTotalTime(10).get(0);
+    assertThat(statement.getSql()).isEqualTo("select * from issues where kee in (?...)");
+    assertThat(statement.getErrors()).isZero();
+  }
+
+  @Test
+  public void record_batches_and_errors_in_statistics() throws Exception {
+    Connection connection = mock(Connection.class);
+    when(originDataSource.getConnection()).thenReturn(connection);
+    PreparedStatement insert = mock(PreparedStatement.class);
+    when(connection.prepareStatement("insert into foo (a) values (?)")).thenReturn(insert);
+    Statement stmt = mock(Statement.class);
+    when(connection.createStatement()).thenReturn(stmt);
+    when(stmt.execute("delete from foo")).thenThrow(new SQLException("boom"));
+    SqlStatistics statistics = new SqlStatistics();
+    ProfiledDataSource ds = new ProfiledDataSource(originDataSource, new TimingConnectionInterceptor(statistics));
+
+    PreparedStatement batch = ds.getConnection().prepareStatement("insert into foo (a) values (?)");
+    batch.addBatch();
+    batch.addBatch();
+    batch.addBatch();
+    batch.executeBatch();
+    batch.addBatch();
+    batch.executeBatch();
+    try {
+      ds.getConnection().createStatement().execute("delete from foo");
+    } catch (SQLException e) {
+      // expected
+    }
+
+    assertThat(statistics.getTopByTotalTime(10)).extracting(StatementStatistics::getSql)
+      .containsOnly("insert into foo (a) values (?)", "delete from foo");
+    StatementStatistics inserts = statistics.getTopByTotalTime(10).stream().filter(s -> s.getSql().startsWith("insert")).findFirst().get();
+    assertThat(inserts.getExecutions()).isEqualTo(2);
+    assertThat(inserts.getBatches()).isEqualTo(2);
+    assertThat(inserts.getAverageBatchSize()).isEqualTo(2d);
+    StatementStatistics deletes = statistics.getTopByTotalTime(10).stream().filter(s -> s.getSql().startsWith("delete")).findFirst().get();
+    assertThat(deletes.getExecutions()).isEqualTo(1);
+    assertThat(deletes.getErrors()).isEqualTo(1);
+  }
+
   @Test
   public void delegate_to_underlying_data_source() throws Exception {
     ProfiledDataSource proxy = new ProfiledDataSource(originDataSource, ProfiledConnectionInterceptor.INSTANCE);
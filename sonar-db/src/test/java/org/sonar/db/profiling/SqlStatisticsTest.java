@@ -0,0 +1,83 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.profiling;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SqlStatisticsTest {
+
+  SqlStatistics underTest = new SqlStatistics();
+
+  @Test
+  public void normalize_whitespaces_and_lists_of_parameters() {
+    assertThat(SqlStatistics.normalize("  select *\n  from  issues where id = ? ")).isEqualTo("select * from issues where id = ?");
+    assertThat(SqlStatistics.normalize("select * from issues where kee in (?,?, ?)")).isEqualTo("select * from issues where kee in (?...)");
+    assertThat(SqlStatistics.normalize("insert into foo (a, b) values (?, ?), (?, ?), (?, ?)")).isEqualTo("insert into foo (a, b) values (...)...");
+    assertThat(SqlStatistics.normalize("insert into foo (a) values (?), (?)")).isEqualTo("insert into foo (a) values (...)...");
+  }
+
+  @Test
+  public void normalize_literals() {
+    assertThat(SqlStatistics.normalize("select * from issues where kee = 'ABC' and line = 12")).isEqualTo("select * from issues where kee = ? and line = ?");
+    assertThat(SqlStatistics.normalize("select * from foo where name = 'it''s' and ratio > 1.5")).isEqualTo("select * from foo where name = ? and ratio > ?");
+    assertThat(SqlStatistics.normalize("select * from foo where id in (1, 2, 3) and kee in ('a', 'b')")).isEqualTo("select * from foo where id in (?...) and kee in (?...)");
+    assertThat(SqlStatistics.normalize("select col1 from table2")).isEqualTo("select col1 from table2");
+  }
+
+  @Test
+  public void same_sql_with_different_literals_shares_statistics() {
+    StatementStatistics stats = underTest.forSql("select * from foo where id = 1");
+
+    assertThat(underTest.forSql("select * from foo where id = 2")).isSameAs(stats);
+    assertThat(underTest.getDistinctStatements()).isEqualTo(1);
+  }
+
+  @Test
+  public void same_normalized_sql_shares_statistics() {
+    StatementStatistics stats = underTest.forSql("select * from foo where id in (?, ?)");
+
+    assertThat(underTest.forSql("select * from foo where id in (?, ?, ?)")).isSameAs(stats);
+    assertThat(underTest.forSql("select * from foo where id in (?, ?)")).isSameAs(stats);
+    assertThat(underTest.getDistinctStatements()).isEqualTo(1);
+  }
+
+  @Test
+  public void aggregate_statements_when_limit_is_reached() {
+    for (int i = 0; i < SqlStatistics.MAX_STATEMENTS + 10; i++) {
+      underTest.forSql("select * from table" + i).recordExecution(10L, false);
+    }
+
+    assertThat(underTest.getDistinctStatements()).isEqualTo(SqlStatistics.MAX_STATEMENTS + 1);
+    assertThat(underTest.forSql("select * from another_table").getSql()).isEqualTo(SqlStatistics.OTHER_STATEMENTS);
+    assertThat(underTest.getExecutions()).isEqualTo(SqlStatistics.MAX_STATEMENTS + 10);
+  }
+
+  @Test
+  public void sort_by_total_time() {
+    underTest.forSql("select * from foo").recordExecution(10L, false);
+    underTest.forSql("select * from bar").recordExecution(30L, false);
+    underTest.forSql("select * from baz").recordExecution(20L, true);
+
+    assertThat(underTest.getTopByTotalTime(2)).extracting(StatementStatistics::getSql).containsExactly("select * from bar", "select * from baz");
+    assertThat(underTest.getTopByTotalTime(2).get(1).getErrors()).isEqualTo(1);
+  }
+}
@@ -152,6 +152,25 @@ public class RuleDaoTest {
     assertThat(ruleDtos).extracting("id").containsOnly(1, 2, 10);
   }
 
+  @Test
+  public void countAll() {
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+
+    assertThat(underTest.countAll(dbTester.getSession())).isEqualTo(3);
+  }
+
+  @Test
+  public void selectUpdatedSince() {
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+    RuleDto rule = underTest.selectOrFailByKey(dbTester.getSession(), RuleKey.of("java", "S002"));
+    underTest.update(dbTester.getSession(), rule.setUpdatedAt(1_700_000_000_000L));
+    dbTester.getSession().commit();
+
+    assertThat(underTest.selectUpdatedSince(dbTester.getSession(), 1_600_000_000_000L)).extracting("id").containsOnly(1, 2, 10);
+    assertThat(underTest.selectUpdatedSince(dbTester.getSession(), 1_600_000_000_001L)).extracting("id").containsOnly(2);
+    assertThat(underTest.selectUpdatedSince(dbTester.getSession(), 1_700_000_000_001L)).isEmpty();
+  }
+
   @Test
   public void selectEnabled_with_ResultHandler() {
     dbTester.prepareDbUnit(getClass(), "selectEnabled.xml");
@@ -312,6 +331,16 @@ public class RuleDaoTest {
     assertThat(ruleDto.getUpdatedAt()).isEqualTo(2000000000000L);
   }
 
+  @Test
+  public void select_all_parameters() {
+    dbTester.prepareDbUnit(getClass(), "select_parameters_by_rule_key.xml");
+
+    List<RuleParamDto> params = underTest.selectAllRuleParams(dbTester.getSession());
+
+    assertThat(params).extracting(RuleParamDto::getName).containsOnly("myParameter", "otherParam");
+    assertThat(params).extracting(RuleParamDto::getRuleId).containsOnly(1, 2);
+  }
+
   @Test
   public void select_parameters_by_rule_key() {
     dbTester.prepareDbUnit(getClass(), "select_parameters_by_rule_key.xml");
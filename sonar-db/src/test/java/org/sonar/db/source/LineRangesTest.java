@@ -0,0 +1,97 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.source;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.db.protobuf.DbFileSources;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LineRangesTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private DbFileSources.Line.Builder line = DbFileSources.Line.newBuilder();
+  private List<String> decoded = new ArrayList<>();
+
+  @Test
+  public void encode_and_decode_highlighting() {
+    LineRanges.highlightingEncoder(line)
+      .add(0, 7, LineRanges.cssClassIndex("k"))
+      .add(10, 25, LineRanges.cssClassIndex("cd"))
+      .add(12, 15, LineRanges.cssClassIndex("a"));
+
+    LineRanges.readHighlighting(line.build(), (start, end, cssClass) -> decoded.add(start + "," + end + "," + cssClass));
+
+    assertThat(decoded).containsExactly("0,7,k", "10,25,cd", "12,15,a");
+    assertThat(line.hasHighlighting()).isFalse();
+  }
+
+  @Test
+  public void encode_and_decode_ranges_not_sorted_by_offset() {
+    LineRanges.symbolsEncoder(line)
+      .add(20, 25, 1)
+      .add(3, 8, 2);
+
+    LineRanges.readSymbols(line.build(), (start, end, id) -> decoded.add(start + "," + end + "," + id));
+
+    assertThat(decoded).containsExactly("20,25,1", "3,8,2");
+  }
+
+  @Test
+  public void start_offsets_are_delta_encoded() {
+    LineRanges.symbolsEncoder(line)
+      .add(100, 105, 1)
+      .add(110, 115, 1);
+
+    assertThat(line.getSymbolRangesList()).containsExactly(100, 5, 1, 10, 5, 1);
+  }
+
+  @Test
+  public void decode_lines_written_before_compact_encoding() {
+    line.setHighlighting("0,7,k;10,25,cd").setSymbols("8,17,42");
+
+    LineRanges.readHighlighting(line.build(), (start, end, cssClass) -> decoded.add(start + "," + end + "," + cssClass));
+    LineRanges.readSymbols(line.build(), (start, end, id) -> decoded.add(start + "," + end + "," + id));
+
+    assertThat(decoded).containsExactly("0,7,k", "10,25,cd", "8,17,42");
+  }
+
+  @Test
+  public void decode_nothing_if_no_ranges() {
+    LineRanges.readHighlighting(line.build(), (start, end, cssClass) -> decoded.add(cssClass));
+    LineRanges.readSymbols(line.setSymbols("").build(), (start, end, id) -> decoded.add("" + id));
+
+    assertThat(decoded).isEmpty();
+  }
+
+  @Test
+  public void fail_on_unknown_css_class() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Unknown css class 'foo'");
+
+    LineRanges.cssClassIndex("foo");
+  }
+}
@@ -0,0 +1,8 @@
+CREATE TABLE "BULK_ROWS" (
+  "ID" INTEGER NOT NULL PRIMARY KEY,
+  "NAME" VARCHAR(200),
+  "NB" BIGINT,
+  "RATIO" DOUBLE,
+  "ENABLED" BOOLEAN,
+  "DATA" BLOB
+);
@@ -19,14 +19,18 @@
  */
 package org.sonar.duplications.detector.suffixtree;
 
-import java.util.Map;
-import java.util.HashMap;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 public final class Node {
 
   private final SuffixTree suffixTree;
-  private final Map<Object, Edge> edges;
+  /**
+   * Created on first insertion: at least half of the nodes of a suffix tree are leaves, which never have edges.
+   */
+  private Map<Object, Edge> edges;
 
   /**
    * Node represents string s[i],s[i+1],...,s[j],
@@ -55,7 +59,6 @@ public final class Node {
   public Node(SuffixTree suffixTree, Node suffixNode) {
     this.suffixTree = suffixTree;
     this.suffixNode = suffixNode;
-    edges = new HashMap<>();
   }
 
   public Object symbolAt(int index) {
@@ -63,15 +66,20 @@ public final class Node {
   }
 
   public void addEdge(int charIndex, Edge edge) {
+    if (edges == null) {
+      edges = new HashMap<>(4);
+    }
     edges.put(symbolAt(charIndex), edge);
   }
 
   public void removeEdge(int charIndex) {
-    edges.remove(symbolAt(charIndex));
+    if (edges != null) {
+      edges.remove(symbolAt(charIndex));
+    }
   }
 
   public Edge findEdge(Object ch) {
-    return edges.get(ch);
+    return edges == null ? null : edges.get(ch);
   }
 
   public Node getSuffixNode() {
@@ -83,7 +91,7 @@ public final class Node {
   }
 
   public Collection<Edge> getEdges() {
-    return edges.values();
+    return edges == null ? Collections.<Edge>emptyList() : edges.values();
   }
 
 }
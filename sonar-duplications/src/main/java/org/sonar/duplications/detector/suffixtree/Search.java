@@ -19,11 +19,12 @@
  */
 package org.sonar.duplications.detector.suffixtree;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Deque;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 
@@ -33,7 +34,11 @@ public final class Search {
   private final TextSet text;
   private final Collector reporter;
 
-  private final List<Integer> list = new ArrayList<>();
+  /**
+   * Depths of leaves in order of visit, see {@link #addLeafDepth(int)}.
+   */
+  private int[] leafDepths;
+  private int leafCount = 0;
   private final List<Node> innerNodes = new ArrayList<>();
   
   private static final Comparator<Node> DEPTH_COMPARATOR = (o1, o2) -> o2.depth - o1.depth;
@@ -42,6 +47,8 @@ public final class Search {
     this.tree = tree;
     this.text = text;
     this.reporter = reporter;
+    // number of leaves is equal to length of text
+    this.leafDepths = new int[Math.max(text.length(), 1)];
   }
   
   public static void perform(TextSet text, Collector reporter) {
@@ -63,15 +70,15 @@ public final class Search {
    * Depth-first search (DFS).
    */
   private void dfs() {
-    Deque<Node> stack = new LinkedList<>();
+    Deque<Node> stack = new ArrayDeque<>();
     stack.add(tree.getRootNode());
     while (!stack.isEmpty()) {
       Node node = stack.removeLast();
-      node.startSize = list.size();
+      node.startSize = leafCount;
       if (node.getEdges().isEmpty()) {
         // leaf
-        list.add(node.depth);
-        node.endSize = list.size();
+        addLeafDepth(node.depth);
+        node.endSize = leafCount;
       } else {
         if (!node.equals(tree.getRootNode())) {
           // inner node = not leaf and not root
@@ -96,6 +103,14 @@ public final class Search {
     }
   }
 
+  private void addLeafDepth(int depth) {
+    if (leafCount == leafDepths.length) {
+      leafDepths = Arrays.copyOf(leafDepths, leafCount * 2);
+    }
+    leafDepths[leafCount] = depth;
+    leafCount++;
+  }
+
   /**
    * Each inner-node represents prefix of some suffixes, thus substring of text.
    */
@@ -115,7 +130,7 @@ public final class Search {
    */
   private boolean containsOrigin(Node node) {
     for (int i = node.startSize; i < node.endSize; i++) {
-      int start = tree.text.length() - list.get(i);
+      int start = tree.text.length() - leafDepths[i];
       int end = start + node.depth;
       if (text.isInsideOrigin(end)) {
         return true;
@@ -127,7 +142,7 @@ public final class Search {
   private void report(Node node) {
     reporter.startOfGroup(node.endSize - node.startSize, node.depth);
     for (int i = node.startSize; i < node.endSize; i++) {
-      int start = tree.text.length() - list.get(i);
+      int start = tree.text.length() - leafDepths[i];
       int end = start + node.depth;
       reporter.part(start, end);
     }
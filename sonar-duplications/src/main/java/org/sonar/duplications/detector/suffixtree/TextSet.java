@@ -20,9 +20,11 @@
 package org.sonar.duplications.detector.suffixtree;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-
+import java.util.Map;
 import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
 
 
 /**
@@ -33,6 +35,8 @@ public final class TextSet extends AbstractText {
   public static final class Builder {
 
     private List<Object> symbols = new ArrayList();
+    private List<Object> hashes = new ArrayList<>();
+    private final Map<ByteArray, ByteArray> internedHashes = new HashMap<>();
     private Integer lengthOfOrigin;
     private int count;
 
@@ -41,15 +45,33 @@ public final class TextSet extends AbstractText {
 
     public void add(List<Block> list) {
       symbols.addAll(list);
-      symbols.add(new Terminator(count));
+      for (Block block : list) {
+        hashes.add(intern(block.getBlockHash()));
+      }
+      Terminator terminator = new Terminator(count);
+      symbols.add(terminator);
+      hashes.add(terminator);
       count++;
       if (lengthOfOrigin == null) {
         lengthOfOrigin = symbols.size();
       }
     }
 
+    /**
+     * Equal hashes of different blocks are replaced by a single instance, so that lookups of edges
+     * in the suffix tree mostly succeed on reference equality instead of comparing arrays.
+     */
+    private ByteArray intern(ByteArray hash) {
+      ByteArray interned = internedHashes.get(hash);
+      if (interned == null) {
+        internedHashes.put(hash, hash);
+        return hash;
+      }
+      return interned;
+    }
+
     public TextSet build() {
-      return new TextSet(symbols, lengthOfOrigin);
+      return new TextSet(symbols, hashes.toArray(), lengthOfOrigin);
     }
 
   }
@@ -58,10 +80,12 @@ public final class TextSet extends AbstractText {
     return new Builder();
   }
 
+  private final Object[] hashes;
   private final int lengthOfOrigin;
 
-  private TextSet(List<Object> symbols, int lengthOfOrigin) {
+  private TextSet(List<Object> symbols, Object[] hashes, int lengthOfOrigin) {
     super(symbols);
+    this.hashes = hashes;
     this.lengthOfOrigin = lengthOfOrigin;
   }
 
@@ -71,11 +95,7 @@ public final class TextSet extends AbstractText {
 
   @Override
   public Object symbolAt(int index) {
-    Object obj = super.symbolAt(index);
-    if (obj instanceof Block) {
-      return ((Block) obj).getBlockHash();
-    }
-    return obj;
+    return hashes[index];
   }
 
   public Block getBlock(int index) {
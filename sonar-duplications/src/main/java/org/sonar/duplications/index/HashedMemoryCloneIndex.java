@@ -0,0 +1,480 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.index.PackedMemoryCloneIndex.ResourceBlocks;
+import org.sonar.duplications.utils.FastStringComparator;
+
+/**
+ * Provides an index optimized by memory, which unlike {@link PackedMemoryCloneIndex} does not need to be sorted
+ * to be queried by hash.
+ * <p>
+ * Blocks are stored in flat arrays in order of insertion. Blocks with the same hash are chained together through an
+ * array of "next" pointers, and heads of these chains are found with an open-addressing hash table. Blocks are grouped
+ * by resource only once inserted, when the index is queried by resource: the grouping is done once for all queries,
+ * and again only if blocks are inserted meanwhile.
+ * </p>
+ * <p>
+ * With 8-byte hashes a block takes 8 ints: the hash, index in file, start line, start unit, the line and unit spans
+ * packed in a single int, the resource and the next block with the same hash. Spans which do not fit in 16 bits
+ * are kept aside.
+ * </p>
+ * <p>
+ * All operations are synchronized, so that blocks can be inserted by concurrent threads.
+ * Like {@link PackedMemoryCloneIndex} this implementation does not support deletion.
+ * </p>
+ */
+public class HashedMemoryCloneIndex extends AbstractCloneIndex {
+
+  private static final int DEFAULT_INITIAL_CAPACITY = 1024;
+
+  /**
+   * Index in file, start line, start unit and packed spans
+   */
+  private static final int BLOCK_INTS = 4;
+
+  private static final int NONE = -1;
+
+  private static final int MAX_PACKED_SPAN = 0xFFFF;
+
+  /**
+   * Packed spans of a block which spans are in {@link #unpackedSpans}
+   */
+  private static final int UNPACKED = -1;
+
+  private final int hashInts;
+
+  private final int blockInts;
+
+  /**
+   * Current number of blocks in index.
+   */
+  private int size;
+
+  /**
+   * Hash followed by {@link #BLOCK_INTS} ints of each block.
+   */
+  private int[] blockData;
+
+  /**
+   * Index of resource in {@link #resourceIds} for each block.
+   */
+  private int[] blockResources;
+
+  private int[] nextBlockWithSameHash;
+
+  /**
+   * Line and unit spans of the blocks which spans do not fit in {@link #MAX_PACKED_SPAN}, by block
+   */
+  private final Map<Integer, int[]> unpackedSpans = new HashMap<>();
+
+  /**
+   * Open-addressing table of first and last blocks of each distinct hash: slot {@code 2 * i} is the first block, slot {@code 2 * i + 1} the last one.
+   */
+  private int[] hashTable;
+  private int distinctHashes;
+
+  private String[] resourceIds;
+  private int resourcesCount;
+
+  /**
+   * Open-addressing table of indexes in {@link #resourceIds}.
+   */
+  private int[] resourceTable;
+
+  /**
+   * Blocks grouped by resource, in order of insertion within a resource. Blocks of resource {@code r} are from
+   * {@code resourceOffsets[r]} (inclusive) to {@code resourceOffsets[r + 1]} (exclusive). {@code null} when blocks
+   * have been inserted since the latest grouping.
+   */
+  private int[] blocksByResource;
+  private int[] resourceOffsets;
+  private String[] sortedResourceIds;
+
+  private final Block.Builder blockBuilder = Block.builder();
+
+  public HashedMemoryCloneIndex() {
+    this(8, DEFAULT_INITIAL_CAPACITY);
+  }
+
+  /**
+   * @param hashBytes size of hash in bytes
+   * @param initialCapacity the initial capacity
+   */
+  public HashedMemoryCloneIndex(int hashBytes, int initialCapacity) {
+    this.hashInts = hashBytes / 4;
+    this.blockInts = hashInts + BLOCK_INTS;
+    int capacity = Math.max(initialCapacity, 1);
+    this.blockData = new int[capacity * blockInts];
+    this.blockResources = new int[capacity];
+    this.nextBlockWithSameHash = new int[capacity];
+    this.hashTable = newTable(tableSizeFor(capacity) * 2);
+    this.resourceIds = new String[16];
+    this.resourceTable = newTable(tableSizeFor(16));
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Blocks are returned in order of insertion.
+   * </p>
+   */
+  @Override
+  public synchronized Collection<Block> getByResourceId(String resourceId) {
+    int resource = findResource(resourceId);
+    if (resource == NONE) {
+      return new ArrayList<>();
+    }
+    groupByResource();
+    int from = resourceOffsets[resource];
+    int to = resourceOffsets[resource + 1];
+    List<Block> result = new ArrayList<>(to - from);
+    for (int i = from; i < to; i++) {
+      result.add(createBlock(blocksByResource[i], null));
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * All returned blocks share the given instance of hash.
+   * </p>
+   */
+  @Override
+  public synchronized Collection<Block> getBySequenceHash(ByteArray sequenceHash) {
+    int[] hash = toHashInts(sequenceHash);
+    List<Block> result = new ArrayList<>();
+    int slot = findHashSlot(hash);
+    int block = hashTable[slot];
+    while (block != NONE) {
+      result.add(createBlock(block, sequenceHash));
+      block = nextBlockWithSameHash[block];
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * <strong>Note that this implementation allows insertion of two blocks with same index for one resource.</strong>
+   * </p>
+   */
+  @Override
+  public synchronized void insert(Block block) {
+    int[] hash = toHashInts(block.getBlockHash());
+    ensureCapacity();
+
+    int offset = size * blockInts;
+    System.arraycopy(hash, 0, blockData, offset, hashInts);
+    offset += hashInts;
+    blockData[offset++] = block.getIndexInFile();
+    blockData[offset++] = block.getStartLine();
+    blockData[offset++] = block.getStartUnit();
+    int lineSpan = block.getEndLine() - block.getStartLine();
+    int unitSpan = block.getEndUnit() - block.getStartUnit();
+    if (isPackable(lineSpan) && isPackable(unitSpan)) {
+      blockData[offset] = (lineSpan << 16) | unitSpan;
+    } else {
+      blockData[offset] = UNPACKED;
+      unpackedSpans.put(size, new int[] {lineSpan, unitSpan});
+    }
+
+    blockResources[size] = findOrAddResource(block.getResourceId());
+
+    nextBlockWithSameHash[size] = NONE;
+    int slot = findHashSlot(hash);
+    if (hashTable[slot] == NONE) {
+      hashTable[slot] = size;
+      distinctHashes++;
+    } else {
+      nextBlockWithSameHash[hashTable[slot + 1]] = size;
+    }
+    hashTable[slot + 1] = size;
+
+    size++;
+    blocksByResource = null;
+    ensureHashTableLoad();
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Resources are iterated in the same order as {@link PackedMemoryCloneIndex#iterator()}. The iterator works on a
+   * snapshot of the resources present at the time of the call.
+   * </p>
+   */
+  @Override
+  public synchronized Iterator<ResourceBlocks> iterator() {
+    groupByResource();
+    return new ResourceIterator(sortedResourceIds);
+  }
+
+  @Override
+  public synchronized int noResources() {
+    return resourcesCount;
+  }
+
+  private class ResourceIterator implements Iterator<ResourceBlocks> {
+    private final String[] sortedResourceIds;
+    private int index = 0;
+
+    private ResourceIterator(String[] sortedResourceIds) {
+      this.sortedResourceIds = sortedResourceIds;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return index < sortedResourceIds.length;
+    }
+
+    @Override
+    public ResourceBlocks next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      String resourceId = sortedResourceIds[index];
+      index++;
+      return new ResourceBlocks(resourceId, getByResourceId(resourceId));
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * Groups blocks by resource with a counting sort, which keeps the order of insertion within a resource, and sorts
+   * resources. Done only if blocks have been inserted since the latest grouping.
+   */
+  private void groupByResource() {
+    if (blocksByResource != null) {
+      return;
+    }
+    int[] offsets = new int[resourcesCount + 1];
+    for (int block = 0; block < size; block++) {
+      offsets[blockResources[block] + 1]++;
+    }
+    for (int resource = 0; resource < resourcesCount; resource++) {
+      offsets[resource + 1] += offsets[resource];
+    }
+    int[] grouped = new int[size];
+    int[] next = Arrays.copyOf(offsets, resourcesCount);
+    for (int block = 0; block < size; block++) {
+      grouped[next[blockResources[block]]++] = block;
+    }
+    if (sortedResourceIds == null || sortedResourceIds.length != resourcesCount) {
+      sortedResourceIds = Arrays.copyOf(resourceIds, resourcesCount);
+      Arrays.sort(sortedResourceIds, FastStringComparator.INSTANCE);
+    }
+    this.resourceOffsets = offsets;
+    this.blocksByResource = grouped;
+  }
+
+  private Block createBlock(int index, ByteArray byteHash) {
+    int offset = index * blockInts;
+    ByteArray blockHash;
+    if (byteHash == null) {
+      blockHash = new ByteArray(Arrays.copyOfRange(blockData, offset, offset + hashInts));
+    } else {
+      blockHash = byteHash;
+    }
+    offset += hashInts;
+
+    int indexInFile = blockData[offset++];
+    int firstLineNumber = blockData[offset++];
+    int startUnit = blockData[offset++];
+    int packedSpans = blockData[offset];
+    int lineSpan;
+    int unitSpan;
+    if (packedSpans == UNPACKED) {
+      int[] spans = unpackedSpans.get(index);
+      lineSpan = spans[0];
+      unitSpan = spans[1];
+    } else {
+      lineSpan = packedSpans >>> 16;
+      unitSpan = packedSpans & MAX_PACKED_SPAN;
+    }
+
+    return blockBuilder
+      .setResourceId(resourceIds[blockResources[index]])
+      .setBlockHash(blockHash)
+      .setIndexInFile(indexInFile)
+      .setLines(firstLineNumber, firstLineNumber + lineSpan)
+      .setUnit(startUnit, startUnit + unitSpan)
+      .build();
+  }
+
+  /**
+   * The maximum value is excluded, so that packed spans never equal {@link #UNPACKED}.
+   */
+  private static boolean isPackable(int span) {
+    return span >= 0 && span < MAX_PACKED_SPAN;
+  }
+
+  private int[] toHashInts(ByteArray byteHash) {
+    int[] hash = byteHash.toIntArray();
+    if (hash.length != hashInts) {
+      throw new IllegalArgumentException("Expected " + hashInts + " ints in hash, but got " + hash.length);
+    }
+    return hash;
+  }
+
+  /**
+   * @return slot of the first block of the chain of given hash, or of the free slot where such chain should start
+   */
+  private int findHashSlot(int[] hash) {
+    int buckets = hashTable.length / 2;
+    int bucket = mix(Arrays.hashCode(hash)) & (buckets - 1);
+    while (true) {
+      int slot = bucket * 2;
+      int block = hashTable[slot];
+      if (block == NONE || hasHash(block, hash)) {
+        return slot;
+      }
+      bucket = (bucket + 1) & (buckets - 1);
+    }
+  }
+
+  private boolean hasHash(int block, int[] hash) {
+    int offset = block * blockInts;
+    for (int i = 0; i < hashInts; i++) {
+      if (blockData[offset + i] != hash[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int findResource(String resourceId) {
+    int slot = findResourceSlot(resourceId);
+    return resourceTable[slot];
+  }
+
+  private int findResourceSlot(String resourceId) {
+    int mask = resourceTable.length - 1;
+    int slot = mix(resourceId.hashCode()) & mask;
+    while (true) {
+      int resource = resourceTable[slot];
+      if (resource == NONE || resourceIds[resource].equals(resourceId)) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  private int findOrAddResource(String resourceId) {
+    int slot = findResourceSlot(resourceId);
+    if (resourceTable[slot] != NONE) {
+      return resourceTable[slot];
+    }
+    if (resourcesCount == resourceIds.length) {
+      resourceIds = Arrays.copyOf(resourceIds, (resourceIds.length * 3) / 2 + 1);
+    }
+    int resource = resourcesCount;
+    resourceIds[resource] = resourceId;
+    resourceTable[slot] = resource;
+    resourcesCount++;
+
+    if (resourcesCount * 2 > resourceTable.length) {
+      rehashResources(resourceTable.length * 2);
+    }
+    return resource;
+  }
+
+  private void rehashResources(int newTableSize) {
+    resourceTable = newTable(newTableSize);
+    for (int resource = 0; resource < resourcesCount; resource++) {
+      resourceTable[findResourceSlot(resourceIds[resource])] = resource;
+    }
+  }
+
+  /**
+   * Keeps load factor of the table of hashes below 0.5.
+   */
+  private void ensureHashTableLoad() {
+    int buckets = hashTable.length / 2;
+    if (distinctHashes * 2 <= buckets) {
+      return;
+    }
+    int[] oldHashTable = hashTable;
+    hashTable = newTable(oldHashTable.length * 2);
+    int[] hash = new int[hashInts];
+    for (int slot = 0; slot < oldHashTable.length; slot += 2) {
+      int first = oldHashTable[slot];
+      if (first != NONE) {
+        System.arraycopy(blockData, first * blockInts, hash, 0, hashInts);
+        int newSlot = findHashSlot(hash);
+        hashTable[newSlot] = first;
+        hashTable[newSlot + 1] = oldHashTable[slot + 1];
+      }
+    }
+  }
+
+  /**
+   * Increases the capacity, if necessary.
+   */
+  private void ensureCapacity() {
+    if (size < blockResources.length) {
+      return;
+    }
+    int newCapacity = (blockResources.length * 3) / 2 + 1;
+    blockData = Arrays.copyOf(blockData, newCapacity * blockInts);
+    blockResources = Arrays.copyOf(blockResources, newCapacity);
+    nextBlockWithSameHash = Arrays.copyOf(nextBlockWithSameHash, newCapacity);
+  }
+
+  private static int[] newTable(int size) {
+    int[] table = new int[size];
+    Arrays.fill(table, NONE);
+    return table;
+  }
+
+  /**
+   * @return power of two, which is large enough to keep load factor of a table with given number of entries below 0.5
+   */
+  private static int tableSizeFor(int entries) {
+    int size = 16;
+    while (size < entries * 2) {
+      size <<= 1;
+    }
+    return size;
+  }
+
+  /**
+   * Spreads bits of hash code, because block hashes and resource ids often differ only by a few low bits.
+   */
+  private static int mix(int hashCode) {
+    int h = hashCode * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+}
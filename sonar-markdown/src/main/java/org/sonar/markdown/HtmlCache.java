@@ -0,0 +1,74 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.markdown;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least recently used HTML renderings, keyed by their Markdown source. The cache is bounded by the total number
+ * of characters of sources and renderings, so that a few huge texts can not retain much memory.
+ *
+ * The source itself is the key, not its hash, so that two different texts never share the same rendering.
+ */
+class HtmlCache {
+
+  private final long maxChars;
+  private final LinkedHashMap<String, String> htmlBySource = new LinkedHashMap<>(16, 0.75f, true);
+  private long chars = 0L;
+
+  HtmlCache(long maxChars) {
+    this.maxChars = maxChars;
+  }
+
+  /**
+   * @return null if the rendering is not cached
+   */
+  synchronized String get(String source) {
+    return htmlBySource.get(source);
+  }
+
+  synchronized void put(String source, String html) {
+    long size = (long) source.length() + html.length();
+    if (size > maxChars) {
+      return;
+    }
+    String previous = htmlBySource.put(source, html);
+    if (previous != null) {
+      chars -= source.length() + previous.length();
+    }
+    chars += size;
+    Iterator<Map.Entry<String, String>> eldest = htmlBySource.entrySet().iterator();
+    while (chars > maxChars) {
+      Map.Entry<String, String> entry = eldest.next();
+      chars -= entry.getKey().length() + entry.getValue().length();
+      eldest.remove();
+    }
+  }
+
+  synchronized int size() {
+    return htmlBySource.size();
+  }
+
+  synchronized long chars() {
+    return chars;
+  }
+}
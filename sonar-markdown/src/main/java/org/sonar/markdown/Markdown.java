@@ -28,6 +28,18 @@ import org.sonar.channel.CodeReader;
  */
 public final class Markdown {
 
+  /**
+   * About 16MB of retained strings
+   */
+  private static final long CACHE_MAX_CHARS = 8L * 1024L * 1024L;
+  private static final HtmlCache CACHE = new HtmlCache(CACHE_MAX_CHARS);
+
+  /**
+   * Channels are stateful, so each thread gets its own dispatcher. It avoids compiling the regular expressions
+   * of the channels on each conversion.
+   */
+  private static final ThreadLocal<Markdown> INSTANCES = ThreadLocal.withInitial(Markdown::new);
+
   private ChannelDispatcher<MarkdownOutput> dispatcher;
 
   private Markdown() {
@@ -54,6 +66,11 @@ public final class Markdown {
   }
 
   public static String convertToHtml(String input) {
-    return new Markdown().convert(StringEscapeUtils.escapeHtml(input));
+    String html = CACHE.get(input);
+    if (html == null) {
+      html = INSTANCES.get().convert(StringEscapeUtils.escapeHtml(input));
+      CACHE.put(input, html);
+    }
+    return html;
   }
 }
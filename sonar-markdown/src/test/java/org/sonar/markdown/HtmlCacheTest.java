@@ -0,0 +1,71 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.markdown;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HtmlCacheTest {
+
+  private HtmlCache underTest = new HtmlCache(10);
+
+  @Test
+  public void get_cached_rendering() {
+    underTest.put("a", "<b>a</b>");
+
+    assertThat(underTest.get("a")).isEqualTo("<b>a</b>");
+    assertThat(underTest.get("b")).isNull();
+    assertThat(underTest.chars()).isEqualTo(9L);
+  }
+
+  @Test
+  public void evict_least_recently_used_renderings_when_full() {
+    underTest.put("a", "1");
+    underTest.put("b", "2");
+    underTest.put("c", "3");
+    underTest.get("a");
+
+    underTest.put("ddd", "444");
+
+    assertThat(underTest.get("b")).isNull();
+    assertThat(underTest.get("a")).isEqualTo("1");
+    assertThat(underTest.get("ddd")).isEqualTo("444");
+    assertThat(underTest.chars()).isLessThanOrEqualTo(10L);
+  }
+
+  @Test
+  public void do_not_cache_texts_larger_than_cache() {
+    underTest.put("abcdef", "abcdef");
+
+    assertThat(underTest.size()).isZero();
+    assertThat(underTest.chars()).isZero();
+  }
+
+  @Test
+  public void replace_rendering_of_same_source() {
+    underTest.put("a", "1");
+    underTest.put("a", "22");
+
+    assertThat(underTest.get("a")).isEqualTo("22");
+    assertThat(underTest.size()).isEqualTo(1);
+    assertThat(underTest.chars()).isEqualTo(3L);
+  }
+}
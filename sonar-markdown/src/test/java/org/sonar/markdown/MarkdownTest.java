@@ -116,4 +116,10 @@ public class MarkdownTest {
     assertThat(Markdown.convertToHtml("My text is $123 ''")).isEqualTo("My text is $123 ''");
   }
 
+  @Test
+  public void shouldReuseRenderingOfSameText() {
+    String html = Markdown.convertToHtml("Cached *rendering*");
+
+    assertThat(Markdown.convertToHtml("Cached *rendering*")).isSameAs(html).isEqualTo("Cached <strong>rendering</strong>");
+  }
 }
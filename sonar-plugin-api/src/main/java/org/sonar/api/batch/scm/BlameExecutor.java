@@ -0,0 +1,219 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.api.batch.scm;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.CheckForNull;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.scm.BlameCommand.BlameInput;
+import org.sonar.api.batch.scm.BlameCommand.BlameOutput;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Helper for {@link BlameCommand} implementations which blame files one by one, for example by running a command
+ * line tool on each file. Files are blamed concurrently by a bounded number of threads, and the blame of a file is
+ * interrupted when it lasts longer than a timeout.
+ * <pre>
+ *   public void blame(BlameInput input, BlameOutput output) {
+ *     new BlameExecutor(BlameExecutor.defaultThreads(), 2, TimeUnit.MINUTES).execute(input, output, this::blameFile);
+ *   }
+ * </pre>
+ * Interruption relies on the {@link FileBlamer} reacting to {@link Thread#interrupt()}, which is the case of
+ * {@link Process#waitFor()} for example. A file which blame has been interrupted is skipped: it is reported
+ * as missing blame information at the end of the analysis. The result of a blame which completes despite the
+ * timeout is kept.
+ *
+ * @since 6.1
+ */
+public class BlameExecutor {
+
+  private static final Logger LOG = Loggers.get(BlameExecutor.class);
+
+  private final int threads;
+  private final long fileTimeoutMs;
+
+  /**
+   * @param threads maximum number of files blamed at the same time
+   * @param fileTimeout maximum duration of the blame of a single file
+   */
+  public BlameExecutor(int threads, long fileTimeout, TimeUnit unit) {
+    checkArgument(threads > 0, "Number of threads must be strictly positive (got %s)", threads);
+    checkArgument(fileTimeout > 0, "Timeout must be strictly positive (got %s)", fileTimeout);
+    this.threads = threads;
+    this.fileTimeoutMs = unit.toMillis(fileTimeout);
+  }
+
+  /**
+   * Number of available processors.
+   */
+  public static int defaultThreads() {
+    return Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Computes the blame of a single file.
+   */
+  @FunctionalInterface
+  public interface FileBlamer {
+    /**
+     * @return one entry per line of the file, or {@code null} if the file can not be blamed, in which case
+     * nothing is sent to {@link BlameOutput}
+     * @throws Exception if blame fails. The whole blame is then stopped and the exception is rethrown by
+     * {@link BlameExecutor#execute(BlameInput, BlameOutput, FileBlamer)}.
+     */
+    @CheckForNull
+    List<BlameLine> blame(InputFile file) throws Exception;
+  }
+
+  /**
+   * Blames all the {@link BlameInput#filesToBlame() files of the input} and sends results to the output.
+   * Returns when all files have been processed.
+   */
+  public void execute(BlameInput input, BlameOutput output, FileBlamer blamer) {
+    List<InputFile> files = new ArrayList<>();
+    for (InputFile file : input.filesToBlame()) {
+      files.add(file);
+    }
+    if (files.isEmpty()) {
+      return;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, files.size()),
+      new ThreadFactoryBuilder().setNameFormat("blame-%d").setDaemon(true).build());
+    ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setNameFormat("blame-watchdog").setDaemon(true).build());
+    try {
+      List<Future<Void>> futures = new ArrayList<>(files.size());
+      for (InputFile file : files) {
+        futures.add(executor.submit(new BlameTask(file, output, blamer, watchdog)));
+      }
+      for (Future<Void> future : futures) {
+        waitFor(future);
+      }
+    } finally {
+      executor.shutdownNow();
+      watchdog.shutdownNow();
+    }
+  }
+
+  private static void waitFor(Future<Void> future) {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for blame", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IllegalStateException(cause.getMessage(), cause);
+    }
+  }
+
+  private class BlameTask implements Callable<Void> {
+    private final InputFile file;
+    private final BlameOutput output;
+    private final FileBlamer blamer;
+    private final ScheduledExecutorService watchdog;
+
+    BlameTask(InputFile file, BlameOutput output, FileBlamer blamer, ScheduledExecutorService watchdog) {
+      this.file = file;
+      this.output = output;
+      this.blamer = blamer;
+      this.watchdog = watchdog;
+    }
+
+    @Override
+    public Void call() throws Exception {
+      Timeout timeout = new Timeout(Thread.currentThread());
+      ScheduledFuture<?> scheduledTimeout = watchdog.schedule(timeout, fileTimeoutMs, TimeUnit.MILLISECONDS);
+      List<BlameLine> lines = null;
+      Exception failure = null;
+      try {
+        lines = blamer.blame(file);
+      } catch (Exception e) {
+        failure = e;
+      } finally {
+        scheduledTimeout.cancel(false);
+      }
+      boolean expired = timeout.stop();
+      if (expired) {
+        // the interruption may not have been consumed by the blamer, it must not leak to the next file
+        Thread.interrupted();
+      }
+      if (failure != null) {
+        if (expired) {
+          LOG.warn("Blame of file {} has been interrupted after {} ms", file.relativePath(), fileTimeoutMs);
+          return null;
+        }
+        throw failure;
+      }
+      // the blame may complete just when the timeout expires, the result is kept anyway
+      if (lines != null) {
+        output.blameResult(file, lines);
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Interrupts the thread blaming a file, unless the blame is over. Both are mutually exclusive, so that the thread is
+   * never interrupted once it has moved on to another file.
+   */
+  private static class Timeout implements Runnable {
+    private final Thread thread;
+    private boolean stopped = false;
+    private boolean expired = false;
+
+    Timeout(Thread thread) {
+      this.thread = thread;
+    }
+
+    @Override
+    public synchronized void run() {
+      if (!stopped) {
+        expired = true;
+        thread.interrupt();
+      }
+    }
+
+    /**
+     * @return whether the timeout expired
+     */
+    synchronized boolean stop() {
+      stopped = true;
+      return expired;
+    }
+  }
+}
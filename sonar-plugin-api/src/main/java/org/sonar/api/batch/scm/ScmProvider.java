@@ -25,6 +25,7 @@ import org.sonar.api.ExtensionPoint;
 import org.sonar.api.batch.InstantiationStrategy;
 
 import java.io.File;
+import javax.annotation.CheckForNull;
 
 /**
  * See {@link CoreProperties#LINKS_SOURCES_DEV} to get old Maven URL format.
@@ -54,4 +55,15 @@ public abstract class ScmProvider {
     throw new UnsupportedOperationException("Blame command is not supported by " + key() + " provider");
   }
 
+  /**
+   * Identifier of the revision checked out in this directory, for example the commit of HEAD. Blame results
+   * of previous analyses are reused only if the revision did not change since.
+   * @return {@code null} by default, meaning that the revision is unknown and that files are always blamed
+   * @since 6.1
+   */
+  @CheckForNull
+  public String revisionId(File baseDir) {
+    return null;
+  }
+
 }
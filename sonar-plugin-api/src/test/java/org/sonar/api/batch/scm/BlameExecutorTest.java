@@ -0,0 +1,132 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.api.batch.scm;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.scm.BlameCommand.BlameInput;
+import org.sonar.api.batch.scm.BlameCommand.BlameOutput;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+public class BlameExecutorTest {
+
+  private static final List<BlameLine> LINES = Collections.singletonList(new BlameLine().revision("1").author("john"));
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  private InputFile file1 = new DefaultInputFile("foo", "src/File1.xoo");
+  private InputFile file2 = new DefaultInputFile("foo", "src/File2.xoo");
+  private InputFile file3 = new DefaultInputFile("foo", "src/File3.xoo");
+  private BlameInput input = mock(BlameInput.class);
+  private BlameOutput output = mock(BlameOutput.class);
+
+  @Test
+  public void blame_all_files() {
+    when(input.filesToBlame()).thenReturn(Arrays.asList(file1, file2, file3));
+
+    new BlameExecutor(2, 1, TimeUnit.MINUTES).execute(input, output, file -> file == file2 ? null : LINES);
+
+    verify(output).blameResult(file1, LINES);
+    verify(output).blameResult(file3, LINES);
+    verifyNoMoreInteractions(output);
+  }
+
+  @Test
+  public void blame_files_concurrently() {
+    when(input.filesToBlame()).thenReturn(Arrays.asList(file1, file2));
+    CountDownLatch bothStarted = new CountDownLatch(2);
+
+    new BlameExecutor(2, 1, TimeUnit.MINUTES).execute(input, output, file -> {
+      bothStarted.countDown();
+      // would time out if files were blamed one after the other
+      bothStarted.await();
+      return LINES;
+    });
+
+    verify(output).blameResult(file1, LINES);
+    verify(output).blameResult(file2, LINES);
+  }
+
+  @Test
+  public void skip_file_which_blame_times_out() {
+    when(input.filesToBlame()).thenReturn(Arrays.asList(file1, file2));
+
+    new BlameExecutor(1, 100, TimeUnit.MILLISECONDS).execute(input, output, file -> {
+      if (file == file1) {
+        Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+      }
+      return LINES;
+    });
+
+    verify(output).blameResult(file2, LINES);
+    verifyNoMoreInteractions(output);
+  }
+
+  @Test
+  public void keep_result_of_blame_which_completes_after_timeout() {
+    when(input.filesToBlame()).thenReturn(Arrays.asList(file1, file2));
+
+    new BlameExecutor(1, 100, TimeUnit.MILLISECONDS).execute(input, output, file -> {
+      if (file == file1) {
+        // blamer which ignores the interruption
+        while (!Thread.currentThread().isInterrupted()) {
+          Thread.yield();
+        }
+      }
+      return LINES;
+    });
+
+    verify(output).blameResult(file1, LINES);
+    verify(output).blameResult(file2, LINES);
+  }
+
+  @Test
+  public void rethrow_blame_failure() {
+    when(input.filesToBlame()).thenReturn(Arrays.asList(file1, file2));
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Fail to blame");
+
+    new BlameExecutor(2, 1, TimeUnit.MINUTES).execute(input, output, file -> {
+      throw new Exception("Fail to blame");
+    });
+  }
+
+  @Test
+  public void fail_if_no_thread() {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("Number of threads must be strictly positive (got 0)");
+
+    new BlameExecutor(0, 1, TimeUnit.MINUTES);
+  }
+}
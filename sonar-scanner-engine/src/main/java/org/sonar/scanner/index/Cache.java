@@ -19,58 +19,45 @@
  */
 package org.sonar.scanner.index;
 
-import com.google.common.collect.Sets;
-import com.persistit.Exchange;
-import com.persistit.Key;
-import com.persistit.KeyFilter;
-import com.persistit.exception.PersistitException;
-import org.apache.commons.lang.builder.ToStringBuilder;
-
-import javax.annotation.CheckForNull;
-
-import java.util.Iterator;
-import java.util.NoSuchElementException;
 import java.util.Set;
+import javax.annotation.CheckForNull;
+import org.apache.commons.lang.builder.ToStringBuilder;
 
 /**
+ * Cache of values identified by keys made of one or several parts. Values are stored out of the heap,
+ * so each call to a getter returns a new instance.
  * <p>
- * This cache is not thread-safe, due to direct usage of {@link com.persistit.Exchange}
+ * Instances are created by {@link Caches}, which selects the storage engine.
+ * Caches are not thread-safe.
  * </p>
  */
-public class Cache<V> {
+public abstract class Cache<V> {
 
   private final String name;
-  private final Exchange exchange;
 
-  Cache(String name, Exchange exchange) {
+  Cache(String name) {
     this.name = name;
-    this.exchange = exchange;
+  }
+
+  String name() {
+    return name;
   }
 
   public Cache<V> put(Object key, V value) {
-    resetKey(key);
-    return doPut(value);
+    return put(new Object[] {key}, value);
   }
 
   public Cache<V> put(Object firstKey, Object secondKey, V value) {
-    resetKey(firstKey, secondKey);
-    return doPut(value);
+    return put(new Object[] {firstKey, secondKey}, value);
   }
 
   public Cache<V> put(Object firstKey, Object secondKey, Object thirdKey, V value) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doPut(value);
+    return put(new Object[] {firstKey, secondKey, thirdKey}, value);
   }
 
   public Cache<V> put(Object[] key, V value) {
-    resetKey(key);
-    return doPut(value);
-  }
-
-  private Cache<V> doPut(V value) {
     try {
-      exchange.getValue().put(value);
-      exchange.store();
+      doPut(key, value);
       return this;
     } catch (Exception e) {
       throw new IllegalStateException("Fail to put element in the cache " + name, e);
@@ -81,8 +68,7 @@ public class Cache<V> {
    * Returns the value object associated with keys, or null if not found.
    */
   public V get(Object key) {
-    resetKey(key);
-    return doGet();
+    return get(new Object[] {key});
   }
 
   /**
@@ -90,8 +76,7 @@ public class Cache<V> {
    */
   @CheckForNull
   public V get(Object firstKey, Object secondKey) {
-    resetKey(firstKey, secondKey);
-    return doGet();
+    return get(new Object[] {firstKey, secondKey});
   }
 
   /**
@@ -99,8 +84,7 @@ public class Cache<V> {
    */
   @CheckForNull
   public V get(Object firstKey, Object secondKey, Object thirdKey) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doGet();
+    return get(new Object[] {firstKey, secondKey, thirdKey});
   }
 
   /**
@@ -108,19 +92,8 @@ public class Cache<V> {
    */
   @CheckForNull
   public V get(Object[] key) {
-    resetKey(key);
-    return doGet();
-  }
-
-  @SuppressWarnings("unchecked")
-  @CheckForNull
-  private V doGet() {
     try {
-      exchange.fetch();
-      if (!exchange.getValue().isDefined()) {
-        return null;
-      }
-      return (V) exchange.getValue().get();
+      return doGet(key);
     } catch (Exception e) {
       // TODO add parameters to message
       throw new IllegalStateException("Fail to get element from cache " + name, e);
@@ -128,29 +101,20 @@ public class Cache<V> {
   }
 
   public boolean containsKey(Object key) {
-    resetKey(key);
-    return doContainsKey();
+    return containsKey(new Object[] {key});
   }
 
   public boolean containsKey(Object firstKey, Object secondKey) {
-    resetKey(firstKey, secondKey);
-    return doContainsKey();
+    return containsKey(new Object[] {firstKey, secondKey});
   }
 
   public boolean containsKey(Object firstKey, Object secondKey, Object thirdKey) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doContainsKey();
+    return containsKey(new Object[] {firstKey, secondKey, thirdKey});
   }
 
   public boolean containsKey(Object[] key) {
-    resetKey(key);
-    return doContainsKey();
-  }
-
-  private boolean doContainsKey() {
     try {
-      exchange.fetch();
-      return exchange.isValueDefined();
+      return doContainsKey(key);
     } catch (Exception e) {
       // TODO add parameters to message
       throw new IllegalStateException("Fail to check if element is in cache " + name, e);
@@ -158,28 +122,20 @@ public class Cache<V> {
   }
 
   public boolean remove(Object key) {
-    resetKey(key);
-    return doRemove();
+    return remove(new Object[] {key});
   }
 
   public boolean remove(Object firstKey, Object secondKey) {
-    resetKey(firstKey, secondKey);
-    return doRemove();
+    return remove(new Object[] {firstKey, secondKey});
   }
 
   public boolean remove(Object firstKey, Object secondKey, Object thirdKey) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doRemove();
+    return remove(new Object[] {firstKey, secondKey, thirdKey});
   }
 
   public boolean remove(Object[] key) {
-    resetKey(key);
-    return doRemove();
-  }
-
-  private boolean doRemove() {
     try {
-      return exchange.remove();
+      return doRemove(key);
     } catch (Exception e) {
       // TODO add parameters to message
       throw new IllegalStateException("Fail to get element from cache " + name, e);
@@ -192,30 +148,20 @@ public class Cache<V> {
    * @param group The group name.
    */
   public Cache<V> clear(Object key) {
-    resetKey(key);
-    return doClear();
+    return clear(new Object[] {key});
   }
 
   public Cache<V> clear(Object firstKey, Object secondKey) {
-    resetKey(firstKey, secondKey);
-    return doClear();
+    return clear(new Object[] {firstKey, secondKey});
   }
 
   public Cache<V> clear(Object firstKey, Object secondKey, Object thirdKey) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doClear();
+    return clear(new Object[] {firstKey, secondKey, thirdKey});
   }
 
   public Cache<V> clear(Object[] key) {
-    resetKey(key);
-    return doClear();
-  }
-
-  private Cache<V> doClear() {
     try {
-      Key to = new Key(exchange.getKey());
-      to.append(Key.AFTER);
-      exchange.removeKeyRange(exchange.getKey(), to);
+      doClear(key);
       return this;
     } catch (Exception e) {
       throw new IllegalStateException("Fail to clear values from cache " + name, e);
@@ -227,8 +173,7 @@ public class Cache<V> {
    */
   public void clear() {
     try {
-      exchange.clear();
-      exchange.removeAll();
+      doClearAll();
     } catch (Exception e) {
       throw new IllegalStateException("Fail to clear cache", e);
     }
@@ -243,37 +188,12 @@ public class Cache<V> {
    */
   @SuppressWarnings("rawtypes")
   public Set keySet(Object key) {
-    try {
-      Set<Object> keys = Sets.newLinkedHashSet();
-      exchange.clear();
-      Exchange iteratorExchange = new Exchange(exchange);
-      iteratorExchange.append(key);
-      iteratorExchange.append(Key.BEFORE);
-      while (iteratorExchange.next(false)) {
-        keys.add(iteratorExchange.getKey().indexTo(-1).decode());
-      }
-      return keys;
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to get keys from cache " + name, e);
-    }
+    return childKeys(new Object[] {key});
   }
 
   @SuppressWarnings("rawtypes")
   public Set keySet(Object firstKey, Object secondKey) {
-    try {
-      Set<Object> keys = Sets.newLinkedHashSet();
-      exchange.clear();
-      Exchange iteratorExchange = new Exchange(exchange);
-      iteratorExchange.append(firstKey);
-      iteratorExchange.append(secondKey);
-      iteratorExchange.append(Key.BEFORE);
-      while (iteratorExchange.next(false)) {
-        keys.add(iteratorExchange.getKey().indexTo(-1).decode());
-      }
-      return keys;
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to get keys from cache " + name, e);
-    }
+    return childKeys(new Object[] {firstKey, secondKey});
   }
 
   /**
@@ -282,15 +202,12 @@ public class Cache<V> {
    * @return The set containing the keys for this cache.
    */
   public Set<Object> keySet() {
+    return childKeys(new Object[0]);
+  }
+
+  private Set<Object> childKeys(Object[] prefix) {
     try {
-      Set<Object> keys = Sets.newLinkedHashSet();
-      exchange.clear();
-      Exchange iteratorExchange = new Exchange(exchange);
-      iteratorExchange.append(Key.BEFORE);
-      while (iteratorExchange.next(false)) {
-        keys.add(iteratorExchange.getKey().indexTo(-1).decode());
-      }
-      return keys;
+      return doKeySet(prefix);
     } catch (Exception e) {
       throw new IllegalStateException("Fail to get keys from cache " + name, e);
     }
@@ -300,190 +217,67 @@ public class Cache<V> {
    * Lazy-loading values for given keys
    */
   public Iterable<V> values(Object firstKey, Object secondKey) {
-    return new ValueIterable<>(exchange, firstKey, secondKey);
+    return doValues(new Object[] {firstKey, secondKey});
   }
 
   /**
    * Lazy-loading values for a given key
    */
   public Iterable<V> values(Object firstKey) {
-    return new ValueIterable<>(exchange, firstKey);
+    return doValues(new Object[] {firstKey});
   }
 
   /**
    * Lazy-loading values
    */
   public Iterable<V> values() {
-    return new ValueIterable<>(exchange);
+    return doValues(new Object[0]);
   }
 
   public Iterable<Entry<V>> entries() {
-    return new EntryIterable<>(exchange);
+    return doEntries(new Object[0]);
   }
 
   public Iterable<Entry<V>> entries(Object firstKey) {
-    return new EntryIterable<>(exchange, firstKey);
-  }
-
-  private void resetKey(Object key) {
-    exchange.clear();
-    exchange.append(key);
-  }
-
-  private void resetKey(Object first, Object second) {
-    exchange.clear();
-    exchange.append(first).append(second);
-  }
-
-  private void resetKey(Object first, Object second, Object third) {
-    exchange.clear();
-    exchange.append(first).append(second).append(third);
+    return doEntries(new Object[] {firstKey});
   }
 
-  private void resetKey(Object[] keys) {
-    exchange.clear();
-    for (Object o : keys) {
-      exchange.append(o);
-    }
-  }
-
-  //
-  // LAZY ITERATORS AND ITERABLES
-  //
+  abstract void doPut(Object[] key, V value) throws Exception;
 
-  private static class ValueIterable<T> implements Iterable<T> {
-    private final Exchange originExchange;
-    private final Object[] keys;
-
-    private ValueIterable(Exchange originExchange, Object... keys) {
-      this.originExchange = originExchange;
-      this.keys = keys;
-    }
-
-    @Override
-    public Iterator<T> iterator() {
-      originExchange.clear();
-      KeyFilter filter = new KeyFilter();
-      for (Object key : keys) {
-        originExchange.append(key);
-        filter = filter.append(KeyFilter.simpleTerm(key));
-      }
-      originExchange.append(Key.BEFORE);
-      Exchange iteratorExchange = new Exchange(originExchange);
-      return new ValueIterator<>(iteratorExchange, filter);
-    }
-  }
-
-  private static class ValueIterator<T> implements Iterator<T> {
-    private final Exchange exchange;
-    private final KeyFilter keyFilter;
-
-    private ValueIterator(Exchange exchange, KeyFilter keyFilter) {
-      this.exchange = exchange;
-      this.keyFilter = keyFilter;
-    }
-
-    @Override
-    public boolean hasNext() {
-      try {
-        return exchange.hasNext(keyFilter);
-      } catch (PersistitException e) {
-        throw new IllegalStateException(e);
-      }
-    }
-
-    @SuppressWarnings("unchecked")
-    @Override
-    public T next() {
-      try {
-        exchange.next(keyFilter);
-      } catch (PersistitException e) {
-        throw new IllegalStateException(e);
-      }
-      if (exchange.getValue().isDefined()) {
-        return (T) exchange.getValue().get();
-      }
-      throw new NoSuchElementException();
-    }
-
-    @Override
-    public void remove() {
-      throw new UnsupportedOperationException("Removing an item is not supported");
-    }
-  }
+  @CheckForNull
+  abstract V doGet(Object[] key) throws Exception;
 
-  private static class EntryIterable<T> implements Iterable<Entry<T>> {
-    private final Exchange originExchange;
-    private final Object[] keys;
+  abstract boolean doContainsKey(Object[] key) throws Exception;
 
-    private EntryIterable(Exchange originExchange, Object... keys) {
-      this.originExchange = originExchange;
-      this.keys = keys;
-    }
+  abstract boolean doRemove(Object[] key) throws Exception;
 
-    @Override
-    public Iterator<Entry<T>> iterator() {
-      originExchange.clear();
-      KeyFilter filter = new KeyFilter();
-      for (Object key : keys) {
-        originExchange.append(key);
-        filter = filter.append(KeyFilter.simpleTerm(key));
-      }
-      originExchange.append(Key.BEFORE);
-      Exchange iteratorExchange = new Exchange(originExchange);
-      return new EntryIterator<>(iteratorExchange, filter);
-    }
-  }
-
-  private static class EntryIterator<T> implements Iterator<Entry<T>> {
-    private final Exchange exchange;
-    private final KeyFilter keyFilter;
+  /**
+   * Removes the value of the given key, as well as all the values whose key starts with the given key.
+   */
+  abstract void doClear(Object[] key) throws Exception;
 
-    private EntryIterator(Exchange exchange, KeyFilter keyFilter) {
-      this.exchange = exchange;
-      this.keyFilter = keyFilter;
-    }
+  abstract void doClearAll() throws Exception;
 
-    @Override
-    public boolean hasNext() {
-      try {
-        return exchange.hasNext(keyFilter);
-      } catch (PersistitException e) {
-        throw new IllegalStateException(e);
-      }
-    }
+  /**
+   * @return the distinct key parts which immediately follow the given prefix, in order of keys
+   */
+  abstract Set<Object> doKeySet(Object[] prefix) throws Exception;
 
-    @SuppressWarnings("unchecked")
-    @Override
-    public Entry<T> next() {
-      try {
-        exchange.next(keyFilter);
-      } catch (PersistitException e) {
-        throw new IllegalStateException(e);
-      }
-      if (exchange.getValue().isDefined()) {
-        T value = (T) exchange.getValue().get();
-        Key key = exchange.getKey();
-        Object[] array = new Object[key.getDepth()];
-        for (int i = 0; i < key.getDepth(); i++) {
-          array[i] = key.indexTo(i - key.getDepth()).decode();
-        }
-        return new Entry<>(array, value);
-      }
-      throw new NoSuchElementException();
-    }
+  /**
+   * @return lazy-loading values whose key starts with the given prefix, in order of keys
+   */
+  abstract Iterable<V> doValues(Object[] prefix);
 
-    @Override
-    public void remove() {
-      throw new UnsupportedOperationException("Removing an item is not supported");
-    }
-  }
+  /**
+   * @return lazy-loading entries whose key starts with the given prefix, in order of keys
+   */
+  abstract Iterable<Entry<V>> doEntries(Object[] prefix);
 
   public static class Entry<V> {
     private final Object[] key;
     private final V value;
 
-    Entry(Object[] key, V value) {
+    public Entry(Object[] key, V value) {
       this.key = key;
       this.value = value;
     }
@@ -21,8 +21,13 @@ package org.sonar.scanner.index;
 
 import com.google.common.collect.Maps;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import com.google.common.base.Preconditions;
 import com.persistit.Exchange;
@@ -35,15 +40,25 @@ import com.persistit.Volume;
 import org.picocontainer.Startable;
 import org.sonar.api.batch.ScannerSide;
 
+/**
+ * Caches of the current project scan, stored with the engine selected by {@link CachesManager}.
+ */
 @ScannerSide
 public class Caches implements Startable {
   private final Map<String, Exchange> cacheMap = Maps.newHashMap();
+  private final Set<String> mappedCacheNames = new HashSet<>();
+  private final ValueCodecs valueCodecs = new ValueCodecs();
   private Persistit persistit;
   private Volume volume;
+  private MappedSegments segments;
 
   public Caches(CachesManager caches) {
     persistit = caches.persistit();
-    doStart();
+    if (caches.engine() == CachesManager.Engine.MAPPED) {
+      segments = createSegments(caches.tempDir());
+    } else {
+      doStart();
+    }
   }
 
   @Override
@@ -60,18 +75,48 @@ public class Caches implements Startable {
     }
   }
 
+  private static MappedSegments createSegments(File tempDir) {
+    try {
+      File dir = Files.createTempDirectory(tempDir.toPath(), "segments").toFile();
+      return new MappedSegments(dir, MappedSegments.DEFAULT_SEGMENT_SIZE);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to create a cache directory", e);
+    }
+  }
+
+  /**
+   * Registers the encoding of values of the given class when caches are stored with Persistit.
+   *
+   * @see #registerValueCodec(Class, ValueCodec)
+   */
   public void registerValueCoder(Class<?> clazz, ValueCoder coder) {
-    CoderManager cm = persistit.getCoderManager();
-    cm.registerValueCoder(clazz, coder);
+    if (persistit != null) {
+      CoderManager cm = persistit.getCoderManager();
+      cm.registerValueCoder(clazz, coder);
+    }
+  }
+
+  /**
+   * Registers the encoding of values of the given class when caches are stored in memory-mapped files.
+   *
+   * @see #registerValueCoder(Class, ValueCoder)
+   */
+  public <T> void registerValueCodec(Class<T> clazz, ValueCodec<T> codec) {
+    valueCodecs.register(clazz, codec);
   }
 
   public <V> Cache<V> createCache(String cacheName) {
+    if (segments != null) {
+      Preconditions.checkState(!mappedCacheNames.contains(cacheName), "Cache is already created: " + cacheName);
+      mappedCacheNames.add(cacheName);
+      return new MappedCache<>(cacheName, segments, valueCodecs);
+    }
     Preconditions.checkState(volume != null && volume.isOpened(), "Caches are not initialized");
     Preconditions.checkState(!cacheMap.containsKey(cacheName), "Cache is already created: " + cacheName);
     try {
       Exchange exchange = persistit.getExchange(volume, cacheName, true);
       exchange.setMaximumValueSize(Value.MAXIMUM_SIZE);
-      Cache<V> cache = new Cache<>(cacheName, exchange);
+      Cache<V> cache = new PersistitCache<>(cacheName, exchange);
       cacheMap.put(cacheName, exchange);
       return cache;
     } catch (Exception e) {
@@ -81,6 +126,12 @@ public class Caches implements Startable {
 
   @Override
   public void stop() {
+    mappedCacheNames.clear();
+    if (segments != null) {
+      segments.close();
+      segments = null;
+    }
+
     for (Entry<String, Exchange> e : cacheMap.entrySet()) {
       persistit.releaseExchange(e.getValue());
     }
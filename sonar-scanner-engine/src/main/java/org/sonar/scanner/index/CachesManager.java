@@ -23,11 +23,17 @@ import com.persistit.Persistit;
 import com.persistit.exception.PersistitException;
 import com.persistit.logging.Slf4jAdapter;
 import java.io.File;
+import java.util.Arrays;
+import java.util.Locale;
 import java.util.Properties;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.apache.commons.lang.StringUtils;
 import org.picocontainer.Startable;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.ScannerSide;
 import org.sonar.api.utils.TempFolder;
+import org.sonar.scanner.bootstrap.GlobalProperties;
 
 import static org.sonar.core.util.FileUtils.deleteQuietly;
 
@@ -38,18 +44,57 @@ import static org.sonar.core.util.FileUtils.deleteQuietly;
  */
 @ScannerSide
 public class CachesManager implements Startable {
+
+  /**
+   * Storage engine of the caches: {@link Engine#PERSISTIT} (default) or {@link Engine#MAPPED}.
+   */
+  public static final String ENGINE_PROPERTY = "sonar.scanner.cacheEngine";
+
+  public enum Engine {
+    /**
+     * B-tree volume managed by Persistit
+     */
+    PERSISTIT,
+    /**
+     * Append-only memory-mapped files with an in-memory index of keys
+     */
+    MAPPED
+  }
+
   private File tempDir;
   private Persistit persistit;
-  private final TempFolder tempFolder;
+  private final Engine engine;
+
+  public CachesManager(TempFolder tempFolder, GlobalProperties properties) {
+    this(tempFolder, parseEngine(properties.property(ENGINE_PROPERTY)));
+  }
 
   public CachesManager(TempFolder tempFolder) {
-    this.tempFolder = tempFolder;
-    initPersistit();
+    this(tempFolder, Engine.PERSISTIT);
+  }
+
+  private CachesManager(TempFolder tempFolder, Engine engine) {
+    this.engine = engine;
+    tempDir = tempFolder.newDir("caches");
+    if (engine == Engine.PERSISTIT) {
+      initPersistit();
+    }
+  }
+
+  private static Engine parseEngine(@Nullable String value) {
+    if (StringUtils.isBlank(value)) {
+      return Engine.PERSISTIT;
+    }
+    try {
+      return Engine.valueOf(value.trim().toUpperCase(Locale.ENGLISH));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(String.format("Invalid value of property %s: '%s'. Supported values are %s",
+        ENGINE_PROPERTY, value, Arrays.toString(Engine.values())), e);
+    }
   }
 
   private void initPersistit() {
     try {
-      tempDir = tempFolder.newDir("caches");
       persistit = new Persistit();
       persistit.setPersistitLogger(new Slf4jAdapter(LoggerFactory.getLogger("PERSISTIT")));
       Properties props = new Properties();
@@ -92,6 +137,14 @@ public class CachesManager implements Startable {
     return tempDir;
   }
 
+  Engine engine() {
+    return engine;
+  }
+
+  /**
+   * @return {@code null} if engine is not {@link Engine#PERSISTIT}
+   */
+  @CheckForNull
   Persistit persistit() {
     return persistit;
   }
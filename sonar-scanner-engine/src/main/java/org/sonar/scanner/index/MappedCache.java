@@ -0,0 +1,287 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.index;
+
+import com.google.common.collect.Sets;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+/**
+ * Cache whose values are encoded by {@link ValueCodecs} and stored in {@link MappedSegments}, while keys are kept
+ * in an in-memory sorted index of value addresses. Records of overwritten and removed values are freed so that
+ * their space is reused.
+ * <p>
+ * Iterators tolerate modifications of the cache: they look up the key following the last returned one at each step,
+ * so that they never read an address freed in the meantime.
+ * Not thread-safe.
+ * </p>
+ */
+class MappedCache<V> extends Cache<V> {
+
+  private final MappedSegments segments;
+  private final ValueCodecs codecs;
+  private final NavigableMap<Object[], Long> index = new TreeMap<>(KeyComparator.INSTANCE);
+
+  MappedCache(String name, MappedSegments segments, ValueCodecs codecs) {
+    super(name);
+    this.segments = segments;
+    this.codecs = codecs;
+  }
+
+  @Override
+  void doPut(Object[] key, V value) throws IOException {
+    int length = codecs.encode(value);
+    Long previous = index.get(key);
+    if (previous == null) {
+      index.put(key.clone(), segments.append(codecs.bytes(), 0, length));
+    } else {
+      long address = segments.replace(previous, codecs.bytes(), 0, length);
+      if (address != previous) {
+        index.put(key, address);
+      }
+    }
+  }
+
+  @CheckForNull
+  @Override
+  V doGet(Object[] key) throws IOException {
+    Long address = index.get(key);
+    if (address == null) {
+      return null;
+    }
+    return read(address);
+  }
+
+  @SuppressWarnings("unchecked")
+  private V read(long address) throws IOException {
+    return (V) codecs.decode(segments.read(address));
+  }
+
+  @Override
+  boolean doContainsKey(Object[] key) {
+    return index.containsKey(key);
+  }
+
+  @Override
+  boolean doRemove(Object[] key) {
+    Long address = index.remove(key);
+    if (address == null) {
+      return false;
+    }
+    segments.free(address);
+    return true;
+  }
+
+  @Override
+  void doClear(Object[] key) {
+    Iterator<Map.Entry<Object[], Long>> entries = index.tailMap(key, true).entrySet().iterator();
+    while (entries.hasNext()) {
+      Map.Entry<Object[], Long> entry = entries.next();
+      if (!startsWith(entry.getKey(), key)) {
+        break;
+      }
+      segments.free(entry.getValue());
+      entries.remove();
+    }
+  }
+
+  @Override
+  void doClearAll() {
+    for (Long address : index.values()) {
+      segments.free(address);
+    }
+    index.clear();
+  }
+
+  @Override
+  Set<Object> doKeySet(Object[] prefix) {
+    Set<Object> keys = Sets.newLinkedHashSet();
+    for (Object[] key : index.tailMap(prefix, false).keySet()) {
+      if (!startsWith(key, prefix)) {
+        break;
+      }
+      keys.add(key[prefix.length]);
+    }
+    return keys;
+  }
+
+  @Override
+  Iterable<V> doValues(final Object[] prefix) {
+    return () -> new DescendantIterator<V>(prefix) {
+      @Override
+      V toElement(Map.Entry<Object[], Long> entry) throws IOException {
+        return read(entry.getValue());
+      }
+    };
+  }
+
+  @Override
+  Iterable<Entry<V>> doEntries(final Object[] prefix) {
+    return () -> new DescendantIterator<Entry<V>>(prefix) {
+      @Override
+      Entry<V> toElement(Map.Entry<Object[], Long> entry) throws IOException {
+        return new Entry<>(entry.getKey().clone(), read(entry.getValue()));
+      }
+    };
+  }
+
+  /**
+   * @return true if key starts with all the parts of prefix, including when key is equal to prefix
+   */
+  private static boolean startsWith(Object[] key, Object[] prefix) {
+    if (key.length < prefix.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (KeyComparator.compareParts(key[i], prefix[i]) != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Iterates over the keys strictly starting with a prefix.
+   */
+  private abstract class DescendantIterator<T> implements Iterator<T> {
+    private final Object[] prefix;
+    private Object[] lastKey;
+    private Map.Entry<Object[], Long> nextEntry;
+
+    private DescendantIterator(Object[] prefix) {
+      this.prefix = prefix;
+      this.lastKey = prefix;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (nextEntry == null) {
+        nextEntry = descendantOrNull(index.higherEntry(lastKey));
+      }
+      return nextEntry != null;
+    }
+
+    @Override
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Map.Entry<Object[], Long> entry = nextEntry;
+      lastKey = entry.getKey();
+      nextEntry = null;
+      try {
+        return toElement(entry);
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to read value from cache " + name(), e);
+      }
+    }
+
+    @CheckForNull
+    private Map.Entry<Object[], Long> descendantOrNull(@Nullable Map.Entry<Object[], Long> entry) {
+      if (entry == null || !startsWith(entry.getKey(), prefix)) {
+        return null;
+      }
+      return entry;
+    }
+
+    abstract T toElement(Map.Entry<Object[], Long> entry) throws IOException;
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("Removing an item is not supported");
+    }
+  }
+
+  /**
+   * Orders keys part by part, a key being before all the keys it is a prefix of. Parts are ordered
+   * first by kind (null, boolean, number, string, other), then by value.
+   */
+  static class KeyComparator implements Comparator<Object[]>, Serializable {
+    static final KeyComparator INSTANCE = new KeyComparator();
+
+    @Override
+    public int compare(Object[] key1, Object[] key2) {
+      int length = Math.min(key1.length, key2.length);
+      for (int i = 0; i < length; i++) {
+        int result = compareParts(key1[i], key2[i]);
+        if (result != 0) {
+          return result;
+        }
+      }
+      return Integer.compare(key1.length, key2.length);
+    }
+
+    @SuppressWarnings("unchecked")
+    static int compareParts(@Nullable Object part1, @Nullable Object part2) {
+      int kind1 = kind(part1);
+      int kind2 = kind(part2);
+      if (kind1 != kind2) {
+        return Integer.compare(kind1, kind2);
+      }
+      if (part1 == null) {
+        return 0;
+      }
+      if (part1 instanceof Number) {
+        return compareNumbers((Number) part1, (Number) part2);
+      }
+      if (part1 instanceof Comparable && part1.getClass().equals(part2.getClass())) {
+        return ((Comparable<Object>) part1).compareTo(part2);
+      }
+      int result = part1.getClass().getName().compareTo(part2.getClass().getName());
+      return result != 0 ? result : part1.toString().compareTo(part2.toString());
+    }
+
+    private static int compareNumbers(Number number1, Number number2) {
+      if (isIntegral(number1) && isIntegral(number2)) {
+        return Long.compare(number1.longValue(), number2.longValue());
+      }
+      return Double.compare(number1.doubleValue(), number2.doubleValue());
+    }
+
+    private static boolean isIntegral(Number number) {
+      return number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte;
+    }
+
+    private static int kind(@Nullable Object part) {
+      if (part == null) {
+        return 0;
+      }
+      if (part instanceof Boolean) {
+        return 1;
+      }
+      if (part instanceof Number) {
+        return 2;
+      }
+      if (part instanceof String) {
+        return 3;
+      }
+      return 4;
+    }
+  }
+}
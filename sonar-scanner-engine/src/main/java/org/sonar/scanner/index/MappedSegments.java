@@ -0,0 +1,190 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.index;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import javax.annotation.CheckForNull;
+
+import static org.sonar.core.util.FileUtils.deleteQuietly;
+
+/**
+ * Storage of byte records in memory-mapped files of a fixed size (the segments).
+ * A record is addressed by a long made of the index of its segment (high 32 bits) and of its offset in the segment (low 32 bits).
+ * Records larger than a segment get their own segment.
+ * <p>
+ * Each record keeps its capacity besides its length, so that a value can be overwritten in place when the new one fits,
+ * and so that the space of {@link #free(long) freed} records is reused by the next records of close sizes. Files
+ * only grow when no freed record fits.
+ * Not thread-safe.
+ * </p>
+ */
+class MappedSegments implements Closeable {
+
+  static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+  private static final int HEADER_BYTES = 8;
+
+  private final File dir;
+  private final int segmentSize;
+  private final List<MappedByteBuffer> segments = new ArrayList<>();
+  /**
+   * Addresses of freed records by capacity
+   */
+  private final NavigableMap<Integer, Deque<Long>> freeRecords = new TreeMap<>();
+  private MappedByteBuffer current;
+  private long freeBytes = 0L;
+
+  MappedSegments(File dir, int segmentSize) {
+    this.dir = dir;
+    this.segmentSize = segmentSize;
+  }
+
+  /**
+   * @return the address of the record
+   */
+  long append(byte[] bytes, int offset, int length) {
+    Long free = pollFreeRecord(length);
+    if (free != null) {
+      write(free, bytes, offset, length);
+      return free;
+    }
+    int recordSize = HEADER_BYTES + length;
+    if (current == null || current.remaining() < recordSize) {
+      current = newSegment(Math.max(segmentSize, recordSize));
+    }
+    long address = ((long) (segments.size() - 1) << 32) | current.position();
+    current.putInt(length);
+    current.putInt(length);
+    current.put(bytes, offset, length);
+    return address;
+  }
+
+  /**
+   * Replaces the record at the given address, in place when the new bytes fit in its capacity.
+   *
+   * @return the address of the new record, which is the given one when the record has been overwritten in place
+   */
+  long replace(long address, byte[] bytes, int offset, int length) {
+    if (capacity(address) >= length) {
+      write(address, bytes, offset, length);
+      return address;
+    }
+    free(address);
+    return append(bytes, offset, length);
+  }
+
+  /**
+   * Makes the space of the record at the given address available to next records. The address must not be read anymore.
+   */
+  void free(long address) {
+    int capacity = capacity(address);
+    freeRecords.computeIfAbsent(capacity, c -> new ArrayDeque<>()).push(address);
+    freeBytes += capacity;
+  }
+
+  byte[] read(long address) {
+    ByteBuffer segment = segment(address);
+    segment.getInt();
+    byte[] bytes = new byte[segment.getInt()];
+    segment.get(bytes);
+    return bytes;
+  }
+
+  /**
+   * Total capacity of the freed records that are not reused yet
+   */
+  long freeBytes() {
+    return freeBytes;
+  }
+
+  /**
+   * Best fit among freed records, ignoring the ones more than twice as large as needed so that large records
+   * are kept for large values.
+   */
+  @CheckForNull
+  private Long pollFreeRecord(int length) {
+    Map.Entry<Integer, Deque<Long>> entry = freeRecords.ceilingEntry(length);
+    if (entry == null || entry.getKey() / 2 > length) {
+      return null;
+    }
+    Deque<Long> addresses = entry.getValue();
+    Long address = addresses.pop();
+    if (addresses.isEmpty()) {
+      freeRecords.remove(entry.getKey());
+    }
+    freeBytes -= entry.getKey();
+    return address;
+  }
+
+  private void write(long address, byte[] bytes, int offset, int length) {
+    ByteBuffer segment = segment(address);
+    segment.getInt();
+    segment.putInt(length);
+    segment.put(bytes, offset, length);
+  }
+
+  private int capacity(long address) {
+    return segment(address).getInt();
+  }
+
+  private ByteBuffer segment(long address) {
+    ByteBuffer segment = segments.get((int) (address >>> 32)).duplicate();
+    segment.position((int) address);
+    return segment;
+  }
+
+  private MappedByteBuffer newSegment(int size) {
+    File file = new File(dir, "segment_" + segments.size());
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+      FileChannel channel = randomAccessFile.getChannel();
+      MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+      segments.add(segment);
+      return segment;
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to create cache segment " + file.getAbsolutePath(), e);
+    }
+  }
+
+  /**
+   * Releases segments and deletes their files. Mapped memory is actually released when buffers are garbage-collected.
+   */
+  @Override
+  public void close() {
+    segments.clear();
+    freeRecords.clear();
+    freeBytes = 0L;
+    current = null;
+    deleteQuietly(dir);
+  }
+
+}
@@ -0,0 +1,256 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.index;
+
+import com.google.common.collect.Sets;
+import com.persistit.Exchange;
+import com.persistit.Key;
+import com.persistit.KeyFilter;
+import com.persistit.exception.PersistitException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+
+/**
+ * Cache stored in a Persistit tree.
+ * <p>
+ * This cache is not thread-safe, due to direct usage of {@link com.persistit.Exchange}
+ * </p>
+ */
+class PersistitCache<V> extends Cache<V> {
+
+  private final Exchange exchange;
+
+  PersistitCache(String name, Exchange exchange) {
+    super(name);
+    this.exchange = exchange;
+  }
+
+  @Override
+  void doPut(Object[] key, V value) throws PersistitException {
+    resetKey(key);
+    exchange.getValue().put(value);
+    exchange.store();
+  }
+
+  @SuppressWarnings("unchecked")
+  @CheckForNull
+  @Override
+  V doGet(Object[] key) throws PersistitException {
+    resetKey(key);
+    exchange.fetch();
+    if (!exchange.getValue().isDefined()) {
+      return null;
+    }
+    return (V) exchange.getValue().get();
+  }
+
+  @Override
+  boolean doContainsKey(Object[] key) throws PersistitException {
+    resetKey(key);
+    exchange.fetch();
+    return exchange.isValueDefined();
+  }
+
+  @Override
+  boolean doRemove(Object[] key) throws PersistitException {
+    resetKey(key);
+    return exchange.remove();
+  }
+
+  @Override
+  void doClear(Object[] key) throws PersistitException {
+    resetKey(key);
+    Key to = new Key(exchange.getKey());
+    to.append(Key.AFTER);
+    exchange.removeKeyRange(exchange.getKey(), to);
+  }
+
+  @Override
+  void doClearAll() throws PersistitException {
+    exchange.clear();
+    exchange.removeAll();
+  }
+
+  @Override
+  Set<Object> doKeySet(Object[] prefix) throws PersistitException {
+    Set<Object> keys = Sets.newLinkedHashSet();
+    exchange.clear();
+    Exchange iteratorExchange = new Exchange(exchange);
+    for (Object o : prefix) {
+      iteratorExchange.append(o);
+    }
+    iteratorExchange.append(Key.BEFORE);
+    while (iteratorExchange.next(false)) {
+      keys.add(iteratorExchange.getKey().indexTo(-1).decode());
+    }
+    return keys;
+  }
+
+  @Override
+  Iterable<V> doValues(Object[] prefix) {
+    return new ValueIterable<>(exchange, prefix);
+  }
+
+  @Override
+  Iterable<Entry<V>> doEntries(Object[] prefix) {
+    return new EntryIterable<>(exchange, prefix);
+  }
+
+  private void resetKey(Object[] keys) {
+    exchange.clear();
+    for (Object o : keys) {
+      exchange.append(o);
+    }
+  }
+
+  //
+  // LAZY ITERATORS AND ITERABLES
+  //
+  private static class ValueIterable<T> implements Iterable<T> {
+    private final Exchange originExchange;
+    private final Object[] keys;
+
+    private ValueIterable(Exchange originExchange, Object... keys) {
+      this.originExchange = originExchange;
+      this.keys = keys;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+      originExchange.clear();
+      KeyFilter filter = new KeyFilter();
+      for (Object key : keys) {
+        originExchange.append(key);
+        filter = filter.append(KeyFilter.simpleTerm(key));
+      }
+      originExchange.append(Key.BEFORE);
+      Exchange iteratorExchange = new Exchange(originExchange);
+      return new ValueIterator<>(iteratorExchange, filter);
+    }
+  }
+
+  private static class ValueIterator<T> implements Iterator<T> {
+    private final Exchange exchange;
+    private final KeyFilter keyFilter;
+
+    private ValueIterator(Exchange exchange, KeyFilter keyFilter) {
+      this.exchange = exchange;
+      this.keyFilter = keyFilter;
+    }
+
+    @Override
+    public boolean hasNext() {
+      try {
+        return exchange.hasNext(keyFilter);
+      } catch (PersistitException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T next() {
+      try {
+        exchange.next(keyFilter);
+      } catch (PersistitException e) {
+        throw new IllegalStateException(e);
+      }
+      if (exchange.getValue().isDefined()) {
+        return (T) exchange.getValue().get();
+      }
+      throw new NoSuchElementException();
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("Removing an item is not supported");
+    }
+  }
+
+  private static class EntryIterable<T> implements Iterable<Entry<T>> {
+    private final Exchange originExchange;
+    private final Object[] keys;
+
+    private EntryIterable(Exchange originExchange, Object... keys) {
+      this.originExchange = originExchange;
+      this.keys = keys;
+    }
+
+    @Override
+    public Iterator<Entry<T>> iterator() {
+      originExchange.clear();
+      KeyFilter filter = new KeyFilter();
+      for (Object key : keys) {
+        originExchange.append(key);
+        filter = filter.append(KeyFilter.simpleTerm(key));
+      }
+      originExchange.append(Key.BEFORE);
+      Exchange iteratorExchange = new Exchange(originExchange);
+      return new EntryIterator<>(iteratorExchange, filter);
+    }
+  }
+
+  private static class EntryIterator<T> implements Iterator<Entry<T>> {
+    private final Exchange exchange;
+    private final KeyFilter keyFilter;
+
+    private EntryIterator(Exchange exchange, KeyFilter keyFilter) {
+      this.exchange = exchange;
+      this.keyFilter = keyFilter;
+    }
+
+    @Override
+    public boolean hasNext() {
+      try {
+        return exchange.hasNext(keyFilter);
+      } catch (PersistitException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Entry<T> next() {
+      try {
+        exchange.next(keyFilter);
+      } catch (PersistitException e) {
+        throw new IllegalStateException(e);
+      }
+      if (exchange.getValue().isDefined()) {
+        T value = (T) exchange.getValue().get();
+        Key key = exchange.getKey();
+        Object[] array = new Object[key.getDepth()];
+        for (int i = 0; i < key.getDepth(); i++) {
+          array[i] = key.indexTo(i - key.getDepth()).decode();
+        }
+        return new Entry<>(array, value);
+      }
+      throw new NoSuchElementException();
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("Removing an item is not supported");
+    }
+  }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.index;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+/**
+ * Encodes values of caches backed by {@link MappedSegments}. Each encoded value starts with a tag, which
+ * is either {@link #NULL_TAG}, {@link #SERIALIZED_TAG} or the index of the {@link ValueCodec} registered for
+ * the class of the value.
+ */
+class ValueCodecs {
+
+  private static final int NULL_TAG = 0;
+  private static final int SERIALIZED_TAG = 1;
+  private static final int FIRST_CODEC_TAG = 2;
+
+  private final Map<Class<?>, Integer> tagsByClass = new HashMap<>();
+  private final List<ValueCodec> codecs = new ArrayList<>();
+  private final Buffer buffer = new Buffer();
+  private final DataOutputStream output = new DataOutputStream(buffer);
+
+  ValueCodecs() {
+    register(String.class, new StringCodec());
+  }
+
+  <T> void register(Class<T> clazz, ValueCodec<T> codec) {
+    Integer tag = tagsByClass.get(clazz);
+    if (tag == null) {
+      tagsByClass.put(clazz, FIRST_CODEC_TAG + codecs.size());
+      codecs.add(codec);
+    } else {
+      codecs.set(tag - FIRST_CODEC_TAG, codec);
+    }
+  }
+
+  /**
+   * Encodes value in an internal buffer, which is overwritten by the next call.
+   *
+   * @return number of bytes written in {@link #bytes()}
+   */
+  @SuppressWarnings("unchecked")
+  int encode(@Nullable Object value) throws IOException {
+    buffer.reset();
+    if (value == null) {
+      output.writeByte(NULL_TAG);
+    } else {
+      Integer tag = tagsByClass.get(value.getClass());
+      if (tag == null) {
+        output.writeByte(SERIALIZED_TAG);
+        ObjectOutputStream objectOutput = new ObjectOutputStream(output);
+        objectOutput.writeObject(value);
+        objectOutput.flush();
+      } else {
+        output.writeByte(tag);
+        codecs.get(tag - FIRST_CODEC_TAG).write(output, value);
+      }
+    }
+    output.flush();
+    return buffer.size();
+  }
+
+  byte[] bytes() {
+    return buffer.bytes();
+  }
+
+  @CheckForNull
+  Object decode(byte[] bytes) throws IOException {
+    DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+    int tag = input.readUnsignedByte();
+    if (tag == NULL_TAG) {
+      return null;
+    }
+    if (tag == SERIALIZED_TAG) {
+      try (ObjectInputStream objectInput = new ObjectInputStream(input)) {
+        return objectInput.readObject();
+      } catch (ClassNotFoundException e) {
+        throw new IllegalStateException("Fail to deserialize value", e);
+      }
+    }
+    return codecs.get(tag - FIRST_CODEC_TAG).read(input);
+  }
+
+  private static class StringCodec implements ValueCodec<String> {
+    @Override
+    public void write(DataOutput output, String value) throws IOException {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      output.writeInt(bytes.length);
+      output.write(bytes);
+    }
+
+    @Override
+    public String read(DataInput input) throws IOException {
+      byte[] bytes = new byte[input.readInt()];
+      input.readFully(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+  }
+
+  private static class Buffer extends ByteArrayOutputStream {
+    private Buffer() {
+      super(1024);
+    }
+
+    private byte[] bytes() {
+      return buf;
+    }
+  }
+}
@@ -59,6 +59,7 @@ public class ServerIssueRepository {
     Profiler profiler = Profiler.create(LOG).startInfo(LOG_MSG);
     this.issuesCache = caches.createCache("previousIssues");
     caches.registerValueCoder(ServerIssue.class, new ServerIssueValueCoder());
+    caches.registerValueCodec(ServerIssue.class, new ServerIssueValueCodec());
     previousIssuesLoader.load(reactor.getRoot().getKeyWithBranch(), new SaveIssueConsumer());
     profiler.stopInfo();
   }
@@ -24,6 +24,7 @@ import org.apache.commons.lang.StringUtils;
 import org.sonar.api.CoreProperties;
 import org.sonar.api.batch.bootstrap.ProjectDefinition;
 import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.resources.Language;
 import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
@@ -44,10 +45,12 @@ public class ComponentsPublisher implements ReportPublisherStep {
 
   private final BatchComponentCache resourceCache;
   private final ImmutableProjectReactor reactor;
+  private final UnchangedSources unchangedSources;
 
-  public ComponentsPublisher(ImmutableProjectReactor reactor, BatchComponentCache resourceCache) {
+  public ComponentsPublisher(ImmutableProjectReactor reactor, BatchComponentCache resourceCache, UnchangedSources unchangedSources) {
     this.reactor = reactor;
     this.resourceCache = resourceCache;
+    this.unchangedSources = unchangedSources;
   }
 
   @Override
@@ -75,7 +78,11 @@ public class ComponentsPublisher implements ReportPublisherStep {
 
     if (batchComponent.isFile()) {
       builder.setIsTest(ResourceUtils.isUnitTestFile(r));
-      builder.setLines(((InputFile) batchComponent.inputComponent()).lines());
+      InputFile inputFile = (InputFile) batchComponent.inputComponent();
+      builder.setLines(inputFile.lines());
+      if (unchangedSources.isSkipped(inputFile)) {
+        builder.setUnchangedSourceHash(((DefaultInputFile) inputFile).hash());
+      }
     }
     String name = getName(r);
     if (name != null) {
@@ -19,31 +19,28 @@
  */
 package org.sonar.scanner.report;
 
-import com.google.common.base.Function;
-import com.google.common.collect.Iterables;
-import java.util.LinkedHashMap;
-import java.util.Map;
-import javax.annotation.Nonnull;
-import org.apache.commons.lang.StringUtils;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import org.sonar.api.batch.fs.InputFile;
-import org.sonar.api.measures.CoreMetrics;
-import org.sonar.api.measures.Measure;
-import org.sonar.api.utils.KeyValueFormat;
-import org.sonar.scanner.protocol.output.ScannerReport.LineCoverage;
-import org.sonar.scanner.protocol.output.ScannerReport.LineCoverage.Builder;
-import org.sonar.scanner.scan.measure.MeasureCache;
+import org.sonar.api.batch.sensor.coverage.CoverageType;
 import org.sonar.scanner.index.BatchComponent;
 import org.sonar.scanner.index.BatchComponentCache;
+import org.sonar.scanner.protocol.output.ScannerReport.LineCoverage;
 import org.sonar.scanner.protocol.output.ScannerReportWriter;
+import org.sonar.scanner.sensor.coverage.FileLineCoverage;
+import org.sonar.scanner.sensor.coverage.LineCoverageCache;
+
+import static org.sonar.scanner.sensor.coverage.FileLineCoverage.UNSET;
 
 public class CoveragePublisher implements ReportPublisherStep {
 
   private final BatchComponentCache resourceCache;
-  private final MeasureCache measureCache;
+  private final LineCoverageCache lineCoverageCache;
 
-  public CoveragePublisher(BatchComponentCache resourceCache, MeasureCache measureCache) {
+  public CoveragePublisher(BatchComponentCache resourceCache, LineCoverageCache lineCoverageCache) {
     this.resourceCache = resourceCache;
-    this.measureCache = measureCache;
+    this.lineCoverageCache = lineCoverageCache;
   }
 
   @Override
@@ -52,98 +49,63 @@ public class CoveragePublisher implements ReportPublisherStep {
       if (!resource.isFile()) {
         continue;
       }
-      Map<Integer, LineCoverage.Builder> coveragePerLine = new LinkedHashMap<>();
-
-      int lineCount = ((InputFile) resource.inputComponent()).lines();
-      applyLineMeasure(resource.key(), lineCount, CoreMetrics.COVERAGE_LINE_HITS_DATA_KEY, coveragePerLine,
-        new MeasureOperation() {
-          @Override
-          public void apply(String value, LineCoverage.Builder builder) {
-            builder.setUtHits(Integer.parseInt(value) > 0);
-          }
-        });
-      applyLineMeasure(resource.key(), lineCount, CoreMetrics.IT_COVERAGE_LINE_HITS_DATA_KEY, coveragePerLine,
-        new MeasureOperation() {
-          @Override
-          public void apply(String value, LineCoverage.Builder builder) {
-            builder.setItHits(Integer.parseInt(value) > 0);
-          }
-        });
-      // Just in case we have only IT and no UT, we first take conditions from ITs, then from UTs (UTs will override ITs).
-      // Note that it would be very strange (and unsupported in scanner report) to have ITs and UTs don't report the same number of
-      // conditions. Not even talking about overall conditions...
-      applyLineMeasure(resource.key(), lineCount, CoreMetrics.IT_CONDITIONS_BY_LINE_KEY, coveragePerLine,
-        new MeasureOperation() {
-          @Override
-          public void apply(String value, LineCoverage.Builder builder) {
-            builder.setConditions(Integer.parseInt(value));
-          }
-        });
-      applyLineMeasure(resource.key(), lineCount, CoreMetrics.CONDITIONS_BY_LINE_KEY, coveragePerLine,
-        new MeasureOperation() {
-          @Override
-          public void apply(String value, LineCoverage.Builder builder) {
-            builder.setConditions(Integer.parseInt(value));
-          }
-        });
-      applyLineMeasure(resource.key(), lineCount, CoreMetrics.COVERED_CONDITIONS_BY_LINE_KEY, coveragePerLine,
-        new MeasureOperation() {
-          @Override
-          public void apply(String value, LineCoverage.Builder builder) {
-            builder.setUtCoveredConditions(Integer.parseInt(value));
-          }
-        });
-      applyLineMeasure(resource.key(), lineCount, CoreMetrics.IT_COVERED_CONDITIONS_BY_LINE_KEY, coveragePerLine,
-        new MeasureOperation() {
-          @Override
-          public void apply(String value, LineCoverage.Builder builder) {
-            builder.setItCoveredConditions(Integer.parseInt(value));
-          }
-        });
-      applyLineMeasure(resource.key(), lineCount, CoreMetrics.OVERALL_COVERED_CONDITIONS_BY_LINE_KEY, coveragePerLine,
-        new MeasureOperation() {
-          @Override
-          public void apply(String value, LineCoverage.Builder builder) {
-            builder.setOverallCoveredConditions(Integer.parseInt(value));
-          }
-        });
-      writer.writeComponentCoverage(resource.batchId(), Iterables.transform(coveragePerLine.values(), BuildCoverage.INSTANCE));
-    }
-  }
-
-  void applyLineMeasure(String inputFileKey, int lineCount, String metricKey, Map<Integer, LineCoverage.Builder> coveragePerLine, MeasureOperation op) {
-    Measure measure = measureCache.byMetric(inputFileKey, metricKey);
-    if (measure != null) {
-      Map<Integer, String> lineMeasures = KeyValueFormat.parseIntString((String) measure.value());
-      for (Map.Entry<Integer, String> lineMeasure : lineMeasures.entrySet()) {
-        int lineIdx = lineMeasure.getKey();
-        if (lineIdx <= lineCount) {
-          String value = lineMeasure.getValue();
-          if (StringUtils.isNotEmpty(value)) {
-            LineCoverage.Builder coverageBuilder = coveragePerLine.get(lineIdx);
-            if (coverageBuilder == null) {
-              coverageBuilder = LineCoverage.newBuilder();
-              coverageBuilder.setLine(lineIdx);
-              coveragePerLine.put(lineIdx, coverageBuilder);
-            }
-            op.apply(value, coverageBuilder);
-          }
-        }
+      FileLineCoverage coverage = lineCoverageCache.get(resource.key());
+      if (coverage == null) {
+        writer.writeComponentCoverage(resource.batchId(), Collections.<LineCoverage>emptyList());
+      } else {
+        int lineCount = Math.min(((InputFile) resource.inputComponent()).lines(), coverage.lines());
+        writer.writeComponentCoverage(resource.batchId(), toLineCoverages(coverage, lineCount));
       }
     }
   }
 
-  interface MeasureOperation {
-    void apply(String value, LineCoverage.Builder builder);
-  }
-
-  private enum BuildCoverage implements Function<LineCoverage.Builder, LineCoverage> {
-    INSTANCE;
-
-    @Override
-    public LineCoverage apply(@Nonnull Builder input) {
-      return input.build();
+  private static List<LineCoverage> toLineCoverages(FileLineCoverage coverage, int lineCount) {
+    List<LineCoverage> lineCoverages = new ArrayList<>();
+    LineCoverage.Builder builder = LineCoverage.newBuilder();
+    for (int line = 1; line <= lineCount; line++) {
+      builder.clear();
+      boolean hasData = false;
+      int utHits = coverage.hits(CoverageType.UNIT, line);
+      if (utHits != UNSET) {
+        builder.setUtHits(utHits > 0);
+        hasData = true;
+      }
+      int itHits = coverage.hits(CoverageType.IT, line);
+      if (itHits != UNSET) {
+        builder.setItHits(itHits > 0);
+        hasData = true;
+      }
+      // Just in case we have only IT and no UT, we take conditions from ITs when UTs don't provide any.
+      // Note that it would be very strange (and unsupported in scanner report) to have ITs and UTs don't report the same number of
+      // conditions. Not even talking about overall conditions...
+      int conditions = coverage.conditions(CoverageType.UNIT, line);
+      if (conditions == UNSET) {
+        conditions = coverage.conditions(CoverageType.IT, line);
+      }
+      if (conditions != UNSET) {
+        builder.setConditions(conditions);
+        hasData = true;
+      }
+      int utCoveredConditions = coverage.coveredConditions(CoverageType.UNIT, line);
+      if (utCoveredConditions != UNSET) {
+        builder.setUtCoveredConditions(utCoveredConditions);
+        hasData = true;
+      }
+      int itCoveredConditions = coverage.coveredConditions(CoverageType.IT, line);
+      if (itCoveredConditions != UNSET) {
+        builder.setItCoveredConditions(itCoveredConditions);
+        hasData = true;
+      }
+      int overallCoveredConditions = coverage.coveredConditions(CoverageType.OVERALL, line);
+      if (overallCoveredConditions != UNSET) {
+        builder.setOverallCoveredConditions(overallCoveredConditions);
+        hasData = true;
+      }
+      if (hasData) {
+        lineCoverages.add(builder.setLine(line).build());
+      }
     }
+    return lineCoverages;
   }
 
 }
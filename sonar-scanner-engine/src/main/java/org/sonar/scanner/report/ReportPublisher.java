@@ -23,7 +23,10 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
 import com.google.common.io.Files;
 import okhttp3.HttpUrl;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Writer;
@@ -31,6 +34,9 @@ import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 import javax.annotation.Nullable;
 import org.apache.commons.io.FileUtils;
 import org.picocontainer.Startable;
@@ -40,7 +46,6 @@ import org.sonar.api.config.Settings;
 import org.sonar.api.platform.Server;
 import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.TempFolder;
-import org.sonar.api.utils.ZipUtils;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.scanner.analysis.DefaultAnalysisMode;
@@ -62,6 +67,13 @@ public class ReportPublisher implements Startable {
   public static final String KEEP_REPORT_PROP_KEY = "sonar.batch.keepReport";
   public static final String VERBOSE_KEY = "sonar.verbose";
   public static final String METADATA_DUMP_FILENAME = "report-task.txt";
+  /**
+   * Deflate level of the zipped report, from 0 (no compression) to 9 (best compression). Lower levels zip faster
+   * but upload bigger files.
+   */
+  public static final String COMPRESSION_LEVEL_PROP_KEY = "sonar.batch.reportCompressionLevel";
+
+  private static final int ZIP_BUFFER_SIZE = 64 * 1024;
 
   private final Settings settings;
   private final BatchWsClient wsClient;
@@ -146,7 +158,7 @@ public class ReportPublisher implements Startable {
 
       startTime = System.currentTimeMillis();
       File reportZip = temp.newFile("batch-report", ".zip");
-      ZipUtils.zipDir(reportDir, reportZip);
+      zipReport(reportZip);
       stopTime = System.currentTimeMillis();
       LOG.info("Analysis reports compressed in {}ms, zip size={}", stopTime - startTime, FileUtils.byteCountToDisplaySize(FileUtils.sizeOf(reportZip)));
       return reportZip;
@@ -155,6 +167,42 @@ public class ReportPublisher implements Startable {
     }
   }
 
+  /**
+   * The files of the report are flat in its directory. They are copied into the zip through a single buffer.
+   */
+  private void zipReport(File reportZip) throws IOException {
+    File[] files = reportDir.listFiles();
+    if (files == null) {
+      throw new IllegalStateException("Fail to list files of directory " + reportDir);
+    }
+    byte[] buffer = new byte[ZIP_BUFFER_SIZE];
+    try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(reportZip), ZIP_BUFFER_SIZE))) {
+      zip.setLevel(compressionLevel());
+      for (File file : files) {
+        zip.putNextEntry(new ZipEntry(file.getName()));
+        try (InputStream input = new FileInputStream(file)) {
+          int read;
+          while ((read = input.read(buffer)) != -1) {
+            zip.write(buffer, 0, read);
+          }
+        }
+        zip.closeEntry();
+      }
+    }
+  }
+
+  private int compressionLevel() {
+    if (!settings.hasKey(COMPRESSION_LEVEL_PROP_KEY)) {
+      return Deflater.DEFAULT_COMPRESSION;
+    }
+    int level = settings.getInt(COMPRESSION_LEVEL_PROP_KEY);
+    if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+      throw MessageException.of(String.format("Property %s must be between %d and %d: %d", COMPRESSION_LEVEL_PROP_KEY,
+        Deflater.NO_COMPRESSION, Deflater.BEST_COMPRESSION, level));
+    }
+    return level;
+  }
+
   /**
    * Uploads the report file to server and returns the generated task id
    */
@@ -0,0 +1,46 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.report;
+
+import org.sonar.api.batch.ScannerSide;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.config.Settings;
+import org.sonar.scanner.analysis.DefaultAnalysisMode;
+
+/**
+ * Decides which sources can be left out of the report because the server already has them: the ones of the files
+ * which did not change since the previous analysis. They are referenced by their hash instead, see
+ * {@link ComponentsPublisher}.
+ */
+@ScannerSide
+public class UnchangedSources {
+
+  public static final String SKIP_UNCHANGED_SOURCES_KEY = "sonar.batch.skipUnchangedSources";
+
+  private final boolean enabled;
+
+  public UnchangedSources(Settings settings, DefaultAnalysisMode analysisMode) {
+    this.enabled = settings.getBoolean(SKIP_UNCHANGED_SOURCES_KEY) && analysisMode.isPublish();
+  }
+
+  public boolean isSkipped(InputFile file) {
+    return enabled && file.status() == InputFile.Status.SAME;
+  }
+}
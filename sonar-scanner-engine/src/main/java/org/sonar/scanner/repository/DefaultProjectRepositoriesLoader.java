@@ -27,13 +27,16 @@ import com.google.common.collect.Table;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Map;
-
+import javax.annotation.Nullable;
 import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.utils.MessageException;
+import org.sonar.home.cache.FileCache;
 import org.sonar.scanner.bootstrap.BatchWsClient;
 import org.sonar.scanner.util.BatchUtils;
 import org.sonarqube.ws.WsBatch.WsProjectResponse;
@@ -47,17 +50,35 @@ public class DefaultProjectRepositoriesLoader implements ProjectRepositoriesLoad
   private static final Logger LOG = LoggerFactory.getLogger(DefaultProjectRepositoriesLoader.class);
   private static final String BATCH_PROJECT_URL = "/batch/project.protobuf";
   private BatchWsClient wsClient;
+  private ProjectRepositoriesCache cache;
 
-  public DefaultProjectRepositoriesLoader(BatchWsClient wsClient) {
+  public DefaultProjectRepositoriesLoader(BatchWsClient wsClient, FileCache fileCache) {
     this.wsClient = wsClient;
+    this.cache = new ProjectRepositoriesCache(fileCache);
   }
 
   @Override
   public ProjectRepositories load(String projectKey, boolean issuesMode) {
-    GetRequest request = new GetRequest(getUrl(projectKey, issuesMode));
-    try (WsResponse response = wsClient.call(request)) {
-      InputStream is = response.contentStream();
-      return processStream(is, projectKey);
+    WsProjectResponse cached = cache.read(wsClient.baseUrl(), projectKey);
+    try {
+      WsProjectResponse response = call(projectKey, issuesMode, cached);
+      if (!response.hasAnalysisUuid()) {
+        return toProjectRepositories(response, response.getFileDataByModuleAndPath());
+      }
+      WsProjectResponse fileData;
+      if (response.getDelta() && cached != null) {
+        fileData = merge(cached, response);
+        if (!response.hasFileKeysHash() || !hashFileKeys(fileData).equals(response.getFileKeysHash())) {
+          LOG.debug("Project repository: files have been removed, moved or renamed since the cached analysis, downloading all file data");
+          response = call(projectKey, issuesMode, null);
+          fileData = fileDataOnly(response);
+        }
+      } else {
+        fileData = fileDataOnly(response);
+      }
+      LOG.debug("Project repository: {} file data received, {} in total", countFileData(response), countFileData(fileData));
+      cache.write(wsClient.baseUrl(), projectKey, fileData);
+      return toProjectRepositories(response, fileData.getFileDataByModuleAndPath());
     } catch (RuntimeException e) {
       if (shouldThrow(e)) {
         throw e;
@@ -68,7 +89,21 @@ public class DefaultProjectRepositoriesLoader implements ProjectRepositoriesLoad
     }
   }
 
-  private static String getUrl(String projectKey, boolean issuesMode) {
+  private WsProjectResponse call(String projectKey, boolean issuesMode, @Nullable WsProjectResponse cached) {
+    GetRequest request = new GetRequest(getUrl(projectKey, issuesMode, cached));
+    try (WsResponse response = wsClient.call(request)) {
+      InputStream is = response.contentStream();
+      try {
+        return WsProjectResponse.parseFrom(is);
+      } catch (IOException e) {
+        throw new IllegalStateException("Couldn't load project repository for " + projectKey, e);
+      } finally {
+        IOUtils.closeQuietly(is);
+      }
+    }
+  }
+
+  private static String getUrl(String projectKey, boolean issuesMode, @Nullable WsProjectResponse cached) {
     StringBuilder builder = new StringBuilder();
 
     builder.append(BATCH_PROJECT_URL)
@@ -76,6 +111,9 @@ public class DefaultProjectRepositoriesLoader implements ProjectRepositoriesLoad
     if (issuesMode) {
       builder.append("&issues_mode=true");
     }
+    if (cached != null) {
+      builder.append("&since_analysis=").append(BatchUtils.encodeForUrl(cached.getAnalysisUuid()));
+    }
     return builder.toString();
   }
 
@@ -93,33 +131,65 @@ public class DefaultProjectRepositoriesLoader implements ProjectRepositoriesLoad
     return false;
   }
 
-  private static ProjectRepositories processStream(InputStream is, String projectKey) {
-    try {
-      WsProjectResponse response = WsProjectResponse.parseFrom(is);
-
-      Table<String, String, FileData> fileDataTable = HashBasedTable.create();
-      Table<String, String, String> settings = HashBasedTable.create();
+  private static ProjectRepositories toProjectRepositories(WsProjectResponse response, Map<String, FileDataByPath> fileDataByModuleAndPath) {
+    Table<String, String, FileData> fileDataTable = HashBasedTable.create();
+    Table<String, String, String> settings = HashBasedTable.create();
 
-      Map<String, Settings> settingsByModule = response.getSettingsByModule();
-      for (Map.Entry<String, Settings> e1 : settingsByModule.entrySet()) {
-        for (Map.Entry<String, String> e2 : e1.getValue().getSettings().entrySet()) {
-          settings.put(e1.getKey(), e2.getKey(), e2.getValue());
-        }
+    Map<String, Settings> settingsByModule = response.getSettingsByModule();
+    for (Map.Entry<String, Settings> e1 : settingsByModule.entrySet()) {
+      for (Map.Entry<String, String> e2 : e1.getValue().getSettings().entrySet()) {
+        settings.put(e1.getKey(), e2.getKey(), e2.getValue());
       }
+    }
 
-      Map<String, FileDataByPath> fileDataByModuleAndPath = response.getFileDataByModuleAndPath();
-      for (Map.Entry<String, FileDataByPath> e1 : fileDataByModuleAndPath.entrySet()) {
-        for (Map.Entry<String, org.sonarqube.ws.WsBatch.WsProjectResponse.FileData> e2 : e1.getValue().getFileDataByPath().entrySet()) {
-          FileData fd = new FileData(e2.getValue().getHash(), e2.getValue().getRevision());
-          fileDataTable.put(e1.getKey(), e2.getKey(), fd);
-        }
+    for (Map.Entry<String, FileDataByPath> e1 : fileDataByModuleAndPath.entrySet()) {
+      for (Map.Entry<String, org.sonarqube.ws.WsBatch.WsProjectResponse.FileData> e2 : e1.getValue().getFileDataByPath().entrySet()) {
+        FileData fd = new FileData(e2.getValue().getHash(), e2.getValue().getRevision());
+        fileDataTable.put(e1.getKey(), e2.getKey(), fd);
       }
+    }
+
+    return new ProjectRepositories(settings, fileDataTable, new Date(response.getLastAnalysisDate()));
+  }
+
+  private static WsProjectResponse fileDataOnly(WsProjectResponse response) {
+    WsProjectResponse.Builder builder = WsProjectResponse.newBuilder().setAnalysisUuid(response.getAnalysisUuid());
+    builder.getMutableFileDataByModuleAndPath().putAll(response.getFileDataByModuleAndPath());
+    return builder.build();
+  }
+
+  /**
+   * Applies the files updated since the cached analysis on top of the cached file data. Files deleted, moved or renamed
+   * since then are still in the result with their old path, which is detected by comparing the hash of its keys with
+   * {@link WsProjectResponse#getFileKeysHash()}: otherwise a deleted file added again with the same content would be
+   * considered as unchanged.
+   */
+  private static WsProjectResponse merge(WsProjectResponse cached, WsProjectResponse delta) {
+    WsProjectResponse.Builder builder = WsProjectResponse.newBuilder().setAnalysisUuid(delta.getAnalysisUuid());
+    Map<String, FileDataByPath> fileDataByModuleAndPath = builder.getMutableFileDataByModuleAndPath();
+    fileDataByModuleAndPath.putAll(cached.getFileDataByModuleAndPath());
+    for (Map.Entry<String, FileDataByPath> entry : delta.getFileDataByModuleAndPath().entrySet()) {
+      FileDataByPath cachedFileData = fileDataByModuleAndPath.get(entry.getKey());
+      FileDataByPath.Builder fileDataByPath = cachedFileData == null ? FileDataByPath.newBuilder() : cachedFileData.toBuilder();
+      fileDataByPath.getMutableFileDataByPath().putAll(entry.getValue().getFileDataByPath());
+      fileDataByModuleAndPath.put(entry.getKey(), fileDataByPath.build());
+    }
+    return builder.build();
+  }
+
+  private static String hashFileKeys(WsProjectResponse response) {
+    Map<String, Collection<String>> pathsByModuleKey = new HashMap<>();
+    for (Map.Entry<String, FileDataByPath> entry : response.getFileDataByModuleAndPath().entrySet()) {
+      pathsByModuleKey.put(entry.getKey(), entry.getValue().getFileDataByPath().keySet());
+    }
+    return org.sonar.scanner.protocol.input.ProjectRepositories.hashFileKeys(pathsByModuleKey);
+  }
 
-      return new ProjectRepositories(settings, fileDataTable, new Date(response.getLastAnalysisDate()));
-    } catch (IOException e) {
-      throw new IllegalStateException("Couldn't load project repository for " + projectKey, e);
-    } finally {
-      IOUtils.closeQuietly(is);
+  private static int countFileData(WsProjectResponse response) {
+    int count = 0;
+    for (FileDataByPath fileDataByPath : response.getFileDataByModuleAndPath().values()) {
+      count += fileDataByPath.getFileDataByPath().size();
     }
+    return count;
   }
 }
@@ -0,0 +1,115 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.repository;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.home.cache.FileCache;
+import org.sonarqube.ws.WsBatch.WsProjectResponse;
+
+/**
+ * Keeps in the user cache the file data of the last project repositories downloaded from a server, along with the uuid of
+ * the analysis they correspond to, so that the next scan of the same project only downloads the files which changed since.
+ * <p>
+ * Settings are never cached: they are not versioned by analyses and they depend on the permissions of the user.
+ * </p>
+ */
+class ProjectRepositoriesCache {
+  private static final Logger LOG = LoggerFactory.getLogger(ProjectRepositoriesCache.class);
+  private static final String DIR_NAME = "_project_repositories";
+
+  private final File dir;
+
+  ProjectRepositoriesCache(FileCache fileCache) {
+    this.dir = new File(fileCache.getDir(), DIR_NAME);
+  }
+
+  /**
+   * @return {@code null} if there is nothing in cache for the specified project or if it can not be read
+   */
+  @CheckForNull
+  WsProjectResponse read(@Nullable String serverUrl, String projectKey) {
+    Path file = fileOf(serverUrl, projectKey);
+    if (!Files.exists(file)) {
+      return null;
+    }
+    try (InputStream is = Files.newInputStream(file)) {
+      WsProjectResponse cached = WsProjectResponse.parseFrom(is);
+      return cached.hasAnalysisUuid() ? cached : null;
+    } catch (IOException | RuntimeException e) {
+      LOG.debug("Ignoring unreadable project repositories cache " + file, e);
+      return null;
+    }
+  }
+
+  /**
+   * Writes the file data in a temporary file which is then moved, so that concurrent scans never read a partial file.
+   * Failures are only logged: the cache is an optimization.
+   */
+  void write(@Nullable String serverUrl, String projectKey, WsProjectResponse fileData) {
+    Path file = fileOf(serverUrl, projectKey);
+    Path tmpFile = null;
+    try {
+      Files.createDirectories(dir.toPath());
+      tmpFile = Files.createTempFile(dir.toPath(), file.getFileName().toString(), ".tmp");
+      try (OutputStream os = Files.newOutputStream(tmpFile)) {
+        fileData.writeTo(os);
+      }
+      move(tmpFile, file);
+    } catch (IOException | RuntimeException e) {
+      LOG.debug("Failed to write project repositories cache " + file, e);
+      deleteQuietly(tmpFile);
+    }
+  }
+
+  private static void move(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private static void deleteQuietly(@Nullable Path path) {
+    if (path != null) {
+      try {
+        Files.deleteIfExists(path);
+      } catch (IOException e) {
+        LOG.debug("Failed to delete " + path, e);
+      }
+    }
+  }
+
+  private Path fileOf(@Nullable String serverUrl, String projectKey) {
+    String id = DigestUtils.md5Hex((serverUrl == null ? "" : serverUrl) + "|" + projectKey);
+    return new File(dir, id + ".protobuf").toPath();
+  }
+}
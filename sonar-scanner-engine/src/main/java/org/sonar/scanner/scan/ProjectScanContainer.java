@@ -66,6 +66,7 @@ import org.sonar.scanner.report.MeasuresPublisher;
 import org.sonar.scanner.report.MetadataPublisher;
 import org.sonar.scanner.report.ReportPublisher;
 import org.sonar.scanner.report.SourcePublisher;
+import org.sonar.scanner.report.UnchangedSources;
 import org.sonar.scanner.report.TestExecutionAndCoveragePublisher;
 import org.sonar.scanner.repository.ContextPropertiesCache;
 import org.sonar.scanner.repository.DefaultProjectRepositoriesLoader;
@@ -89,6 +90,8 @@ import org.sonar.scanner.scan.filesystem.InputPathCache;
 import org.sonar.scanner.scan.measure.DefaultMetricFinder;
 import org.sonar.scanner.scan.measure.DeprecatedMetricFinder;
 import org.sonar.scanner.scan.measure.MeasureCache;
+import org.sonar.scanner.scm.BlameCache;
+import org.sonar.scanner.sensor.coverage.LineCoverageCache;
 import org.sonar.scanner.source.CodeColorizers;
 import org.sonar.scanner.test.TestPlanBuilder;
 import org.sonar.scanner.test.TestableBuilder;
@@ -175,6 +178,7 @@ public class ProjectScanContainer extends ComponentContainer {
 
       // Measures
       MeasureCache.class,
+      LineCoverageCache.class,
 
       // context
       ContextPropertiesCache.class,
@@ -192,8 +196,12 @@ public class ProjectScanContainer extends ComponentContainer {
       MeasuresPublisher.class,
       CoveragePublisher.class,
       SourcePublisher.class,
+      UnchangedSources.class,
       TestExecutionAndCoveragePublisher.class,
 
+      // SCM
+      BlameCache.class,
+
       // Cpd
       CpdExecutor.class,
       SonarCpdBlockIndex.class,
@@ -230,6 +238,7 @@ public class ProjectScanContainer extends ComponentContainer {
     LOG.debug("Start recursive analysis of project modules");
     DefaultProjectTree tree = getComponentByType(DefaultProjectTree.class);
     scanRecursively(tree.getRootProject());
+    getComponentByType(BlameCache.class).prune();
     if (analysisMode.isMediumTest()) {
       getComponentByType(ScanTaskObservers.class).notifyEndOfScanTask();
     }
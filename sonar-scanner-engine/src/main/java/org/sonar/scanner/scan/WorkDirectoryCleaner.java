@@ -19,17 +19,25 @@
  */
 package org.sonar.scanner.scan;
 
+import com.google.common.collect.ImmutableSet;
 import org.sonar.api.batch.bootstrap.ProjectReactor;
 import org.sonar.core.util.FileUtils;
 import org.sonar.home.cache.DirectoryLock;
+import org.sonar.scanner.scm.BlameCache;
 
 import java.io.IOException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Iterator;
+import java.util.Set;
 
 public class WorkDirectoryCleaner {
+  /**
+   * Lock of the project, and caches which must survive analyses
+   */
+  private static final Set<String> KEPT_FILE_NAMES = ImmutableSet.of(DirectoryLock.LOCK_FILE_NAME, BlameCache.DIR_NAME);
+
   private Path workDir;
 
   public WorkDirectoryCleaner(ProjectReactor projectReactor) {
@@ -53,6 +61,6 @@ public class WorkDirectoryCleaner {
   }
 
   private DirectoryStream<Path> list() throws IOException {
-    return Files.newDirectoryStream(workDir, entry -> !DirectoryLock.LOCK_FILE_NAME.equals(entry.getFileName().toString()));
+    return Files.newDirectoryStream(workDir, entry -> !KEPT_FILE_NAMES.contains(entry.getFileName().toString()));
   }
 }
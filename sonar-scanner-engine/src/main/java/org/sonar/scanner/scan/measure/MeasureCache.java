@@ -20,6 +20,7 @@
 package org.sonar.scanner.scan.measure;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
 import javax.annotation.CheckForNull;
 import org.sonar.api.batch.ScannerSide;
 import org.sonar.api.batch.measure.MetricFinder;
@@ -28,26 +29,33 @@ import org.sonar.api.resources.Resource;
 import org.sonar.scanner.index.Cache;
 import org.sonar.scanner.index.Caches;
 import org.sonar.scanner.index.Cache.Entry;
+import org.sonar.scanner.sensor.coverage.LineCoverageCache;
 
 /**
  * Cache of all measures. This cache is shared amongst all project modules.
+ * Line coverage measures are not stored but built on demand from {@link LineCoverageCache}, each time they are read.
  */
 @ScannerSide
 public class MeasureCache {
 
   private final Cache<Measure> cache;
+  private final LineCoverageCache lineCoverageCache;
 
-  public MeasureCache(Caches caches, MetricFinder metricFinder) {
+  public MeasureCache(Caches caches, MetricFinder metricFinder, LineCoverageCache lineCoverageCache) {
+    this.lineCoverageCache = lineCoverageCache;
     caches.registerValueCoder(Measure.class, new MeasureValueCoder(metricFinder));
+    caches.registerValueCodec(Measure.class, new MeasureValueCodec(metricFinder));
     cache = caches.createCache("measures");
   }
 
   public Iterable<Entry<Measure>> entries() {
-    return cache.entries();
+    Iterable<Entry<Measure>> lineEntries = Iterables.concat(Iterables.transform(lineCoverageCache.fileKeys(),
+      fileKey -> Iterables.transform(lineCoverageCache.measures(fileKey), measure -> new Entry<>(new Object[] {fileKey, measure.getMetricKey()}, measure))));
+    return Iterables.concat(cache.entries(), lineEntries);
   }
 
   public Iterable<Measure> all() {
-    return cache.values();
+    return Iterables.concat(cache.values(), Iterables.concat(Iterables.transform(lineCoverageCache.fileKeys(), lineCoverageCache::measures)));
   }
 
   public Iterable<Measure> byResource(Resource r) {
@@ -55,7 +63,7 @@ public class MeasureCache {
   }
 
   public Iterable<Measure> byComponentKey(String effectiveKey) {
-    return cache.values(effectiveKey);
+    return Iterables.concat(cache.values(effectiveKey), lineCoverageCache.measures(effectiveKey));
   }
 
   @CheckForNull
@@ -65,6 +73,9 @@ public class MeasureCache {
 
   @CheckForNull
   public Measure byMetric(String componentKey, String metricKey) {
+    if (LineCoverageCache.isLineMetric(metricKey)) {
+      return lineCoverageCache.measure(componentKey, metricKey);
+    }
     return cache.get(componentKey, metricKey);
   }
 
@@ -0,0 +1,135 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scan.measure;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.batch.measure.MetricFinder;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.Metric;
+import org.sonar.api.measures.PersistenceMode;
+import org.sonar.scanner.index.ValueCodec;
+
+/**
+ * Same encoding as {@link MeasureValueCoder}, for caches stored in memory-mapped files.
+ */
+class MeasureValueCodec implements ValueCodec<Measure> {
+
+  private final MetricFinder metricFinder;
+
+  public MeasureValueCodec(MetricFinder metricFinder) {
+    this.metricFinder = metricFinder;
+  }
+
+  @Override
+  public void write(DataOutput output, Measure m) throws IOException {
+    output.writeUTF(m.getMetricKey());
+    writeDoubleOrNull(output, m.getValue());
+    writeStringOrNull(output, m.getData());
+    writeStringOrNull(output, m.getDescription());
+    writeStringOrNull(output, m.getAlertStatus() != null ? m.getAlertStatus().name() : null);
+    writeStringOrNull(output, m.getAlertText());
+    Date date = m.getDate();
+    output.writeBoolean(date != null);
+    if (date != null) {
+      output.writeLong(date.getTime());
+    }
+    writeDoubleOrNull(output, m.getVariation1());
+    writeDoubleOrNull(output, m.getVariation2());
+    writeDoubleOrNull(output, m.getVariation3());
+    writeDoubleOrNull(output, m.getVariation4());
+    writeDoubleOrNull(output, m.getVariation5());
+    writeStringOrNull(output, m.getUrl());
+    Integer personId = m.getPersonId();
+    output.writeBoolean(personId != null);
+    if (personId != null) {
+      output.writeInt(personId);
+    }
+    PersistenceMode persistenceMode = m.getPersistenceMode();
+    writeStringOrNull(output, persistenceMode != null ? persistenceMode.name() : null);
+  }
+
+  @Override
+  public Measure read(DataInput input) throws IOException {
+    Measure<?> m = new Measure();
+    String metricKey = input.readUTF();
+    org.sonar.api.batch.measure.Metric metric = metricFinder.findByKey(metricKey);
+    if (metric == null) {
+      throw new IllegalStateException("Unknow metric with key " + metricKey);
+    }
+    m.setMetric((org.sonar.api.measures.Metric) metric);
+    m.setRawValue(readDoubleOrNull(input));
+    m.setData(readStringOrNull(input));
+    m.setDescription(readStringOrNull(input));
+    String alertStatus = readStringOrNull(input);
+    m.setAlertStatus(alertStatus == null ? null : Metric.Level.valueOf(alertStatus));
+    m.setAlertText(readStringOrNull(input));
+    m.setDate(input.readBoolean() ? new Date(input.readLong()) : null);
+    m.setVariation1(readDoubleOrNull(input));
+    m.setVariation2(readDoubleOrNull(input));
+    m.setVariation3(readDoubleOrNull(input));
+    m.setVariation4(readDoubleOrNull(input));
+    m.setVariation5(readDoubleOrNull(input));
+    m.setUrl(readStringOrNull(input));
+    m.setPersonId(input.readBoolean() ? input.readInt() : null);
+    String persistenceMode = readStringOrNull(input);
+    m.setPersistenceMode(persistenceMode == null ? null : PersistenceMode.valueOf(persistenceMode));
+    return m;
+  }
+
+  private static void writeDoubleOrNull(DataOutput output, @Nullable Double d) throws IOException {
+    output.writeBoolean(d != null);
+    if (d != null) {
+      output.writeDouble(d);
+    }
+  }
+
+  @CheckForNull
+  private static Double readDoubleOrNull(DataInput input) throws IOException {
+    return input.readBoolean() ? input.readDouble() : null;
+  }
+
+  /**
+   * Data of measures can exceed the 64KB limit of {@link DataOutput#writeUTF(String)}.
+   */
+  private static void writeStringOrNull(DataOutput output, @Nullable String s) throws IOException {
+    output.writeBoolean(s != null);
+    if (s != null) {
+      byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+      output.writeInt(bytes.length);
+      output.write(bytes);
+    }
+  }
+
+  @CheckForNull
+  private static String readStringOrNull(DataInput input) throws IOException {
+    if (!input.readBoolean()) {
+      return null;
+    }
+    byte[] bytes = new byte[input.readInt()];
+    input.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scm;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.CheckForNull;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.sonar.api.batch.ScannerSide;
+import org.sonar.api.batch.bootstrap.ProjectReactor;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.scanner.protocol.output.ScannerReport;
+
+/**
+ * Blame results of previous analyses, kept in the working directory of the project (which is not cleaned up between
+ * analyses, see {@link org.sonar.scanner.scan.WorkDirectoryCleaner}). Results are stored per file, along with the SCM
+ * revision and the hash of the content of the file when it was blamed: they are reused only if neither the revision
+ * nor the file changed since. Blame also depends on the history of the file, for example when a commit is amended,
+ * so the content hash alone is not enough.
+ * <p>
+ * Results which are neither reused nor stored by an analysis are deleted at the end of the analysis, see {@link #prune()},
+ * so that the cache only contains the files of the last analysis.
+ * </p>
+ */
+@ScannerSide
+public class BlameCache {
+
+  public static final String DIR_NAME = "scm-blame";
+
+  private static final Logger LOG = Loggers.get(BlameCache.class);
+
+  private final Path dir;
+  /**
+   * Names of the cache files reused or stored by the current analysis. Blame results may be stored concurrently.
+   */
+  private final Set<String> usedFileNames = ConcurrentHashMap.newKeySet();
+
+  public BlameCache(ProjectReactor projectReactor) {
+    this.dir = projectReactor.getRoot().getWorkDir().toPath().resolve(DIR_NAME);
+  }
+
+  /**
+   * @param revision the SCM revision currently checked out, see {@link org.sonar.api.batch.scm.ScmProvider#revisionId(java.io.File)}
+   * @return the changesets of the file, without component ref, or {@code null} if not in cache or if the revision
+   * or the file changed
+   */
+  @CheckForNull
+  public ScannerReport.Changesets get(DefaultInputFile file, String revision) {
+    Path cacheFile = cacheFile(file);
+    if (file.hash() == null || !Files.exists(cacheFile)) {
+      return null;
+    }
+    try (DataInputStream in = new DataInputStream(Files.newInputStream(cacheFile))) {
+      if (!revision.equals(in.readUTF()) || !file.hash().equals(in.readUTF())) {
+        return null;
+      }
+      ScannerReport.Changesets changesets = ScannerReport.Changesets.parseFrom((InputStream) in);
+      usedFileNames.add(cacheFile.getFileName().toString());
+      return changesets;
+    } catch (IOException | RuntimeException e) {
+      LOG.debug("Ignoring unreadable blame cache of " + file.relativePath(), e);
+      return null;
+    }
+  }
+
+  public void put(DefaultInputFile file, String revision, ScannerReport.Changesets changesets) {
+    if (file.hash() == null) {
+      return;
+    }
+    Path cacheFile = cacheFile(file);
+    try {
+      Files.createDirectories(dir);
+      try (OutputStream os = Files.newOutputStream(cacheFile); DataOutputStream out = new DataOutputStream(os)) {
+        out.writeUTF(revision);
+        out.writeUTF(file.hash());
+        changesets.toBuilder().clearComponentRef().build().writeTo(out);
+      }
+      usedFileNames.add(cacheFile.getFileName().toString());
+    } catch (IOException e) {
+      LOG.debug("Failed to write blame cache of " + file.relativePath(), e);
+    }
+  }
+
+  /**
+   * Deletes the results which have been neither reused nor stored by the current analysis: files which have been
+   * removed, or which were not blamed because the server already knows their blame. Nothing is deleted if the cache
+   * has not been used at all, for example when SCM sensor is disabled.
+   */
+  public void prune() {
+    if (usedFileNames.isEmpty() || !Files.isDirectory(dir)) {
+      return;
+    }
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, entry -> !usedFileNames.contains(entry.getFileName().toString()))) {
+      for (Path unused : stream) {
+        Files.deleteIfExists(unused);
+      }
+    } catch (IOException e) {
+      LOG.debug("Failed to clean blame cache " + dir, e);
+    }
+  }
+
+  private Path cacheFile(DefaultInputFile file) {
+    return dir.resolve(DigestUtils.md5Hex(file.absolutePath()));
+  }
+}
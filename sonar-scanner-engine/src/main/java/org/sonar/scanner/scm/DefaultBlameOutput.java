@@ -31,6 +31,7 @@ import java.util.regex.Pattern;
 import javax.annotation.Nullable;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.scm.BlameCommand.BlameOutput;
 import org.sonar.api.batch.scm.BlameLine;
 import org.sonar.api.utils.log.Logger;
@@ -51,14 +52,22 @@ class DefaultBlameOutput implements BlameOutput {
 
   private final ScannerReportWriter writer;
   private final BatchComponentCache componentCache;
+  private final BlameCache blameCache;
+  private final String revision;
   private final Set<InputFile> allFilesToBlame = new HashSet<>();
   private ProgressReport progressReport;
   private int count;
   private int total;
 
-  DefaultBlameOutput(ScannerReportWriter writer, BatchComponentCache componentCache, List<InputFile> filesToBlame) {
+  /**
+   * @param blameCache where results are stored, if not {@code null} and if the SCM revision is known
+   */
+  DefaultBlameOutput(ScannerReportWriter writer, BatchComponentCache componentCache, @Nullable BlameCache blameCache, @Nullable String revision,
+    List<InputFile> filesToBlame) {
     this.writer = writer;
     this.componentCache = componentCache;
+    this.blameCache = blameCache;
+    this.revision = revision;
     this.allFilesToBlame.addAll(filesToBlame);
     count = 0;
     total = filesToBlame.size();
@@ -94,7 +103,11 @@ class DefaultBlameOutput implements BlameOutput {
       scmBuilder.addChangesetIndexByLine(changesetId);
       lineId++;
     }
-    writer.writeComponentChangesets(scmBuilder.build());
+    ScannerReport.Changesets changesets = scmBuilder.build();
+    writer.writeComponentChangesets(changesets);
+    if (blameCache != null && revision != null) {
+      blameCache.put((DefaultInputFile) file, revision, changesets);
+    }
     allFilesToBlame.remove(file);
     count++;
     progressReport.message(count + "/" + total + " files analyzed");
@@ -134,7 +147,7 @@ class DefaultBlameOutput implements BlameOutput {
     return NON_ASCII_CHARS.matcher(inputString).replaceAll("_");
   }
 
-  public void finish(boolean success) {
+  public synchronized void finish(boolean success) {
     progressReport.stop(count + "/" + total + " files analyzed");
     if (success && !allFilesToBlame.isEmpty()) {
       LOG.warn("Missing blame information for the following files:");
@@ -27,6 +27,7 @@ import org.sonar.api.batch.bootstrap.ProjectDefinition;
 import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.InputFile.Status;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.sensor.Sensor;
 import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.batch.sensor.SensorDescriptor;
@@ -50,15 +51,18 @@ public final class ScmSensor implements Sensor {
   private final ProjectRepositories projectRepositories;
   private final BatchComponentCache componentCache;
   private final ReportPublisher publishReportJob;
+  private final BlameCache blameCache;
 
   public ScmSensor(ProjectDefinition projectDefinition, ScmConfiguration configuration,
-    ProjectRepositories projectRepositories, FileSystem fs, BatchComponentCache componentCache, ReportPublisher publishReportJob) {
+    ProjectRepositories projectRepositories, FileSystem fs, BatchComponentCache componentCache, ReportPublisher publishReportJob,
+    BlameCache blameCache) {
     this.projectDefinition = projectDefinition;
     this.configuration = configuration;
     this.projectRepositories = projectRepositories;
     this.fs = fs;
     this.componentCache = componentCache;
     this.publishReportJob = publishReportJob;
+    this.blameCache = blameCache;
   }
 
   @Override
@@ -78,10 +82,14 @@ public final class ScmSensor implements Sensor {
     }
 
     List<InputFile> filesToBlame = collectFilesToBlame();
+    String revision = filesToBlame.isEmpty() ? null : configuration.provider().revisionId(projectDefinition.getBaseDir());
+    if (revision != null && !configuration.forceReloadAll()) {
+      filesToBlame = copyBlameFromCache(filesToBlame, revision);
+    }
     if (!filesToBlame.isEmpty()) {
       String key = configuration.provider().key();
       LOG.info("SCM provider for this project is: " + key);
-      DefaultBlameOutput output = new DefaultBlameOutput(publishReportJob.getWriter(), componentCache, filesToBlame);
+      DefaultBlameOutput output = new DefaultBlameOutput(publishReportJob.getWriter(), componentCache, blameCache, revision, filesToBlame);
       try {
         configuration.provider().blameCommand().blame(new DefaultBlameInput(fs, filesToBlame), output);
       } catch (Exception e) {
@@ -113,6 +121,29 @@ public final class ScmSensor implements Sensor {
     return filesToBlame;
   }
 
+  /**
+   * Files which did not change since they were blamed by a previous analysis on this machine, at the same SCM revision,
+   * do not need to be blamed again.
+   *
+   * @return the files which are not in cache
+   */
+  private List<InputFile> copyBlameFromCache(List<InputFile> filesToBlame, String revision) {
+    List<InputFile> notInCache = new LinkedList<>();
+    for (InputFile f : filesToBlame) {
+      ScannerReport.Changesets cached = blameCache.get((DefaultInputFile) f, revision);
+      if (cached == null) {
+        notInCache.add(f);
+      } else {
+        BatchComponent batchComponent = componentCache.get(f);
+        publishReportJob.getWriter().writeComponentChangesets(cached.toBuilder().setComponentRef(batchComponent.batchId()).build());
+      }
+    }
+    if (notInCache.size() < filesToBlame.size()) {
+      LOG.info("Blame of {} files reused from previous analyses", filesToBlame.size() - notInCache.size());
+    }
+    return notInCache;
+  }
+
   private void askToCopyDataFromPreviousAnalysis(InputFile f) {
     BatchComponent batchComponent = componentCache.get(f);
     Builder scmBuilder = ScannerReport.Changesets.newBuilder();
@@ -67,6 +67,8 @@ import org.sonar.scanner.report.ScannerReportUtils;
 import org.sonar.scanner.repository.ContextPropertiesCache;
 import org.sonar.scanner.scan.measure.MeasureCache;
 import org.sonar.scanner.sensor.coverage.CoverageExclusions;
+import org.sonar.scanner.sensor.coverage.FileLineCoverage;
+import org.sonar.scanner.sensor.coverage.LineCoverageCache;
 
 public class DefaultSensorStorage implements SensorStorage {
 
@@ -95,6 +97,7 @@ public class DefaultSensorStorage implements SensorStorage {
   private final BatchComponentCache componentCache;
   private final ReportPublisher reportPublisher;
   private final MeasureCache measureCache;
+  private final LineCoverageCache lineCoverageCache;
   private final SonarCpdBlockIndex index;
   private final ContextPropertiesCache contextPropertiesCache;
   private final Settings settings;
@@ -102,7 +105,7 @@ public class DefaultSensorStorage implements SensorStorage {
   public DefaultSensorStorage(MetricFinder metricFinder, ModuleIssues moduleIssues,
     Settings settings,
     CoverageExclusions coverageExclusions, BatchComponentCache componentCache, ReportPublisher reportPublisher,
-    MeasureCache measureCache, SonarCpdBlockIndex index,
+    MeasureCache measureCache, LineCoverageCache lineCoverageCache, SonarCpdBlockIndex index,
     ContextPropertiesCache contextPropertiesCache) {
     this.metricFinder = metricFinder;
     this.moduleIssues = moduleIssues;
@@ -111,6 +114,7 @@ public class DefaultSensorStorage implements SensorStorage {
     this.componentCache = componentCache;
     this.reportPublisher = reportPublisher;
     this.measureCache = measureCache;
+    this.lineCoverageCache = lineCoverageCache;
     this.index = index;
     this.contextPropertiesCache = contextPropertiesCache;
   }
@@ -150,6 +154,9 @@ public class DefaultSensorStorage implements SensorStorage {
       LOG.debug("Metric " + metric.key() + " is an internal metric computed by SonarQube. Provided value is ignored.");
       return measure;
     }
+    if (LineCoverageCache.isLineMetric(metric.key()) && saveLineCoverage(resource, measure)) {
+      return measure;
+    }
     if (measureCache.contains(resource, measure)) {
       throw new SonarException("Can not add the same measure twice on " + resource + ": " + measure);
     }
@@ -157,6 +164,16 @@ public class DefaultSensorStorage implements SensorStorage {
     return measure;
   }
 
+  private boolean saveLineCoverage(Resource resource, org.sonar.api.measures.Measure measure) {
+    BatchComponent component = componentCache.get(resource);
+    if (component == null || !component.isFile()) {
+      return false;
+    }
+    InputFile inputFile = (InputFile) component.inputComponent();
+    lineCoverageCache.merge(resource.getEffectiveKey(), inputFile.lines(), measure.getMetricKey(), KeyValueFormat.parseIntInt(measure.getData()));
+    return true;
+  }
+
   private void setValueAccordingToMetricType(Measure<?> measure, org.sonar.api.measures.Metric<?> m, org.sonar.api.measures.Measure measureToSave) {
     switch (m.getType()) {
       case BOOL:
@@ -248,16 +265,17 @@ public class DefaultSensorStorage implements SensorStorage {
       return;
     }
     CoverageType type = defaultCoverage.type();
-    if (defaultCoverage.linesToCover() > 0) {
-      saveMeasure(file, new org.sonar.api.measures.Measure(type.linesToCover(), (double) defaultCoverage.linesToCover()));
-      saveMeasure(file, new org.sonar.api.measures.Measure(type.uncoveredLines(), (double) (defaultCoverage.linesToCover() - defaultCoverage.coveredLines())));
-      saveMeasure(file, new org.sonar.api.measures.Measure(type.lineHitsData()).setData(KeyValueFormat.format(defaultCoverage.hitsByLine())));
+    // several reports may provide coverage of the same file, so measures are computed on merged line data
+    FileLineCoverage coverage = lineCoverageCache.merge(file.getEffectiveKey(), defaultCoverage.inputFile().lines(), defaultCoverage);
+    int linesToCover = coverage.linesToCover(type);
+    if (linesToCover > 0) {
+      measureCache.put(file, new org.sonar.api.measures.Measure(type.linesToCover(), (double) linesToCover));
+      measureCache.put(file, new org.sonar.api.measures.Measure(type.uncoveredLines(), (double) (linesToCover - coverage.coveredLines(type))));
     }
-    if (defaultCoverage.conditions() > 0) {
-      saveMeasure(file, new org.sonar.api.measures.Measure(type.conditionsToCover(), (double) defaultCoverage.conditions()));
-      saveMeasure(file, new org.sonar.api.measures.Measure(type.uncoveredConditions(), (double) (defaultCoverage.conditions() - defaultCoverage.coveredConditions())));
-      saveMeasure(file, new org.sonar.api.measures.Measure(type.coveredConditionsByLine()).setData(KeyValueFormat.format(defaultCoverage.coveredConditionsByLine())));
-      saveMeasure(file, new org.sonar.api.measures.Measure(type.conditionsByLine()).setData(KeyValueFormat.format(defaultCoverage.conditionsByLine())));
+    int conditions = coverage.conditions(type);
+    if (conditions > 0) {
+      measureCache.put(file, new org.sonar.api.measures.Measure(type.conditionsToCover(), (double) conditions));
+      measureCache.put(file, new org.sonar.api.measures.Measure(type.uncoveredConditions(), (double) (conditions - coverage.coveredConditions(type))));
     }
   }
 
@@ -0,0 +1,197 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.sensor.coverage;
+
+import java.util.Arrays;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.batch.sensor.coverage.CoverageType;
+import org.sonar.api.utils.KeyValueFormat;
+
+/**
+ * Line coverage of a single file. Values are stored in primitive arrays indexed by line number, one array per
+ * {@link CoverageType} and {@link LineData}, allocated only when some data is provided.
+ */
+public class FileLineCoverage {
+
+  /**
+   * Value of lines for which no data has been provided
+   */
+  public static final int UNSET = -1;
+
+  public enum LineData {
+    HITS, CONDITIONS, COVERED_CONDITIONS
+  }
+
+  private static final int DATA_COUNT = LineData.values().length;
+
+  private final int lines;
+  private final int[][] values = new int[CoverageType.values().length * DATA_COUNT][];
+
+  FileLineCoverage(int lines) {
+    this.lines = lines;
+  }
+
+  public int lines() {
+    return lines;
+  }
+
+  public boolean hasData(CoverageType type) {
+    for (LineData data : LineData.values()) {
+      if (array(type, data) != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return number of hits of the line, or {@link #UNSET} if the line is not executable
+   */
+  public int hits(CoverageType type, int line) {
+    return get(type, LineData.HITS, line);
+  }
+
+  /**
+   * @return number of conditions of the line, or {@link #UNSET} if the line has no conditions
+   */
+  public int conditions(CoverageType type, int line) {
+    return get(type, LineData.CONDITIONS, line);
+  }
+
+  /**
+   * @return number of covered conditions of the line, or {@link #UNSET} if unknown
+   */
+  public int coveredConditions(CoverageType type, int line) {
+    return get(type, LineData.COVERED_CONDITIONS, line);
+  }
+
+  public int linesToCover(CoverageType type) {
+    return count(array(type, LineData.HITS), 0);
+  }
+
+  public int coveredLines(CoverageType type) {
+    return count(array(type, LineData.HITS), 1);
+  }
+
+  public int conditions(CoverageType type) {
+    return sum(array(type, LineData.CONDITIONS));
+  }
+
+  public int coveredConditions(CoverageType type) {
+    return sum(array(type, LineData.COVERED_CONDITIONS));
+  }
+
+  /**
+   * Merges values of a new report. Hits are added, whereas the highest number of conditions and of covered conditions
+   * is kept, as there is no way to know which conditions are covered by each report. Lines out of the file are ignored.
+   */
+  void merge(CoverageType type, LineData data, Map<Integer, Integer> valuesByLine) {
+    if (valuesByLine.isEmpty()) {
+      return;
+    }
+    int index = index(type, data);
+    int[] array = values[index];
+    if (array == null) {
+      array = new int[lines + 1];
+      Arrays.fill(array, UNSET);
+      values[index] = array;
+    }
+    for (Map.Entry<Integer, Integer> entry : valuesByLine.entrySet()) {
+      int line = entry.getKey();
+      if (line > 0 && line <= lines) {
+        array[line] = merge(data, array[line], entry.getValue());
+      }
+    }
+  }
+
+  private static int merge(LineData data, int previous, int value) {
+    if (previous == UNSET) {
+      return value;
+    }
+    if (data == LineData.HITS) {
+      return previous + value;
+    }
+    return Math.max(previous, value);
+  }
+
+  /**
+   * Formats values the way they used to be stored in measures, for example "2=1;3=0;5=4".
+   */
+  @CheckForNull
+  String format(CoverageType type, LineData data) {
+    int[] array = array(type, data);
+    if (array == null) {
+      return null;
+    }
+    StringBuilder sb = new StringBuilder();
+    for (int line = 1; line < array.length; line++) {
+      if (array[line] != UNSET) {
+        if (sb.length() > 0) {
+          sb.append(KeyValueFormat.PAIR_SEPARATOR);
+        }
+        sb.append(line).append(KeyValueFormat.FIELD_SEPARATOR).append(array[line]);
+      }
+    }
+    return sb.toString();
+  }
+
+  private int get(CoverageType type, LineData data, int line) {
+    int[] array = array(type, data);
+    if (array == null || line <= 0 || line >= array.length) {
+      return UNSET;
+    }
+    return array[line];
+  }
+
+  @CheckForNull
+  private int[] array(CoverageType type, LineData data) {
+    return values[index(type, data)];
+  }
+
+  private static int index(CoverageType type, LineData data) {
+    return type.ordinal() * DATA_COUNT + data.ordinal();
+  }
+
+  private static int count(@Nullable int[] array, int minValue) {
+    int count = 0;
+    if (array != null) {
+      for (int value : array) {
+        if (value != UNSET && value >= minValue) {
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  private static int sum(@Nullable int[] array) {
+    int sum = 0;
+    if (array != null) {
+      for (int value : array) {
+        if (value != UNSET) {
+          sum += value;
+        }
+      }
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.sensor.coverage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import org.sonar.api.batch.ScannerSide;
+import org.sonar.api.batch.sensor.coverage.CoverageType;
+import org.sonar.api.batch.sensor.coverage.internal.DefaultCoverage;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.Metric;
+import org.sonar.scanner.sensor.coverage.FileLineCoverage.LineData;
+
+/**
+ * Cache of line coverage, shared amongst all project modules. Line data used to be stored as
+ * measures formatted with {@link org.sonar.api.utils.KeyValueFormat}, which is very costly when
+ * importing coverage of many files. Such measures are now only built on demand by {@link #measure(String, String)}.
+ */
+@ScannerSide
+public class LineCoverageCache {
+
+  private static final Map<String, LineMetric> LINE_METRICS_BY_KEY = new HashMap<>();
+
+  static {
+    for (CoverageType type : CoverageType.values()) {
+      LINE_METRICS_BY_KEY.put(type.lineHitsData().getKey(), new LineMetric(type, LineData.HITS, type.lineHitsData()));
+      LINE_METRICS_BY_KEY.put(type.conditionsByLine().getKey(), new LineMetric(type, LineData.CONDITIONS, type.conditionsByLine()));
+      LINE_METRICS_BY_KEY.put(type.coveredConditionsByLine().getKey(), new LineMetric(type, LineData.COVERED_CONDITIONS, type.coveredConditionsByLine()));
+    }
+  }
+
+  private final Map<String, FileLineCoverage> coverageByFileKey = new HashMap<>();
+
+  /**
+   * Merges the coverage saved by a sensor with the data already known for the file.
+   */
+  public FileLineCoverage merge(String fileKey, int lines, DefaultCoverage coverage) {
+    FileLineCoverage fileCoverage = getOrCreate(fileKey, lines);
+    fileCoverage.merge(coverage.type(), LineData.HITS, coverage.hitsByLine());
+    fileCoverage.merge(coverage.type(), LineData.CONDITIONS, coverage.conditionsByLine());
+    fileCoverage.merge(coverage.type(), LineData.COVERED_CONDITIONS, coverage.coveredConditionsByLine());
+    return fileCoverage;
+  }
+
+  /**
+   * Merges line data of a measure saved through the deprecated API.
+   * @throws IllegalArgumentException if the metric is not a line coverage metric
+   * @see #isLineMetric(String)
+   */
+  public void merge(String fileKey, int lines, String metricKey, Map<Integer, Integer> valuesByLine) {
+    LineMetric lineMetric = LINE_METRICS_BY_KEY.get(metricKey);
+    if (lineMetric == null) {
+      throw new IllegalArgumentException("Not a line coverage metric: " + metricKey);
+    }
+    getOrCreate(fileKey, lines).merge(lineMetric.type, lineMetric.data, valuesByLine);
+  }
+
+  /**
+   * Keys of the files which have line coverage
+   */
+  public Iterable<String> fileKeys() {
+    return coverageByFileKey.keySet();
+  }
+
+  @CheckForNull
+  public FileLineCoverage get(String fileKey) {
+    return coverageByFileKey.get(fileKey);
+  }
+
+  public static boolean isLineMetric(String metricKey) {
+    return LINE_METRICS_BY_KEY.containsKey(metricKey);
+  }
+
+  /**
+   * Line data of a file formatted as an old-fashioned measure, for consumers still reading measures.
+   */
+  @CheckForNull
+  public Measure measure(String fileKey, String metricKey) {
+    LineMetric lineMetric = LINE_METRICS_BY_KEY.get(metricKey);
+    FileLineCoverage fileCoverage = coverageByFileKey.get(fileKey);
+    if (lineMetric == null || fileCoverage == null) {
+      return null;
+    }
+    String data = fileCoverage.format(lineMetric.type, lineMetric.data);
+    return data == null ? null : new Measure(lineMetric.metric).setData(data);
+  }
+
+  public List<Measure> measures(String fileKey) {
+    if (!coverageByFileKey.containsKey(fileKey)) {
+      return Collections.emptyList();
+    }
+    List<Measure> measures = new ArrayList<>();
+    for (String metricKey : LINE_METRICS_BY_KEY.keySet()) {
+      Measure measure = measure(fileKey, metricKey);
+      if (measure != null) {
+        measures.add(measure);
+      }
+    }
+    return measures;
+  }
+
+  private FileLineCoverage getOrCreate(String fileKey, int lines) {
+    FileLineCoverage fileCoverage = coverageByFileKey.get(fileKey);
+    if (fileCoverage == null) {
+      fileCoverage = new FileLineCoverage(lines);
+      coverageByFileKey.put(fileKey, fileCoverage);
+    }
+    return fileCoverage;
+  }
+
+  private static class LineMetric {
+    private final CoverageType type;
+    private final LineData data;
+    private final Metric metric;
+
+    LineMetric(CoverageType type, LineData data, Metric metric) {
+      this.type = type;
+      this.data = data;
+      this.metric = metric;
+    }
+  }
+}
@@ -49,6 +49,11 @@ public class CodeColorizers {
   private static final Logger LOG = LoggerFactory.getLogger(CodeColorizers.class);
 
   private final Map<String, CodeColorizerFormat> byLang;
+  /**
+   * Tokenizers are built once per language, as they usually compile regular expressions. The ones which are not
+   * thread-safe are cloned by {@link org.sonar.colorizer.TokenizerDispatcher} before each use.
+   */
+  private final Map<String, List<Tokenizer>> tokenizersByLang = new HashMap<>();
 
   public CodeColorizers(List<CodeColorizerFormat> formats) {
     byLang = new HashMap<>();
@@ -68,24 +73,33 @@ public class CodeColorizers {
 
   @CheckForNull
   public void toSyntaxHighlighting(File file, Charset charset, String language, NewHighlighting highlighting) {
+    List<Tokenizer> tokenizers = tokenizers(language);
+    if (tokenizers == null) {
+      return;
+    }
+    try (Reader reader = new BufferedReader(new InputStreamReader(new BOMInputStream(new FileInputStream(file)), charset))) {
+      new HighlightingRenderer().render(reader, tokenizers, highlighting);
+    } catch (Exception e) {
+      LOG.warn("Unable to perform colorization of file " + file, e);
+    }
+  }
+
+  @CheckForNull
+  private synchronized List<Tokenizer> tokenizers(String language) {
+    if (tokenizersByLang.containsKey(language)) {
+      return tokenizersByLang.get(language);
+    }
     CodeColorizerFormat format = byLang.get(language);
     List<Tokenizer> tokenizers;
     if (format == null) {
       // Workaround for Java test code since Java plugin only provides highlighting for main source and no colorizer
       // TODO can be dropped when Java plugin embed its own CodeColorizerFormat of (better) provides highlighting for tests
       // See SONARJAVA-830
-      if ("java".equals(language)) {
-        tokenizers = JavaTokenizers.forHtml();
-      } else {
-        return;
-      }
+      tokenizers = "java".equals(language) ? JavaTokenizers.forHtml() : null;
     } else {
       tokenizers = format.getTokenizers();
     }
-    try (Reader reader = new BufferedReader(new InputStreamReader(new BOMInputStream(new FileInputStream(file)), charset))) {
-      new HighlightingRenderer().render(reader, tokenizers, highlighting);
-    } catch (Exception e) {
-      LOG.warn("Unable to perform colorization of file " + file, e);
-    }
+    tokenizersByLang.put(language, tokenizers);
+    return tokenizers;
   }
 }
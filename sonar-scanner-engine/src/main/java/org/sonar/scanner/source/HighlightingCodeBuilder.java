@@ -25,16 +25,15 @@ import org.sonar.api.batch.sensor.highlighting.NewHighlighting;
 import org.sonar.api.batch.sensor.highlighting.TypeOfText;
 import org.sonar.colorizer.HtmlCodeBuilder;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 public class HighlightingCodeBuilder extends HtmlCodeBuilder {
 
   private static final Logger LOG = LoggerFactory.getLogger(HighlightingCodeBuilder.class);
 
+  private static final String START_TAG_PREFIX = "<span class=\"";
+  private static final String START_TAG_SUFFIX = "\">";
+  private static final String END_TAG = "</span>";
+
   private int currentOffset = 0;
-  private static final Pattern START_TAG_PATTERN = Pattern.compile("<span class=\"(.+)\">");
-  private static final Pattern END_TAG_PATTERN = Pattern.compile("</span>");
   private int startOffset = -1;
   private String cssClass;
   private final NewHighlighting highlighting;
@@ -45,9 +44,13 @@ public class HighlightingCodeBuilder extends HtmlCodeBuilder {
 
   @Override
   public Appendable append(CharSequence csq) {
-    for (int i = 0; i < csq.length(); i++) {
-      append(csq.charAt(i));
-    }
+    currentOffset += csq.length();
+    return this;
+  }
+
+  @Override
+  public Appendable append(CharSequence csq, int start, int end) {
+    currentOffset += end - start;
     return this;
   }
 
@@ -60,16 +63,14 @@ public class HighlightingCodeBuilder extends HtmlCodeBuilder {
   @Override
   public void appendWithoutTransforming(String htmlTag) {
     if (startOffset == -1) {
-      Matcher startMatcher = START_TAG_PATTERN.matcher(htmlTag);
-      if (startMatcher.matches()) {
+      if (isStartTag(htmlTag)) {
         startOffset = currentOffset;
-        cssClass = startMatcher.group(1);
+        cssClass = htmlTag.substring(START_TAG_PREFIX.length(), htmlTag.length() - START_TAG_SUFFIX.length());
       } else {
         LOG.warn("Expected to match highlighting start html tag but was: " + htmlTag);
       }
     } else {
-      Matcher endMatcher = END_TAG_PATTERN.matcher(htmlTag);
-      if (endMatcher.matches()) {
+      if (END_TAG.equals(htmlTag)) {
         highlighting.highlight(startOffset, currentOffset, TypeOfText.forCssClass(cssClass));
         startOffset = -1;
       } else {
@@ -78,6 +79,12 @@ public class HighlightingCodeBuilder extends HtmlCodeBuilder {
     }
   }
 
+  private static boolean isStartTag(String htmlTag) {
+    return htmlTag.length() > START_TAG_PREFIX.length() + START_TAG_SUFFIX.length()
+      && htmlTag.startsWith(START_TAG_PREFIX)
+      && htmlTag.endsWith(START_TAG_SUFFIX);
+  }
+
   @Override
   public String toString() {
     throw new UnsupportedOperationException();
@@ -38,6 +38,7 @@ import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.Measure;
 import org.sonar.api.utils.KeyValueFormat;
 import org.sonar.scanner.scan.measure.MeasureCache;
+import org.sonar.scanner.sensor.coverage.LineCoverageCache;
 
 import static com.google.common.collect.Iterables.concat;
 import static com.google.common.collect.Iterables.transform;
@@ -61,9 +62,11 @@ public final class ZeroCoverageSensor implements Sensor {
   }
 
   private final MeasureCache measureCache;
+  private final LineCoverageCache lineCoverageCache;
 
-  public ZeroCoverageSensor(MeasureCache measureCache) {
+  public ZeroCoverageSensor(MeasureCache measureCache, LineCoverageCache lineCoverageCache) {
     this.measureCache = measureCache;
+    this.lineCoverageCache = lineCoverageCache;
   }
 
   @Override
@@ -101,6 +104,9 @@ public final class ZeroCoverageSensor implements Sensor {
   }
 
   private boolean isCoverageMeasuresAlreadyDefined(InputFile f) {
+    if (lineCoverageCache.get(f.key()) != null) {
+      return true;
+    }
     Set<String> metricKeys = newHashSet(transform(measureCache.byComponentKey(f.key()), new MeasureToMetricKey()));
     Function<Metric, String> metricToKey = new MetricToKey();
     Set<String> allCoverageMetricKeys = newHashSet(concat(transform(CoverageType.UNIT.allMetrics(), metricToKey),
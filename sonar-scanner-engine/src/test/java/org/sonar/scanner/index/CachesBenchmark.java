@@ -0,0 +1,95 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.index;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Map;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.CoreProperties;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.scanner.bootstrap.GlobalProperties;
+import org.sonar.scanner.bootstrap.GlobalTempFolderProvider;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares throughput of cache engines on 1M entries. Not a unit test: the name of the class does not match
+ * the test classes executed by the build, so it must be run explicitly:
+ * <pre>mvn test -Dtest=CachesBenchmark</pre>
+ */
+public class CachesBenchmark {
+
+  private static final Logger LOG = Loggers.get(CachesBenchmark.class);
+  private static final int ENTRIES = 1_000_000;
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void persistit() throws Exception {
+    benchmark(CachesManager.Engine.PERSISTIT);
+  }
+
+  @Test
+  public void mapped() throws Exception {
+    benchmark(CachesManager.Engine.MAPPED);
+  }
+
+  private void benchmark(CachesManager.Engine engine) throws Exception {
+    Map<String, String> props = ImmutableMap.of(CoreProperties.WORKING_DIRECTORY, temp.getRoot().getAbsolutePath(),
+      CoreProperties.GLOBAL_WORKING_DIRECTORY, temp.getRoot().getAbsolutePath(),
+      CachesManager.ENGINE_PROPERTY, engine.name());
+    GlobalProperties globalProperties = new GlobalProperties(props);
+    CachesManager manager = new CachesManager(new GlobalTempFolderProvider().provide(globalProperties), globalProperties);
+    Caches caches = new Caches(manager);
+    try {
+      Cache<String> cache = caches.createCache("benchmark");
+
+      long start = System.currentTimeMillis();
+      for (int i = 0; i < ENTRIES; i++) {
+        cache.put("component" + (i % 1000), i, "value of entry " + i);
+      }
+      long put = System.currentTimeMillis() - start;
+
+      start = System.currentTimeMillis();
+      for (int i = 0; i < ENTRIES; i++) {
+        cache.get("component" + (i % 1000), i);
+      }
+      long get = System.currentTimeMillis() - start;
+
+      start = System.currentTimeMillis();
+      int count = 0;
+      for (String value : cache.values()) {
+        count++;
+      }
+      long iterate = System.currentTimeMillis() - start;
+
+      assertThat(count).isEqualTo(ENTRIES);
+      LOG.info("{}: {} puts/s, {} gets/s, {} iterated values/s", engine, ENTRIES * 1000L / Math.max(put, 1),
+        ENTRIES * 1000L / Math.max(get, 1), ENTRIES * 1000L / Math.max(iterate, 1));
+    } finally {
+      caches.stop();
+      manager.stop();
+    }
+  }
+}
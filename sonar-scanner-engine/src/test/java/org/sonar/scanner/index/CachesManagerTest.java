@@ -19,11 +19,15 @@
  */
 package org.sonar.scanner.index;
 
+import com.google.common.collect.ImmutableMap;
 import org.junit.Test;
+import org.sonar.api.utils.TempFolder;
+import org.sonar.scanner.bootstrap.GlobalProperties;
 
 import java.io.File;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
 
 public class CachesManagerTest extends AbstractCachesTest {
   @Test
@@ -39,4 +43,9 @@ public class CachesManagerTest extends AbstractCachesTest {
     assertThat(cachesManager.tempDir()).isNull();
     assertThat(cachesManager.persistit()).isNull();
   }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void fail_if_cache_engine_is_unknown() {
+    new CachesManager(mock(TempFolder.class), new GlobalProperties(ImmutableMap.of(CachesManager.ENGINE_PROPERTY, "unknown")));
+  }
 }
@@ -0,0 +1,101 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.index;
+
+import com.google.common.collect.ImmutableMap;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Map;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.sonar.api.CoreProperties;
+import org.sonar.scanner.bootstrap.GlobalProperties;
+import org.sonar.scanner.bootstrap.GlobalTempFolderProvider;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the tests of {@link CacheTest} on caches stored in memory-mapped files.
+ */
+public class MappedCacheTest extends CacheTest {
+
+  private static CachesManager mappedCachesManager;
+
+  @BeforeClass
+  public static void startMappedManager() {
+    Map<String, String> props = ImmutableMap.of(CoreProperties.WORKING_DIRECTORY, temp.getRoot().getAbsolutePath(),
+      CoreProperties.GLOBAL_WORKING_DIRECTORY, temp.getRoot().getAbsolutePath(),
+      CachesManager.ENGINE_PROPERTY, "mapped");
+    GlobalProperties globalProperties = new GlobalProperties(props);
+    mappedCachesManager = new CachesManager(new GlobalTempFolderProvider().provide(globalProperties), globalProperties);
+  }
+
+  @AfterClass
+  public static void stopMappedManager() {
+    mappedCachesManager.stop();
+  }
+
+  @Override
+  @Before
+  public void start() {
+    caches = new Caches(mappedCachesManager);
+    caches.start();
+  }
+
+  @Test
+  public void manager_does_not_start_persistit() {
+    assertThat(mappedCachesManager.engine()).isEqualTo(CachesManager.Engine.MAPPED);
+    assertThat(mappedCachesManager.persistit()).isNull();
+  }
+
+  @Test
+  public void values_are_encoded_with_registered_codec() {
+    caches.registerValueCodec(StringBuilder.class, new ValueCodec<StringBuilder>() {
+      @Override
+      public void write(DataOutput output, StringBuilder value) throws IOException {
+        output.writeUTF(value.toString());
+      }
+
+      @Override
+      public StringBuilder read(DataInput input) throws IOException {
+        return new StringBuilder("decoded ").append(input.readUTF());
+      }
+    });
+    Cache<StringBuilder> cache = caches.createCache("builders");
+    cache.put("foo", new StringBuilder("bar"));
+
+    assertThat(cache.get("foo").toString()).isEqualTo("decoded bar");
+  }
+
+  @Test
+  public void keys_of_different_types_are_ordered_by_type_then_value() {
+    Cache<String> cache = caches.createCache("mixed");
+    cache.put("b", "string b");
+    cache.put(10, "int 10");
+    cache.put("a", "string a");
+    cache.put(2L, "long 2");
+
+    assertThat(cache.keySet()).containsExactly(2L, 10, "a", "b");
+    assertThat(cache.values()).containsExactly("long 2", "int 10", "string a", "string b");
+  }
+}
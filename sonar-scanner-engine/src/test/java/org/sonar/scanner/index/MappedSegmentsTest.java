@@ -0,0 +1,117 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.index;
+
+import java.io.File;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MappedSegmentsTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File dir;
+  private MappedSegments segments;
+
+  @Before
+  public void setUp() throws Exception {
+    dir = temp.newFolder();
+    segments = new MappedSegments(dir, 64);
+  }
+
+  @After
+  public void tearDown() {
+    segments.close();
+  }
+
+  @Test
+  public void read_appended_records() {
+    long first = segments.append(bytes("foo"), 0, 3);
+    long second = segments.append(bytes("barbaz"), 0, 6);
+
+    assertThat(segments.read(first)).isEqualTo(bytes("foo"));
+    assertThat(segments.read(second)).isEqualTo(bytes("barbaz"));
+  }
+
+  @Test
+  public void replace_in_place_when_new_record_fits() {
+    long address = segments.append(bytes("barbaz"), 0, 6);
+
+    assertThat(segments.replace(address, bytes("foo"), 0, 3)).isEqualTo(address);
+    assertThat(segments.read(address)).isEqualTo(bytes("foo"));
+    // capacity is kept, so the record can grow back
+    assertThat(segments.replace(address, bytes("quxqux"), 0, 6)).isEqualTo(address);
+    assertThat(segments.read(address)).isEqualTo(bytes("quxqux"));
+  }
+
+  @Test
+  public void replace_moves_record_which_does_not_fit() {
+    long address = segments.append(bytes("foo"), 0, 3);
+
+    long moved = segments.replace(address, bytes("barbaz"), 0, 6);
+
+    assertThat(moved).isNotEqualTo(address);
+    assertThat(segments.read(moved)).isEqualTo(bytes("barbaz"));
+    assertThat(segments.freeBytes()).isEqualTo(3);
+  }
+
+  @Test
+  public void reuse_space_of_freed_records() {
+    long address = segments.append(bytes("barbaz"), 0, 6);
+    segments.free(address);
+    assertThat(segments.freeBytes()).isEqualTo(6);
+
+    long reused = segments.append(bytes("foo"), 0, 3);
+
+    assertThat(reused).isEqualTo(address);
+    assertThat(segments.read(reused)).isEqualTo(bytes("foo"));
+    assertThat(segments.freeBytes()).isEqualTo(0);
+  }
+
+  @Test
+  public void do_not_reuse_freed_records_much_larger_than_needed() {
+    long address = segments.append(bytes("foobarbaz"), 0, 9);
+    segments.free(address);
+
+    assertThat(segments.append(bytes("a"), 0, 1)).isNotEqualTo(address);
+    assertThat(segments.freeBytes()).isEqualTo(9);
+  }
+
+  @Test
+  public void records_larger_than_segment_get_their_own_segment() {
+    byte[] large = new byte[100];
+    large[99] = 42;
+
+    long address = segments.append(large, 0, large.length);
+
+    assertThat(segments.read(address)).isEqualTo(large);
+    assertThat(dir.list()).hasSize(1);
+  }
+
+  private static byte[] bytes(String s) {
+    return s.getBytes();
+  }
+}
@@ -325,6 +325,39 @@ public class ScmMediumTest {
     assertThat(file1Scm).isNotNull();
   }
 
+  @Test
+  public void reuse_blame_of_previous_analysis_at_same_revision() throws IOException {
+    File baseDir = prepareProject();
+    FileUtils.write(new File(baseDir, ".xoo"), "rev1");
+    TaskBuilder task = tester.newTask()
+      .properties(ImmutableMap.<String, String>builder()
+        .put("sonar.task", "scan")
+        .put("sonar.projectBaseDir", baseDir.getAbsolutePath())
+        .put("sonar.projectKey", "com.foo.project")
+        .put("sonar.projectName", "Foo Project")
+        .put("sonar.projectVersion", "1.0-SNAPSHOT")
+        .put("sonar.projectDescription", "Description of Foo Project")
+        .put("sonar.sources", "src")
+        .build());
+    task.start();
+    assertThat(getChangesets(baseDir, "src/sample.xoo").getChangesetIndexByLineList()).hasSize(5);
+
+    // blame of sample.xoo would now fail, so changesets of second analysis can only come from the cache
+    new File(baseDir, "src/sample.xoo.scm").delete();
+    task.start();
+
+    ScannerReport.Changesets changesets = getChangesets(baseDir, "src/sample.xoo");
+    assertThat(changesets.getChangesetIndexByLineList()).hasSize(5);
+    assertThat(changesets.getChangeset(changesets.getChangesetIndexByLine(4)).getAuthor()).isEqualTo("simon");
+    assertThat(logTester.logs()).contains("Blame of 1 files reused from previous analyses");
+
+    // a new revision invalidates the cache
+    FileUtils.write(new File(baseDir, ".xoo"), "rev2");
+    task.start();
+
+    assertThat(getChangesets(baseDir, "src/sample.xoo")).isNull();
+  }
+
   private File prepareProject() throws IOException {
     File baseDir = temp.getRoot();
     File srcDir = new File(baseDir, "src");
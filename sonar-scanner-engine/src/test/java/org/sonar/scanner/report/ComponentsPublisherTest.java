@@ -27,6 +27,7 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.sonar.api.CoreProperties;
 import org.sonar.api.batch.bootstrap.ProjectDefinition;
+import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputDir;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
@@ -44,6 +45,9 @@ import org.sonar.scanner.protocol.output.ScannerReportReader;
 import org.sonar.scanner.protocol.output.ScannerReportWriter;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class ComponentsPublisherTest {
 
@@ -51,6 +55,7 @@ public class ComponentsPublisherTest {
   public TemporaryFolder temp = new TemporaryFolder();
 
   BatchComponentCache resourceCache = new BatchComponentCache();
+  UnchangedSources unchangedSources = mock(UnchangedSources.class);
 
   @Test
   public void add_components_to_report() throws Exception {
@@ -90,7 +95,7 @@ public class ComponentsPublisherTest {
 
     ImmutableProjectReactor reactor = new ImmutableProjectReactor(rootDef);
 
-    ComponentsPublisher publisher = new ComponentsPublisher(reactor, resourceCache);
+    ComponentsPublisher publisher = new ComponentsPublisher(reactor, resourceCache, unchangedSources);
 
     File outputDir = temp.newFolder();
     ScannerReportWriter writer = new ScannerReportWriter(outputDir);
@@ -155,7 +160,7 @@ public class ComponentsPublisherTest {
 
     ImmutableProjectReactor reactor = new ImmutableProjectReactor(rootDef);
 
-    ComponentsPublisher publisher = new ComponentsPublisher(reactor, resourceCache);
+    ComponentsPublisher publisher = new ComponentsPublisher(reactor, resourceCache, unchangedSources);
 
     File outputDir = temp.newFolder();
     ScannerReportWriter writer = new ScannerReportWriter(outputDir);
@@ -218,7 +223,7 @@ public class ComponentsPublisherTest {
 
     ImmutableProjectReactor reactor = new ImmutableProjectReactor(rootDef);
 
-    ComponentsPublisher publisher = new ComponentsPublisher(reactor, resourceCache);
+    ComponentsPublisher publisher = new ComponentsPublisher(reactor, resourceCache, unchangedSources);
 
     File outputDir = temp.newFolder();
     ScannerReportWriter writer = new ScannerReportWriter(outputDir);
@@ -237,4 +242,31 @@ public class ComponentsPublisherTest {
     assertThat(module1Protobuf.getLink(0).getType()).isEqualTo(ComponentLinkType.CI);
     assertThat(module1Protobuf.getLink(0).getHref()).isEqualTo("http://ci");
   }
+
+  @Test
+  public void reference_source_of_unchanged_files_by_hash() throws Exception {
+    ProjectDefinition rootDef = ProjectDefinition.create().setKey("foo");
+    Project root = new Project("foo").setAnalysisDate(DateUtils.parseDate(("2012-12-12")));
+    root.setId(1).setUuid("PROJECT_UUID");
+    resourceCache.add(root, null).setInputComponent(new DefaultInputModule("foo"));
+
+    DefaultInputFile unchangedInputFile = new DefaultInputFile("foo", "src/Foo.java").setLines(2).setHash("FOO_HASH").setStatus(InputFile.Status.SAME);
+    org.sonar.api.resources.File unchangedFile = org.sonar.api.resources.File.create("src/Foo.java", FakeJava.INSTANCE, false);
+    unchangedFile.setEffectiveKey("foo:src/Foo.java");
+    resourceCache.add(unchangedFile, root).setInputComponent(unchangedInputFile);
+
+    DefaultInputFile changedInputFile = new DefaultInputFile("foo", "src/Bar.java").setLines(2).setHash("BAR_HASH").setStatus(InputFile.Status.CHANGED);
+    org.sonar.api.resources.File changedFile = org.sonar.api.resources.File.create("src/Bar.java", FakeJava.INSTANCE, false);
+    changedFile.setEffectiveKey("foo:src/Bar.java");
+    resourceCache.add(changedFile, root).setInputComponent(changedInputFile);
+
+    when(unchangedSources.isSkipped(any(InputFile.class))).thenAnswer(invocation -> invocation.getArguments()[0] == unchangedInputFile);
+
+    File outputDir = temp.newFolder();
+    new ComponentsPublisher(new ImmutableProjectReactor(rootDef), resourceCache, unchangedSources).publish(new ScannerReportWriter(outputDir));
+
+    ScannerReportReader reader = new ScannerReportReader(outputDir);
+    assertThat(reader.readComponent(2).getUnchangedSourceHash()).isEqualTo("FOO_HASH");
+    assertThat(reader.readComponent(3).getUnchangedSourceHash()).isEmpty();
+  }
 }
@@ -23,6 +23,7 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.zip.ZipFile;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -47,6 +48,7 @@ import org.sonar.scanner.scan.ImmutableProjectReactor;
 
 import static org.apache.commons.io.FileUtils.readFileToString;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -163,4 +165,44 @@ public class ReportPublisherTest {
     assertThat(reportDir).doesNotExist();
   }
 
+  @Test
+  public void zip_published_files() throws IOException {
+    settings.setProperty(ReportPublisher.COMPRESSION_LEVEL_PROP_KEY, 1);
+    ZipFile zip = generateReport();
+
+    assertThat(zip.getEntry("source-1.txt")).isNotNull();
+    assertThat(zip.getEntry("source-2.txt")).isNotNull();
+    zip.close();
+  }
+
+  @Test
+  public void fail_if_compression_level_is_invalid() throws IOException {
+    settings.setProperty(ReportPublisher.COMPRESSION_LEVEL_PROP_KEY, 10);
+
+    exception.expect(MessageException.class);
+    exception.expectMessage("Property sonar.batch.reportCompressionLevel must be between 0 and 9: 10");
+
+    generateReport();
+  }
+
+  private ZipFile generateReport() throws IOException {
+    when(mode.isMediumTest()).thenReturn(true);
+    TempFolder tempFolder = mock(TempFolder.class);
+    File reportZip = temp.newFile("batch-report.zip");
+    when(tempFolder.newFile(anyString(), anyString())).thenReturn(reportZip);
+    ReportPublisherStep publisher = writer -> {
+      for (int ref = 1; ref <= 2; ref++) {
+        try {
+          Files.write(writer.getSourceFile(ref).toPath(), "public class Foo {}".getBytes());
+        } catch (IOException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    };
+    ReportPublisher underTest = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, tempFolder, new ReportPublisherStep[] {publisher});
+
+    underTest.start();
+    underTest.execute();
+    return new ZipFile(reportZip);
+  }
 }
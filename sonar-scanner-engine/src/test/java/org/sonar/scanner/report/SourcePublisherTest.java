@@ -28,6 +28,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.resources.Project;
@@ -37,6 +38,9 @@ import org.sonar.scanner.protocol.output.ScannerReportWriter;
 import org.sonar.scanner.report.SourcePublisher;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class SourcePublisherTest {
 
@@ -51,6 +55,8 @@ public class SourcePublisherTest {
 
   private org.sonar.api.resources.File sampleFile;
 
+  private UnchangedSources unchangedSources = mock(UnchangedSources.class);
+
   @Before
   public void prepare() throws IOException {
     Project p = new Project("foo").setAnalysisDate(new Date(1234567L));
@@ -62,7 +68,7 @@ public class SourcePublisherTest {
     sourceFile = new File(baseDir, "src/Foo.php");
     resourceCache.add(sampleFile, null).setInputComponent(
       new DefaultInputFile("foo", "src/Foo.php").setLines(5).setModuleBaseDir(baseDir.toPath()).setCharset(StandardCharsets.ISO_8859_1));
-    publisher = new SourcePublisher(resourceCache);
+    publisher = new SourcePublisher(resourceCache, unchangedSources);
     File outputDir = temp.newFolder();
     writer = new ScannerReportWriter(outputDir);
   }
@@ -117,4 +123,14 @@ public class SourcePublisherTest {
     File out = writer.getSourceFile(2);
     assertThat(FileUtils.readFileToString(out, StandardCharsets.UTF_8)).isEqualTo("\n2\n3\n4\n5");
   }
+
+  @Test
+  public void do_not_publish_unchanged_source() throws Exception {
+    FileUtils.write(sourceFile, "1\n2\n3\n4\n5", StandardCharsets.ISO_8859_1);
+    when(unchangedSources.isSkipped(any(InputFile.class))).thenReturn(true);
+
+    publisher.publish(writer);
+
+    assertThat(writer.getSourceFile(2)).doesNotExist();
+  }
 }
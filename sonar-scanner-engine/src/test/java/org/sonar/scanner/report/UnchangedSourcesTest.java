@@ -0,0 +1,64 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.report;
+
+import org.junit.Test;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.config.Settings;
+import org.sonar.scanner.analysis.DefaultAnalysisMode;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class UnchangedSourcesTest {
+
+  private Settings settings = new Settings();
+  private DefaultAnalysisMode analysisMode = mock(DefaultAnalysisMode.class);
+  private DefaultInputFile sameFile = new DefaultInputFile("foo", "src/Same.java").setStatus(InputFile.Status.SAME);
+  private DefaultInputFile changedFile = new DefaultInputFile("foo", "src/Changed.java").setStatus(InputFile.Status.CHANGED);
+
+  @Test
+  public void skip_unchanged_files_when_enabled() {
+    settings.setProperty(UnchangedSources.SKIP_UNCHANGED_SOURCES_KEY, true);
+    when(analysisMode.isPublish()).thenReturn(true);
+
+    UnchangedSources underTest = new UnchangedSources(settings, analysisMode);
+
+    assertThat(underTest.isSkipped(sameFile)).isTrue();
+    assertThat(underTest.isSkipped(changedFile)).isFalse();
+  }
+
+  @Test
+  public void do_not_skip_files_by_default() {
+    when(analysisMode.isPublish()).thenReturn(true);
+
+    assertThat(new UnchangedSources(settings, analysisMode).isSkipped(sameFile)).isFalse();
+  }
+
+  @Test
+  public void do_not_skip_files_when_report_is_not_published() {
+    settings.setProperty(UnchangedSources.SKIP_UNCHANGED_SOURCES_KEY, true);
+    when(analysisMode.isPublish()).thenReturn(false);
+
+    assertThat(new UnchangedSources(settings, analysisMode).isSkipped(sameFile)).isFalse();
+  }
+}
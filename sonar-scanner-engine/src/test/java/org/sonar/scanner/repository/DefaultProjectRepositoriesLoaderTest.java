@@ -19,16 +19,22 @@
  */
 package org.sonar.scanner.repository;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.io.Resources;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentMatcher;
 import org.sonar.api.utils.MessageException;
+import org.sonar.home.cache.FileCache;
+import org.sonar.home.cache.Logger;
 import org.sonar.scanner.WsTestUtil;
 import org.sonar.scanner.bootstrap.BatchWsClient;
 import org.sonar.scanner.repository.DefaultProjectRepositoriesLoader;
@@ -40,23 +46,30 @@ import org.sonarqube.ws.client.WsRequest;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.argThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class DefaultProjectRepositoriesLoaderTest {
   private final static String PROJECT_KEY = "foo?";
   @Rule
   public ExpectedException thrown = ExpectedException.none();
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
 
   private DefaultProjectRepositoriesLoader loader;
   private BatchWsClient wsClient;
+  private FileCache fileCache;
 
   @Before
   public void prepare() throws IOException {
     wsClient = mock(BatchWsClient.class);
     InputStream is = mockData();
     WsTestUtil.mockStream(wsClient, "/batch/project.protobuf?key=foo%3F", is);
-    loader = new DefaultProjectRepositoriesLoader(wsClient);
+    fileCache = FileCache.create(temp.newFolder(), mock(Logger.class));
+    loader = new DefaultProjectRepositoriesLoader(wsClient, fileCache);
   }
 
   @Test
@@ -113,6 +126,123 @@ public class DefaultProjectRepositoriesLoaderTest {
     WsTestUtil.verifyCall(wsClient, "/batch/project.protobuf?key=foo%3F");
   }
 
+  @Test
+  public void requestOnlyFilesUpdatedSinceCachedAnalysis() throws IOException {
+    WsProjectResponse.Builder full = WsProjectResponse.newBuilder().setAnalysisUuid("A1");
+    addFileData(full, "foo", "src/Unchanged.java", "h1");
+    addFileData(full, "foo", "src/Changed.java", "h2");
+    WsTestUtil.mockStream(wsClient, "/batch/project.protobuf?key=foo%3F", toStream(full.build()));
+    ProjectRepositories proj = loader.load(PROJECT_KEY, false);
+    assertThat(proj.fileDataByPath("foo")).hasSize(2);
+
+    WsProjectResponse.Builder delta = WsProjectResponse.newBuilder().setAnalysisUuid("A2").setDelta(true)
+      .setFileKeysHash(hashFileKeys("foo", "src/Unchanged.java", "src/Changed.java", "src/Added.java"));
+    addFileData(delta, "foo", "src/Changed.java", "h3");
+    addFileData(delta, "foo", "src/Added.java", "h4");
+    WsTestUtil.mockStream(wsClient, "/batch/project.protobuf?key=foo%3F&since_analysis=A1", toStream(delta.build()));
+    proj = loader.load(PROJECT_KEY, false);
+    WsTestUtil.verifyCall(wsClient, "/batch/project.protobuf?key=foo%3F&since_analysis=A1");
+    assertThat(proj.fileDataByPath("foo")).hasSize(3);
+    assertThat(proj.fileData("foo", "src/Unchanged.java").hash()).isEqualTo("h1");
+    assertThat(proj.fileData("foo", "src/Changed.java").hash()).isEqualTo("h3");
+    assertThat(proj.fileData("foo", "src/Added.java").hash()).isEqualTo("h4");
+
+    // a full response replaces the cached file data
+    WsProjectResponse.Builder newFull = WsProjectResponse.newBuilder().setAnalysisUuid("A3");
+    addFileData(newFull, "foo", "src/Added.java", "h4");
+    WsTestUtil.mockStream(wsClient, "/batch/project.protobuf?key=foo%3F&since_analysis=A2", toStream(newFull.build()));
+    proj = loader.load(PROJECT_KEY, false);
+    assertThat(proj.fileDataByPath("foo")).containsOnlyKeys("src/Added.java");
+  }
+
+  @Test
+  public void requestAllFilesWhenFilesHaveBeenRemovedSinceCachedAnalysis() throws IOException {
+    WsProjectResponse.Builder full = WsProjectResponse.newBuilder().setAnalysisUuid("A1");
+    addFileData(full, "foo", "src/Removed.java", "h1");
+    addFileData(full, "foo", "src/Changed.java", "h2");
+    WsTestUtil.mockStream(wsClient, "/batch/project.protobuf?key=foo%3F", toStream(full.build()));
+    loader.load(PROJECT_KEY, false);
+
+    // src/Removed.java has been deleted on server, so the merged file data has one file too many
+    WsProjectResponse.Builder delta = WsProjectResponse.newBuilder().setAnalysisUuid("A2").setDelta(true).setFileKeysHash(hashFileKeys("foo", "src/Changed.java"));
+    addFileData(delta, "foo", "src/Changed.java", "h3");
+    WsTestUtil.mockStream(wsClient, "/batch/project.protobuf?key=foo%3F&since_analysis=A1", toStream(delta.build()));
+    WsProjectResponse.Builder newFull = WsProjectResponse.newBuilder().setAnalysisUuid("A2");
+    addFileData(newFull, "foo", "src/Changed.java", "h3");
+    WsTestUtil.mockStream(wsClient, "/batch/project.protobuf?key=foo%3F", toStream(newFull.build()));
+
+    ProjectRepositories proj = loader.load(PROJECT_KEY, false);
+
+    WsTestUtil.verifyCall(wsClient, "/batch/project.protobuf?key=foo%3F&since_analysis=A1");
+    assertThat(proj.fileDataByPath("foo")).containsOnlyKeys("src/Changed.java");
+    assertThat(proj.fileData("foo", "src/Removed.java")).isNull();
+  }
+
+  @Test
+  public void requestAllFilesWhenFilesHaveBeenMovedSinceCachedAnalysis() throws IOException {
+    WsProjectResponse.Builder full = WsProjectResponse.newBuilder().setAnalysisUuid("A1");
+    addFileData(full, "foo", "src/Old.java", "h1");
+    WsTestUtil.mockStream(wsClient, "/batch/project.protobuf?key=foo%3F", toStream(full.build()));
+    loader.load(PROJECT_KEY, false);
+
+    // src/Old.java has been moved without change, so its source is not in the delta and file count is the same
+    WsProjectResponse.Builder delta = WsProjectResponse.newBuilder().setAnalysisUuid("A2").setDelta(true).setFileKeysHash(hashFileKeys("foo", "src/New.java"));
+    WsTestUtil.mockStream(wsClient, "/batch/project.protobuf?key=foo%3F&since_analysis=A1", toStream(delta.build()));
+    WsProjectResponse.Builder newFull = WsProjectResponse.newBuilder().setAnalysisUuid("A2");
+    addFileData(newFull, "foo", "src/New.java", "h1");
+    WsTestUtil.mockStream(wsClient, "/batch/project.protobuf?key=foo%3F", toStream(newFull.build()));
+
+    ProjectRepositories proj = loader.load(PROJECT_KEY, false);
+
+    assertThat(proj.fileDataByPath("foo")).containsOnlyKeys("src/New.java");
+  }
+
+  @Test
+  public void requestAllFilesWhenDeltaDoesNotProvideFileKeysHash() throws IOException {
+    WsProjectResponse.Builder full = WsProjectResponse.newBuilder().setAnalysisUuid("A1");
+    addFileData(full, "foo", "src/Removed.java", "h1");
+    WsTestUtil.mockStream(wsClient, "/batch/project.protobuf?key=foo%3F", toStream(full.build()));
+    loader.load(PROJECT_KEY, false);
+
+    WsTestUtil.mockStream(wsClient, "/batch/project.protobuf?key=foo%3F&since_analysis=A1",
+      toStream(WsProjectResponse.newBuilder().setAnalysisUuid("A2").setDelta(true).build()));
+    WsTestUtil.mockStream(wsClient, "/batch/project.protobuf?key=foo%3F", toStream(WsProjectResponse.newBuilder().setAnalysisUuid("A2").build()));
+
+    ProjectRepositories proj = loader.load(PROJECT_KEY, false);
+
+    assertThat(proj.fileDataByPath("foo")).isEmpty();
+  }
+
+  @Test
+  public void doNotRequestDeltaWhenServerDoesNotVersionFileData() throws IOException {
+    loader.load(PROJECT_KEY, false);
+    loader.load(PROJECT_KEY, false);
+
+    verify(wsClient, times(2)).call(argThat(new ArgumentMatcher<WsRequest>() {
+      @Override
+      public boolean matches(Object argument) {
+        return ((WsRequest) argument).getPath().equals("/batch/project.protobuf?key=foo%3F");
+      }
+    }));
+  }
+
+  private static void addFileData(WsProjectResponse.Builder builder, String moduleKey, String path, String hash) {
+    WsProjectResponse.FileDataByPath existing = builder.getMutableFileDataByModuleAndPath().get(moduleKey);
+    WsProjectResponse.FileDataByPath.Builder fileDataByPath = existing == null ? WsProjectResponse.FileDataByPath.newBuilder() : existing.toBuilder();
+    fileDataByPath.getMutableFileDataByPath().put(path, WsProjectResponse.FileData.newBuilder().setHash(hash).build());
+    builder.getMutableFileDataByModuleAndPath().put(moduleKey, fileDataByPath.build());
+  }
+
+  private static String hashFileKeys(String moduleKey, String... paths) {
+    return org.sonar.scanner.protocol.input.ProjectRepositories.hashFileKeys(ImmutableMap.of(moduleKey, Arrays.asList(paths)));
+  }
+
+  private static InputStream toStream(WsProjectResponse response) throws IOException {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    response.writeTo(os);
+    return new ByteArrayInputStream(os.toByteArray());
+  }
+
   private InputStream mockData() throws IOException {
     ByteArrayOutputStream os = new ByteArrayOutputStream();
     WsProjectResponse.Builder projectResponseBuilder = WsProjectResponse.newBuilder();
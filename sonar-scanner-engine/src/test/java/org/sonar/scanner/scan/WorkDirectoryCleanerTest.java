@@ -27,6 +27,7 @@ import org.sonar.api.batch.bootstrap.ProjectDefinition;
 import org.sonar.api.batch.bootstrap.ProjectReactor;
 import org.sonar.home.cache.DirectoryLock;
 import org.sonar.scanner.scan.WorkDirectoryCleaner;
+import org.sonar.scanner.scm.BlameCache;
 import java.io.File;
 import java.io.IOException;
 
@@ -50,6 +51,9 @@ public class WorkDirectoryCleanerTest {
     File lock = new File(temp.getRoot(), DirectoryLock.LOCK_FILE_NAME);
     lock.createNewFile();
 
+    File blameCache = new File(temp.getRoot(), BlameCache.DIR_NAME);
+    blameCache.mkdir();
+
     // mock project
     ProjectReactor projectReactor = mock(ProjectReactor.class);
     ProjectDefinition projectDefinition = mock(ProjectDefinition.class);
@@ -73,7 +77,7 @@ public class WorkDirectoryCleanerTest {
 
     assertThat(temp.getRoot()).exists();
     assertThat(lock).exists();
-    assertThat(temp.getRoot().list()).containsOnly(DirectoryLock.LOCK_FILE_NAME);
+    assertThat(temp.getRoot().list()).containsOnly(DirectoryLock.LOCK_FILE_NAME, BlameCache.DIR_NAME);
   }
 
 }
@@ -19,6 +19,7 @@
  */
 package org.sonar.scanner.scan.measure;
 
+import com.google.common.collect.ImmutableMap;
 import java.util.Date;
 import java.util.Iterator;
 import org.apache.commons.lang.builder.EqualsBuilder;
@@ -36,6 +37,7 @@ import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
 import org.sonar.scanner.index.AbstractCachesTest;
 import org.sonar.scanner.index.Cache.Entry;
+import org.sonar.scanner.sensor.coverage.LineCoverageCache;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -47,6 +49,8 @@ public class MeasureCacheTest extends AbstractCachesTest {
 
   private MetricFinder metricFinder;
 
+  private LineCoverageCache lineCoverageCache;
+
   private MeasureCache measureCache;
 
   @Before
@@ -54,7 +58,8 @@ public class MeasureCacheTest extends AbstractCachesTest {
     super.start();
     metricFinder = mock(MetricFinder.class);
     when(metricFinder.<Integer>findByKey(CoreMetrics.NCLOC_KEY)).thenReturn(CoreMetrics.NCLOC);
-    measureCache = new MeasureCache(caches, metricFinder);
+    lineCoverageCache = new LineCoverageCache();
+    measureCache = new MeasureCache(caches, metricFinder, lineCoverageCache);
   }
 
   @Test
@@ -228,4 +233,18 @@ public class MeasureCacheTest extends AbstractCachesTest {
     assertThat(EqualsBuilder.reflectionEquals(measure, savedMeasure)).isTrue();
 
   }
+
+  @Test
+  public void should_build_line_coverage_measures() {
+    Resource file = File.create("foo/bar/File1.txt").setEffectiveKey("struts:foo/bar/File1.txt");
+    measureCache.put(file, new Measure(CoreMetrics.NCLOC, 10.0));
+    lineCoverageCache.merge(file.getEffectiveKey(), 10, CoreMetrics.COVERAGE_LINE_HITS_DATA_KEY, ImmutableMap.of(2, 1, 1, 0));
+
+    Measure lineHits = measureCache.byMetric(file, CoreMetrics.COVERAGE_LINE_HITS_DATA_KEY);
+    assertThat(lineHits.getData()).isEqualTo("1=0;2=1");
+    assertThat(measureCache.byMetric(file, CoreMetrics.CONDITIONS_BY_LINE_KEY)).isNull();
+    assertThat(measureCache.byResource(file)).extracting("metricKey").containsOnly(CoreMetrics.NCLOC_KEY, CoreMetrics.COVERAGE_LINE_HITS_DATA_KEY);
+    assertThat(measureCache.all()).extracting("metricKey").containsOnly(CoreMetrics.NCLOC_KEY, CoreMetrics.COVERAGE_LINE_HITS_DATA_KEY);
+    assertThat(measureCache.entries()).extracting(entry -> entry.key()[1]).containsOnly(CoreMetrics.NCLOC_KEY, CoreMetrics.COVERAGE_LINE_HITS_DATA_KEY);
+  }
 }
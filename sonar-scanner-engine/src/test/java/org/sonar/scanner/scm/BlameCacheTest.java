@@ -0,0 +1,124 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scm;
+
+import java.io.File;
+import java.io.IOException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.bootstrap.ProjectDefinition;
+import org.sonar.api.batch.bootstrap.ProjectReactor;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.scanner.protocol.output.ScannerReport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BlameCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File baseDir;
+  private ProjectReactor projectReactor = mock(ProjectReactor.class);
+  private BlameCache underTest;
+
+  @Before
+  public void setUp() throws IOException {
+    baseDir = temp.newFolder();
+    ProjectDefinition projectDefinition = mock(ProjectDefinition.class);
+    when(projectReactor.getRoot()).thenReturn(projectDefinition);
+    when(projectDefinition.getWorkDir()).thenReturn(temp.newFolder());
+    underTest = new BlameCache(projectReactor);
+  }
+
+  @Test
+  public void return_cached_changesets_if_file_did_not_change() {
+    DefaultInputFile file = newFile("src/Foo.xoo", "hash1");
+    underTest.put(file, "rev1", newChangesets(12));
+
+    ScannerReport.Changesets cached = underTest.get(newFile("src/Foo.xoo", "hash1"), "rev1");
+
+    assertThat(cached.getComponentRef()).isEqualTo(0);
+    assertThat(cached.getChangesetCount()).isEqualTo(1);
+    assertThat(cached.getChangeset(0).getRevision()).isEqualTo("rev1");
+    assertThat(cached.getChangesetIndexByLineList()).containsExactly(0, 0);
+  }
+
+  @Test
+  public void return_null_if_file_changed() {
+    underTest.put(newFile("src/Foo.xoo", "hash1"), "rev1", newChangesets(12));
+
+    assertThat(underTest.get(newFile("src/Foo.xoo", "hash2"), "rev1")).isNull();
+  }
+
+  @Test
+  public void return_null_if_revision_changed() {
+    underTest.put(newFile("src/Foo.xoo", "hash1"), "rev1", newChangesets(12));
+
+    assertThat(underTest.get(newFile("src/Foo.xoo", "hash1"), "rev2")).isNull();
+  }
+
+  @Test
+  public void return_null_if_file_not_in_cache() {
+    underTest.put(newFile("src/Foo.xoo", "hash1"), "rev1", newChangesets(12));
+
+    assertThat(underTest.get(newFile("src/Bar.xoo", "hash1"), "rev1")).isNull();
+  }
+
+  @Test
+  public void prune_results_not_used_by_analysis() {
+    underTest.put(newFile("src/Foo.xoo", "hash1"), "rev1", newChangesets(12));
+    underTest.put(newFile("src/Bar.xoo", "hash1"), "rev1", newChangesets(13));
+
+    // next analysis only reuses the blame of Foo.xoo
+    BlameCache nextAnalysis = new BlameCache(projectReactor);
+    assertThat(nextAnalysis.get(newFile("src/Foo.xoo", "hash1"), "rev1")).isNotNull();
+    nextAnalysis.prune();
+
+    assertThat(underTest.get(newFile("src/Foo.xoo", "hash1"), "rev1")).isNotNull();
+    assertThat(underTest.get(newFile("src/Bar.xoo", "hash1"), "rev1")).isNull();
+  }
+
+  @Test
+  public void do_not_prune_if_cache_is_not_used_by_analysis() {
+    underTest.put(newFile("src/Foo.xoo", "hash1"), "rev1", newChangesets(12));
+
+    new BlameCache(projectReactor).prune();
+
+    assertThat(underTest.get(newFile("src/Foo.xoo", "hash1"), "rev1")).isNotNull();
+  }
+
+  private DefaultInputFile newFile(String relativePath, String hash) {
+    return new DefaultInputFile("foo", relativePath).setModuleBaseDir(baseDir.toPath()).setHash(hash);
+  }
+
+  private static ScannerReport.Changesets newChangesets(int componentRef) {
+    return ScannerReport.Changesets.newBuilder()
+      .setComponentRef(componentRef)
+      .addChangeset(ScannerReport.Changesets.Changeset.newBuilder().setRevision("rev1").setAuthor("john").setDate(123456789L))
+      .addChangesetIndexByLine(0)
+      .addChangesetIndexByLine(0)
+      .build();
+  }
+}
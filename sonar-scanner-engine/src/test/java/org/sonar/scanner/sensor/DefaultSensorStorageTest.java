@@ -29,6 +29,8 @@ import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.batch.measure.MetricFinder;
+import org.sonar.api.batch.sensor.coverage.CoverageType;
+import org.sonar.api.batch.sensor.coverage.internal.DefaultCoverage;
 import org.sonar.api.batch.sensor.highlighting.internal.DefaultHighlighting;
 import org.sonar.api.batch.sensor.measure.internal.DefaultMeasure;
 import org.sonar.api.batch.sensor.symbol.internal.DefaultSymbolTable;
@@ -46,12 +48,18 @@ import org.sonar.scanner.report.ReportPublisher;
 import org.sonar.scanner.repository.ContextPropertiesCache;
 import org.sonar.scanner.scan.measure.MeasureCache;
 import org.sonar.scanner.sensor.coverage.CoverageExclusions;
+import org.sonar.scanner.sensor.coverage.FileLineCoverage;
+import org.sonar.scanner.sensor.coverage.LineCoverageCache;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.assertj.core.data.MapEntry.entry;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class DefaultSensorStorageTest {
@@ -67,6 +75,7 @@ public class DefaultSensorStorageTest {
   private ModuleIssues moduleIssues;
   private Project project;
   private MeasureCache measureCache;
+  private LineCoverageCache lineCoverageCache = new LineCoverageCache();
   private ContextPropertiesCache contextPropertiesCache = new ContextPropertiesCache();
   private BatchComponentCache resourceCache;
 
@@ -75,6 +84,7 @@ public class DefaultSensorStorageTest {
     MetricFinder metricFinder = mock(MetricFinder.class);
     when(metricFinder.<Integer>findByKey(CoreMetrics.NCLOC_KEY)).thenReturn(CoreMetrics.NCLOC);
     when(metricFinder.<String>findByKey(CoreMetrics.FUNCTION_COMPLEXITY_DISTRIBUTION_KEY)).thenReturn(CoreMetrics.FUNCTION_COMPLEXITY_DISTRIBUTION);
+    when(metricFinder.<String>findByKey(CoreMetrics.COVERAGE_LINE_HITS_DATA_KEY)).thenReturn(CoreMetrics.COVERAGE_LINE_HITS_DATA);
     settings = new Settings();
     moduleIssues = mock(ModuleIssues.class);
     project = new Project("myProject");
@@ -86,7 +96,7 @@ public class DefaultSensorStorageTest {
     when(reportPublisher.getWriter()).thenReturn(new ScannerReportWriter(temp.newFolder()));
     underTest = new DefaultSensorStorage(metricFinder,
       moduleIssues, settings, coverageExclusions, resourceCache, reportPublisher, measureCache,
-      mock(SonarCpdBlockIndex.class), contextPropertiesCache);
+      lineCoverageCache, mock(SonarCpdBlockIndex.class), contextPropertiesCache);
   }
 
   @Test
@@ -138,6 +148,54 @@ public class DefaultSensorStorageTest {
     assertThat(m.getMetric()).isEqualTo(CoreMetrics.NCLOC);
   }
 
+  @Test
+  public void shouldMergeCoverageOfSeveralReports() {
+    DefaultInputFile file = new DefaultInputFile("foo", "src/Foo.php").setLines(5);
+    Resource sonarFile = File.create("src/Foo.php").setEffectiveKey("foo:src/Foo.php");
+    resourceCache.add(sonarFile, null).setInputComponent(file);
+
+    DefaultCoverage coverage = new DefaultCoverage();
+    coverage.onFile(file).ofType(CoverageType.UNIT).lineHits(2, 1).lineHits(3, 0).conditions(3, 4, 1);
+    underTest.store(coverage);
+    coverage = new DefaultCoverage();
+    coverage.onFile(file).ofType(CoverageType.UNIT).lineHits(3, 2).lineHits(4, 0).conditions(3, 4, 3);
+    underTest.store(coverage);
+
+    FileLineCoverage lineCoverage = lineCoverageCache.get("foo:src/Foo.php");
+    assertThat(lineCoverage.hits(CoverageType.UNIT, 2)).isEqualTo(1);
+    assertThat(lineCoverage.hits(CoverageType.UNIT, 3)).isEqualTo(2);
+    assertThat(lineCoverage.hits(CoverageType.UNIT, 4)).isEqualTo(0);
+    assertThat(lineCoverage.conditions(CoverageType.UNIT, 3)).isEqualTo(4);
+    assertThat(lineCoverage.coveredConditions(CoverageType.UNIT, 3)).isEqualTo(3);
+
+    ArgumentCaptor<Measure> argumentCaptor = ArgumentCaptor.forClass(Measure.class);
+    verify(measureCache, times(8)).put(eq(sonarFile), argumentCaptor.capture());
+    // measures of the second report are computed on merged data
+    assertThat(argumentCaptor.getAllValues().subList(4, 8)).extracting("metricKey", "value").containsExactly(
+      tuple(CoreMetrics.LINES_TO_COVER_KEY, 3.0),
+      tuple(CoreMetrics.UNCOVERED_LINES_KEY, 1.0),
+      tuple(CoreMetrics.CONDITIONS_TO_COVER_KEY, 4.0),
+      tuple(CoreMetrics.UNCOVERED_CONDITIONS_KEY, 1.0));
+  }
+
+  @Test
+  public void shouldStoreLineCoverageMeasureInLineCoverageCache() {
+    DefaultInputFile file = new DefaultInputFile("foo", "src/Foo.php").setLines(5);
+    Resource sonarFile = File.create("src/Foo.php").setEffectiveKey("foo:src/Foo.php");
+    resourceCache.add(sonarFile, null).setInputComponent(file);
+
+    underTest.store(new DefaultMeasure()
+      .on(file)
+      .forMetric(CoreMetrics.COVERAGE_LINE_HITS_DATA)
+      .withValue("2=1;3=0;8=1"));
+
+    FileLineCoverage lineCoverage = lineCoverageCache.get("foo:src/Foo.php");
+    assertThat(lineCoverage.hits(CoverageType.UNIT, 2)).isEqualTo(1);
+    assertThat(lineCoverage.hits(CoverageType.UNIT, 3)).isEqualTo(0);
+    assertThat(lineCoverage.hits(CoverageType.UNIT, 8)).isEqualTo(FileLineCoverage.UNSET);
+    verify(measureCache, never()).put(any(Resource.class), any(Measure.class));
+  }
+
   @Test(expected = UnsupportedOperationException.class)
   public void duplicateHighlighting() throws Exception {
     Resource sonarFile = File.create("src/Foo.java").setEffectiveKey("foo:src/Foo.java");
@@ -0,0 +1,125 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.sensor.coverage;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.sensor.coverage.CoverageType;
+import org.sonar.api.batch.sensor.coverage.internal.DefaultCoverage;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Measure;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.scanner.sensor.coverage.FileLineCoverage.UNSET;
+
+public class LineCoverageCacheTest {
+
+  private static final String FILE_KEY = "foo:src/Foo.php";
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  private DefaultInputFile inputFile = new DefaultInputFile("foo", "src/Foo.php").setLines(5);
+  private LineCoverageCache underTest = new LineCoverageCache();
+
+  @Test
+  public void store_coverage_of_a_report() {
+    DefaultCoverage coverage = new DefaultCoverage();
+    coverage.onFile(inputFile).ofType(CoverageType.IT).lineHits(1, 3).lineHits(2, 0).conditions(2, 4, 1);
+
+    FileLineCoverage fileCoverage = underTest.merge(FILE_KEY, 5, coverage);
+
+    assertThat(underTest.get(FILE_KEY)).isSameAs(fileCoverage);
+    assertThat(fileCoverage.hasData(CoverageType.IT)).isTrue();
+    assertThat(fileCoverage.hasData(CoverageType.UNIT)).isFalse();
+    assertThat(fileCoverage.hits(CoverageType.IT, 1)).isEqualTo(3);
+    assertThat(fileCoverage.hits(CoverageType.IT, 2)).isEqualTo(0);
+    assertThat(fileCoverage.hits(CoverageType.IT, 3)).isEqualTo(UNSET);
+    assertThat(fileCoverage.hits(CoverageType.UNIT, 1)).isEqualTo(UNSET);
+    assertThat(fileCoverage.conditions(CoverageType.IT, 2)).isEqualTo(4);
+    assertThat(fileCoverage.coveredConditions(CoverageType.IT, 2)).isEqualTo(1);
+    assertThat(fileCoverage.linesToCover(CoverageType.IT)).isEqualTo(2);
+    assertThat(fileCoverage.coveredLines(CoverageType.IT)).isEqualTo(1);
+    assertThat(fileCoverage.conditions(CoverageType.IT)).isEqualTo(4);
+    assertThat(fileCoverage.coveredConditions(CoverageType.IT)).isEqualTo(1);
+  }
+
+  @Test
+  public void merge_coverage_of_several_reports() {
+    DefaultCoverage coverage = new DefaultCoverage();
+    coverage.onFile(inputFile).ofType(CoverageType.UNIT).lineHits(1, 3).lineHits(2, 0).conditions(2, 4, 1);
+    underTest.merge(FILE_KEY, 5, coverage);
+    coverage = new DefaultCoverage();
+    coverage.onFile(inputFile).ofType(CoverageType.UNIT).lineHits(1, 2).lineHits(3, 0).conditions(2, 4, 3);
+    FileLineCoverage fileCoverage = underTest.merge(FILE_KEY, 5, coverage);
+
+    assertThat(fileCoverage.hits(CoverageType.UNIT, 1)).isEqualTo(5);
+    assertThat(fileCoverage.hits(CoverageType.UNIT, 2)).isEqualTo(0);
+    assertThat(fileCoverage.hits(CoverageType.UNIT, 3)).isEqualTo(0);
+    assertThat(fileCoverage.conditions(CoverageType.UNIT, 2)).isEqualTo(4);
+    assertThat(fileCoverage.coveredConditions(CoverageType.UNIT, 2)).isEqualTo(3);
+    assertThat(fileCoverage.linesToCover(CoverageType.UNIT)).isEqualTo(3);
+    assertThat(fileCoverage.coveredLines(CoverageType.UNIT)).isEqualTo(1);
+  }
+
+  @Test
+  public void merge_line_data_of_measures_and_ignore_lines_out_of_file() {
+    underTest.merge(FILE_KEY, 5, CoreMetrics.OVERALL_COVERED_CONDITIONS_BY_LINE_KEY, ImmutableMap.of(2, 1, 0, 3, 6, 2));
+
+    FileLineCoverage fileCoverage = underTest.get(FILE_KEY);
+    assertThat(fileCoverage.coveredConditions(CoverageType.OVERALL, 2)).isEqualTo(1);
+    assertThat(fileCoverage.coveredConditions(CoverageType.OVERALL, 0)).isEqualTo(UNSET);
+    assertThat(fileCoverage.coveredConditions(CoverageType.OVERALL, 6)).isEqualTo(UNSET);
+  }
+
+  @Test
+  public void fail_to_merge_measure_of_other_metric() {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("Not a line coverage metric: ncloc");
+
+    underTest.merge(FILE_KEY, 5, CoreMetrics.NCLOC_KEY, ImmutableMap.of(2, 1));
+  }
+
+  @Test
+  public void build_measures_on_demand() {
+    DefaultCoverage coverage = new DefaultCoverage();
+    coverage.onFile(inputFile).ofType(CoverageType.UNIT).lineHits(3, 0).lineHits(1, 3).conditions(3, 2, 1);
+    underTest.merge(FILE_KEY, 5, coverage);
+
+    Measure lineHits = underTest.measure(FILE_KEY, CoreMetrics.COVERAGE_LINE_HITS_DATA_KEY);
+    assertThat(lineHits.getMetric()).isEqualTo(CoreMetrics.COVERAGE_LINE_HITS_DATA);
+    assertThat(lineHits.getData()).isEqualTo("1=3;3=0");
+    assertThat(underTest.measure(FILE_KEY, CoreMetrics.CONDITIONS_BY_LINE_KEY).getData()).isEqualTo("3=2");
+    assertThat(underTest.measure(FILE_KEY, CoreMetrics.IT_COVERAGE_LINE_HITS_DATA_KEY)).isNull();
+    assertThat(underTest.measure("other", CoreMetrics.COVERAGE_LINE_HITS_DATA_KEY)).isNull();
+    assertThat(underTest.measures(FILE_KEY)).extracting("metricKey").containsOnly(CoreMetrics.COVERAGE_LINE_HITS_DATA_KEY,
+      CoreMetrics.CONDITIONS_BY_LINE_KEY, CoreMetrics.COVERED_CONDITIONS_BY_LINE_KEY);
+    assertThat(underTest.measures("other")).isEmpty();
+  }
+
+  @Test
+  public void identify_line_metrics() {
+    assertThat(LineCoverageCache.isLineMetric(CoreMetrics.IT_CONDITIONS_BY_LINE_KEY)).isTrue();
+    assertThat(LineCoverageCache.isLineMetric(CoreMetrics.LINES_TO_COVER_KEY)).isFalse();
+  }
+}
@@ -49,6 +49,8 @@ import org.sonar.scanner.source.CodeColorizers;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 public class CodeColorizersTest {
@@ -80,6 +82,22 @@ public class CodeColorizersTest {
     verify(highlighting).highlight(120, 124, TypeOfText.KEYWORD);
   }
 
+  @Test
+  public void tokenizers_of_language_are_reused_between_files() throws Exception {
+    CodeColorizerFormat format = spy(new JavaScriptColorizerFormat());
+    CodeColorizers codeColorizers = new CodeColorizers(Arrays.asList(format));
+    File jsFile = new File(this.getClass().getResource("CodeColorizersTest/Person.js").toURI());
+    NewHighlighting highlighting1 = mock(NewHighlighting.class);
+    NewHighlighting highlighting2 = mock(NewHighlighting.class);
+
+    codeColorizers.toSyntaxHighlighting(jsFile, StandardCharsets.UTF_8, "js", highlighting1);
+    codeColorizers.toSyntaxHighlighting(jsFile, StandardCharsets.UTF_8, "js", highlighting2);
+
+    verify(format, times(1)).getTokenizers();
+    verifyForJs(highlighting1);
+    verifyForJs(highlighting2);
+  }
+
   @Test
   public void testConvertToHighlightingIgnoreBOM() throws Exception {
     CodeColorizers codeColorizers = new CodeColorizers(Arrays.<CodeColorizerFormat>asList(new JavaScriptColorizerFormat(), new WebCodeColorizerFormat()));
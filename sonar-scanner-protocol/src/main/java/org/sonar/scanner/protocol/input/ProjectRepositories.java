@@ -19,9 +19,15 @@
  */
 package org.sonar.scanner.protocol.input;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
@@ -38,6 +44,9 @@ public class ProjectRepositories {
   private Map<String, Map<String, String>> settingsByModule = new HashMap<>();
   private Map<String, Map<String, FileData>> fileDataByModuleAndPath = new HashMap<>();
   private Date lastAnalysisDate;
+  private String analysisUuid;
+  private boolean delta;
+  private String fileKeysHash;
 
   public Map<String, String> settings(String moduleKey) {
     return settingsByModule.containsKey(moduleKey) ? settingsByModule.get(moduleKey) : Collections.<String, String>emptyMap();
@@ -105,6 +114,77 @@ public class ProjectRepositories {
     this.lastAnalysisDate = lastAnalysisDate;
   }
 
+  /**
+   * Uuid of the last analysis of the project, used by the scanner to request only the file data which changed since then.
+   */
+  @CheckForNull
+  public String analysisUuid() {
+    return analysisUuid;
+  }
+
+  public ProjectRepositories setAnalysisUuid(@Nullable String analysisUuid) {
+    this.analysisUuid = analysisUuid;
+    return this;
+  }
+
+  /**
+   * Whether file data only contains the files updated since a previous analysis.
+   */
+  public boolean isDelta() {
+    return delta;
+  }
+
+  public ProjectRepositories setDelta(boolean delta) {
+    this.delta = delta;
+    return this;
+  }
+
+  /**
+   * {@link #hashFileKeys(Map) Hash of the keys} of the full file data of the project. Only set when {@link #isDelta()},
+   * so that the caller can check that the file data it merged with the delta has the same files, as files which have
+   * been deleted, moved or renamed since do not appear in the delta.
+   */
+  @CheckForNull
+  public String fileKeysHash() {
+    return fileKeysHash;
+  }
+
+  public ProjectRepositories setFileKeysHash(@Nullable String fileKeysHash) {
+    this.fileKeysHash = fileKeysHash;
+    return this;
+  }
+
+  /**
+   * Hash of the pairs of module key and path of file data, which does not depend on the order of modules and paths.
+   */
+  public static String hashFileKeys(Map<String, ? extends Collection<String>> pathsByModuleKey) {
+    List<String> keys = new ArrayList<>();
+    for (Map.Entry<String, ? extends Collection<String>> entry : pathsByModuleKey.entrySet()) {
+      for (String path : entry.getValue()) {
+        keys.add(entry.getKey() + '\0' + path);
+      }
+    }
+    Collections.sort(keys);
+    MessageDigest digest = md5();
+    for (String key : keys) {
+      digest.update(key.getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) '\n');
+    }
+    StringBuilder hex = new StringBuilder();
+    for (byte b : digest.digest()) {
+      hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return hex.toString();
+  }
+
+  private static MessageDigest md5() {
+    try {
+      return MessageDigest.getInstance("MD5");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("MD5 algorithm is not available", e);
+    }
+  }
+
   public String toJson() {
     return GsonHelper.create().toJson(this);
   }